@@ -1,13 +1,22 @@
 package at.ac.uibk.chaas.messageclient;
 
+import at.ac.uibk.chaas.messageclient.nio.NioMessageBufferClient;
+import at.ac.uibk.chaas.messageclient.rmi.IMessageBufferListener;
 import at.ac.uibk.chaas.messageclient.rmi.IMessageBufferService;
+import at.ac.uibk.chaas.messageclient.rmi.MessageChunk;
+import at.ac.uibk.chaas.messageclient.shm.SharedMemoryRing;
 import org.apache.commons.lang3.StringUtils;
 import picocli.CommandLine;
 
+import java.io.File;
+import java.io.IOException;
 import java.net.MalformedURLException;
+import java.nio.file.Files;
 import java.rmi.Naming;
+import java.rmi.NoSuchObjectException;
 import java.rmi.NotBoundException;
 import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
 
 /**
  * The runnable that is called from picocli handler.
@@ -19,18 +28,36 @@ import java.rmi.RemoteException;
 @CommandLine.Command(description = "Stego Message Client.", name = "messageclient",
         mixinStandardHelpOptions = true, version = "messageclient 1.0")
 public class MessageClientRunner implements Runnable {
+    private static final int FOLLOW_CHUNK_SIZE = 64 * 1024;
+    private static final long FOLLOW_POLL_TIMEOUT_MS = 10_000;
+    private static final long SHM_PUSH_TIMEOUT_MS = 60_000;
+    private static final long LIVENESS_CHECK_INTERVAL_MS = 5_000;
+    private static final long SERVER_TIMEOUT_MS = 30_000;
+
     @CommandLine.Option(names = {"-s", "--server"}, description = "RMI Server", defaultValue = "127.0.0.1")
     private String rmiHost;
 
-    @CommandLine.Option(names = {"-p", "--port"}, description = "RMI Port", defaultValue = "1099")
+    @CommandLine.Option(names = {"-p", "--port"}, description = "RMI or NIO Port", defaultValue = "1099")
     private int rmiPort;
 
+    @CommandLine.Option(names = {"-n", "--nio"}, description = "Use the binary NIO transport instead of RMI")
+    private boolean nio;
+
+    @CommandLine.Option(names = {"-I", "--inbound"}, description = "Use the inbound buffer of a DUPLEX client (NIO: port + 1)")
+    private boolean inbound;
+
     @CommandLine.Option(names = {"-f", "--follow"}, description = "Print buffer content, replace non ascii chars with #")
     private boolean follow;
 
     @CommandLine.Option(names = {"-a", "--add"}, description = "Append string to buffer")
     private String pushData;
 
+    @CommandLine.Option(names = {"-i", "--input"}, description = "Append file content to buffer")
+    private File inputFile;
+
+    @CommandLine.Option(names = {"-m", "--shm"}, description = "Append to the shared memory ring file instead of using RMI or NIO")
+    private File shmFile;
+
     @CommandLine.Option(names = {"-c", "--clear"}, description = "Clear buffer")
     private boolean clear;
 
@@ -57,7 +84,16 @@ public class MessageClientRunner implements Runnable {
         }
 
         rmiService = (IMessageBufferService) Naming.lookup("rmi://" + rmiHost + ":" + rmiPort + "/" +
-                IMessageBufferService.class.getSimpleName());
+                IMessageBufferService.class.getSimpleName() + (inbound ? IMessageBufferService.INBOUND_SUFFIX : ""));
+    }
+
+    /**
+     * Connect to the binary NIO server.
+     *
+     * @throws IOException if the connection failed.
+     */
+    private void initNio() throws IOException {
+        rmiService = new NioMessageBufferClient(rmiHost, inbound ? rmiPort + 1 : rmiPort);
     }
 
     /**
@@ -65,57 +101,33 @@ public class MessageClientRunner implements Runnable {
      */
     @Override
     public void run() {
+        if (shmFile != null) {
+            pushToSharedMemory();
+            return;
+        }
+
         try {
-            initRMI();
-        } catch (RemoteException | NotBoundException | MalformedURLException e) {
+            if (nio) {
+                initNio();
+            } else {
+                initRMI();
+            }
+        } catch (IOException | NotBoundException e) {
             e.printStackTrace();
             return;
         }
 
         if (follow) {
-            boolean isInterrupted = false;
-            while (!isInterrupted) {
-                try {
-                    byte[] bytes = rmiService.getQueuedBytes();
-                    for (byte b : bytes) {
-                        if (b == (byte) 0xff) {
-                            System.out.print("_"); // mark transmission error
-                        } else {
-                            char chr = (char) b;
-                            boolean asciiPrintable = StringUtils.isAsciiPrintable(String.valueOf(chr));
-                            if (asciiPrintable) {
-                                System.out.print(chr);
-                            } else {
-                                System.out.print('#'); // mark unprintable packet
-                            }
-                        }
-                    }
-                    System.out.println();
-                } catch (RemoteException e) {
-                    e.printStackTrace();
-                }
-
-                try {
-                    Thread.sleep(500);
-                } catch (InterruptedException e) {
-                    isInterrupted = true;
-                }
+            if (nio || !followWithListener()) { // the NIO transport only supports long polling
+                followWithPolling();
             }
         } else if (readText) {
             try {
-                byte[] bytes = rmiService.getQueuedBytes();
-                for (byte b : bytes) {
-                    if (b == (byte) 0xff) {
-                        System.out.print("_"); // mark transmission error
-                    } else {
-                        char chr = (char) b;
-                        boolean asciiPrintable = StringUtils.isAsciiPrintable(String.valueOf(chr));
-                        if (asciiPrintable) {
-                            System.out.print(chr);
-                        } else {
-                            System.out.print('#'); // mark unprintable packet
-                        }
-                    }
+                // read in chunks, only they tell lost bytes apart from received 0xff bytes
+                MessageChunk chunk = rmiService.readSince(0, FOLLOW_CHUNK_SIZE);
+                while (chunk.getData().length > 0) {
+                    printText(chunk);
+                    chunk = rmiService.readSince(chunk.getNextOffset(), FOLLOW_CHUNK_SIZE);
                 }
                 System.out.println();
             } catch (RemoteException e) {
@@ -134,6 +146,14 @@ public class MessageClientRunner implements Runnable {
             } catch (RemoteException e) {
                 e.printStackTrace();
             }
+        } else if (inputFile != null) {
+            try {
+                byte[] data = Files.readAllBytes(inputFile.toPath());
+                rmiService.push(data);
+                System.out.println("Appended " + data.length + " bytes to buffer!");
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
         } else if (clear) {
             try {
                 rmiService.clearQueue();
@@ -143,4 +163,166 @@ public class MessageClientRunner implements Runnable {
             }
         }
     }
+
+    /**
+     * Append the string or file content to the shared memory ring.
+     */
+    private void pushToSharedMemory() {
+        byte[] data;
+        try {
+            if (inputFile != null) {
+                data = Files.readAllBytes(inputFile.toPath());
+            } else if (StringUtils.isNotBlank(pushData)) {
+                data = new byte[pushData.length()];
+                for (int i = 0; i < data.length; i++) {
+                    data[i] = (byte) pushData.charAt(i);
+                }
+            } else {
+                System.out.println("Only --add and --input are supported with --shm!");
+                return;
+            }
+
+            try (SharedMemoryRing ring = SharedMemoryRing.open(shmFile, SharedMemoryRing.DEFAULT_CAPACITY)) {
+                ring.push(data, 0, data.length, SHM_PUSH_TIMEOUT_MS);
+            }
+            System.out.println("Appended " + data.length + " bytes to shared memory ring!");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Follow the buffer content with a registered listener that is called back by the server.
+     *
+     * @return false if the listener could not be registered.
+     */
+    private boolean followWithListener() {
+        FollowListener followListener = new FollowListener();
+        final IMessageBufferListener listener;
+        try {
+            listener = (IMessageBufferListener) UnicastRemoteObject.exportObject(followListener, 0);
+            rmiService.subscribe(listener, 0);
+        } catch (RemoteException e) {
+            System.out.println("Failed to register listener, falling back to polling: " + e.getMessage());
+            try {
+                UnicastRemoteObject.unexportObject(followListener, true);
+            } catch (NoSuchObjectException ignored) {
+            }
+            return false;
+        }
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                rmiService.unsubscribe(listener);
+            } catch (RemoteException ignored) {
+            }
+        }));
+
+        // the callbacks are handled by the RMI threads, this thread only checks that the server is still alive
+        long lastContactMs = System.currentTimeMillis();
+        try {
+            while (true) {
+                Thread.sleep(LIVENESS_CHECK_INTERVAL_MS);
+                try {
+                    rmiService.getQueuedByteCount();
+                    lastContactMs = System.currentTimeMillis();
+                } catch (RemoteException e) {
+                    if (System.currentTimeMillis() - lastContactMs > SERVER_TIMEOUT_MS) {
+                        exitUnreachable(e);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Follow the buffer content with long-poll requests.
+     */
+    private void followWithPolling() {
+        long offset = 0;
+        long lastContactMs = System.currentTimeMillis();
+        boolean isInterrupted = false;
+        while (!isInterrupted) {
+            try {
+                MessageChunk chunk = rmiService.awaitSince(offset, FOLLOW_CHUNK_SIZE, FOLLOW_POLL_TIMEOUT_MS);
+                if (chunk.getOffset() > offset && offset > 0) {
+                    System.out.print("[" + (chunk.getOffset() - offset) + " bytes skipped]");
+                }
+                printText(chunk);
+                System.out.flush();
+                offset = chunk.getNextOffset();
+                lastContactMs = System.currentTimeMillis();
+            } catch (RemoteException e) {
+                if (System.currentTimeMillis() - lastContactMs > SERVER_TIMEOUT_MS) {
+                    exitUnreachable(e);
+                }
+                e.printStackTrace();
+
+                try {
+                    Thread.sleep(500);
+                } catch (InterruptedException ie) {
+                    isInterrupted = true;
+                }
+            }
+
+            isInterrupted |= Thread.currentThread().isInterrupted();
+        }
+    }
+
+    /**
+     * Exit with an error, the server did not answer for {@link #SERVER_TIMEOUT_MS} milliseconds.
+     *
+     * @param e the last error.
+     */
+    private static void exitUnreachable(RemoteException e) {
+        System.err.println("Server unreachable for " + SERVER_TIMEOUT_MS / 1000 + " s, giving up: " + e.getMessage());
+        System.exit(1);
+    }
+
+    /**
+     * Print the bytes as text. Non ascii chars are replaced with #, transmission errors with _.
+     *
+     * @param chunk the bytes.
+     */
+    private static void printText(MessageChunk chunk) {
+        byte[] bytes = chunk.getData();
+        for (int i = 0; i < bytes.length; i++) {
+            byte b = bytes[i];
+            if (chunk.isLost(i)) {
+                System.out.print("_"); // mark transmission error
+            } else {
+                char chr = (char) b;
+                boolean asciiPrintable = StringUtils.isAsciiPrintable(String.valueOf(chr));
+                if (asciiPrintable) {
+                    System.out.print(chr);
+                } else {
+                    System.out.print('#'); // mark unprintable packet
+                }
+            }
+        }
+    }
+
+    /**
+     * The listener that prints the received bytes in follow mode.
+     */
+    private static class FollowListener implements IMessageBufferListener {
+        private long nextOffset = 0;
+
+        /**
+         * Print the new bytes.
+         *
+         * @param chunk the new bytes.
+         */
+        @Override
+        public void bytesAdded(MessageChunk chunk) {
+            if (chunk.getOffset() > nextOffset && nextOffset > 0) {
+                System.out.print("[" + (chunk.getOffset() - nextOffset) + " bytes skipped]");
+            }
+            printText(chunk);
+            System.out.flush();
+            nextOffset = chunk.getNextOffset();
+        }
+    }
 }
@@ -0,0 +1,64 @@
+package at.ac.uibk.chaas.messageclient.nio;
+
+/**
+ * The statistics of the message buffer server.
+ *
+ * @author christoph.haas
+ * @version 1.0.0
+ * @since 1.8
+ */
+public class MessageBufferStats {
+    private final long readOffset;
+    private final long writeOffset;
+    private final int connections;
+    private final long requests;
+
+    /**
+     * Constructor.
+     *
+     * @param readOffset  the stream offset of the first queued byte.
+     * @param writeOffset the stream offset after the last queued byte.
+     * @param connections the number of open connections.
+     * @param requests    the number of handled requests.
+     */
+    public MessageBufferStats(long readOffset, long writeOffset, int connections, long requests) {
+        this.readOffset = readOffset;
+        this.writeOffset = writeOffset;
+        this.connections = connections;
+        this.requests = requests;
+    }
+
+    /**
+     * @return the stream offset of the first queued byte.
+     */
+    public long getReadOffset() {
+        return readOffset;
+    }
+
+    /**
+     * @return the stream offset after the last queued byte.
+     */
+    public long getWriteOffset() {
+        return writeOffset;
+    }
+
+    /**
+     * @return the number of open connections.
+     */
+    public int getConnections() {
+        return connections;
+    }
+
+    /**
+     * @return the number of handled requests.
+     */
+    public long getRequests() {
+        return requests;
+    }
+
+    @Override
+    public String toString() {
+        return "readOffset=" + readOffset + ", writeOffset=" + writeOffset + ", queued=" + (writeOffset - readOffset)
+                + ", connections=" + connections + ", requests=" + requests;
+    }
+}
@@ -0,0 +1,50 @@
+package at.ac.uibk.chaas.messageclient.nio;
+
+/**
+ * Constants of the binary message buffer protocol.
+ * <p>
+ * Every request is a frame: <code>int length | byte opcode | payload</code>, every response is a frame:
+ * <code>int length | byte status | payload</code>. The length covers the opcode/status byte and the payload, all
+ * numbers are big endian. Requests can be pipelined, the responses of a connection are sent in request order.
+ * <p>
+ * Request and response payloads:
+ * <ul>
+ * <li>PUSH: the bytes to append | empty</li>
+ * <li>READ_SINCE: long offset, int maxLen, long timeoutMs (0 = do not wait) | a chunk</li>
+ * <li>SIZE: empty | int size</li>
+ * <li>CLEAR: empty | empty</li>
+ * <li>STATS: empty | long readOffset, long writeOffset, int connections, long requests</li>
+ * <li>GET_ALL: empty | a chunk of the queued bytes, at most MAX_GET_ALL_SIZE of the oldest ones</li>
+ * </ul>
+ * A chunk is <code>long offset | long nextOffset | int lostLength | lost | the bytes</code>, where lost is the
+ * {@link java.util.BitSet#toByteArray()} of the indexes of the lost bytes, see
+ * {@link at.ac.uibk.chaas.messageclient.rmi.MessageChunk}.
+ * An error response contains the error message as UTF-8 string.
+ *
+ * @author christoph.haas
+ * @version 1.0.0
+ * @since 1.8
+ */
+public final class MessageProtocol {
+    public static final byte OP_PUSH = 1;
+    public static final byte OP_READ_SINCE = 2;
+    public static final byte OP_SIZE = 3;
+    public static final byte OP_CLEAR = 4;
+    public static final byte OP_STATS = 5;
+    public static final byte OP_GET_ALL = 6;
+
+    public static final byte STATUS_OK = 0;
+    public static final byte STATUS_ERROR = 1;
+
+    public static final int HEADER_SIZE = 5; // length + opcode/status
+    public static final int MAX_FRAME_SIZE = 16 * 1024 * 1024;
+    public static final int CHUNK_HEADER_SIZE = 20; // offset, next offset, lost length
+    // the lost bitmap needs one byte per eight bytes
+    public static final int MAX_GET_ALL_SIZE = (MAX_FRAME_SIZE - 1 - CHUNK_HEADER_SIZE) / 9 * 8;
+
+    /**
+     * Utility class.
+     */
+    private MessageProtocol() {
+    }
+}
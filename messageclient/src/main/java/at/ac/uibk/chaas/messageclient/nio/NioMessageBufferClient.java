@@ -0,0 +1,296 @@
+package at.ac.uibk.chaas.messageclient.nio;
+
+import at.ac.uibk.chaas.messageclient.rmi.IMessageBufferListener;
+import at.ac.uibk.chaas.messageclient.rmi.IMessageBufferService;
+import at.ac.uibk.chaas.messageclient.rmi.MessageChunk;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.rmi.RemoteException;
+import java.util.BitSet;
+
+import static at.ac.uibk.chaas.messageclient.nio.MessageProtocol.*;
+
+/**
+ * A client for the binary message buffer protocol.
+ * <p>
+ * The client implements the same interface as the RMI service, so both transports can be used interchangeably.
+ * I/O errors are reported as {@link RemoteException}. Listener subscriptions are not supported by this transport,
+ * {@link #awaitSince(long, int, long)} can be used instead.
+ *
+ * @author christoph.haas
+ * @version 1.0.0
+ * @since 1.8
+ */
+public class NioMessageBufferClient implements IMessageBufferService, Closeable {
+    private final SocketChannel channel;
+    private final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    private ByteBuffer response = ByteBuffer.allocate(64 * 1024);
+
+    /**
+     * Constructor. Connects to the server.
+     *
+     * @param host the server host.
+     * @param port the server port.
+     * @throws IOException if the connection failed.
+     */
+    public NioMessageBufferClient(String host, int port) throws IOException {
+        channel = SocketChannel.open(new InetSocketAddress(host, port));
+        channel.socket().setTcpNoDelay(true);
+    }
+
+    /**
+     * @return the count of queued bytes in the message buffer.
+     */
+    @Override
+    public synchronized int getQueuedByteCount() throws RemoteException {
+        return request(OP_SIZE, null).getInt();
+    }
+
+    /**
+     * @return the queued bytes in the message buffer as string, see {@link MessageChunk#getText()}.
+     */
+    @Override
+    public synchronized String getQueuedBytesAsString() throws RemoteException {
+        return readChunk(request(OP_GET_ALL, null)).getText();
+    }
+
+    /**
+     * @return the queued bytes in the message buffer as byte array, lost bytes are 0xff.
+     */
+    @Override
+    public synchronized byte[] getQueuedBytes() throws RemoteException {
+        return readChunk(request(OP_GET_ALL, null)).getData();
+    }
+
+    /**
+     * Read the bytes that were added to the message buffer since the given stream offset. The bytes stay queued.
+     *
+     * @param offset the stream offset, use 0 to start with the oldest queued byte.
+     * @param maxLen the maximum number of bytes to return.
+     * @return the new bytes and the offset for the next read.
+     */
+    @Override
+    public MessageChunk readSince(long offset, int maxLen) throws RemoteException {
+        return awaitSince(offset, maxLen, 0);
+    }
+
+    /**
+     * Like {@link #readSince(long, int)}, but waits until new bytes are available or the timeout has elapsed.
+     *
+     * @param offset    the stream offset, use 0 to start with the oldest queued byte.
+     * @param maxLen    the maximum number of bytes to return.
+     * @param timeoutMs the maximum time to wait in milliseconds.
+     * @return the new bytes and the offset for the next read, the chunk is empty if the timeout has elapsed.
+     */
+    @Override
+    public synchronized MessageChunk awaitSince(long offset, int maxLen, long timeoutMs) throws RemoteException {
+        ByteBuffer params = ByteBuffer.allocate(20);
+        params.putLong(offset).putInt(maxLen).putLong(Math.max(0, timeoutMs));
+        params.flip();
+
+        return readChunk(request(OP_READ_SINCE, params));
+    }
+
+    /**
+     * Parse a chunk response.
+     *
+     * @param payload the response payload.
+     * @return the chunk.
+     */
+    private static MessageChunk readChunk(ByteBuffer payload) {
+        long start = payload.getLong();
+        long next = payload.getLong();
+        byte[] lost = new byte[payload.getInt()];
+        payload.get(lost);
+        byte[] bytes = new byte[payload.remaining()];
+        payload.get(bytes);
+
+        return new MessageChunk(start, next, bytes, BitSet.valueOf(lost));
+    }
+
+    /**
+     * Not supported by this transport.
+     *
+     * @param listener the remote listener.
+     * @param offset   the stream offset.
+     * @throws RemoteException always.
+     */
+    @Override
+    public void subscribe(IMessageBufferListener listener, long offset) throws RemoteException {
+        throw new RemoteException("Listeners are not supported by the NIO transport");
+    }
+
+    /**
+     * Not supported by this transport.
+     *
+     * @param listener the remote listener.
+     * @throws RemoteException always.
+     */
+    @Override
+    public void unsubscribe(IMessageBufferListener listener) throws RemoteException {
+        throw new RemoteException("Listeners are not supported by the NIO transport");
+    }
+
+    /**
+     * Clear the buffer.
+     */
+    @Override
+    public synchronized void clearQueue() throws RemoteException {
+        request(OP_CLEAR, null);
+    }
+
+    /**
+     * Append the given string to the message buffer.
+     *
+     * @param data the message.
+     */
+    @Override
+    public void push(String data) throws RemoteException {
+        byte[] bytes = new byte[data.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) data.charAt(i);
+        }
+
+        push(bytes);
+    }
+
+    /**
+     * Append the given bytes to the message buffer.
+     *
+     * @param data the bytes.
+     */
+    @Override
+    public synchronized void push(byte[] data) throws RemoteException {
+        request(OP_PUSH, ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Append all given chunks to the message buffer. The requests are pipelined, so the whole batch only needs
+     * a single round trip.
+     *
+     * @param chunks the chunks.
+     */
+    public synchronized void pushAll(byte[][] chunks) throws RemoteException {
+        try {
+            for (byte[] chunk : chunks) {
+                writeRequest(OP_PUSH, ByteBuffer.wrap(chunk));
+            }
+            for (int i = 0; i < chunks.length; i++) {
+                readResponse();
+            }
+        } catch (IOException e) {
+            throw new RemoteException("Push failed", e);
+        }
+    }
+
+    /**
+     * @return the statistics of the server.
+     */
+    public synchronized MessageBufferStats getStats() throws RemoteException {
+        ByteBuffer payload = request(OP_STATS, null);
+
+        return new MessageBufferStats(payload.getLong(), payload.getLong(), payload.getInt(), payload.getLong());
+    }
+
+    /**
+     * Close the connection.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Send a request and wait for the response. Must be called while holding the client lock.
+     *
+     * @param opcode  the request opcode.
+     * @param payload the request payload, may be null.
+     * @return the response payload.
+     * @throws RemoteException if the request failed.
+     */
+    private ByteBuffer request(byte opcode, ByteBuffer payload) throws RemoteException {
+        try {
+            writeRequest(opcode, payload);
+            return readResponse();
+        } catch (IOException e) {
+            throw new RemoteException("Request " + opcode + " failed", e);
+        }
+    }
+
+    /**
+     * Write a request frame.
+     *
+     * @param opcode  the request opcode.
+     * @param payload the request payload, may be null.
+     * @throws IOException if the request could not be sent.
+     */
+    private void writeRequest(byte opcode, ByteBuffer payload) throws IOException {
+        int payloadLength = payload == null ? 0 : payload.remaining();
+        if (payloadLength + 1 > MAX_FRAME_SIZE) {
+            throw new IOException("Request too large: " + payloadLength + " bytes");
+        }
+
+        header.clear();
+        header.putInt(payloadLength + 1).put(opcode);
+        header.flip();
+
+        ByteBuffer[] frame = payload == null ? new ByteBuffer[]{header} : new ByteBuffer[]{header, payload};
+        while (header.hasRemaining() || (payload != null && payload.hasRemaining())) {
+            channel.write(frame);
+        }
+    }
+
+    /**
+     * Read a response frame.
+     *
+     * @return the response payload.
+     * @throws IOException if the response could not be read or the server returned an error.
+     */
+    private ByteBuffer readResponse() throws IOException {
+        header.clear();
+        readFully(header);
+        header.flip();
+
+        int length = header.getInt();
+        byte status = header.get();
+        if (length < 1 || length > MAX_FRAME_SIZE) {
+            throw new IOException("Invalid response length: " + length);
+        }
+
+        if (response.capacity() < length - 1) {
+            response = ByteBuffer.allocate(length - 1);
+        }
+        response.clear();
+        response.limit(length - 1);
+        readFully(response);
+        response.flip();
+
+        if (status != STATUS_OK) {
+            byte[] message = new byte[response.remaining()];
+            response.get(message);
+            throw new IOException("Server error: " + new String(message, StandardCharsets.UTF_8));
+        }
+
+        return response;
+    }
+
+    /**
+     * Fill the given buffer from the channel.
+     *
+     * @param buffer the buffer.
+     * @throws IOException if the connection was closed.
+     */
+    private void readFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Connection closed by server");
+            }
+        }
+    }
+}
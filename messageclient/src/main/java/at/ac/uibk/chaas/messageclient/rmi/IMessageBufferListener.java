@@ -0,0 +1,21 @@
+package at.ac.uibk.chaas.messageclient.rmi;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+
+/**
+ * The remote listener interface for clients that subscribe to the message buffer service.
+ *
+ * @author christoph.haas
+ * @version 1.0.0
+ * @since 1.8
+ */
+public interface IMessageBufferListener extends Remote {
+    /**
+     * Called with the bytes that were added to the message buffer. Bytes that arrive in a burst are delivered in a
+     * single call, the calls for one subscription never overlap.
+     *
+     * @param chunk the new bytes.
+     */
+    void bytesAdded(MessageChunk chunk) throws RemoteException;
+}
@@ -11,21 +11,63 @@ import java.rmi.RemoteException;
  * @since 1.8
  */
 public interface IMessageBufferService extends Remote {
+    /**
+     * Suffix of the registry name of the inbound message buffer in DUPLEX mode. The default name is bound to the
+     * outbound message buffer.
+     */
+    String INBOUND_SUFFIX = "Inbound";
+
     /**
      * @return the count of queued bytes in the message buffer.
      */
     int getQueuedByteCount() throws RemoteException;
 
     /**
-     * @return the queued bytes in the message buffer as string.
+     * @return the queued bytes in the message buffer as string, a lost byte is U+FFFF.
      */
     String getQueuedBytesAsString() throws RemoteException;
 
     /**
-     * @return the queued bytes in the message buffer as byte array.
+     * @return the queued bytes in the message buffer as byte array. A lost byte is 0xff, use
+     * {@link #readSince(long, int)} to tell it apart from a received 0xff.
      */
     byte[] getQueuedBytes() throws RemoteException;
 
+    /**
+     * Read the bytes that were added to the message buffer since the given stream offset. The bytes stay queued.
+     *
+     * @param offset the stream offset, use 0 to start with the oldest queued byte.
+     * @param maxLen the maximum number of bytes to return.
+     * @return the new bytes and the offset for the next read.
+     */
+    MessageChunk readSince(long offset, int maxLen) throws RemoteException;
+
+    /**
+     * Like {@link #readSince(long, int)}, but waits until new bytes are available or the timeout has elapsed.
+     *
+     * @param offset    the stream offset, use 0 to start with the oldest queued byte.
+     * @param maxLen    the maximum number of bytes to return.
+     * @param timeoutMs the maximum time to wait in milliseconds.
+     * @return the new bytes and the offset for the next read, the chunk is empty if the timeout has elapsed.
+     */
+    MessageChunk awaitSince(long offset, int maxLen, long timeoutMs) throws RemoteException;
+
+    /**
+     * Register a listener that gets notified about new bytes, starting at the given stream offset.
+     * A listener that is already registered is restarted at the new offset.
+     *
+     * @param listener the remote listener.
+     * @param offset   the stream offset, use 0 to start with the oldest queued byte.
+     */
+    void subscribe(IMessageBufferListener listener, long offset) throws RemoteException;
+
+    /**
+     * Remove a registered listener.
+     *
+     * @param listener the remote listener.
+     */
+    void unsubscribe(IMessageBufferListener listener) throws RemoteException;
+
     /**
      * Clear the buffer.
      */
@@ -0,0 +1,99 @@
+package at.ac.uibk.chaas.messageclient.rmi;
+
+import java.io.Serializable;
+import java.util.BitSet;
+
+/**
+ * A chunk of the message buffer stream, returned by the incremental read methods of the message buffer service.
+ * <p>
+ * The received bytes of a decoding client are stored escaped in its message buffer, so a received 0xff can be told
+ * apart from a lost byte. The chunk holds the decoded bytes, a lost byte is 0xff and marked in {@link #isLost(int)}.
+ * The stream offsets are the offsets of the escaped stream.
+ *
+ * @author christoph.haas
+ * @version 1.0.0
+ * @since 1.8
+ */
+public class MessageChunk implements Serializable {
+    private static final long serialVersionUID = 2L;
+
+    private final long offset;
+    private final long nextOffset;
+    private final byte[] data;
+    private final BitSet lost; // null if no byte was lost
+
+    /**
+     * Constructor.
+     *
+     * @param offset the stream offset of the first byte in the chunk.
+     * @param data   the bytes.
+     */
+    public MessageChunk(long offset, byte[] data) {
+        this(offset, offset + data.length, data, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param offset     the stream offset of the first byte in the chunk.
+     * @param nextOffset the stream offset after the chunk.
+     * @param data       the decoded bytes.
+     * @param lost       the indexes of the lost bytes in the data, null if no byte was lost.
+     */
+    public MessageChunk(long offset, long nextOffset, byte[] data, BitSet lost) {
+        this.offset = offset;
+        this.nextOffset = nextOffset;
+        this.data = data;
+        this.lost = lost == null || lost.isEmpty() ? null : lost;
+    }
+
+    /**
+     * @return the stream offset of the first byte in the chunk. It is bigger than the requested offset if bytes
+     * were removed from the buffer in the meantime.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return the offset that should be used for the next read.
+     */
+    public long getNextOffset() {
+        return nextOffset;
+    }
+
+    /**
+     * @return the bytes, a lost byte is 0xff.
+     */
+    public byte[] getData() {
+        return data;
+    }
+
+    /**
+     * @param index the index in the data.
+     * @return true if the byte was lost in the transmission.
+     */
+    public boolean isLost(int index) {
+        return lost != null && lost.get(index);
+    }
+
+    /**
+     * @return the indexes of the lost bytes in the data.
+     */
+    public BitSet getLost() {
+        return lost == null ? new BitSet() : (BitSet) lost.clone();
+    }
+
+    /**
+     * @return the bytes as ISO-8859-1 text, a lost byte is U+FFFF.
+     */
+    public String getText() {
+        StringBuilder out = new StringBuilder(data.length);
+
+        for (int i = 0; i < data.length; i++) {
+            out.append(isLost(i) ? '\uffff' : (char) (data[i] & 0xff));
+        }
+
+        return out.toString();
+    }
+}
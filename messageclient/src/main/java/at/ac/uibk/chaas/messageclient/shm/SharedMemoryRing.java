@@ -0,0 +1,241 @@
+package at.ac.uibk.chaas.messageclient.shm;
+
+import sun.misc.Unsafe;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+
+/**
+ * A byte ring buffer in a memory mapped file, used to hand over data between processes on the same host.
+ * <p>
+ * File layout: <code>int magic | int capacity</code> in the first cache line, the write position in the second and
+ * the read position in the third cache line, followed by the data area. Positions are absolute byte counts.
+ * <p>
+ * The ring has a single consumer. The handoff between producer and consumer is lock-free: each side only writes its
+ * own position and publishes it after the data was copied. Producers in different processes are serialized with
+ * a file lock.
+ * <p>
+ * The positions are read and written with plain accesses to the mapping, the ordering between the data and the
+ * positions is enforced with the explicit memory fences of {@link Unsafe}.
+ *
+ * @author christoph.haas
+ * @version 1.0.0
+ * @since 1.8
+ */
+public class SharedMemoryRing implements AutoCloseable {
+    public static final int DEFAULT_CAPACITY = 4 * 1024 * 1024;
+
+    private static final int MAGIC = 0x4D535452; // "MSTR"
+    private static final int MAGIC_OFFSET = 0;
+    private static final int CAPACITY_OFFSET = 4;
+    private static final int WRITE_POSITION_OFFSET = 64;
+    private static final int READ_POSITION_OFFSET = 128;
+    private static final int DATA_OFFSET = 192;
+    private static final long PUSH_RETRY_SLEEP_MS = 1;
+
+    private static final Unsafe UNSAFE = loadUnsafe();
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer mapped;
+    private final ByteBuffer producerView;
+    private final ByteBuffer consumerView;
+    private final int capacity;
+
+    /**
+     * Constructor.
+     *
+     * @param file     the opened ring file.
+     * @param mapped   the mapped ring file.
+     * @param capacity the capacity of the data area.
+     */
+    private SharedMemoryRing(RandomAccessFile file, MappedByteBuffer mapped, int capacity) {
+        this.file = file;
+        this.mapped = mapped;
+        this.capacity = capacity;
+        this.producerView = mapped.duplicate();
+        this.consumerView = mapped.duplicate();
+    }
+
+    /**
+     * Open an existing ring file or create a new one.
+     *
+     * @param ringFile the ring file.
+     * @param capacity the capacity of the data area if a new ring is created.
+     * @return the ring.
+     * @throws IOException if the ring file could not be opened or mapped.
+     */
+    public static SharedMemoryRing open(File ringFile, int capacity) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(ringFile, "rw");
+        try {
+            FileChannel channel = file.getChannel();
+
+            try (FileLock ignored = channel.lock()) {
+                if (file.length() >= DATA_OFFSET) {
+                    MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, DATA_OFFSET);
+                    int existingCapacity = header.getInt(CAPACITY_OFFSET);
+                    if (header.getInt(MAGIC_OFFSET) == MAGIC && existingCapacity > 0
+                            && file.length() >= (long) DATA_OFFSET + existingCapacity) {
+                        return new SharedMemoryRing(file,
+                                channel.map(FileChannel.MapMode.READ_WRITE, 0, DATA_OFFSET + existingCapacity),
+                                existingCapacity);
+                    }
+                }
+
+                // create a new ring, the magic value is written last
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, DATA_OFFSET + capacity);
+                mapped.putInt(CAPACITY_OFFSET, capacity);
+                mapped.putLong(WRITE_POSITION_OFFSET, 0);
+                mapped.putLong(READ_POSITION_OFFSET, 0);
+                UNSAFE.storeFence(); // publish the header before the magic value
+                mapped.putInt(MAGIC_OFFSET, MAGIC);
+
+                return new SharedMemoryRing(file, mapped, capacity);
+            }
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the capacity of the ring.
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the number of bytes that are ready to be consumed.
+     */
+    public int size() {
+        long read = mapped.getLong(READ_POSITION_OFFSET);
+        UNSAFE.loadFence();
+        return (int) (mapped.getLong(WRITE_POSITION_OFFSET) - read);
+    }
+
+    /**
+     * Append as many bytes as fit into the ring. Must only be called by one producer at a time.
+     *
+     * @param src the source array.
+     * @param off the offset in the source array.
+     * @param len the number of bytes to append.
+     * @return the number of appended bytes.
+     */
+    public int offer(byte[] src, int off, int len) {
+        long write = mapped.getLong(WRITE_POSITION_OFFSET);
+        long read = mapped.getLong(READ_POSITION_OFFSET);
+        UNSAFE.loadFence(); // acquire, the consumer must have finished reading before the space is reused
+
+        int count = (int) Math.min(len, capacity - (write - read));
+        if (count <= 0) {
+            return 0;
+        }
+
+        int index = (int) (write % capacity);
+        int first = Math.min(count, capacity - index);
+        producerView.position(DATA_OFFSET + index);
+        producerView.put(src, off, first);
+        if (first < count) {
+            producerView.position(DATA_OFFSET);
+            producerView.put(src, off + first, count - first);
+        }
+
+        UNSAFE.storeFence(); // release, publish the data before the position
+        mapped.putLong(WRITE_POSITION_OFFSET, write + count);
+
+        return count;
+    }
+
+    /**
+     * Append all bytes, waits while the ring is full. Producers of different processes are serialized.
+     *
+     * @param src       the source array.
+     * @param off       the offset in the source array.
+     * @param len       the number of bytes to append.
+     * @param timeoutMs the maximum time to wait for free space.
+     * @throws IOException if the timeout has elapsed or the ring file could not be locked.
+     */
+    public synchronized void push(byte[] src, int off, int len, long timeoutMs) throws IOException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+
+        try (FileLock ignored = file.getChannel().lock()) {
+            while (len > 0) {
+                int count = offer(src, off, len);
+                off += count;
+                len -= count;
+
+                if (len > 0 && count == 0) {
+                    if (System.currentTimeMillis() >= deadline) {
+                        throw new IOException("Shared memory ring is full, " + len + " bytes were not written");
+                    }
+                    try {
+                        Thread.sleep(PUSH_RETRY_SLEEP_MS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Interrupted while waiting for free space");
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove up to len bytes from the ring. Must only be called by the consumer.
+     *
+     * @param dst the destination array.
+     * @param off the offset in the destination array.
+     * @param len the maximum number of bytes to remove.
+     * @return the number of removed bytes.
+     */
+    public int poll(byte[] dst, int off, int len) {
+        long read = mapped.getLong(READ_POSITION_OFFSET);
+        long write = mapped.getLong(WRITE_POSITION_OFFSET);
+        UNSAFE.loadFence(); // acquire, read the data only after the position was published
+
+        int count = (int) Math.min(len, write - read);
+        if (count <= 0) {
+            return 0;
+        }
+
+        int index = (int) (read % capacity);
+        int first = Math.min(count, capacity - index);
+        consumerView.position(DATA_OFFSET + index);
+        consumerView.get(dst, off, first);
+        if (first < count) {
+            consumerView.position(DATA_OFFSET);
+            consumerView.get(dst, off + first, count - first);
+        }
+
+        UNSAFE.fullFence(); // release, finish reading the data before the space is released
+        mapped.putLong(READ_POSITION_OFFSET, read + count);
+
+        return count;
+    }
+
+    /**
+     * Close the ring file. The mapping stays valid until it is garbage collected.
+     */
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    /**
+     * @return the unsafe instance, its fences order the plain accesses to the mapping.
+     */
+    private static Unsafe loadUnsafe() {
+        try {
+            Field field = Unsafe.class.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return (Unsafe) field.get(null);
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+}
@@ -1,5 +1,14 @@
 package at.ac.uibk.chaas.minesteg;
 
+import at.ac.uibk.chaas.minesteg.fec.FecDecoderSink;
+import at.ac.uibk.chaas.minesteg.frame.FrameDecoderSink;
+import at.ac.uibk.chaas.minesteg.steg.Decoder;
+import at.ac.uibk.chaas.minesteg.steg.Encoder;
+import at.ac.uibk.chaas.minesteg.steg.LinkController;
+import at.ac.uibk.chaas.minesteg.steg.MessageBufferSink;
+import at.ac.uibk.chaas.minesteg.steg.PacketRing;
+import at.ac.uibk.chaas.minesteg.steg.PlayerTracker;
+
 import java.util.List;
 import java.util.Properties;
 
@@ -28,6 +37,55 @@ public class ClientInfoPrinter {
         } else {
             mode = settings.getProperty("minesteg.mode", "UNKNOWN") + ",D";
         }
-        list.add(0, "Minesteg modified client! Mode: " + mode);
+        int line = 0;
+        list.add(line++, "Minesteg modified client! Mode: " + mode);
+
+        LinkController linkController = StegoSystem.getInstance().getLinkController();
+        if (enabled && linkController != null) {
+            list.add(line++, "Minesteg link: " + linkController);
+        }
+        FrameDecoderSink frameDecoderSink = StegoSystem.getInstance().getFrameDecoderSink();
+        if (enabled && frameDecoderSink != null) {
+            list.add(line++, "Minesteg frames: " + frameDecoderSink.getReceivedFrames() + " received, "
+                    + frameDecoderSink.getCorruptedFrames() + " corrupted, " + frameDecoderSink.getLostFrames() + " lost");
+        }
+        FecDecoderSink fecDecoderSink = StegoSystem.getInstance().getFecDecoderSink();
+        if (enabled && fecDecoderSink != null) {
+            list.add(line++, "Minesteg FEC blocks: " + fecDecoderSink.getCorrectedBlocks() + " corrected, "
+                    + fecDecoderSink.getUncorrectableBlocks() + " uncorrectable");
+        }
+
+        Encoder encoder = StegoSystem.getInstance().getEncoder();
+        if (enabled && encoder != null) {
+            list.add(line++, "Minesteg receiver: " + describePresence(encoder.getReceiver()));
+        }
+        Decoder decoder = StegoSystem.getInstance().getDecoder();
+        if (enabled && decoder != null) {
+            list.add(line++, "Minesteg sender: " + describePresence(decoder.getSender()));
+        }
+        PacketRing queue = decoder != null ? decoder.getQueue() : null;
+        if (enabled && queue != null) {
+            list.add(line++, "Minesteg dropped packets: " + queue.getDroppedPackets());
+        }
+
+        // the lost bytes of the received message
+        MessageBufferSink messageBufferSink = StegoSystem.getInstance().getMessageBufferSink();
+        if (enabled && messageBufferSink != null) {
+            list.add(line, "Minesteg lost bytes: " + messageBufferSink.getErasures());
+        }
+    }
+
+    /**
+     * @param player the tracked peer.
+     * @return the name of the peer and how long it is present or absent.
+     */
+    private static String describePresence(PlayerTracker player) {
+        long currTimeMs = System.currentTimeMillis();
+        if (player.isPresent()) {
+            return player.getPlayerName() + " present for " + (currTimeMs - player.getJoinedMs()) / 1000 + "s";
+        } else if (player.getLeftMs() > 0) {
+            return player.getPlayerName() + " left " + (currTimeMs - player.getLeftMs()) / 1000 + "s ago";
+        }
+        return player.getPlayerName() + " not seen yet";
     }
 }
@@ -1,9 +1,6 @@
 package at.ac.uibk.chaas.minesteg;
 
-import com.google.gson.Gson;
-import net.minecraft.client.Minecraft;
-import net.minecraft.entity.player.PlayerEntity;
-import net.minecraft.network.IPacket;
+import at.ac.uibk.chaas.minesteg.steg.AngleCodec;
 
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -144,30 +141,6 @@ public class HelperUtil {
         return String.format("%8s", Integer.toBinaryString(b & 0xFF)).replace(' ', '0');
     }
 
-    /**
-     * Check if a player is visible (connected to the server) by the client.
-     *
-     * @param playerName the name of the player.
-     * @return true if player is visible, false otherwise.
-     */
-    public static boolean isPlayerVisible(String playerName) {
-        PlayerEntity player = null;
-        Minecraft minecraft = Minecraft.getInstance();
-        if (minecraft.world != null) {
-            for (int i = 0; i < minecraft.world.getPlayers().size(); ++i) {
-                PlayerEntity playerentity = minecraft.world.getPlayers().get(i);
-                if (playerName.equals(playerentity.getName().getString())) {
-                    player = playerentity;
-                    break;
-                }
-            }
-
-            return player != null;
-        }
-
-        return false;
-    }
-
     /**
      * Get the reflection field, also check parent classes.
      *
@@ -199,7 +172,7 @@ public class HelperUtil {
      * @return converted float value.
      */
     public static float getServerValue(byte wireData) {
-        return wireData * 360.0F / 256.0F;
+        return AngleCodec.toAngle(wireData);
     }
 
     /**
@@ -208,8 +181,8 @@ public class HelperUtil {
      * @param clientValue float value.
      * @return converted byte value.
      */
-    public static byte getWireValue(Float clientValue) {
-        return (byte) Math.floor(clientValue * 256.0F / 360.0F);
+    public static byte getWireValue(float clientValue) {
+        return AngleCodec.toWire(clientValue);
     }
 
     /**
@@ -218,8 +191,8 @@ public class HelperUtil {
      * @param clientValue float value.
      * @return converted int value.
      */
-    public static int getWireValueInt(Float clientValue) {
-        return (int) Math.floor(clientValue * 256.0F / 360.0F);
+    public static int getWireValueInt(float clientValue) {
+        return AngleCodec.toWireInt(clientValue);
     }
 
     /**
@@ -265,27 +238,6 @@ public class HelperUtil {
         return numbers[above ? idxAbove : idxBelow];
     }
 
-    /**
-     * Copy a packet by converting it to JSON and then reconverting it back to Java.
-     *
-     * @param packet     the packet.
-     * @param packetType the packet class.
-     * @param <T>        the packet class type.
-     * @return the copied packet.
-     */
-    public static <T extends IPacket<?>> T copyPacket(T packet, Class<T> packetType) {
-        Gson gson = new Gson();
-        T deepCopy = null;
-
-        try {
-            deepCopy = gson.fromJson(gson.toJson(packet), packetType);
-        } catch (Exception e) {
-            System.out.println("Failed to deep copy packet! " + e.getMessage());
-        }
-
-        return deepCopy;
-    }
-
     /**
      * Convert a byte value to int.
      *
@@ -0,0 +1,224 @@
+package at.ac.uibk.chaas.minesteg;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+
+/**
+ * Cached field accessors for a single packet class.
+ * <p>
+ * The reflective field lookup is done exactly once per packet class, the resolved fields are then converted to
+ * {@link MethodHandle}s. Use {@link #of(Class)} to get the accessor for a packet class, the instances are cached in a
+ * registry that is keyed by the packet class.
+ *
+ * @author christoph.haas
+ * @version 1.0.0
+ * @since 1.8
+ */
+public final class PacketAccessor {
+    private static final ClassValue<PacketAccessor> REGISTRY = new ClassValue<PacketAccessor>() {
+        @Override
+        protected PacketAccessor computeValue(Class<?> packetClass) {
+            return new PacketAccessor(packetClass);
+        }
+    };
+
+    private static final MethodType FLOAT_SETTER = MethodType.methodType(void.class, Object.class, float.class);
+    private static final MethodType DOUBLE_SETTER = MethodType.methodType(void.class, Object.class, double.class);
+    private static final MethodType INT_GETTER = MethodType.methodType(int.class, Object.class);
+
+    private final Class<?> packetClass;
+    private final MethodHandle pitchSetter;
+    private final MethodHandle yawSetter;
+    private final MethodHandle xSetter;
+    private final MethodHandle zSetter;
+    private final MethodHandle entityIdGetter;
+
+    /**
+     * Constructor. Resolves all known fields of the given packet class.
+     *
+     * @param packetClass the packet class.
+     */
+    private PacketAccessor(Class<?> packetClass) {
+        this.packetClass = packetClass;
+
+        pitchSetter = findSetter(packetClass, "pitch", float.class, FLOAT_SETTER);
+        yawSetter = findSetter(packetClass, "yaw", float.class, FLOAT_SETTER);
+        xSetter = findSetter(packetClass, "x", double.class, DOUBLE_SETTER);
+        zSetter = findSetter(packetClass, "z", double.class, DOUBLE_SETTER);
+        entityIdGetter = findGetter(packetClass, "entityId", int.class, INT_GETTER);
+    }
+
+    /**
+     * Get the cached accessor for the given packet class.
+     *
+     * @param packetClass the packet class.
+     * @return the accessor, never null.
+     */
+    public static PacketAccessor of(Class<?> packetClass) {
+        return REGISTRY.get(packetClass);
+    }
+
+    /**
+     * @return the packet class of this accessor.
+     */
+    public Class<?> getPacketClass() {
+        return packetClass;
+    }
+
+    /**
+     * @return true if the packet class has writable float pitch and yaw fields.
+     */
+    public boolean hasRotation() {
+        return pitchSetter != null && yawSetter != null;
+    }
+
+    /**
+     * @return true if the packet class has writable double x and z fields.
+     */
+    public boolean hasPosition() {
+        return xSetter != null && zSetter != null;
+    }
+
+    /**
+     * @return true if the packet class has a int entityId field.
+     */
+    public boolean hasEntityId() {
+        return entityIdGetter != null;
+    }
+
+    /**
+     * Overwrite the pitch value of the given packet.
+     *
+     * @param packet the packet, must be an instance of the accessor class.
+     * @param pitch  the new pitch value.
+     */
+    public void setPitch(Object packet, float pitch) {
+        try {
+            pitchSetter.invokeExact(packet, pitch);
+        } catch (Throwable e) {
+            throw new RuntimeException("Failed to set pitch on " + packetClass.getName(), e);
+        }
+    }
+
+    /**
+     * Overwrite the yaw value of the given packet.
+     *
+     * @param packet the packet, must be an instance of the accessor class.
+     * @param yaw    the new yaw value.
+     */
+    public void setYaw(Object packet, float yaw) {
+        try {
+            yawSetter.invokeExact(packet, yaw);
+        } catch (Throwable e) {
+            throw new RuntimeException("Failed to set yaw on " + packetClass.getName(), e);
+        }
+    }
+
+    /**
+     * Overwrite the x coordinate of the given packet.
+     *
+     * @param packet the packet, must be an instance of the accessor class.
+     * @param x      the new x coordinate.
+     */
+    public void setX(Object packet, double x) {
+        try {
+            xSetter.invokeExact(packet, x);
+        } catch (Throwable e) {
+            throw new RuntimeException("Failed to set x on " + packetClass.getName(), e);
+        }
+    }
+
+    /**
+     * Overwrite the z coordinate of the given packet.
+     *
+     * @param packet the packet, must be an instance of the accessor class.
+     * @param z      the new z coordinate.
+     */
+    public void setZ(Object packet, double z) {
+        try {
+            zSetter.invokeExact(packet, z);
+        } catch (Throwable e) {
+            throw new RuntimeException("Failed to set z on " + packetClass.getName(), e);
+        }
+    }
+
+    /**
+     * Read the entity id of the given packet.
+     *
+     * @param packet the packet, must be an instance of the accessor class.
+     * @return the entity id.
+     */
+    public int getEntityId(Object packet) {
+        try {
+            return (int) entityIdGetter.invokeExact(packet);
+        } catch (Throwable e) {
+            throw new RuntimeException("Failed to get entityId of " + packetClass.getName(), e);
+        }
+    }
+
+    /**
+     * Resolve a setter method handle for the given field.
+     *
+     * @param clazz     the class that should be searched for the field.
+     * @param fieldName the field name.
+     * @param fieldType the expected field type.
+     * @param type      the erased method type of the resulting handle.
+     * @return the method handle or null if the field was not found.
+     */
+    private static MethodHandle findSetter(Class<?> clazz, String fieldName, Class<?> fieldType, MethodType type) {
+        Field field = findField(clazz, fieldName, fieldType);
+        if (field == null) {
+            return null;
+        }
+
+        try {
+            return MethodHandles.lookup().unreflectSetter(field).asType(type);
+        } catch (IllegalAccessException e) {
+            System.out.println("Failed to access field " + fieldName + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Resolve a getter method handle for the given field.
+     *
+     * @param clazz     the class that should be searched for the field.
+     * @param fieldName the field name.
+     * @param fieldType the expected field type.
+     * @param type      the erased method type of the resulting handle.
+     * @return the method handle or null if the field was not found.
+     */
+    private static MethodHandle findGetter(Class<?> clazz, String fieldName, Class<?> fieldType, MethodType type) {
+        Field field = findField(clazz, fieldName, fieldType);
+        if (field == null) {
+            return null;
+        }
+
+        try {
+            return MethodHandles.lookup().unreflectGetter(field).asType(type);
+        } catch (IllegalAccessException e) {
+            System.out.println("Failed to access field " + fieldName + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Find the field in the class hierarchy and make it accessible.
+     *
+     * @param clazz     the class that should be searched for the field.
+     * @param fieldName the field name.
+     * @param fieldType the expected field type.
+     * @return the field or null if no field with the given name and type exists.
+     */
+    private static Field findField(Class<?> clazz, String fieldName, Class<?> fieldType) {
+        Field field = HelperUtil.findUnderlyingField(clazz, fieldName);
+        if (field == null || field.getType() != fieldType) {
+            return null;
+        }
+
+        field.setAccessible(true);
+        return field;
+    }
+}
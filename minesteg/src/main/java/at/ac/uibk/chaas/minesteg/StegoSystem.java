@@ -1,27 +1,66 @@
 package at.ac.uibk.chaas.minesteg;
 
+import at.ac.uibk.chaas.messageclient.shm.SharedMemoryRing;
+import at.ac.uibk.chaas.minesteg.arq.ArqDecoderSink;
+import at.ac.uibk.chaas.minesteg.arq.ArqEncoderSource;
+import at.ac.uibk.chaas.minesteg.fec.FecDecoderSink;
+import at.ac.uibk.chaas.minesteg.fec.FecEncoderSource;
+import at.ac.uibk.chaas.minesteg.fec.ReedSolomon;
+import at.ac.uibk.chaas.minesteg.frame.FrameDecoderSink;
+import at.ac.uibk.chaas.minesteg.frame.FrameEncoderSource;
+import at.ac.uibk.chaas.minesteg.frame.FrameFormat;
+import at.ac.uibk.chaas.minesteg.nio.NioServer;
 import at.ac.uibk.chaas.minesteg.rmi.RMIServer;
+import at.ac.uibk.chaas.minesteg.shm.SharedMemoryBridge;
 import at.ac.uibk.chaas.minesteg.steg.Decoder;
+import at.ac.uibk.chaas.minesteg.steg.DecoderSink;
+import at.ac.uibk.chaas.minesteg.steg.DecoderThread;
 import at.ac.uibk.chaas.minesteg.steg.Encoder;
+import at.ac.uibk.chaas.minesteg.steg.EncoderSource;
+import at.ac.uibk.chaas.minesteg.steg.LinkController;
 import at.ac.uibk.chaas.minesteg.steg.MessageBuffer;
+import at.ac.uibk.chaas.minesteg.steg.MessageBufferSink;
+import at.ac.uibk.chaas.minesteg.steg.MessageBufferSource;
+import at.ac.uibk.chaas.minesteg.steg.PacketRing;
+import at.ac.uibk.chaas.minesteg.steg.PlannedEncoderSource;
+import at.ac.uibk.chaas.minesteg.steg.PresenceTracker;
+import at.ac.uibk.chaas.minesteg.steg.SpooledMessageBuffer;
+import at.ac.uibk.chaas.minesteg.steg.StegoKey;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Properties;
 
 /**
  * The main class for the steganographic system.
  * This class handles the state of the message buffer, encoder and decoder.
+ * In DUPLEX mode the message buffer holds the outbound message and a second buffer receives the inbound message, it is
+ * spooled in the inbound subdirectory of the spool directory.
  *
  * @author christoph.haas
  * @version 1.0.0
  * @since 1.8
  */
 public class StegoSystem {
+    private static final String INBOUND_SPOOL_DIR = "inbound";
+
     private final Properties settings = PropertiesHelper.loadProperties("minesteg.properties");
 
-    private final RMIServer rmiServer;
+    private RMIServer rmiServer;
+    private NioServer nioServer;
+    private NioServer inboundNioServer;
+    private SharedMemoryBridge sharedMemoryBridge;
     private final MessageBuffer messageBuffer;
+    private final MessageBuffer inboundBuffer; // only used in DUPLEX mode
     private Encoder encoder;
     private Decoder decoder;
+    private MessageBufferSink messageBufferSink; // null if no decoder is started
+    private FrameDecoderSink frameDecoderSink; // null if frames are disabled
+    private FecDecoderSink fecDecoderSink; // null if FEC is disabled
+    private DecoderThread decoderThread;
+    private PlannedEncoderSource encoderPlanner;
+    private LinkController linkController;
+    private final PresenceTracker presenceTracker = new PresenceTracker();
 
     private static final class InstanceHolder {
         static final StegoSystem INSTANCE = new StegoSystem();
@@ -31,8 +70,42 @@ public class StegoSystem {
      * Constructor.
      */
     private StegoSystem() {
-        messageBuffer = new MessageBuffer();
-        rmiServer = new RMIServer(messageBuffer, Integer.parseInt(settings.getProperty("minesteg.rmiport")));
+        messageBuffer = createMessageBuffer(null);
+        inboundBuffer = isDuplex() ? createMessageBuffer(INBOUND_SPOOL_DIR) : null;
+        if (isNioTransport()) {
+            int nioPort = Integer.parseInt(settings.getProperty("minesteg.nioport"));
+            nioServer = new NioServer(messageBuffer, nioPort);
+            if (inboundBuffer != null) {
+                inboundNioServer = new NioServer(inboundBuffer, nioPort + 1);
+            }
+        } else {
+            rmiServer = new RMIServer(messageBuffer, inboundBuffer, Integer.parseInt(settings.getProperty("minesteg.rmiport")));
+        }
+    }
+
+    /**
+     * Create a message buffer. If a spool directory is configured, the buffer is persisted on disk and flushed
+     * when the JVM shuts down.
+     *
+     * @param subdirectory the directory of the buffer in the spool directory, null for the spool directory itself.
+     * @return the message buffer.
+     */
+    private MessageBuffer createMessageBuffer(String subdirectory) {
+        String spoolDir = settings.getProperty("minesteg.spool.dir");
+        if (spoolDir == null || spoolDir.trim().isEmpty()) {
+            return new MessageBuffer();
+        }
+
+        File directory = subdirectory == null ? new File(spoolDir.trim()) : new File(spoolDir.trim(), subdirectory);
+        try {
+            SpooledMessageBuffer buffer = new SpooledMessageBuffer(directory, SpooledMessageBuffer.DEFAULT_SEGMENT_SIZE);
+            // the pages of the mapped spool are written back by the OS, force them to disk when the game exits
+            Runtime.getRuntime().addShutdownHook(new Thread(buffer::flush, "spool flush"));
+            return buffer;
+        } catch (IOException e) {
+            System.out.println("Failed to open message spool " + directory + ", using in-memory buffer: " + e.getMessage());
+            return new MessageBuffer();
+        }
     }
 
     /**
@@ -49,23 +122,249 @@ public class StegoSystem {
      * Start decoder or encoder, depending on the configuration.
      */
     public void startup() {
+        if (isDuplex() && isArqEnabled()) {
+            throw new RuntimeException("FATAL: ARQ is not supported in DUPLEX mode!");
+        }
+
         System.out.println(">> STEGO SYSTEM STARTING!");
         System.out.println(">> ----------------------");
-        System.out.println(">> RMI SERVER STARTING!");
-        rmiServer.run();
-        System.out.println(">> RMI SERVER STARTED!");
+        if (nioServer != null) {
+            System.out.println(">> NIO SERVER STARTING!");
+            nioServer.run();
+            if (inboundNioServer != null) {
+                inboundNioServer.run();
+            }
+            System.out.println(">> NIO SERVER STARTED!");
+        } else {
+            System.out.println(">> RMI SERVER STARTING!");
+            rmiServer.run();
+            System.out.println(">> RMI SERVER STARTED!");
+        }
+        startSharedMemoryBridge();
         System.out.println(">> STEGO MODE: " + settings.get("minesteg.mode"));
 
-        if (isSender()) {
-            encoder = new Encoder(messageBuffer, settings.getProperty("minesteg.receiver"), getStegoKey());
+        StegoKey stegoKey = getStegoKey();
+        linkController = createLinkController();
+        if (isDuplex()) {
+            // both directions use the rotation packets of the same player pair
+            String peerName = getPeerName();
+            encoder = new Encoder(messageBuffer, createEncoderSource(), peerName, stegoKey);
+            encoder.setPrintToStdout(!"false".equalsIgnoreCase(settings.getProperty("minesteg.stdout")));
+            decoder = new Decoder(inboundBuffer, createDecoderSink(inboundBuffer), peerName, stegoKey);
+            // both directions share the server, so the inbound loss steers the outbound settings
+            encoder.setLinkController(linkController);
+            decoder.setLinkController(linkController);
+        } else if (isArqEnabled()) {
+            startArq(stegoKey);
+        } else if (isSender()) {
+            encoder = new Encoder(messageBuffer, createEncoderSource(), settings.getProperty("minesteg.receiver"), stegoKey);
+            encoder.setPrintToStdout(!"false".equalsIgnoreCase(settings.getProperty("minesteg.stdout")));
+            encoder.setLinkController(linkController); // without a reverse channel the settings stay static
         } else {
-            decoder = new Decoder(messageBuffer, settings.getProperty("minesteg.sender"), getStegoKey());
+            decoder = new Decoder(messageBuffer, createDecoderSink(messageBuffer), settings.getProperty("minesteg.sender"), stegoKey);
+            decoder.setLinkController(linkController); // only published as metrics
+        }
+
+        int symbolBits = getSymbolBits();
+        if (symbolBits != 1) {
+            System.out.println(">> SYMBOL BITS PER ANGLE: " + symbolBits);
+        }
+        int positionBits = getPositionBits();
+        if (positionBits != 0) {
+            System.out.println(">> POSITION CARRIER ENABLED: " + positionBits + " BITS PER MOVE");
+        }
+        if (encoder != null) {
+            encoder.setPresenceTracker(presenceTracker);
+            encoder.setSymbolBits(symbolBits);
+            encoder.setPositionBits(positionBits);
+        }
+        if (decoder != null) {
+            decoder.setPresenceTracker(presenceTracker);
+            decoder.setPrintToStdout(!"false".equalsIgnoreCase(settings.getProperty("minesteg.stdout")));
+            decoder.setSymbolBits(symbolBits);
+            decoder.setPositionBits(positionBits);
+            startDecoderThread();
         }
 
         System.out.println(">> STEGO SYSTEM INITIALIZED!");
         System.out.println(">> -------------------------");
     }
 
+    /**
+     * Start the selective-repeat ARQ. Both sides run an encoder and a decoder: the sender receives the
+     * acknowledgements of the receiver in the rotation packets of the receiving player.
+     *
+     * @param stegoKey the stego key.
+     */
+    private void startArq(StegoKey stegoKey) {
+        int payloadSize = getFramePayloadSize();
+        int window = getArqWindow();
+        System.out.println(">> ARQ ENABLED: PAYLOAD " + payloadSize + " WINDOW " + window);
+
+        // the feedback direction carries no message
+        if (isSender()) {
+            String receiverName = settings.getProperty("minesteg.receiver");
+            ArqEncoderSource source = new ArqEncoderSource(createDataSource(), payloadSize, window);
+            source.setLinkController(linkController);
+            encoder = new Encoder(messageBuffer, planEncoderSource(source), receiverName, stegoKey);
+            decoder = new Decoder(new MessageBuffer(),
+                    new FrameDecoderSink(source.feedbackSink(), ArqDecoderSink.FEEDBACK_SIZE), receiverName, stegoKey);
+        } else {
+            String senderName = settings.getProperty("minesteg.sender");
+            ArqDecoderSink sink = new ArqDecoderSink(createDataSink(messageBuffer), payloadSize, window);
+            decoder = new Decoder(messageBuffer, sink, senderName, stegoKey);
+            decoder.setLinkController(linkController);
+            encoder = new Encoder(new MessageBuffer(),
+                    new FrameEncoderSource(sink.feedbackSource(), ArqDecoderSink.FEEDBACK_SIZE), senderName, stegoKey);
+        }
+        encoder.setPrintToStdout(!"false".equalsIgnoreCase(settings.getProperty("minesteg.stdout")));
+        encoder.setLinkController(linkController);
+    }
+
+    /**
+     * Create the link controller. If minesteg.link.adaptive is enabled, the repeat count is adapted between
+     * minesteg.link.repeat.min and minesteg.link.repeat.max and up to minesteg.link.sync.max bytes are sent between two
+     * synchronization preambles. Otherwise the static settings are used.
+     * <p>
+     * The controller adapts to the loss of the received packets, so a plain sender without ARQ has nothing to observe
+     * and uses the static settings as well.
+     *
+     * @return the link controller.
+     */
+    private LinkController createLinkController() {
+        if (!"true".equalsIgnoreCase(settings.getProperty("minesteg.link.adaptive"))) {
+            return new LinkController();
+        }
+        if (isSender() && !isArqEnabled()) {
+            System.out.println(">>>>>> ADAPTIVE LINK NEEDS A REVERSE CHANNEL, ENABLE minesteg.arq OR USE DUPLEX MODE! "
+                    + "USING THE STATIC SETTINGS.");
+            return new LinkController();
+        }
+
+        int minRepeat = Integer.parseInt(settings.getProperty("minesteg.link.repeat.min", "0").trim());
+        int maxRepeat = Integer.parseInt(settings.getProperty("minesteg.link.repeat.max", "3").trim());
+        int maxBytesPerSync = Integer.parseInt(settings.getProperty("minesteg.link.sync.max", "8").trim());
+        System.out.println(">> ADAPTIVE LINK: REPEAT " + minRepeat + ".." + maxRepeat + " BYTES/SYNC 1.." + maxBytesPerSync);
+
+        return new LinkController(minRepeat, maxRepeat, maxBytesPerSync);
+    }
+
+    /**
+     * @return the source for the encoder, packed into frames if minesteg.frame is enabled.
+     */
+    private EncoderSource createEncoderSource() {
+        EncoderSource source = createDataSource();
+        if (isFrameEnabled()) {
+            System.out.println(">> FRAMES ENABLED: PAYLOAD " + getFramePayloadSize());
+            source = new FrameEncoderSource(source, getFramePayloadSize());
+        }
+
+        return planEncoderSource(source);
+    }
+
+    /**
+     * Prepare the bytes of the source on a planner thread if minesteg.encoder.plan is enabled. The send path then only
+     * takes the prepared bytes, the number of bytes that are prepared ahead can be set in minesteg.encoder.lookahead.
+     *
+     * @param source the source of the encoder.
+     * @return the planned source, or the source itself if the planner is disabled.
+     */
+    private EncoderSource planEncoderSource(EncoderSource source) {
+        if (!"true".equalsIgnoreCase(settings.getProperty("minesteg.encoder.plan"))) {
+            return source;
+        }
+
+        String lookahead = settings.getProperty("minesteg.encoder.lookahead");
+        int size = lookahead == null ? PlannedEncoderSource.DEFAULT_LOOKAHEAD : Integer.parseInt(lookahead.trim());
+        encoderPlanner = new PlannedEncoderSource(source, size);
+        encoderPlanner.start();
+        System.out.println(">> ENCODER PLANNER STARTED: LOOKAHEAD " + size);
+
+        return encoderPlanner;
+    }
+
+    /**
+     * @param target the message buffer that receives the message.
+     * @return the sink for the decoder, packed into frames if minesteg.frame is enabled.
+     */
+    private DecoderSink createDecoderSink(MessageBuffer target) {
+        DecoderSink sink = createDataSink(target);
+        if (isFrameEnabled()) {
+            System.out.println(">> FRAMES ENABLED: PAYLOAD " + getFramePayloadSize());
+            frameDecoderSink = new FrameDecoderSink(sink, getFramePayloadSize());
+            sink = frameDecoderSink;
+        }
+
+        return sink;
+    }
+
+    /**
+     * @return the source of the message bytes, Reed-Solomon coded if minesteg.fec is enabled.
+     */
+    private EncoderSource createDataSource() {
+        if (!isFecEnabled()) {
+            return new MessageBufferSource(messageBuffer);
+        }
+
+        System.out.println(">> FEC ENABLED: RS(" + getFecN() + ", " + getFecK() + ") DEPTH " + getFecDepth());
+        return new FecEncoderSource(messageBuffer, new ReedSolomon(getFecN(), getFecK()), getFecDepth());
+    }
+
+    /**
+     * @param target the message buffer that receives the message.
+     * @return the destination of the message bytes, Reed-Solomon coded if minesteg.fec is enabled.
+     */
+    private DecoderSink createDataSink(MessageBuffer target) {
+        messageBufferSink = new MessageBufferSink(target);
+        if (!isFecEnabled()) {
+            return messageBufferSink;
+        }
+
+        System.out.println(">> FEC ENABLED: RS(" + getFecN() + ", " + getFecK() + ") DEPTH " + getFecDepth());
+        fecDecoderSink = new FecDecoderSink(messageBufferSink, new ReedSolomon(getFecN(), getFecK()), getFecDepth());
+        fecDecoderSink.setPrintToStdout(!"false".equalsIgnoreCase(settings.getProperty("minesteg.stdout")));
+        return fecDecoderSink;
+    }
+
+    /**
+     * Start the decoder thread if minesteg.decoder.thread is enabled. The network thread then only hands over the
+     * packets of the sender in a ring, its size can be set in minesteg.decoder.queue.
+     */
+    private void startDecoderThread() {
+        if (!"true".equalsIgnoreCase(settings.getProperty("minesteg.decoder.thread"))) {
+            return;
+        }
+
+        String queueSize = settings.getProperty("minesteg.decoder.queue");
+        int capacity = queueSize == null ? PacketRing.DEFAULT_CAPACITY : Integer.parseInt(queueSize.trim());
+        decoder.setQueue(new PacketRing(capacity));
+        decoderThread = new DecoderThread(decoder);
+        decoderThread.start();
+        System.out.println(">> DECODER THREAD STARTED: QUEUE " + capacity);
+    }
+
+    /**
+     * Start the shared memory bridge if minesteg.shm.file is set. The ring capacity for a new ring file can be set
+     * in minesteg.shm.size.
+     */
+    private void startSharedMemoryBridge() {
+        String shmFile = settings.getProperty("minesteg.shm.file");
+        if (shmFile == null || shmFile.trim().isEmpty()) {
+            return;
+        }
+
+        String shmSize = settings.getProperty("minesteg.shm.size");
+        int capacity = shmSize == null ? SharedMemoryRing.DEFAULT_CAPACITY : Integer.parseInt(shmSize.trim());
+
+        try {
+            sharedMemoryBridge = new SharedMemoryBridge(SharedMemoryRing.open(new File(shmFile.trim()), capacity), messageBuffer);
+            sharedMemoryBridge.start();
+            System.out.println(">> SHARED MEMORY BRIDGE STARTED: " + shmFile);
+        } catch (IOException e) {
+            System.out.println("Failed to open shared memory ring " + shmFile + ": " + e.getMessage());
+        }
+    }
+
     /**
      * @return the encoder instance.
      */
@@ -80,6 +379,41 @@ public class StegoSystem {
         return decoder;
     }
 
+    /**
+     * @return the sink that writes the received bytes to the message buffer, null if the decoder is not started.
+     */
+    public MessageBufferSink getMessageBufferSink() {
+        return messageBufferSink;
+    }
+
+    /**
+     * @return the sink that unpacks the received frames, null if frames are disabled or the decoder is not started.
+     */
+    public FrameDecoderSink getFrameDecoderSink() {
+        return frameDecoderSink;
+    }
+
+    /**
+     * @return the sink that corrects the received bytes, null if FEC is disabled or the decoder is not started.
+     */
+    public FecDecoderSink getFecDecoderSink() {
+        return fecDecoderSink;
+    }
+
+    /**
+     * @return the link controller, null before the system was started.
+     */
+    public LinkController getLinkController() {
+        return linkController;
+    }
+
+    /**
+     * @return the presence tracker of the peers, updated with every received packet.
+     */
+    public PresenceTracker getPresenceTracker() {
+        return presenceTracker;
+    }
+
     /**
      * @return if minesteg.mode is set to SENDER in the properties.
      */
@@ -87,6 +421,108 @@ public class StegoSystem {
         return settings.get("minesteg.mode").equals("SENDER");
     }
 
+    /**
+     * @return if minesteg.mode is set to DUPLEX in the properties.
+     */
+    public boolean isDuplex() {
+        return "DUPLEX".equals(settings.getProperty("minesteg.mode"));
+    }
+
+    /**
+     * @return the name of the other player in DUPLEX mode, set in minesteg.peer or minesteg.receiver.
+     */
+    private String getPeerName() {
+        return settings.getProperty("minesteg.peer", settings.getProperty("minesteg.receiver"));
+    }
+
+    /**
+     * @return the inbound message buffer in DUPLEX mode, null otherwise.
+     */
+    public MessageBuffer getInboundBuffer() {
+        return inboundBuffer;
+    }
+
+    /**
+     * @return if minesteg.transport is set to NIO in the properties, RMI is used by default.
+     */
+    private boolean isNioTransport() {
+        return "NIO".equalsIgnoreCase(settings.getProperty("minesteg.transport"));
+    }
+
+    /**
+     * @return if minesteg.fec is set to true in the properties.
+     */
+    private boolean isFecEnabled() {
+        return "true".equalsIgnoreCase(settings.getProperty("minesteg.fec"));
+    }
+
+    /**
+     * @return the codeword length that is set in minesteg.fec.n, 24 by default.
+     */
+    private int getFecN() {
+        return Integer.parseInt(settings.getProperty("minesteg.fec.n", "24").trim());
+    }
+
+    /**
+     * @return the number of data bytes per codeword that is set in minesteg.fec.k, 16 by default.
+     */
+    private int getFecK() {
+        return Integer.parseInt(settings.getProperty("minesteg.fec.k", "16").trim());
+    }
+
+    /**
+     * @return the interleaving depth that is set in minesteg.fec.depth, 4 by default.
+     */
+    private int getFecDepth() {
+        return Integer.parseInt(settings.getProperty("minesteg.fec.depth", "4").trim());
+    }
+
+    /**
+     * @return if minesteg.frame is set to true in the properties.
+     */
+    private boolean isFrameEnabled() {
+        return "true".equalsIgnoreCase(settings.getProperty("minesteg.frame"));
+    }
+
+    /**
+     * @return the payload size of a frame that is set in minesteg.frame.size.
+     */
+    private int getFramePayloadSize() {
+        String size = settings.getProperty("minesteg.frame.size");
+        return size == null ? FrameFormat.DEFAULT_PAYLOAD_SIZE : Integer.parseInt(size.trim());
+    }
+
+    /**
+     * @return if minesteg.arq is set to true in the properties.
+     */
+    private boolean isArqEnabled() {
+        return "true".equalsIgnoreCase(settings.getProperty("minesteg.arq"));
+    }
+
+    /**
+     * @return the ARQ window that is set in minesteg.arq.window, 8 frames by default.
+     */
+    private int getArqWindow() {
+        String window = settings.getProperty("minesteg.arq.window");
+        return window == null ? ArqEncoderSource.MAX_WINDOW : Integer.parseInt(window.trim());
+    }
+
+    /**
+     * @return the bits per angle that are set in minesteg.symbol.bits, 1 (parity) by default. Both players need the
+     * same value.
+     */
+    private int getSymbolBits() {
+        return Integer.parseInt(settings.getProperty("minesteg.symbol.bits", "1").trim());
+    }
+
+    /**
+     * @return the bits per relative move that are set in minesteg.position.bits, 0 (no position carrier) by default.
+     * Both players need the same value.
+     */
+    private int getPositionBits() {
+        return Integer.parseInt(settings.getProperty("minesteg.position.bits", "0").trim());
+    }
+
     /**
      * Get the configuration value for the given needle.
      *
@@ -100,14 +536,7 @@ public class StegoSystem {
     /**
      * @return the stego key that is set in minesteg.stegokey.
      */
-    private int[] getStegoKey() {
-        String[] stegoKeyStr = settings.getProperty("minesteg.stegokey").split(",");
-        int[] stegoKey = new int[stegoKeyStr.length];
-
-        for (int i = 0; i < stegoKeyStr.length; i++) {
-            stegoKey[i] = Integer.parseInt(stegoKeyStr[i]);
-        }
-
-        return stegoKey;
+    private StegoKey getStegoKey() {
+        return StegoKey.parse(settings.getProperty("minesteg.stegokey"));
     }
 }
@@ -1,5 +1,6 @@
 package at.ac.uibk.chaas.minesteg.analyze;
 
+import at.ac.uibk.chaas.minesteg.PacketAccessor;
 import at.ac.uibk.chaas.minesteg.PropertiesHelper;
 import net.minecraft.client.Minecraft;
 import net.minecraft.entity.Entity;
@@ -8,7 +9,6 @@ import net.minecraft.network.IPacket;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.lang.reflect.Field;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Properties;
@@ -202,36 +202,21 @@ public class AllPacketDumper {
         boolean mapInitialized = Minecraft.getInstance().world != null && Minecraft.getInstance().player != null;
 
         // Received packets contain a entity id
-        try {
-            Field f = getDeclaredFieldInHierarchy(packetIn.getClass(), "entityId");
-
-            if (f != null) {
-                f.setAccessible(true);
-                Integer entityIDTmp = (Integer) f.get(packetIn); //IllegalAccessException
-
-                if (entityIDTmp != null) {
-                    entityID = entityIDTmp;
-
-                    // lookup entity type
-                    entityType = "unknown";
-                    if (Minecraft.getInstance().world != null) {
-                        Entity entity = Minecraft.getInstance().world.getEntityByID(entityID);
-                        if (entity != null) {
-                            entityType = entity.getType().getName().getString();
-                        }
-                    }
-                } else {
-                    entityID = 0;
-                    entityType = "entityidnull";
+        PacketAccessor accessor = PacketAccessor.of(packetIn.getClass());
+        if (accessor.hasEntityId()) {
+            entityID = accessor.getEntityId(packetIn);
+
+            // lookup entity type
+            entityType = "unknown";
+            if (Minecraft.getInstance().world != null) {
+                Entity entity = Minecraft.getInstance().world.getEntityByID(entityID);
+                if (entity != null) {
+                    entityType = entity.getType().getName().getString();
                 }
-            } else {
-                entityID = 0;
-                entityType = "noentityid";
             }
-        } catch (IllegalAccessException e) {
-            // ignore error
+        } else {
             entityID = 0;
-            entityType = "exception";
+            entityType = "noentityid";
         }
 
         String csvLine = System.currentTimeMillis() +
@@ -266,23 +251,4 @@ public class AllPacketDumper {
             flushCounterIncoming = 0;
         }
     }
-
-    /**
-     * Get the reflection field, also check parent classes.
-     * TODO: replace with HelperUtil.findUnderlyingField
-     *
-     * @param clazz     the class that should be searched for the field.
-     * @param fieldName the field name.
-     * @return the reflection field or null if field was not found.
-     */
-    private Field getDeclaredFieldInHierarchy(Class<?> clazz, String fieldName) {
-        if (clazz == null) {
-            return null;
-        }
-        try {
-            return clazz.getDeclaredField(fieldName);
-        } catch (NoSuchFieldException e) {
-            return getDeclaredFieldInHierarchy(clazz.getSuperclass(), fieldName);
-        }
-    }
 }
@@ -2,7 +2,6 @@ package at.ac.uibk.chaas.minesteg.analyze;
 
 import at.ac.uibk.chaas.minesteg.HelperUtil;
 import at.ac.uibk.chaas.minesteg.PropertiesHelper;
-import net.minecraft.network.play.server.SEntityPacket;
 
 import java.io.BufferedWriter;
 import java.io.FileWriter;
@@ -21,6 +20,7 @@ import java.util.Properties;
 public class DecoderPacketLogger {
     private static final String CSV_SEPARATOR = ",";
     private static final int FLUSH_INTERVAL = 50;
+    private static final String[] LANES = {"x", "z", "pitch", "yaw"}; // the built-in carriers of the decoder
     private BufferedWriter writer = null;
     private int flushCounter = 0;
     private long initialTime = 0;
@@ -68,12 +68,14 @@ public class DecoderPacketLogger {
                 "bitPitch" +
                 CSV_SEPARATOR +
                 "bitYaw" +
-                CSV_SEPARATOR +
-                "bytePosition" +
-                CSV_SEPARATOR +
-                "byteAsBinary" +
-                CSV_SEPARATOR +
-                "bitrate" +
+                CSV_SEPARATOR;
+        for (String lane : LANES) {
+            csvLine += lane + "BytePosition" +
+                    CSV_SEPARATOR +
+                    lane + "ByteAsBinary" +
+                    CSV_SEPARATOR;
+        }
+        csvLine += "bitrate" +
                 "\n";
         try {
             writer.write(csvLine);
@@ -86,16 +88,17 @@ public class DecoderPacketLogger {
     /**
      * Log a decoder packet to file.
      *
-     * @param receivedPacket the received packet object.
+     * @param pitch          the received pitch value.
+     * @param yaw            the received yaw value.
      * @param type           the type of the packet.
      * @param bitPitch       the LSB of pitch value.
      * @param bitYaw         the LSB of the yaw value.
-     * @param bytePosition   the current byte position of the decoder.
-     * @param currentByte    the current byte value processed by the decoder.
+     * @param bytePositions  the current byte position of every lane, in the order x, z, pitch, yaw.
+     * @param currentBytes   the current byte value of every lane, in the same order.
      * @param bitrate        the current bit rate.
      */
-    public void logPacket(SEntityPacket receivedPacket, String type, byte bitPitch, byte bitYaw, int bytePosition, Byte currentByte,
-                          float bitrate) {
+    public void logPacket(byte pitch, byte yaw, String type, byte bitPitch, byte bitYaw, int[] bytePositions,
+                          byte[] currentBytes, float bitrate) {
         if (writer == null) {
             return;
         }
@@ -104,29 +107,32 @@ public class DecoderPacketLogger {
             initialTime = System.currentTimeMillis();
         }
 
-        String csvLine = System.currentTimeMillis() +
-                CSV_SEPARATOR +
-                (System.currentTimeMillis() - initialTime) +
-                CSV_SEPARATOR +
-                type +
-                CSV_SEPARATOR +
-                receivedPacket.getPitch() +
-                CSV_SEPARATOR +
-                receivedPacket.getYaw() +
-                CSV_SEPARATOR +
-                bitPitch +
-                CSV_SEPARATOR +
-                bitYaw +
-                CSV_SEPARATOR +
-                bytePosition +
-                CSV_SEPARATOR +
-                HelperUtil.byteToString(currentByte) +
-                CSV_SEPARATOR +
-                bitrate +
-                "\n";
+        StringBuilder csvLine = new StringBuilder()
+                .append(System.currentTimeMillis())
+                .append(CSV_SEPARATOR)
+                .append(System.currentTimeMillis() - initialTime)
+                .append(CSV_SEPARATOR)
+                .append(type)
+                .append(CSV_SEPARATOR)
+                .append(pitch)
+                .append(CSV_SEPARATOR)
+                .append(yaw)
+                .append(CSV_SEPARATOR)
+                .append(bitPitch)
+                .append(CSV_SEPARATOR)
+                .append(bitYaw)
+                .append(CSV_SEPARATOR);
+        for (int i = 0; i < LANES.length; i++) {
+            csvLine.append(bytePositions[i])
+                    .append(CSV_SEPARATOR)
+                    .append(HelperUtil.byteToString(currentBytes[i]))
+                    .append(CSV_SEPARATOR);
+        }
+        csvLine.append(bitrate)
+                .append("\n");
 
         try {
-            writer.write(csvLine);
+            writer.write(csvLine.toString());
         } catch (IOException e) {
             System.out.println("Failed to write decoder logfile: " + e.getMessage());
             e.printStackTrace();
@@ -47,6 +47,13 @@ public class EncoderPacketLogger {
         writeHeader();
     }
 
+    /**
+     * @return true if encoder logging is enabled in the settings.
+     */
+    public boolean isEnabled() {
+        return writer != null;
+    }
+
     /**
      * Write the CSV header for the packet logfile.
      */
@@ -98,7 +105,7 @@ public class EncoderPacketLogger {
     /**
      * Log the encoder packet to file.
      *
-     * @param playerPacketOrig     the original, unmodified packet.
+     * @param playerPacketOrig     a snapshot of the original, unmodified packet.
      * @param playerPacketModified the modified packet with stegodata.
      * @param type                 the type of the packet.
      * @param bitPitch             the LSB of pitch value.
@@ -107,7 +114,7 @@ public class EncoderPacketLogger {
      * @param bytePosition         the current byte position of the encoder.
      * @param currentByte          the current byte value processed by the encoder.
      */
-    public void logPacket(CPlayerPacket playerPacketOrig, CPlayerPacket playerPacketModified, String type, byte bitPitch, byte bitYaw,
+    public void logPacket(PacketSnapshot playerPacketOrig, CPlayerPacket playerPacketModified, String type, byte bitPitch, byte bitYaw,
                           int sendCounter, int bytePosition, Byte currentByte) {
         if (writer == null) {
             return;
@@ -123,17 +130,17 @@ public class EncoderPacketLogger {
                 CSV_SEPARATOR +
                 type +
                 CSV_SEPARATOR +
-                playerPacketOrig.getPitch(0) +
+                playerPacketOrig.getPitch() +
                 CSV_SEPARATOR +
-                playerPacketOrig.getYaw(0) +
+                playerPacketOrig.getYaw() +
                 CSV_SEPARATOR +
                 playerPacketModified.getPitch(0) +
                 CSV_SEPARATOR +
                 playerPacketModified.getYaw(0) +
                 CSV_SEPARATOR +
-                HelperUtil.getWireValue(playerPacketOrig.getPitch(0)) +
+                HelperUtil.getWireValue(playerPacketOrig.getPitch()) +
                 CSV_SEPARATOR +
-                HelperUtil.getWireValue(playerPacketOrig.getYaw(0)) +
+                HelperUtil.getWireValue(playerPacketOrig.getYaw()) +
                 CSV_SEPARATOR +
                 HelperUtil.getWireValue(playerPacketModified.getPitch(0)) +
                 CSV_SEPARATOR +
@@ -0,0 +1,108 @@
+package at.ac.uibk.chaas.minesteg.analyze;
+
+import net.minecraft.network.play.client.CPlayerPacket;
+
+/**
+ * A mutable snapshot of the primitive values of a {@link CPlayerPacket}.
+ * The snapshot is meant to be reused, so capturing a packet does not allocate any memory.
+ *
+ * @author christoph.haas
+ * @version 1.0.0
+ * @since 1.8
+ */
+public class PacketSnapshot {
+    public static final int CLASS_OTHER = 0;
+    public static final int CLASS_POSITION = 1;
+    public static final int CLASS_POSITION_ROTATION = 2;
+    public static final int CLASS_ROTATION = 3;
+
+    private int classId = CLASS_OTHER;
+    private double x = 0;
+    private double y = 0;
+    private double z = 0;
+    private float pitch = 0;
+    private float yaw = 0;
+    private boolean onGround = false;
+
+    /**
+     * Copy the values of the given packet into this snapshot.
+     *
+     * @param packet the packet.
+     */
+    public void capture(CPlayerPacket packet) {
+        classId = getClassId(packet);
+        x = packet.getX(0);
+        y = packet.getY(0);
+        z = packet.getZ(0);
+        pitch = packet.getPitch(0);
+        yaw = packet.getYaw(0);
+        onGround = packet.isOnGround();
+    }
+
+    /**
+     * Get a numeric identifier for the class of the given packet.
+     *
+     * @param packet the packet.
+     * @return one of the CLASS_ constants.
+     */
+    public static int getClassId(CPlayerPacket packet) {
+        if (packet instanceof CPlayerPacket.PositionPacket) {
+            return CLASS_POSITION;
+        } else if (packet instanceof CPlayerPacket.PositionRotationPacket) {
+            return CLASS_POSITION_ROTATION;
+        } else if (packet instanceof CPlayerPacket.RotationPacket) {
+            return CLASS_ROTATION;
+        }
+
+        return CLASS_OTHER;
+    }
+
+    /**
+     * @return the packet class identifier, one of the CLASS_ constants.
+     */
+    public int getClassId() {
+        return classId;
+    }
+
+    /**
+     * @return the x coordinate.
+     */
+    public double getX() {
+        return x;
+    }
+
+    /**
+     * @return the y coordinate.
+     */
+    public double getY() {
+        return y;
+    }
+
+    /**
+     * @return the z coordinate.
+     */
+    public double getZ() {
+        return z;
+    }
+
+    /**
+     * @return the pitch value.
+     */
+    public float getPitch() {
+        return pitch;
+    }
+
+    /**
+     * @return the yaw value.
+     */
+    public float getYaw() {
+        return yaw;
+    }
+
+    /**
+     * @return the on ground flag.
+     */
+    public boolean isOnGround() {
+        return onGround;
+    }
+}
@@ -1,9 +1,11 @@
 package at.ac.uibk.chaas.minesteg.analyze;
 
 import at.ac.uibk.chaas.minesteg.HelperUtil;
+import at.ac.uibk.chaas.minesteg.PacketAccessor;
 import at.ac.uibk.chaas.minesteg.PropertiesHelper;
+import at.ac.uibk.chaas.minesteg.StegoSystem;
+import at.ac.uibk.chaas.minesteg.steg.PlayerTracker;
 import net.minecraft.client.Minecraft;
-import net.minecraft.entity.player.PlayerEntity;
 import net.minecraft.network.IPacket;
 import net.minecraft.network.play.client.CPlayerPacket;
 import net.minecraft.network.play.server.SEntityPacket;
@@ -33,7 +35,7 @@ public class StegoPacketDumper {
     private BufferedWriter incomingWriter = null;
     private BufferedWriter outgoingWriter = null;
     private int senderId = 0;
-    private PlayerEntity senderEntity = null;
+    private PlayerTracker sender = null;
     private long initialTime = 0;
 
     /**
@@ -137,19 +139,10 @@ public class StegoPacketDumper {
     }
 
     /**
-     * Store the entity-object of the sender.
+     * Subscribe to the presence of the sender.
      */
-    private void setSenderEntity() {
-        Minecraft minecraft = Minecraft.getInstance();
-        if (minecraft.world != null) {
-            for (int i = 0; i < minecraft.world.getPlayers().size(); ++i) {
-                PlayerEntity playerentity = minecraft.world.getPlayers().get(i);
-                if (settings.get("minesteg.sender").equals(playerentity.getName().getString())) {
-                    this.senderEntity = playerentity;
-                    break;
-                }
-            }
-        }
+    private void setSender() {
+        sender = StegoSystem.getInstance().getPresenceTracker().track(settings.getProperty("minesteg.sender"));
     }
 
     /**
@@ -229,11 +222,12 @@ public class StegoPacketDumper {
         SEntityPacket packet = (SEntityPacket) packetIn;
 
         // Check if packet is from sender
-        if (senderEntity == null) {
-            setSenderEntity();
+        if (sender == null) {
+            setSender();
         }
-        Minecraft minecraft = Minecraft.getInstance();
-        boolean isFromSender = packet.getEntity(minecraft.world) != null && packet.getEntity(minecraft.world).equals(senderEntity);
+        PacketAccessor accessor = PacketAccessor.of(packet.getClass());
+        boolean isFromSender = sender.isPresent() && accessor.hasEntityId() &&
+                accessor.getEntityId(packet) == sender.getEntityId();
 
         if (!isFromSender) {
             return; // skip packets from other senders
@@ -256,7 +250,7 @@ public class StegoPacketDumper {
                     CSV_SEPARATOR +
                     packet.getYaw() +
                     CSV_SEPARATOR +
-                    (senderEntity != null ? senderEntity.getEntityId() : 0) +
+                    sender.getEntityId() +
                     CSV_SEPARATOR +
                     packetIn.getClass().getName() +
                     "\n";
@@ -0,0 +1,181 @@
+package at.ac.uibk.chaas.minesteg.arq;
+
+import at.ac.uibk.chaas.minesteg.frame.FrameDecoderSink;
+import at.ac.uibk.chaas.minesteg.steg.DecoderSink;
+import at.ac.uibk.chaas.minesteg.steg.EncoderSource;
+
+import java.util.Arrays;
+
+import static at.ac.uibk.chaas.minesteg.frame.FrameFormat.SESSION_MASK;
+
+/**
+ * The receiving side of the selective-repeat ARQ.
+ * <p>
+ * Frames are delivered in sequence. Frames that arrive after a lost frame are buffered until the lost frame was sent
+ * again. Corrupted frames are dropped, the sender repeats them. The state of the receiver is sent back to the sender
+ * over the reverse channel, see {@link #feedbackSource()}.
+ * <p>
+ * The window is kept when the connection is reset, because the sender keeps its window as well. A frame of another
+ * session comes from a restarted sender, so the window starts again at sequence number 0.
+ *
+ * @author christoph.haas
+ * @version 1.0.0
+ * @since 1.8
+ */
+public class ArqDecoderSink extends FrameDecoderSink {
+    public static final int FEEDBACK_SIZE = 2; // payload size of the feedback frames
+
+    private final int window;
+    private final byte[][] buffered;
+    private final int[] bufferedLength;
+    private final boolean[] present;
+
+    private int expected = 0; // next sequence number to deliver, without wrap-around
+    private int session = -1; // session of the sender, unknown before the first frame
+    private long restartedSessions = 0;
+    private long malformedFrames = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param downstream  the destination of the payload bytes.
+     * @param payloadSize the number of payload bytes per frame that is used by the sender.
+     * @param window      the ARQ window of the sender.
+     */
+    public ArqDecoderSink(DecoderSink downstream, int payloadSize, int window) {
+        super(downstream, payloadSize);
+        if (window < 1 || window > ArqEncoderSource.MAX_WINDOW) {
+            throw new IllegalArgumentException("invalid ARQ window: " + window);
+        }
+
+        this.window = window;
+        this.buffered = new byte[window][payloadSize];
+        this.bufferedLength = new int[window];
+        this.present = new boolean[window];
+    }
+
+    /**
+     * Deliver the frame if it is the next one in sequence, otherwise buffer it.
+     *
+     * @param sequence the sequence number.
+     * @param flags    the flags.
+     * @param payload  the array that contains the payload.
+     * @param off      the offset of the payload.
+     * @param len      the payload length.
+     */
+    @Override
+    protected synchronized void onFrame(int sequence, byte flags, byte[] payload, int off, int len) {
+        if (len > payloadSize) {
+            malformedFrames++; // does not fit into the window buffers
+            return;
+        }
+
+        int frameSession = flags & SESSION_MASK;
+        if (session >= 0 && frameSession != session) {
+            System.out.println(">>>>>> ARQ sender restarted");
+            restartedSessions++;
+            expected = 0;
+            Arrays.fill(present, false);
+        }
+        session = frameSession;
+
+        int distance = (sequence - expected) & 0xff;
+        if (distance >= window) {
+            duplicateFrames++; // already delivered
+            return;
+        }
+
+        if (distance > 0) {
+            int slot = (expected + distance) % window;
+            if (present[slot]) {
+                duplicateFrames++;
+            } else {
+                System.arraycopy(payload, off, buffered[slot], 0, len);
+                bufferedLength[slot] = len;
+                present[slot] = true;
+            }
+            return;
+        }
+
+        deliver(payload, off, len);
+        receivedFrames++;
+        expected++;
+
+        while (present[expected % window]) {
+            int slot = expected % window;
+            deliver(buffered[slot], 0, bufferedLength[slot]);
+            present[slot] = false;
+            receivedFrames++;
+            expected++;
+        }
+    }
+
+    /**
+     * Nothing to do, the sender repeats the frame.
+     */
+    @Override
+    protected void onCorruptedFrame() {
+    }
+
+    /**
+     * @return the number of frames that announced more payload than the configured payload size.
+     */
+    public synchronized long getMalformedFrames() {
+        return malformedFrames;
+    }
+
+    /**
+     * @return the number of times a restarted sender was detected.
+     */
+    public synchronized long getRestartedSessions() {
+        return restartedSessions;
+    }
+
+    /**
+     * @return the source for the feedback that is sent over the reverse channel.
+     */
+    public EncoderSource feedbackSource() {
+        return new FeedbackSource();
+    }
+
+    /**
+     * @return the low byte of the next expected sequence number and the bitmap of the buffered frames after it.
+     */
+    synchronized int getFeedback() {
+        int bitmap = 0;
+        for (int i = 0; i < window - 1; i++) {
+            if (present[(expected + 1 + i) % window]) {
+                bitmap |= 1 << i;
+            }
+        }
+
+        return ((expected & 0xff) << 8) | bitmap;
+    }
+
+    /**
+     * Produces the two byte feedback records (expected sequence number, bitmap of buffered frames).
+     */
+    private class FeedbackSource implements EncoderSource {
+        private int record = 0;
+        private int position = 0;
+
+        @Override
+        public byte peek() {
+            if (position == 0) {
+                record = getFeedback();
+            }
+
+            return (byte) (position == 0 ? record >> 8 : record);
+        }
+
+        @Override
+        public void commit() {
+            position = (position + 1) % 2;
+        }
+
+        @Override
+        public void reset() {
+            position = 0;
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package at.ac.uibk.chaas.minesteg.arq;
+
+import at.ac.uibk.chaas.minesteg.steg.DecoderSink;
+import at.ac.uibk.chaas.minesteg.steg.EncoderSource;
+import at.ac.uibk.chaas.minesteg.steg.LinkController;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import static at.ac.uibk.chaas.minesteg.frame.FrameFormat.*;
+
+/**
+ * The sending side of the selective-repeat ARQ.
+ * <p>
+ * The payload of the upstream source is packed into frames, the last {@code window} frames are kept until the
+ * receiver acknowledged them. The receiver reports the next expected sequence number and which of the following
+ * frames it already buffered over the reverse channel, see {@link #feedbackSink()}. Frames that are missing before a
+ * buffered frame are sent again first. If the window is full, the oldest unacknowledged frame is sent again.
+ * <p>
+ * Every sender marks its frames with a random session in the flags, so the receiver notices a restarted sender that
+ * starts again with sequence number 0. The payload of a frame is only confirmed to the upstream source once the
+ * receiver acknowledged it in order, so a spooled message buffer sends the unacknowledged frames again after a
+ * restart.
+ *
+ * @author christoph.haas
+ * @version 1.0.0
+ * @since 1.8
+ */
+public class ArqEncoderSource implements EncoderSource {
+    public static final int MAX_WINDOW = 8; // limited by the size of the feedback bitmap
+
+    private final EncoderSource upstream;
+    private final int payloadSize;
+    private final int window;
+    private final byte[][] frames;
+    private final boolean[] acknowledged;
+    private final boolean[] missing;
+    private final byte session;
+
+    // sequence numbers are counted without wrap-around, only the low byte is sent
+    private int base = 0; // oldest unacknowledged frame
+    private int next = 0; // next new frame
+    private int confirmed = 0; // oldest frame whose payload was not confirmed to the upstream source
+
+    private LinkController linkController = null;
+    private byte[] current = null;
+    private int position = 0;
+
+    private long sentFrames = 0;
+    private long retransmittedFrames = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param upstream    the source of the payload bytes.
+     * @param payloadSize the number of payload bytes per frame.
+     * @param window      the number of frames that can be sent before they are acknowledged.
+     */
+    public ArqEncoderSource(EncoderSource upstream, int payloadSize, int window) {
+        this(upstream, payloadSize, window, ThreadLocalRandom.current().nextInt() & SESSION_MASK);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param upstream    the source of the payload bytes.
+     * @param payloadSize the number of payload bytes per frame.
+     * @param window      the number of frames that can be sent before they are acknowledged.
+     * @param session     the session that is sent in the flags of every frame.
+     */
+    ArqEncoderSource(EncoderSource upstream, int payloadSize, int window, int session) {
+        checkPayloadSize(payloadSize);
+        if (window < 1 || window > MAX_WINDOW) {
+            throw new IllegalArgumentException("invalid ARQ window: " + window);
+        }
+
+        this.upstream = upstream;
+        this.payloadSize = payloadSize;
+        this.window = window;
+        this.frames = new byte[window][frameSize(payloadSize)];
+        this.acknowledged = new boolean[window];
+        this.missing = new boolean[window];
+        this.session = (byte) (session & SESSION_MASK);
+    }
+
+    /**
+     * @return the next byte of the current frame, the next frame is selected if necessary.
+     */
+    @Override
+    public byte peek() {
+        if (current == null) {
+            selectFrame();
+        }
+
+        return current[position];
+    }
+
+    /**
+     * Advance to the next byte of the frame.
+     */
+    @Override
+    public void commit() {
+        if (current == null) {
+            return;
+        }
+
+        position++;
+        if (position == current.length) {
+            current = null;
+            position = 0;
+            sentFrames++;
+        }
+    }
+
+    /**
+     * Send the current frame again from the start.
+     */
+    @Override
+    public void reset() {
+        position = 0;
+    }
+
+    /**
+     * @return true if the peeked byte does not complete the frame. The next frame depends on the feedback of the
+     * receiver, so it is selected when the encoder needs it.
+     */
+    @Override
+    public boolean canPlanAhead() {
+        return current != null && position + 1 < current.length;
+    }
+
+    /**
+     * @return true if the next byte is the first byte of a frame.
+     */
+    @Override
+    public boolean startsFrame() {
+        return position == 0;
+    }
+
+    /**
+     * @return true, every frame needs a preamble.
+     */
+    @Override
+    public boolean isFramed() {
+        return true;
+    }
+
+    /**
+     * Process the feedback of the receiver.
+     *
+     * @param expected the low byte of the next sequence number the receiver expects.
+     * @param received bit i is set if the receiver buffered frame expected + 1 + i.
+     */
+    public synchronized void acknowledge(int expected, int received) {
+        int ack = -1;
+        for (int seq = base; seq <= next; seq++) {
+            if ((seq & 0xff) == expected) {
+                ack = seq;
+                break;
+            }
+        }
+        if (ack < 0) {
+            return; // outdated or invalid feedback
+        }
+
+        int delivered = 0;
+        for (int seq = base; seq < ack; seq++) {
+            if (!acknowledged[seq % window]) {
+                delivered++;
+            }
+        }
+        base = ack;
+
+        int highest = -1;
+        for (int i = 0; i < MAX_WINDOW; i++) {
+            int seq = ack + 1 + i;
+            if (seq < next && (received & (1 << i)) != 0) {
+                if (!acknowledged[seq % window]) {
+                    acknowledged[seq % window] = true;
+                    delivered++;
+                }
+                highest = seq;
+            }
+        }
+
+        // frames before a buffered frame were lost
+        int lost = 0;
+        for (int seq = ack; seq < highest; seq++) {
+            if (!acknowledged[seq % window] && !missing[seq % window]) {
+                missing[seq % window] = true;
+                lost++;
+            }
+        }
+
+        if (linkController != null) {
+            if (delivered > 0) {
+                linkController.recordDelivered(delivered);
+            }
+            if (lost > 0) {
+                linkController.recordLost(lost);
+            }
+        }
+    }
+
+    /**
+     * Set the controller that is informed about the frames that the receiver acknowledged or reported as lost.
+     *
+     * @param linkController the link controller, may be null.
+     */
+    public synchronized void setLinkController(LinkController linkController) {
+        this.linkController = linkController;
+    }
+
+    /**
+     * @return the sink for the feedback that is received over the reverse channel.
+     */
+    public DecoderSink feedbackSink() {
+        return new FeedbackSink();
+    }
+
+    /**
+     * @return the number of frames that were sent completely.
+     */
+    public long getSentFrames() {
+        return sentFrames;
+    }
+
+    /**
+     * @return the number of frames that were sent more than once.
+     */
+    public synchronized long getRetransmittedFrames() {
+        return retransmittedFrames;
+    }
+
+    /**
+     * @return the number of frames that were sent but not acknowledged yet.
+     */
+    public synchronized int getUnacknowledgedFrames() {
+        return next - base;
+    }
+
+    /**
+     * Select the next frame to send: a lost frame, a new frame or the oldest unacknowledged frame.
+     */
+    private synchronized void selectFrame() {
+        // the upstream source is only used by the encoder, the feedback arrives on the decoder thread
+        for (; confirmed < base; confirmed++) {
+            for (int i = 0; i < payloadSize; i++) {
+                upstream.confirm();
+            }
+        }
+
+        for (int seq = base; seq < next; seq++) {
+            int slot = seq % window;
+            if (missing[slot] && !acknowledged[slot]) {
+                missing[slot] = false;
+                retransmit(slot);
+                return;
+            }
+        }
+
+        if (next - base < window) {
+            int slot = next % window;
+            byte[] frame = frames[slot];
+            writeHeader(frame, next, payloadSize, session);
+            for (int i = 0; i < payloadSize; i++) {
+                frame[HEADER_SIZE + i] = upstream.peek();
+                upstream.commit();
+            }
+            writeCrc(frame, payloadSize);
+
+            acknowledged[slot] = false;
+            missing[slot] = false;
+            next++;
+            current = frame;
+            return;
+        }
+
+        int seq = base;
+        while (seq < next - 1 && acknowledged[seq % window]) {
+            seq++;
+        }
+        retransmit(seq % window);
+    }
+
+    /**
+     * Send the frame in the given slot again.
+     *
+     * @param slot the window slot.
+     */
+    private void retransmit(int slot) {
+        markResent(frames[slot], payloadSize);
+        retransmittedFrames++;
+        current = frames[slot];
+    }
+
+    /**
+     * Collects the two byte feedback records (expected sequence number, bitmap of buffered frames).
+     */
+    private class FeedbackSink implements DecoderSink {
+        private final byte[] record = new byte[2];
+        private int received = 0;
+        private boolean damaged = false;
+
+        @Override
+        public void push(byte b) {
+            record[received++] = b;
+            checkRecord();
+        }
+
+        @Override
+        public void pushErasure() {
+            received++;
+            damaged = true;
+            checkRecord();
+        }
+
+        @Override
+        public void reset() {
+            received = 0;
+            damaged = false;
+        }
+
+        /**
+         * Process the record once it is complete.
+         */
+        private void checkRecord() {
+            if (received < record.length) {
+                return;
+            }
+
+            if (!damaged) {
+                acknowledge(record[0] & 0xff, record[1] & 0xff);
+            }
+            reset();
+        }
+    }
+}
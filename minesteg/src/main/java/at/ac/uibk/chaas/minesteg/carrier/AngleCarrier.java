@@ -0,0 +1,321 @@
+package at.ac.uibk.chaas.minesteg.carrier;
+
+import at.ac.uibk.chaas.minesteg.PacketAccessor;
+import at.ac.uibk.chaas.minesteg.steg.AngleCodec;
+import at.ac.uibk.chaas.minesteg.steg.FloatHistory;
+import at.ac.uibk.chaas.minesteg.steg.SharedPreferences;
+import at.ac.uibk.chaas.minesteg.steg.StegoKey;
+import net.minecraft.network.IPacket;
+import net.minecraft.network.play.client.CPlayerPacket;
+import net.minecraft.network.play.server.SEntityHeadLookPacket;
+import net.minecraft.network.play.server.SEntityPacket;
+import net.minecraft.network.play.server.SEntityTeleportPacket;
+
+/**
+ * The base class of the pitch and the yaw carrier.
+ * <p>
+ * A changed wire value carries the symbol <code>wire mod 2^symbolBits</code>, an unchanged value carries nothing. The
+ * stegokey values are reserved for the synchronization packets. After the last synchronization packet the axis with
+ * the stegokey value is parked: its next change only leaves the stegokey and carries no symbol.
+ * <p>
+ * The server relays the rotation in move, look and teleport packets. The head yaw is relayed in an extra head look
+ * packet, which can arrive before or up to one server tick after the look packet. A head look value only counts if
+ * none of the recently received values matches it. An early head look could carry the first symbol of a yaw byte
+ * before the pitch symbol of the same packet, so it only continues a started byte, see
+ * {@link Carrier#isSeparateRelay(IPacket)}.
+ *
+ * @author christoph.haas
+ * @version 1.0.0
+ * @since 1.8
+ */
+public abstract class AngleCarrier implements Carrier {
+    protected static final int NO_VALUE = Integer.MIN_VALUE;
+    private static final int RECENT_VALUES = 4; // received values that a lagging head look may repeat
+
+    protected final StegoKey stegoKey;
+    protected final AngleCodec angleCodec;
+    protected final FloatHistory history = new FloatHistory(SharedPreferences.HISTORY_LENGTH);
+    protected float trend = 0; // pos -> increasing, neg -> decreasing
+    protected float validOnWire = 0; // the value of the previous packet
+    private int symbolBits = 1;
+    private boolean parked = false;
+    private final byte[] recent = new byte[RECENT_VALUES]; // recent[latest] is the previous value
+    private int latest = 0;
+    private int recentCount = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param stegoKey   the stegokey.
+     * @param angleCodec the codec to randomize the values, shared with the other carriers of the encoder.
+     */
+    protected AngleCarrier(StegoKey stegoKey, AngleCodec angleCodec) {
+        this.stegoKey = stegoKey;
+        this.angleCodec = angleCodec;
+    }
+
+    /**
+     * Check if the incoming packet is a synchronization packet.
+     *
+     * @param stegoKey the stegokey.
+     * @param packet   the incoming packet.
+     * @return true if pitch or yaw is a stegokey value.
+     */
+    public static boolean isSyncPacket(StegoKey stegoKey, IPacket<?> packet) {
+        if (packet instanceof SEntityPacket.MovePacket || packet instanceof SEntityPacket.LookPacket) {
+            SEntityPacket entityPacket = (SEntityPacket) packet;
+            return stegoKey.contains(entityPacket.getPitch()) || stegoKey.contains(entityPacket.getYaw());
+        } else if (packet instanceof SEntityTeleportPacket) {
+            SEntityTeleportPacket teleportPacket = (SEntityTeleportPacket) packet;
+            return stegoKey.contains(teleportPacket.getPitch()) || stegoKey.contains(teleportPacket.getYaw());
+        }
+        return false;
+    }
+
+    /**
+     * Set the number of bits that are embedded in every changed angle.
+     *
+     * @param symbolBits the bits per angle, 1 to {@link SharedPreferences#MAX_SYMBOL_BITS}.
+     */
+    public void setSymbolBits(int symbolBits) {
+        if (symbolBits < 1 || symbolBits > SharedPreferences.MAX_SYMBOL_BITS) {
+            throw new IllegalArgumentException("invalid symbol bits: " + symbolBits);
+        }
+        this.symbolBits = symbolBits;
+    }
+
+    @Override
+    public int getSymbolBits() {
+        return symbolBits;
+    }
+
+    @Override
+    public boolean carries(CPlayerPacket packet) {
+        return packet instanceof CPlayerPacket.RotationPacket || packet instanceof CPlayerPacket.PositionRotationPacket;
+    }
+
+    @Override
+    public int capacity(CPlayerPacket packet) {
+        history.add(read(packet));
+        trend = history.getTrend();
+
+        boolean moved = AngleCodec.toWireInt(history.getLatest()) !=
+                AngleCodec.toWireInt(history.get(history.capacity() - 2));
+        return parked || !moved ? 0 : symbolBits;
+    }
+
+    @Override
+    public boolean canForce() {
+        return !parked;
+    }
+
+    @Override
+    public boolean isResting() {
+        int latest = AngleCodec.toWireInt(history.getLatest());
+        for (int i = 0; i < history.capacity() - 1; i++) {
+            if (AngleCodec.toWireInt(history.get(i)) != latest) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void embed(CPlayerPacket packet, int symbol) {
+        if (symbol != NO_SYMBOL) {
+            send(packet, toSymbolValue(symbol));
+        } else if (parked) {
+            send(packet, getNonKeyValue()); // leave the stegokey without a symbol
+        } else {
+            send(packet, randomize(validOnWire)); // re-send the previous data
+        }
+        parked = false;
+    }
+
+    @Override
+    public int extract(IPacket<?> packet) {
+        int value = read(packet);
+        if (value == NO_VALUE) {
+            return NO_SYMBOL;
+        }
+
+        byte wire = (byte) value;
+        if (packet instanceof SEntityHeadLookPacket) {
+            if (stegoKey.contains(wire) || isRecent(wire)) {
+                return NO_SYMBOL; // already received, or a stale value of the synchronization preamble
+            }
+        } else if (isSyncPacket(stegoKey, packet)) {
+            remember(wire);
+            parked = stegoKey.contains(wire);
+            return NO_SYMBOL;
+        } else if (wire == getPrevious()) {
+            return NO_SYMBOL;
+        }
+
+        remember(wire);
+        if (parked) {
+            parked = false;
+            return NO_SYMBOL;
+        }
+        return toSymbol(wire);
+    }
+
+    @Override
+    public void reset() {
+        parked = false;
+        recentCount = 0;
+    }
+
+    /**
+     * @return the previously received wire value.
+     */
+    public byte getPrevious() {
+        return recentCount > 0 ? recent[latest] : 0;
+    }
+
+    /**
+     * @param wire the received wire value.
+     */
+    private void remember(byte wire) {
+        latest = (latest + 1) % RECENT_VALUES;
+        recent[latest] = wire;
+        recentCount = Math.min(recentCount + 1, RECENT_VALUES);
+    }
+
+    /**
+     * @param wire the wire value.
+     * @return true if the wire value is one of the recently received values.
+     */
+    private boolean isRecent(byte wire) {
+        for (int i = 0; i < recentCount; i++) {
+            if (recent[Math.floorMod(latest - i, RECENT_VALUES)] == wire) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Send the value in the outgoing packet, e.g. a value of the synchronization preamble.
+     *
+     * @param packet the outgoing packet, the angle is updated in place.
+     * @param value  the angle.
+     */
+    public void send(CPlayerPacket packet, float value) {
+        validOnWire = value;
+        write(packet, value);
+    }
+
+    /**
+     * The last synchronization packet used a stegokey value on this axis. The next valid packet moves the axis out of
+     * the stegokey without a symbol.
+     */
+    public void park() {
+        parked = true;
+    }
+
+    /**
+     * @return the current value of the player.
+     */
+    public float getCurrent() {
+        return history.getLatest();
+    }
+
+    /**
+     * @return the movement direction trend.
+     */
+    public float getTrend() {
+        return trend;
+    }
+
+    /**
+     * @return the value of the previous packet.
+     */
+    public float getValidOnWire() {
+        return validOnWire;
+    }
+
+    /**
+     * @param wire the wire value.
+     * @return the symbol of the wire value.
+     */
+    public byte toSymbol(byte wire) {
+        return (byte) Math.floorMod(wire, 1 << symbolBits);
+    }
+
+    /**
+     * @return a value next to the player that is included in the stegokey.
+     */
+    public abstract float getKeyValue();
+
+    /**
+     * @return a value next to the player that is not included in the stegokey.
+     */
+    public abstract float getNonKeyValue();
+
+    /**
+     * Find the nearest wire value in the given direction that carries the symbol.
+     *
+     * @param wire     the wire value of the player.
+     * @param prevWire the previously sent wire value.
+     * @param symbol   the symbol to embed.
+     * @param step     1 to search upwards, -1 to search downwards.
+     * @return the wire value.
+     */
+    protected int nearestSymbolWire(int wire, int prevWire, int symbol, int step) {
+        int symbolCount = 1 << symbolBits;
+
+        // we need to have different values for every angle we send, the stegokey values are reserved for sync
+        while (Math.floorMod(wire, symbolCount) != symbol || wire == prevWire || stegoKey.contains(wire)) {
+            wire += step;
+        }
+
+        return wire;
+    }
+
+    /**
+     * @param packet the outgoing packet.
+     * @return the angle of the player.
+     */
+    protected abstract float read(CPlayerPacket packet);
+
+    /**
+     * @param packet the incoming packet.
+     * @return the wire value of the angle, or {@link #NO_VALUE} if the packet does not carry the angle.
+     */
+    protected abstract int read(IPacket<?> packet);
+
+    /**
+     * @param packet the outgoing packet, the angle is updated in place.
+     * @param value  the angle.
+     */
+    protected abstract void write(CPlayerPacket packet, float value);
+
+    /**
+     * Get a value for the given symbol. This is the main embedding method of the axis.
+     *
+     * @param symbol the symbol.
+     * @return the angle.
+     */
+    protected abstract float toSymbolValue(int symbol);
+
+    /**
+     * Randomize the value. The randomized value still converts to the same wire value as the original value.
+     *
+     * @param value the original value.
+     * @return the randomized value.
+     */
+    protected abstract float randomize(float value);
+
+    /**
+     * @param packet the outgoing packet.
+     * @return the accessor of the packet class.
+     */
+    protected static PacketAccessor accessor(CPlayerPacket packet) {
+        PacketAccessor accessor = PacketAccessor.of(packet.getClass());
+        if (!accessor.hasRotation()) {
+            throw new RuntimeException("FATAL: fields not found in class!");
+        }
+        return accessor;
+    }
+}
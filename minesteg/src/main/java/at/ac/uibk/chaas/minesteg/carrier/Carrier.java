@@ -0,0 +1,96 @@
+package at.ac.uibk.chaas.minesteg.carrier;
+
+import net.minecraft.network.IPacket;
+import net.minecraft.network.play.client.CPlayerPacket;
+
+/**
+ * A field of the player packets that carries symbols, e.g. the pitch or the x coordinate.
+ * <p>
+ * On the sending side the scheduler of the encoder asks every carrier for its capacity in the outgoing packet and then
+ * hands the next symbol to every carrier that can take it. On the receiving side the decoder asks the carriers in the
+ * same order for the symbols in the relayed packet. An instance is only used on one side.
+ *
+ * @author christoph.haas
+ * @version 1.0.0
+ * @since 1.8
+ */
+public interface Carrier {
+    int NO_SYMBOL = -1;
+
+    /**
+     * @return the bits per symbol.
+     */
+    int getSymbolBits();
+
+    /**
+     * @param packet the outgoing packet.
+     * @return true if the packet counts as a repetition of the current symbol of the carrier.
+     */
+    default boolean carries(CPlayerPacket packet) {
+        return true;
+    }
+
+    /**
+     * Estimate the capacity of the carrier in the outgoing packet. This method is called once for every carried
+     * packet before {@link #embed(CPlayerPacket, int)}, the carrier reads the values of the player here.
+     *
+     * @param packet the outgoing packet.
+     * @return the number of bits the carrier can take without a visible adjustment, 0 if it keeps its value.
+     */
+    int capacity(CPlayerPacket packet);
+
+    /**
+     * @return true if the carrier can take a symbol although the player did not move it. This keeps the link alive
+     * while the player is idle.
+     */
+    default boolean canForce() {
+        return false;
+    }
+
+    /**
+     * @return true if the player did not move this field recently.
+     */
+    default boolean isResting() {
+        return true;
+    }
+
+    /**
+     * @return true if the server adds up the values of merged packets, e.g. the relative moves. Such a carrier keeps
+     * its symbols away from the synchronization packets.
+     */
+    default boolean isCumulative() {
+        return false;
+    }
+
+    /**
+     * Embed the symbol in the outgoing packet.
+     *
+     * @param packet the outgoing packet, the field is updated in place.
+     * @param symbol the symbol, or {@link #NO_SYMBOL} to keep the previous value.
+     */
+    void embed(CPlayerPacket packet, int symbol);
+
+    /**
+     * Extract the symbol from the incoming packet. The same value may be relayed in several packet types, the carrier
+     * only returns it once.
+     *
+     * @param packet the incoming packet of the sender.
+     * @return the symbol, or {@link #NO_SYMBOL} if the packet carries none.
+     */
+    int extract(IPacket<?> packet);
+
+    /**
+     * @param packet the incoming packet of the sender.
+     * @return true if the packet relays only this field, e.g. the head yaw. Such a packet can arrive before the packet
+     * with the other fields of the same outgoing packet, so the decoder only continues a started byte with it.
+     */
+    default boolean isSeparateRelay(IPacket<?> packet) {
+        return false;
+    }
+
+    /**
+     * The connection to the peer was reset, forget the previous values.
+     */
+    default void reset() {
+    }
+}
@@ -0,0 +1,98 @@
+package at.ac.uibk.chaas.minesteg.carrier;
+
+import at.ac.uibk.chaas.minesteg.steg.AngleCodec;
+import at.ac.uibk.chaas.minesteg.steg.StegoKey;
+import net.minecraft.network.IPacket;
+import net.minecraft.network.play.client.CPlayerPacket;
+import net.minecraft.network.play.server.SEntityPacket;
+import net.minecraft.network.play.server.SEntityTeleportPacket;
+
+/**
+ * The pitch carrier. Pitch must stay between -90 and 90 degrees.
+ *
+ * @author christoph.haas
+ * @version 1.0.0
+ * @since 1.8
+ */
+public class PitchCarrier extends AngleCarrier {
+    /**
+     * Constructor.
+     *
+     * @param stegoKey   the stegokey.
+     * @param angleCodec the codec to randomize the values.
+     */
+    public PitchCarrier(StegoKey stegoKey, AngleCodec angleCodec) {
+        super(stegoKey, angleCodec);
+    }
+
+    @Override
+    public float getKeyValue() {
+        // find best matching pitch in stegokey
+        byte currentPitchWire = AngleCodec.toWire(getCurrent());
+
+        return angleCodec.randomPitch(stegoKey.nearestKeyValue(currentPitchWire, trend >= 0));
+    }
+
+    @Override
+    public float getNonKeyValue() {
+        // find best matching pitch outside of the stegokey
+        byte currentPitchWire = AngleCodec.toWire(getCurrent());
+
+        if (!stegoKey.contains(currentPitchWire)) {
+            return getCurrent();
+        }
+
+        int pitchWire = stegoKey.nearestNonKeyValue(currentPitchWire, trend >= 0);
+
+        // Pitch must be between -90 and 90 degrees!
+        if (pitchWire > AngleCodec.PITCH_MAX_WIRE) {
+            pitchWire = stegoKey.nearestNonKeyValue(AngleCodec.PITCH_MAX_WIRE, false);
+        } else if (pitchWire < AngleCodec.PITCH_MIN_WIRE) {
+            pitchWire = stegoKey.nearestNonKeyValue(AngleCodec.PITCH_MIN_WIRE, true);
+        }
+
+        return angleCodec.randomPitch(pitchWire);
+    }
+
+    @Override
+    protected float read(CPlayerPacket packet) {
+        return packet.getPitch(0);
+    }
+
+    @Override
+    protected int read(IPacket<?> packet) {
+        if (packet instanceof SEntityPacket.MovePacket || packet instanceof SEntityPacket.LookPacket) {
+            return ((SEntityPacket) packet).getPitch();
+        } else if (packet instanceof SEntityTeleportPacket) {
+            return ((SEntityTeleportPacket) packet).getPitch();
+        }
+        return NO_VALUE;
+    }
+
+    @Override
+    protected void write(CPlayerPacket packet, float value) {
+        accessor(packet).setPitch(packet, value);
+    }
+
+    @Override
+    protected float toSymbolValue(int symbol) {
+        int pitchWire = AngleCodec.toWireInt(getCurrent());
+        int prevPitchWire = AngleCodec.toWireInt(validOnWire);
+
+        pitchWire = nearestSymbolWire(pitchWire, prevPitchWire, symbol, trend >= 0 ? 1 : -1);
+
+        // Pitch must be between -90 and 90 degrees!
+        if (pitchWire > AngleCodec.PITCH_MAX_WIRE) {
+            pitchWire = nearestSymbolWire(AngleCodec.PITCH_MAX_WIRE, prevPitchWire, symbol, -1);
+        } else if (pitchWire < AngleCodec.PITCH_MIN_WIRE) {
+            pitchWire = nearestSymbolWire(AngleCodec.PITCH_MIN_WIRE, prevPitchWire, symbol, 1);
+        }
+
+        return angleCodec.randomPitch(pitchWire);
+    }
+
+    @Override
+    protected float randomize(float value) {
+        return angleCodec.randomPitch(AngleCodec.toWireInt(value));
+    }
+}
@@ -0,0 +1,186 @@
+package at.ac.uibk.chaas.minesteg.carrier;
+
+import at.ac.uibk.chaas.minesteg.PacketAccessor;
+import at.ac.uibk.chaas.minesteg.steg.PositionCodec;
+import net.minecraft.network.IPacket;
+import net.minecraft.network.play.client.CPlayerPacket;
+import net.minecraft.network.play.server.SEntityPacket;
+
+/**
+ * The carrier of the x or the z coordinate, see {@link PositionCodec}. A coordinate only carries a symbol if the
+ * player moved it, otherwise the position stays untouched.
+ * <p>
+ * Position packets without a rotation cannot carry the stegokey of the angle preamble, a moved coordinate carries the
+ * synchronization residue instead, see {@link #sendSync(CPlayerPacket)}.
+ *
+ * @author christoph.haas
+ * @version 1.0.0
+ * @since 1.8
+ */
+public class PositionCarrier implements Carrier {
+    /**
+     * The coordinate of the carrier.
+     */
+    public enum Axis {
+        X, Z
+    }
+
+    private final Axis axis;
+    private int symbolBits = 0; // 0 disables the carrier
+    private boolean known = false;
+    private boolean moved = false;
+    private long wire = 0;   // the wire value of the player
+    private long onWire = 0; // the previously sent wire value
+    private long previousOnWire = 0; // the wire value that was sent before the current packet
+
+    /**
+     * Constructor. The carrier is disabled until the symbol bits are set.
+     *
+     * @param axis the coordinate of the carrier.
+     */
+    public PositionCarrier(Axis axis) {
+        this.axis = axis;
+    }
+
+    /**
+     * Set the number of bits in every relative move.
+     *
+     * @param symbolBits the bits per relative move, 0 to disable the carrier.
+     */
+    public void setSymbolBits(int symbolBits) {
+        if (symbolBits < 0 || symbolBits > PositionCodec.MAX_SYMBOL_BITS) {
+            throw new IllegalArgumentException("invalid position bits: " + symbolBits);
+        }
+        this.symbolBits = symbolBits;
+    }
+
+    @Override
+    public int getSymbolBits() {
+        return symbolBits;
+    }
+
+    @Override
+    public boolean carries(CPlayerPacket packet) {
+        // the server may merge any neighbouring packets into one relative move
+        return symbolBits > 0;
+    }
+
+    @Override
+    public int capacity(CPlayerPacket packet) {
+        moved = false;
+        if (!(packet instanceof CPlayerPacket.PositionPacket || packet instanceof CPlayerPacket.PositionRotationPacket)) {
+            return 0;
+        }
+
+        wire = PositionCodec.toWire(axis == Axis.X ? packet.getX(0) : packet.getZ(0));
+        if (!known) {
+            onWire = wire;
+            known = true;
+            return 0;
+        }
+
+        moved = wire != onWire; // if not moved, the server does not relay the coordinate
+        return moved ? symbolBits : 0;
+    }
+
+    @Override
+    public boolean isResting() {
+        return !moved;
+    }
+
+    @Override
+    public boolean isCumulative() {
+        return true;
+    }
+
+    @Override
+    public void embed(CPlayerPacket packet, int symbol) {
+        if (!moved) {
+            return;
+        }
+
+        previousOnWire = onWire;
+        send(packet, symbol == NO_SYMBOL ? 0 : symbol + 1);
+    }
+
+    /**
+     * Send a synchronization move instead of the move that was embedded in the current packet. This method is called
+     * after {@link #embed(CPlayerPacket, int)}.
+     *
+     * @param packet the outgoing packet, the coordinate is updated in place.
+     * @return true if the player moved the coordinate and it carries the synchronization residue.
+     */
+    public boolean sendSync(CPlayerPacket packet) {
+        if (!moved) {
+            return false;
+        }
+
+        onWire = previousOnWire;
+        send(packet, PositionCodec.syncResidue(symbolBits));
+        return true;
+    }
+
+    /**
+     * @param packet the incoming packet of the sender.
+     * @return true if the relative move carries the synchronization residue.
+     */
+    public boolean isSyncPacket(IPacket<?> packet) {
+        return symbolBits > 0 && isRelativeMove(packet) &&
+                toResidue((SEntityPacket) packet) == PositionCodec.syncResidue(symbolBits);
+    }
+
+    @Override
+    public int extract(IPacket<?> packet) {
+        if (symbolBits == 0 || !isRelativeMove(packet)) {
+            return NO_SYMBOL;
+        }
+
+        int residue = toResidue((SEntityPacket) packet);
+        return residue == 0 || residue == PositionCodec.syncResidue(symbolBits) ? NO_SYMBOL : residue - 1;
+    }
+
+    /**
+     * Move the coordinate of the packet to the wire value next to the player whose move has the given residue.
+     *
+     * @param packet  the outgoing packet, the coordinate is updated in place.
+     * @param residue the residue of the move.
+     */
+    private void send(CPlayerPacket packet, int residue) {
+        long newWire = PositionCodec.nearestWire(wire, onWire, residue, symbolBits);
+        if (newWire != PositionCodec.toWire(axis == Axis.X ? packet.getX(0) : packet.getZ(0))) {
+            PacketAccessor accessor = PacketAccessor.of(packet.getClass());
+            if (!accessor.hasPosition()) {
+                throw new RuntimeException("FATAL: fields not found in class!");
+            }
+            if (axis == Axis.X) {
+                accessor.setX(packet, PositionCodec.toCoordinate(newWire));
+            } else {
+                accessor.setZ(packet, PositionCodec.toCoordinate(newWire));
+            }
+        }
+        onWire = newWire;
+    }
+
+    /**
+     * @param packet the incoming packet.
+     * @return true if the packet relays a relative move. Teleports carry absolute coordinates, the symbol of the move
+     * is lost.
+     */
+    private static boolean isRelativeMove(IPacket<?> packet) {
+        return packet instanceof SEntityPacket && !(packet instanceof SEntityPacket.LookPacket);
+    }
+
+    /**
+     * @param packet the relayed relative move.
+     * @return the residue of the move of this coordinate.
+     */
+    private int toResidue(SEntityPacket packet) {
+        return PositionCodec.toResidue(axis == Axis.X ? packet.getX() : packet.getZ(), symbolBits);
+    }
+
+    @Override
+    public void reset() {
+        known = false;
+        moved = false;
+    }
+}
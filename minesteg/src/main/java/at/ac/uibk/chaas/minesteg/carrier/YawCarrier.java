@@ -0,0 +1,92 @@
+package at.ac.uibk.chaas.minesteg.carrier;
+
+import at.ac.uibk.chaas.minesteg.steg.AngleCodec;
+import at.ac.uibk.chaas.minesteg.steg.StegoKey;
+import net.minecraft.network.IPacket;
+import net.minecraft.network.play.client.CPlayerPacket;
+import net.minecraft.network.play.server.SEntityHeadLookPacket;
+import net.minecraft.network.play.server.SEntityPacket;
+import net.minecraft.network.play.server.SEntityTeleportPacket;
+
+/**
+ * The yaw carrier. Yaw is not bounded, the values stay in the turn of the player.
+ *
+ * @author christoph.haas
+ * @version 1.0.0
+ * @since 1.8
+ */
+public class YawCarrier extends AngleCarrier {
+    /**
+     * Constructor.
+     *
+     * @param stegoKey   the stegokey.
+     * @param angleCodec the codec to randomize the values.
+     */
+    public YawCarrier(StegoKey stegoKey, AngleCodec angleCodec) {
+        super(stegoKey, angleCodec);
+    }
+
+    @Override
+    public float getKeyValue() {
+        // find best matching yaw in stegokey
+        byte currentYawWire = AngleCodec.toWire(getCurrent());
+
+        return angleCodec.randomYawNear(stegoKey.nearestKeyValue(currentYawWire, trend >= 0), getCurrent());
+    }
+
+    @Override
+    public float getNonKeyValue() {
+        // find best matching yaw outside of the stegokey
+        int currentYawWire = AngleCodec.toWireInt(getCurrent());
+
+        if (!stegoKey.contains(currentYawWire)) {
+            return getCurrent();
+        }
+
+        return angleCodec.randomYaw(stegoKey.nearestNonKeyValue(currentYawWire, trend >= 0));
+    }
+
+    /**
+     * @param packet the incoming packet of the sender.
+     * @return true for the head look packets.
+     */
+    @Override
+    public boolean isSeparateRelay(IPacket<?> packet) {
+        return packet instanceof SEntityHeadLookPacket;
+    }
+
+    @Override
+    protected float read(CPlayerPacket packet) {
+        return packet.getYaw(0);
+    }
+
+    @Override
+    protected int read(IPacket<?> packet) {
+        if (packet instanceof SEntityPacket.MovePacket || packet instanceof SEntityPacket.LookPacket) {
+            return ((SEntityPacket) packet).getYaw();
+        } else if (packet instanceof SEntityTeleportPacket) {
+            return ((SEntityTeleportPacket) packet).getYaw();
+        } else if (packet instanceof SEntityHeadLookPacket) {
+            return ((SEntityHeadLookPacket) packet).getYaw();
+        }
+        return NO_VALUE;
+    }
+
+    @Override
+    protected void write(CPlayerPacket packet, float value) {
+        accessor(packet).setYaw(packet, value);
+    }
+
+    @Override
+    protected float toSymbolValue(int symbol) {
+        int yawWire = AngleCodec.toWireInt(getCurrent());
+        int prevYawWire = AngleCodec.toWireInt(validOnWire);
+
+        return angleCodec.randomYaw(nearestSymbolWire(yawWire, prevYawWire, symbol, trend >= 0 ? 1 : -1));
+    }
+
+    @Override
+    protected float randomize(float value) {
+        return angleCodec.randomYaw(AngleCodec.toWireInt(value));
+    }
+}
@@ -0,0 +1,189 @@
+package at.ac.uibk.chaas.minesteg.fec;
+
+import at.ac.uibk.chaas.minesteg.steg.DecoderSink;
+
+/**
+ * Receives superblocks that were sent by the {@link FecEncoderSource} and corrects the lost bytes.
+ * <p>
+ * Lost bytes are known erasures, so every codeword can recover up to n - k of them. The data of uncorrectable
+ * codewords is passed on anyway, the lost bytes are passed on as erasures like in the uncoded mode.
+ * <p>
+ * The codewords are aligned by counting the received symbols. A byte that was lost without a trace shifts all later
+ * symbols, so every superblock starts with a synchronization packet and a short superblock is completed with erasures
+ * at its end.
+ *
+ * @author christoph.haas
+ * @version 1.0.0
+ * @since 1.8
+ */
+public class FecDecoderSink implements DecoderSink {
+    private final DecoderSink downstream;
+    private final ReedSolomon code;
+    private final int depth;
+    private final byte[][] codewords;
+    private final boolean[][] erasures;
+
+    private int position = 0;
+    private long correctedBlocks = 0;
+    private long uncorrectableBlocks = 0;
+    private long correctedSymbols = 0;
+    private long shortSuperblocks = 0;
+    private boolean printToStdout = true;
+
+    /**
+     * Constructor.
+     *
+     * @param downstream the sink of the corrected data, e.g. a {@link at.ac.uibk.chaas.minesteg.steg.MessageBufferSink}.
+     * @param code       the Reed-Solomon code.
+     * @param depth      the interleaving depth, the number of codewords per superblock.
+     */
+    public FecDecoderSink(DecoderSink downstream, ReedSolomon code, int depth) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("invalid interleaving depth: " + depth);
+        }
+
+        this.downstream = downstream;
+        this.code = code;
+        this.depth = depth;
+        this.codewords = new byte[depth][code.getN()];
+        this.erasures = new boolean[depth][code.getN()];
+    }
+
+    /**
+     * @param b the received symbol.
+     */
+    @Override
+    public void push(byte b) {
+        add(b, false);
+    }
+
+    /**
+     * Record the lost symbol as erasure.
+     */
+    @Override
+    public void pushErasure() {
+        add((byte) 0, true);
+    }
+
+    /**
+     * Drop the partial superblock, the sender starts it again.
+     */
+    @Override
+    public void reset() {
+        position = 0;
+    }
+
+    /**
+     * A new superblock starts. If symbols of the previous superblock are missing, they are treated as erasures at its
+     * end. The symbols after the lost byte are shifted though, so the codewords that cannot be corrected are marked as
+     * lost completely.
+     */
+    @Override
+    public void sync() {
+        if (position == 0) {
+            return;
+        }
+
+        shortSuperblocks++;
+        while (position < depth * code.getN()) {
+            store((byte) 0, true);
+        }
+        decodeSuperblock(true);
+        position = 0;
+    }
+
+    /**
+     * @param printToStdout true to print the correction statistics after every superblock.
+     */
+    public void setPrintToStdout(boolean printToStdout) {
+        this.printToStdout = printToStdout;
+    }
+
+    /**
+     * @return the number of superblocks that were incomplete at the next synchronization.
+     */
+    public long getShortSuperblocks() {
+        return shortSuperblocks;
+    }
+
+    /**
+     * @return the number of codewords that contained lost or wrong symbols and were corrected.
+     */
+    public long getCorrectedBlocks() {
+        return correctedBlocks;
+    }
+
+    /**
+     * @return the number of codewords that could not be corrected.
+     */
+    public long getUncorrectableBlocks() {
+        return uncorrectableBlocks;
+    }
+
+    /**
+     * @return the number of corrected symbols.
+     */
+    public long getCorrectedSymbols() {
+        return correctedSymbols;
+    }
+
+    /**
+     * Store the symbol at the deinterleaved position and decode the superblock once it is complete.
+     *
+     * @param b      the symbol.
+     * @param erased true if the symbol was lost.
+     */
+    private void add(byte b, boolean erased) {
+        store(b, erased);
+        if (position == depth * code.getN()) {
+            decodeSuperblock(false);
+            position = 0;
+        }
+    }
+
+    /**
+     * Store the symbol at the deinterleaved position.
+     *
+     * @param b      the symbol.
+     * @param erased true if the symbol was lost.
+     */
+    private void store(byte b, boolean erased) {
+        int row = position % depth;
+        int col = position / depth;
+        codewords[row][col] = b;
+        erasures[row][col] = erased;
+        position++;
+    }
+
+    /**
+     * Correct all codewords of the superblock and pass their data on.
+     *
+     * @param shifted true if symbols were lost without a trace, the uncorrectable codewords are lost completely then.
+     */
+    private void decodeSuperblock(boolean shifted) {
+        for (int row = 0; row < depth; row++) {
+            byte[] codeword = codewords[row];
+            int corrected = code.decode(codeword, erasures[row]);
+            if (corrected < 0) {
+                uncorrectableBlocks++;
+            } else if (corrected > 0) {
+                correctedBlocks++;
+                correctedSymbols += corrected;
+            }
+
+            for (int col = 0; col < code.getK(); col++) {
+                if (corrected < 0 && (shifted || erasures[row][col])) {
+                    downstream.pushErasure();
+                } else {
+                    downstream.push(codeword[col]);
+                }
+            }
+        }
+
+        if (printToStdout) {
+            System.out.println("FEC: corrected blocks=" + correctedBlocks + " uncorrectable blocks=" +
+                    uncorrectableBlocks + " corrected symbols=" + correctedSymbols + " short superblocks=" +
+                    shortSuperblocks);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package at.ac.uibk.chaas.minesteg.fec;
+
+import at.ac.uibk.chaas.minesteg.steg.EncoderSource;
+import at.ac.uibk.chaas.minesteg.steg.MessageBuffer;
+
+import java.util.Arrays;
+
+/**
+ * Sends the message buffer protected by a Reed-Solomon code.
+ * <p>
+ * The data is split into superblocks of depth * k bytes. Each superblock is encoded into depth codewords, which are
+ * sent interleaved column by column, so a burst of up to depth lost bytes only hits every codeword once. The data
+ * stays queued in the message buffer until all symbols of the superblock were confirmed, so a spooled message buffer
+ * sends the superblock again after a restart. Missing data is padded with null bytes.
+ * <p>
+ * Every superblock starts with a synchronization preamble, so the receiver can realign its codewords after bytes were
+ * lost without a trace, see {@link FecDecoderSink#sync()}.
+ *
+ * @author christoph.haas
+ * @version 1.0.0
+ * @since 1.8
+ */
+public class FecEncoderSource implements EncoderSource {
+    private final MessageBuffer messageBuffer;
+    private final ReedSolomon code;
+    private final int depth;
+    private final byte[] data;
+    private final byte[][] codewords;
+
+    private boolean prepared = false;
+    private int dataCount = 0; // number of queued bytes in the current superblock
+    private long dataOffset = 0; // stream offset of the first byte of the current superblock
+    private int position = 0;  // transmission position in the current superblock
+    private long nextOffset = 0; // stream offset after the data of the last taken superblock
+
+    // superblocks that were taken but not confirmed completely, the encoder only starts a superblock when the previous
+    // one was taken completely
+    private final long[] takenOffsets = new long[2];
+    private final int[] takenCounts = new int[2];
+    private int firstTaken = 0;
+    private int taken = 0;
+    private int confirmedSymbols = 0; // confirmed symbols of the oldest taken superblock
+
+    /**
+     * Constructor.
+     *
+     * @param messageBuffer the message buffer instance.
+     * @param code          the Reed-Solomon code.
+     * @param depth         the interleaving depth, the number of codewords per superblock.
+     */
+    public FecEncoderSource(MessageBuffer messageBuffer, ReedSolomon code, int depth) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("invalid interleaving depth: " + depth);
+        }
+
+        this.messageBuffer = messageBuffer;
+        this.code = code;
+        this.depth = depth;
+        this.data = new byte[depth * code.getK()];
+        this.codewords = new byte[depth][code.getN()];
+    }
+
+    /**
+     * @return the next symbol of the current superblock, a new superblock is encoded if necessary.
+     */
+    @Override
+    public byte peek() {
+        if (!prepared) {
+            prepareSuperblock();
+        }
+
+        return codewords[position % depth][position / depth];
+    }
+
+    /**
+     * Advance to the next symbol. The data of the superblock is removed once all its symbols were confirmed.
+     */
+    @Override
+    public void commit() {
+        if (!prepared) {
+            return;
+        }
+
+        if (position == 0) {
+            if (taken == takenOffsets.length) {
+                throw new RuntimeException("FATAL: too many unconfirmed superblocks!");
+            }
+            int index = (firstTaken + taken) % takenOffsets.length;
+            takenOffsets[index] = dataOffset;
+            takenCounts[index] = dataCount;
+            taken++;
+            nextOffset = dataOffset + dataCount;
+        }
+
+        position++;
+        if (position == depth * code.getN()) {
+            prepared = false;
+            position = 0;
+        }
+    }
+
+    /**
+     * Once all symbols of the oldest taken superblock were sent, its data is removed from the message buffer.
+     */
+    @Override
+    public void confirm() {
+        if (taken == 0 || ++confirmedSymbols < depth * code.getN()) {
+            return;
+        }
+
+        // the buffer may have been cleared in the meantime
+        messageBuffer.remove(takenOffsets[firstTaken], takenCounts[firstTaken]);
+        firstTaken = (firstTaken + 1) % takenOffsets.length;
+        taken--;
+        confirmedSymbols = 0;
+    }
+
+    /**
+     * @return true if the peeked symbol does not complete the superblock. The next superblock is only started once the
+     * encoder took the last symbol, so at most two superblocks are unconfirmed.
+     */
+    @Override
+    public boolean canPlanAhead() {
+        return prepared && position + 1 < depth * code.getN();
+    }
+
+    /**
+     * @return true if the next symbol is the first symbol of a superblock.
+     */
+    @Override
+    public boolean startsFrame() {
+        return position == 0;
+    }
+
+    /**
+     * @return true, every superblock is preceded by a synchronization preamble.
+     */
+    @Override
+    public boolean isFramed() {
+        return true;
+    }
+
+    /**
+     * The receiver dropped the partial superblock, so all unconfirmed data is sent again. The superblocks are encoded
+     * again, because more data may be available in the meantime.
+     */
+    @Override
+    public void reset() {
+        prepared = false;
+        position = 0;
+        nextOffset = 0;
+        taken = 0;
+        confirmedSymbols = 0;
+    }
+
+    /**
+     * Read the next superblock from the message buffer without removing it and encode it.
+     */
+    private void prepareSuperblock() {
+        dataOffset = Math.max(nextOffset, messageBuffer.getReadOffset()); // the buffer might have been cleared
+        int count = messageBuffer.readFrom(dataOffset, data, 0, data.length);
+        dataCount = Math.max(count, 0);
+        Arrays.fill(data, dataCount, data.length, (byte) 0);
+
+        for (int row = 0; row < depth; row++) {
+            code.encode(data, row * code.getK(), codewords[row]);
+        }
+
+        prepared = true;
+        position = 0;
+    }
+}
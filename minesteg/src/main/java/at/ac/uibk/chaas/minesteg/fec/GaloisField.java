@@ -0,0 +1,97 @@
+package at.ac.uibk.chaas.minesteg.fec;
+
+/**
+ * Arithmetic in GF(256) with the primitive polynomial x^8 + x^4 + x^3 + x^2 + 1 (0x11d) and the generator 2.
+ * Multiplication and division use precomputed logarithm tables.
+ *
+ * @author christoph.haas
+ * @version 1.0.0
+ * @since 1.8
+ */
+public final class GaloisField {
+    private static final int PRIMITIVE_POLYNOMIAL = 0x11d;
+
+    private static final int[] EXP = new int[512];
+    private static final int[] LOG = new int[256];
+
+    static {
+        int x = 1;
+        for (int i = 0; i < 255; i++) {
+            EXP[i] = x;
+            LOG[x] = i;
+            x <<= 1;
+            if (x > 0xff) {
+                x ^= PRIMITIVE_POLYNOMIAL;
+            }
+        }
+        for (int i = 255; i < EXP.length; i++) {
+            EXP[i] = EXP[i - 255]; // avoid the modulo in mul
+        }
+    }
+
+    /**
+     * Utility class.
+     */
+    private GaloisField() {
+    }
+
+    /**
+     * @param a the first factor.
+     * @param b the second factor.
+     * @return the product a * b.
+     */
+    public static int mul(int a, int b) {
+        if (a == 0 || b == 0) {
+            return 0;
+        }
+        return EXP[LOG[a] + LOG[b]];
+    }
+
+    /**
+     * @param a the dividend.
+     * @param b the divisor, must not be 0.
+     * @return the quotient a / b.
+     */
+    public static int div(int a, int b) {
+        if (b == 0) {
+            throw new ArithmeticException("division by zero in GF(256)");
+        }
+        if (a == 0) {
+            return 0;
+        }
+        return EXP[LOG[a] + 255 - LOG[b]];
+    }
+
+    /**
+     * @param a the value, must not be 0.
+     * @return the multiplicative inverse of a.
+     */
+    public static int inv(int a) {
+        return div(1, a);
+    }
+
+    /**
+     * @param exponent the exponent, can be negative.
+     * @return the generator 2 raised to the given power.
+     */
+    public static int exp(int exponent) {
+        int e = exponent % 255;
+        return EXP[e < 0 ? e + 255 : e];
+    }
+
+    /**
+     * Evaluate a polynomial with the coefficients in ascending order (coefficient of x^0 first).
+     *
+     * @param poly   the polynomial.
+     * @param length the number of coefficients.
+     * @param x      the value.
+     * @return the polynomial value at x.
+     */
+    public static int evalAscending(int[] poly, int length, int x) {
+        int y = 0;
+        for (int i = length - 1; i >= 0; i--) {
+            y = mul(y, x) ^ poly[i];
+        }
+        return y;
+    }
+}
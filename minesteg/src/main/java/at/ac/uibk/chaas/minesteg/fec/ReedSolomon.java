@@ -0,0 +1,264 @@
+package at.ac.uibk.chaas.minesteg.fec;
+
+import java.util.Arrays;
+
+/**
+ * A systematic Reed-Solomon code over GF(256).
+ * <p>
+ * A codeword consists of k data symbols followed by n - k parity symbols. The decoder corrects any combination of
+ * e errors at unknown positions and f erasures at known positions with 2e + f &lt;= n - k. It uses the Forney
+ * syndromes to remove the erasures, Berlekamp-Massey to find the error locator, a Chien search for the error
+ * positions and the Forney algorithm for the error values.
+ *
+ * @author christoph.haas
+ * @version 1.0.0
+ * @since 1.8
+ */
+public final class ReedSolomon {
+    private final int n;
+    private final int k;
+    private final int parityCount;
+    private final int[] generator; // descending order, generator[0] = 1
+    private final int[] parity;
+
+    /**
+     * Constructor.
+     *
+     * @param n the codeword length, at most 255.
+     * @param k the number of data symbols per codeword.
+     */
+    public ReedSolomon(int n, int k) {
+        if (k < 1 || n <= k || n > 255) {
+            throw new IllegalArgumentException("invalid Reed-Solomon parameters: n=" + n + ", k=" + k);
+        }
+
+        this.n = n;
+        this.k = k;
+        this.parityCount = n - k;
+        this.parity = new int[parityCount];
+
+        // g(x) = (x - a^0)(x - a^1)...(x - a^(n-k-1))
+        generator = new int[parityCount + 1];
+        generator[0] = 1;
+        for (int i = 0; i < parityCount; i++) {
+            int root = GaloisField.exp(i);
+            for (int j = i + 1; j > 0; j--) {
+                generator[j] ^= GaloisField.mul(generator[j - 1], root);
+            }
+        }
+    }
+
+    /**
+     * @return the codeword length.
+     */
+    public int getN() {
+        return n;
+    }
+
+    /**
+     * @return the number of data symbols per codeword.
+     */
+    public int getK() {
+        return k;
+    }
+
+    /**
+     * Encode k data symbols to a codeword.
+     *
+     * @param data     the source array.
+     * @param off      the offset of the data symbols in the source array.
+     * @param codeword the destination array with at least n elements.
+     */
+    public void encode(byte[] data, int off, byte[] codeword) {
+        Arrays.fill(parity, 0);
+
+        // polynomial division of data(x) * x^(n-k) by g(x), the remainder is the parity
+        for (int i = 0; i < k; i++) {
+            int symbol = data[off + i] & 0xff;
+            codeword[i] = (byte) symbol;
+
+            int feedback = symbol ^ parity[0];
+            for (int j = 0; j < parityCount - 1; j++) {
+                parity[j] = parity[j + 1] ^ GaloisField.mul(feedback, generator[j + 1]);
+            }
+            parity[parityCount - 1] = GaloisField.mul(feedback, generator[parityCount]);
+        }
+
+        for (int j = 0; j < parityCount; j++) {
+            codeword[k + j] = (byte) parity[j];
+        }
+    }
+
+    /**
+     * Correct the codeword in place.
+     *
+     * @param codeword the received codeword with n symbols.
+     * @param erasures the erasure flags for every symbol, may be null.
+     * @return the number of corrected symbols, -1 if the codeword is uncorrectable.
+     */
+    public int decode(byte[] codeword, boolean[] erasures) {
+        int[] syndromes = new int[parityCount];
+        if (!computeSyndromes(codeword, syndromes)) {
+            return 0;
+        }
+
+        // erasure locator: product of (1 + X x) for all erased positions, ascending order
+        int[] erasureLocator = new int[parityCount + 1];
+        erasureLocator[0] = 1;
+        int erasureCount = 0;
+        for (int i = 0; erasures != null && i < n; i++) {
+            if (erasures[i]) {
+                if (++erasureCount > parityCount) {
+                    return -1;
+                }
+                int x = GaloisField.exp(n - 1 - i);
+                for (int j = erasureCount; j > 0; j--) {
+                    erasureLocator[j] ^= GaloisField.mul(erasureLocator[j - 1], x);
+                }
+            }
+        }
+
+        // Forney syndromes, the erasures are removed from the syndromes
+        int[] forneySyndromes = multiplyTruncated(syndromes, parityCount - 1, erasureLocator, erasureCount);
+
+        // Berlekamp-Massey on the Forney syndromes finds the locator of the unknown errors
+        int[] errorLocator = new int[parityCount + 1];
+        int[] previous = new int[parityCount + 1];
+        errorLocator[0] = 1;
+        previous[0] = 1;
+        int errorCount = 0;
+        int shift = 1;
+        int previousDiscrepancy = 1;
+
+        for (int i = 0; i < parityCount - erasureCount; i++) {
+            int discrepancy = forneySyndromes[erasureCount + i];
+            for (int j = 1; j <= errorCount; j++) {
+                discrepancy ^= GaloisField.mul(errorLocator[j], forneySyndromes[erasureCount + i - j]);
+            }
+
+            if (discrepancy == 0) {
+                shift++;
+                continue;
+            }
+
+            int coefficient = GaloisField.div(discrepancy, previousDiscrepancy);
+            if (2 * errorCount <= i) {
+                int[] copy = errorLocator.clone();
+                addShifted(errorLocator, previous, coefficient, shift);
+                errorCount = i + 1 - errorCount;
+                previous = copy;
+                previousDiscrepancy = discrepancy;
+                shift = 1;
+            } else {
+                addShifted(errorLocator, previous, coefficient, shift);
+                shift++;
+            }
+        }
+
+        if (2 * errorCount + erasureCount > parityCount) {
+            return -1;
+        }
+
+        // errata locator for errors and erasures
+        int degree = errorCount + erasureCount;
+        int[] errataLocator = multiplyTruncated(errorLocator, errorCount, erasureLocator, erasureCount);
+
+        // Chien search
+        int[] positions = new int[degree];
+        int found = 0;
+        for (int i = 0; i < n; i++) {
+            if (GaloisField.evalAscending(errataLocator, degree + 1, GaloisField.exp(-(n - 1 - i))) == 0) {
+                if (found == degree) {
+                    return -1;
+                }
+                positions[found++] = i;
+            }
+        }
+        if (found != degree) {
+            return -1;
+        }
+
+        // Forney algorithm
+        int[] evaluator = multiplyTruncated(syndromes, parityCount - 1, errataLocator, degree);
+        int corrected = 0;
+        for (int p = 0; p < found; p++) {
+            int power = n - 1 - positions[p];
+            int xInverse = GaloisField.exp(-power);
+
+            int derivative = 0;
+            for (int j = 1; j <= degree; j += 2) {
+                derivative ^= GaloisField.mul(errataLocator[j], GaloisField.exp(-power * (j - 1)));
+            }
+            if (derivative == 0) {
+                return -1;
+            }
+
+            int value = GaloisField.mul(GaloisField.exp(power),
+                    GaloisField.div(GaloisField.evalAscending(evaluator, parityCount, xInverse), derivative));
+            if (value != 0) {
+                codeword[positions[p]] ^= (byte) value;
+                corrected++;
+            }
+        }
+
+        return computeSyndromes(codeword, syndromes) ? -1 : corrected;
+    }
+
+    /**
+     * Compute the syndromes of the codeword.
+     *
+     * @param codeword  the codeword.
+     * @param syndromes the destination array.
+     * @return true if at least one syndrome is not zero.
+     */
+    private boolean computeSyndromes(byte[] codeword, int[] syndromes) {
+        boolean hasError = false;
+
+        for (int m = 0; m < parityCount; m++) {
+            int x = GaloisField.exp(m);
+            int y = 0;
+            for (int i = 0; i < n; i++) {
+                y = GaloisField.mul(y, x) ^ (codeword[i] & 0xff);
+            }
+            syndromes[m] = y;
+            hasError |= y != 0;
+        }
+
+        return hasError;
+    }
+
+    /**
+     * Multiply two polynomials in ascending order, the result is truncated to n - k + 1 coefficients.
+     *
+     * @param a       the first polynomial.
+     * @param degreeA the degree of the first polynomial.
+     * @param b       the second polynomial.
+     * @param degreeB the degree of the second polynomial.
+     * @return the product.
+     */
+    private int[] multiplyTruncated(int[] a, int degreeA, int[] b, int degreeB) {
+        int[] product = new int[parityCount + 1];
+
+        for (int i = 0; i <= degreeA; i++) {
+            for (int j = 0; j <= degreeB && i + j < product.length; j++) {
+                product[i + j] ^= GaloisField.mul(a[i], b[j]);
+            }
+        }
+
+        return product;
+    }
+
+    /**
+     * Add coefficient * x^shift * source to the target polynomial (ascending order).
+     *
+     * @param target      the target polynomial.
+     * @param source      the source polynomial.
+     * @param coefficient the coefficient.
+     * @param shift       the shift.
+     */
+    private static void addShifted(int[] target, int[] source, int coefficient, int shift) {
+        for (int j = 0; j + shift < target.length; j++) {
+            target[j + shift] ^= GaloisField.mul(coefficient, source[j]);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package at.ac.uibk.chaas.minesteg.frame;
+
+import at.ac.uibk.chaas.minesteg.steg.DecoderSink;
+
+import static at.ac.uibk.chaas.minesteg.frame.FrameFormat.*;
+
+/**
+ * Unpacks the frames that were sent by the {@link FrameEncoderSource} and passes the payload to a downstream sink.
+ * <p>
+ * A frame starts with the first byte after a synchronization packet. Frames with a wrong checksum, lost bytes or
+ * missing bytes before the next synchronization are corrupted. Frames that are missing in the sequence were lost.
+ * In both cases the downstream sink receives erasures for the missing payload, so a forward error correction stage
+ * below the framing can still recover it. Frames that were received twice are dropped. Subclasses can handle the
+ * verified frames differently by overriding {@link #onFrame(int, byte, byte[], int, int)} and
+ * {@link #onCorruptedFrame()}.
+ *
+ * @author christoph.haas
+ * @version 1.0.0
+ * @since 1.8
+ */
+public class FrameDecoderSink implements DecoderSink {
+    private static final int MAX_SEQUENCE_GAP = 127; // larger gaps mean that the sender was restarted
+
+    private final DecoderSink downstream;
+    protected final int payloadSize;
+    private final byte[] frame = new byte[frameSize(MAX_PAYLOAD_SIZE)];
+
+    private boolean inFrame = false;
+    private boolean damaged = false;
+    private int received = 0;
+    private int expectedSize = 0;
+    private int lastSequence = -1;
+
+    protected long receivedFrames = 0;
+    protected long lostFrames = 0;
+    protected long corruptedFrames = 0;
+    protected long duplicateFrames = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param downstream  the destination of the payload bytes.
+     * @param payloadSize the number of payload bytes per frame that is used by the sender.
+     */
+    public FrameDecoderSink(DecoderSink downstream, int payloadSize) {
+        checkPayloadSize(payloadSize);
+
+        this.downstream = downstream;
+        this.payloadSize = payloadSize;
+    }
+
+    /**
+     * @param b the received byte.
+     */
+    @Override
+    public void push(byte b) {
+        add(b, false);
+    }
+
+    /**
+     * Mark the current frame as corrupted.
+     */
+    @Override
+    public void pushErasure() {
+        add((byte) 0, true);
+    }
+
+    /**
+     * Drop the partial frame, the sender sends it again.
+     */
+    @Override
+    public void reset() {
+        inFrame = false;
+        received = 0;
+    }
+
+    /**
+     * Start a new frame. A partial frame is corrupted.
+     */
+    @Override
+    public void sync() {
+        if (inFrame && received > 0) {
+            System.out.println(">>>>>> Frame truncated after " + received + " bytes");
+            corruptedFrames++;
+            onCorruptedFrame();
+        }
+
+        inFrame = true;
+        damaged = false;
+        received = 0;
+        expectedSize = frame.length;
+    }
+
+    /**
+     * @return the number of frames that were delivered.
+     */
+    public long getReceivedFrames() {
+        return receivedFrames;
+    }
+
+    /**
+     * @return the number of frames that are missing in the sequence.
+     */
+    public long getLostFrames() {
+        return lostFrames;
+    }
+
+    /**
+     * @return the number of frames that were received with errors.
+     */
+    public long getCorruptedFrames() {
+        return corruptedFrames;
+    }
+
+    /**
+     * @return the number of frames that were received twice.
+     */
+    public long getDuplicateFrames() {
+        return duplicateFrames;
+    }
+
+    /**
+     * Append the byte to the current frame and check the frame once it is complete.
+     *
+     * @param b      the byte.
+     * @param erased true if the byte was lost.
+     */
+    private void add(byte b, boolean erased) {
+        if (!inFrame) {
+            return; // wait for the next preamble
+        }
+
+        frame[received++] = b;
+        damaged |= erased;
+
+        if (received == HEADER_SIZE) {
+            // an unreadable header is assumed to announce the configured payload size
+            int length = damaged ? payloadSize : frame[1] & 0xff;
+            expectedSize = frameSize(length);
+        }
+
+        if (received == expectedSize) {
+            finishFrame();
+            inFrame = false;
+            received = 0;
+        }
+    }
+
+    /**
+     * Verify the complete frame.
+     */
+    private void finishFrame() {
+        int length = expectedSize - HEADER_SIZE - CRC_SIZE;
+        int crc = ((frame[HEADER_SIZE + length] & 0xff) << 8) | (frame[HEADER_SIZE + length + 1] & 0xff);
+        if (damaged || crc != crc16(frame, 0, HEADER_SIZE + length)) {
+            System.out.println(">>>>>> Frame corrupted");
+            corruptedFrames++;
+            onCorruptedFrame();
+            return;
+        }
+
+        onFrame(frame[0] & 0xff, frame[2], frame, HEADER_SIZE, length);
+    }
+
+    /**
+     * A frame with a valid checksum was received. Its payload is delivered in sequence, missing frames are replaced
+     * with erasures.
+     *
+     * @param sequence the sequence number.
+     * @param flags    the flags.
+     * @param payload  the array that contains the payload.
+     * @param off      the offset of the payload.
+     * @param len      the payload length.
+     */
+    protected void onFrame(int sequence, byte flags, byte[] payload, int off, int len) {
+        if (sequence == lastSequence) {
+            duplicateFrames++;
+            return;
+        }
+
+        if (lastSequence >= 0) {
+            int gap = (sequence - lastSequence - 1) & 0xff;
+            if (gap > 0 && gap <= MAX_SEQUENCE_GAP) {
+                System.out.println(">>>>>> Frames lost: " + gap);
+                lostFrames += gap;
+                pushErasures(gap * payloadSize);
+            }
+        }
+
+        deliver(payload, off, len);
+        lastSequence = sequence;
+        receivedFrames++;
+    }
+
+    /**
+     * A frame was corrupted. Its payload is replaced with erasures, the frame is assumed to be the next one in the
+     * sequence.
+     */
+    protected void onCorruptedFrame() {
+        pushErasures(payloadSize);
+        if (lastSequence >= 0) {
+            lastSequence = (lastSequence + 1) & 0xff;
+        }
+    }
+
+    /**
+     * Pass the payload to the downstream sink.
+     *
+     * @param payload the array that contains the payload.
+     * @param off     the offset of the payload.
+     * @param len     the payload length.
+     */
+    protected void deliver(byte[] payload, int off, int len) {
+        for (int i = off; i < off + len; i++) {
+            downstream.push(payload[i]);
+        }
+    }
+
+    /**
+     * @param count the number of erasures to pass downstream.
+     */
+    private void pushErasures(int count) {
+        for (int i = 0; i < count; i++) {
+            downstream.pushErasure();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package at.ac.uibk.chaas.minesteg.frame;
+
+import at.ac.uibk.chaas.minesteg.steg.EncoderSource;
+
+import static at.ac.uibk.chaas.minesteg.frame.FrameFormat.*;
+
+/**
+ * Packs the bytes of an upstream source into frames.
+ * <p>
+ * The encoder only sends a synchronization preamble before the first byte of a frame instead of before every byte.
+ * The payload is taken from the upstream source when the frame is built. If the connection is reset, the whole frame
+ * is sent again with the same sequence number, so no upstream byte is lost. The payload is only confirmed to the
+ * upstream source once the whole frame was sent, so a spooled message buffer sends the frame again after a restart.
+ *
+ * @author christoph.haas
+ * @version 1.0.0
+ * @since 1.8
+ */
+public class FrameEncoderSource implements EncoderSource {
+    private final EncoderSource upstream;
+    private final int payloadSize;
+    private final byte[] frame;
+
+    private boolean prepared = false;
+    private int position = 0;
+    private int sequence = 0;
+    private int confirmedBytes = 0; // confirmed bytes of the oldest frame that was not sent completely
+
+    /**
+     * Constructor.
+     *
+     * @param upstream    the source of the payload bytes.
+     * @param payloadSize the number of payload bytes per frame.
+     */
+    public FrameEncoderSource(EncoderSource upstream, int payloadSize) {
+        checkPayloadSize(payloadSize);
+
+        this.upstream = upstream;
+        this.payloadSize = payloadSize;
+        this.frame = new byte[frameSize(payloadSize)];
+    }
+
+    /**
+     * @return the next byte of the current frame, a new frame is built if necessary.
+     */
+    @Override
+    public byte peek() {
+        if (!prepared) {
+            prepareFrame();
+        }
+
+        return frame[position];
+    }
+
+    /**
+     * Advance to the next byte of the frame.
+     */
+    @Override
+    public void commit() {
+        if (!prepared) {
+            return;
+        }
+
+        position++;
+        if (position == frame.length) {
+            prepared = false;
+            position = 0;
+            sequence = (sequence + 1) & 0xff;
+        }
+    }
+
+    /**
+     * Confirm the payload to the upstream source once all bytes of the frame were sent.
+     */
+    @Override
+    public void confirm() {
+        if (++confirmedBytes == frame.length) {
+            confirmedBytes = 0;
+            for (int i = 0; i < payloadSize; i++) {
+                upstream.confirm();
+            }
+        }
+    }
+
+    /**
+     * Send the current frame again from the start. The upstream source is not reset, its bytes are part of the frame.
+     */
+    @Override
+    public void reset() {
+        position = 0;
+        confirmedBytes = 0; // the confirmed bytes of the frame are sent again
+        if (prepared) {
+            markResent(frame, payloadSize);
+        }
+    }
+
+    /**
+     * @return true if the peeked byte does not complete the frame. A reset only sends the current frame again.
+     */
+    @Override
+    public boolean canPlanAhead() {
+        return prepared && position + 1 < frame.length;
+    }
+
+    /**
+     * @return true if the next byte is the first byte of a frame.
+     */
+    @Override
+    public boolean startsFrame() {
+        return position == 0;
+    }
+
+    /**
+     * @return true, every frame needs a preamble.
+     */
+    @Override
+    public boolean isFramed() {
+        return true;
+    }
+
+    /**
+     * Take the payload from the upstream source and build the frame.
+     */
+    private void prepareFrame() {
+        writeHeader(frame, sequence, payloadSize, (byte) 0);
+
+        for (int i = 0; i < payloadSize; i++) {
+            frame[HEADER_SIZE + i] = upstream.peek();
+            upstream.commit();
+        }
+        writeCrc(frame, payloadSize);
+
+        prepared = true;
+        position = 0;
+    }
+}
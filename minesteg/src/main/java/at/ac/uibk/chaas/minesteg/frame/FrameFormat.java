@@ -0,0 +1,104 @@
+package at.ac.uibk.chaas.minesteg.frame;
+
+/**
+ * The layout of a link frame.
+ * <p>
+ * Every frame starts after a synchronization preamble and consists of a header (sequence number, payload length,
+ * flags), the payload and a CRC-16 over the header and the payload. The preamble is sent in the synchronization
+ * packets, so the frame itself does not need any delimiter and all byte values can be used in the payload.
+ *
+ * @author christoph.haas
+ * @version 1.0.0
+ * @since 1.8
+ */
+public final class FrameFormat {
+    public static final int HEADER_SIZE = 3;
+    public static final int CRC_SIZE = 2;
+    public static final int MAX_PAYLOAD_SIZE = 255;
+    public static final int DEFAULT_PAYLOAD_SIZE = 32;
+
+    public static final byte FLAG_RESENT = 0x01; // the frame is sent again after the connection was reset
+    public static final int SESSION_MASK = 0xfe; // the remaining flag bits carry the session of the ARQ sender
+
+    private FrameFormat() {
+    }
+
+    /**
+     * Calculate the CRC-16/CCITT-FALSE checksum.
+     *
+     * @param data the data.
+     * @param off  the offset in the data array.
+     * @param len  the number of bytes.
+     * @return the checksum.
+     */
+    public static int crc16(byte[] data, int off, int len) {
+        int crc = 0xffff;
+
+        for (int i = off; i < off + len; i++) {
+            crc ^= (data[i] & 0xff) << 8;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 0x8000) != 0 ? (crc << 1) ^ 0x1021 : crc << 1;
+            }
+        }
+
+        return crc & 0xffff;
+    }
+
+    /**
+     * Write the header of a frame.
+     *
+     * @param frame       the frame.
+     * @param sequence    the sequence number.
+     * @param payloadSize the payload size.
+     * @param flags       the flags.
+     */
+    public static void writeHeader(byte[] frame, int sequence, int payloadSize, byte flags) {
+        frame[0] = (byte) sequence;
+        frame[1] = (byte) payloadSize;
+        frame[2] = flags;
+    }
+
+    /**
+     * Append the checksum of the header and the payload.
+     *
+     * @param frame       the frame.
+     * @param payloadSize the payload size.
+     */
+    public static void writeCrc(byte[] frame, int payloadSize) {
+        int crc = crc16(frame, 0, HEADER_SIZE + payloadSize);
+        frame[HEADER_SIZE + payloadSize] = (byte) (crc >> 8);
+        frame[HEADER_SIZE + payloadSize + 1] = (byte) crc;
+    }
+
+    /**
+     * Set the resent flag of a frame and update its checksum.
+     *
+     * @param frame       the frame.
+     * @param payloadSize the payload size.
+     */
+    public static void markResent(byte[] frame, int payloadSize) {
+        if ((frame[2] & FLAG_RESENT) == 0) {
+            frame[2] |= FLAG_RESENT;
+            writeCrc(frame, payloadSize);
+        }
+    }
+
+    /**
+     * @param payloadSize the payload size.
+     * @return the size of the whole frame.
+     */
+    public static int frameSize(int payloadSize) {
+        return HEADER_SIZE + payloadSize + CRC_SIZE;
+    }
+
+    /**
+     * Check the payload size.
+     *
+     * @param payloadSize the payload size.
+     */
+    public static void checkPayloadSize(int payloadSize) {
+        if (payloadSize < 1 || payloadSize > MAX_PAYLOAD_SIZE) {
+            throw new IllegalArgumentException("invalid frame payload size: " + payloadSize);
+        }
+    }
+}
@@ -0,0 +1,502 @@
+package at.ac.uibk.chaas.minesteg.nio;
+
+import at.ac.uibk.chaas.messageclient.rmi.MessageChunk;
+import at.ac.uibk.chaas.minesteg.rmi.MessageBufferService;
+import at.ac.uibk.chaas.minesteg.steg.MessageBuffer;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static at.ac.uibk.chaas.messageclient.nio.MessageProtocol.*;
+
+/**
+ * A local server for the binary message buffer protocol, an alternative to the RMI server.
+ * <p>
+ * All connections are handled by a single selector thread. Requests are processed in order, a read request that
+ * waits for new data parks its connection until data arrives or the timeout has elapsed. The timeout is capped like
+ * the one of the RMI server, see {@link MessageBufferService#MAX_POLL_TIMEOUT_MS}. A second thread sleeps on
+ * the message buffer while read requests are parked and wakes up the selector when new data arrives.
+ *
+ * @author christoph.haas
+ * @version 1.0.0
+ * @since 1.8
+ */
+public class NioServer {
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+    private static final long WATCHER_TIMEOUT_MS = 1000;
+
+    private final MessageBuffer messageBuffer;
+    private final MessageBufferService service;
+    private final int port;
+
+    private final List<Connection> connections = new ArrayList<>();
+    private final List<Connection> parkedConnections = new ArrayList<>();
+    private final Object pollLock = new Object();
+    private volatile long pollOffset = Long.MAX_VALUE; // smallest offset of all parked read requests
+    private volatile boolean running = false;
+    private long requestCount = 0;
+
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+
+    /**
+     * The state of a client connection. Only used by the selector thread.
+     */
+    private static final class Connection {
+        final SocketChannel channel;
+        ByteBuffer in = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+        ByteBuffer out = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+
+        // parked read request
+        boolean parked = false;
+        long pollOffset;
+        int pollMaxLen;
+        long pollDeadline;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param messageBuffer the message buffer instance.
+     * @param port          the port that is used for the server socket.
+     */
+    public NioServer(MessageBuffer messageBuffer, int port) {
+        this.messageBuffer = messageBuffer;
+        this.service = new MessageBufferService(messageBuffer);
+        this.port = port;
+    }
+
+    /**
+     * Startup the server. The server socket is bound to the loopback interface.
+     */
+    public void run() {
+        try {
+            selector = Selector.open();
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            System.out.println("Failed to start NIO server at port " + port + ": " + e.getMessage());
+            return;
+        }
+
+        running = true;
+
+        Thread selectorThread = new Thread(this::selectLoop, "NioServer-selector");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+
+        Thread watcherThread = new Thread(this::watchBuffer, "NioServer-watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+
+        System.out.println("NIO Server ready at port " + getPort());
+    }
+
+    /**
+     * Stop the server and close all connections.
+     */
+    public void stop() {
+        running = false;
+        synchronized (pollLock) {
+            pollLock.notifyAll();
+        }
+        if (selector != null) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * @return the bound port.
+     */
+    public int getPort() {
+        if (serverChannel == null) {
+            return port;
+        }
+
+        try {
+            return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+        } catch (IOException e) {
+            return port;
+        }
+    }
+
+    /**
+     * The selector loop.
+     */
+    private void selectLoop() {
+        try {
+            while (running) {
+                selector.select(getSelectTimeout());
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+
+                    try {
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else {
+                            Connection connection = (Connection) key.attachment();
+                            if (key.isReadable()) {
+                                read(connection);
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                flush(connection);
+                            }
+                        }
+                    } catch (IOException e) {
+                        if (key.attachment() != null) {
+                            close((Connection) key.attachment());
+                        }
+                    }
+                }
+
+                serveParkedConnections();
+            }
+        } catch (IOException e) {
+            System.out.println("NIO Server failed: " + e.getMessage());
+        } finally {
+            for (Connection connection : new ArrayList<>(connections)) {
+                close(connection);
+            }
+            try {
+                serverChannel.close();
+                selector.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * @return the timeout for the next select call, 0 if there is no parked read request.
+     */
+    private long getSelectTimeout() {
+        long deadline = Long.MAX_VALUE;
+        for (Connection connection : parkedConnections) {
+            deadline = Math.min(deadline, connection.pollDeadline);
+        }
+
+        return deadline == Long.MAX_VALUE ? 0 : Math.max(1, deadline - System.currentTimeMillis());
+    }
+
+    /**
+     * Accept a new connection.
+     *
+     * @throws IOException if the connection could not be set up.
+     */
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+
+        Connection connection = new Connection(channel);
+        channel.register(selector, SelectionKey.OP_READ, connection);
+        connections.add(connection);
+    }
+
+    /**
+     * Read from the connection and handle all complete requests.
+     *
+     * @param connection the connection.
+     * @throws IOException if the connection failed.
+     */
+    private void read(Connection connection) throws IOException {
+        if (connection.channel.read(connection.in) < 0) {
+            close(connection);
+            return;
+        }
+
+        processRequests(connection);
+        flush(connection);
+    }
+
+    /**
+     * Handle all complete requests in the input buffer, until a read request gets parked.
+     *
+     * @param connection the connection.
+     * @throws IOException if the connection sent an invalid frame.
+     */
+    private void processRequests(Connection connection) throws IOException {
+        ByteBuffer in = connection.in;
+        in.flip();
+
+        while (!connection.parked && in.remaining() >= 4) {
+            int length = in.getInt(in.position());
+            if (length < 1 || length > MAX_FRAME_SIZE) {
+                throw new IOException("Invalid frame length: " + length);
+            }
+            if (in.remaining() < 4 + length) {
+                break;
+            }
+
+            in.getInt();
+            byte opcode = in.get();
+            int end = in.position() + length - 1;
+            int limit = in.limit();
+
+            in.limit(end); // a request must not read beyond its frame
+            try {
+                handleRequest(connection, opcode, length - 1);
+            } catch (BufferUnderflowException e) {
+                throw new IOException("Malformed request " + opcode);
+            }
+            in.limit(limit);
+            in.position(end);
+        }
+
+        // make room for the next frame
+        int required = in.remaining() >= 4 ? 4 + in.getInt(in.position()) : 0;
+        in.compact();
+        if (required > in.capacity()) {
+            ByteBuffer bigger = ByteBuffer.allocate(required);
+            in.flip();
+            bigger.put(in);
+            connection.in = bigger;
+        }
+    }
+
+    /**
+     * Handle a single request. The payload starts at the current position of the input buffer.
+     *
+     * @param connection    the connection.
+     * @param opcode        the request opcode.
+     * @param payloadLength the length of the payload.
+     */
+    private void handleRequest(Connection connection, byte opcode, int payloadLength) {
+        ByteBuffer in = connection.in;
+        requestCount++;
+
+        switch (opcode) {
+            case OP_PUSH:
+                messageBuffer.push(in.array(), in.arrayOffset() + in.position(), payloadLength);
+                beginResponse(connection, STATUS_OK, 0);
+                break;
+            case OP_READ_SINCE:
+                long offset = in.getLong();
+                int maxLen = in.getInt();
+                long timeoutMs = Math.min(in.getLong(), MessageBufferService.MAX_POLL_TIMEOUT_MS);
+                if (timeoutMs > 0 && messageBuffer.getWriteOffset() <= offset) {
+                    park(connection, offset, maxLen, timeoutMs);
+                } else {
+                    writeChunk(connection, service.readSince(offset, maxLen));
+                }
+                break;
+            case OP_SIZE:
+                beginResponse(connection, STATUS_OK, 4).putInt(messageBuffer.size());
+                break;
+            case OP_CLEAR:
+                messageBuffer.clear();
+                beginResponse(connection, STATUS_OK, 0);
+                break;
+            case OP_STATS:
+                beginResponse(connection, STATUS_OK, 28)
+                        .putLong(messageBuffer.getReadOffset())
+                        .putLong(messageBuffer.getWriteOffset())
+                        .putInt(connections.size())
+                        .putLong(requestCount);
+                break;
+            case OP_GET_ALL:
+                writeChunk(connection, service.read(0, MAX_GET_ALL_SIZE));
+                break;
+            default:
+                byte[] message = ("Unknown opcode " + opcode).getBytes(StandardCharsets.UTF_8);
+                beginResponse(connection, STATUS_ERROR, message.length).put(message);
+        }
+    }
+
+    /**
+     * Write the response header and make sure the output buffer can hold the payload.
+     *
+     * @param connection    the connection.
+     * @param status        the response status.
+     * @param payloadLength the length of the payload.
+     * @return the output buffer, the payload has to be written to it.
+     */
+    private ByteBuffer beginResponse(Connection connection, byte status, int payloadLength) {
+        if (connection.out.remaining() < HEADER_SIZE + payloadLength) {
+            ByteBuffer bigger = ByteBuffer.allocate(connection.out.position() + HEADER_SIZE + payloadLength);
+            connection.out.flip();
+            bigger.put(connection.out);
+            connection.out = bigger;
+        }
+
+        return connection.out.putInt(payloadLength + 1).put(status);
+    }
+
+    /**
+     * Write a read response.
+     *
+     * @param connection the connection.
+     * @param chunk      the read bytes.
+     */
+    private void writeChunk(Connection connection, MessageChunk chunk) {
+        byte[] lost = chunk.getLost().toByteArray();
+        beginResponse(connection, STATUS_OK, CHUNK_HEADER_SIZE + lost.length + chunk.getData().length)
+                .putLong(chunk.getOffset())
+                .putLong(chunk.getNextOffset())
+                .putInt(lost.length)
+                .put(lost)
+                .put(chunk.getData());
+    }
+
+    /**
+     * Park the connection until new data is available or the timeout has elapsed.
+     *
+     * @param connection the connection.
+     * @param offset     the requested offset.
+     * @param maxLen     the maximum number of bytes to return.
+     * @param timeoutMs  the timeout in milliseconds.
+     */
+    private void park(Connection connection, long offset, int maxLen, long timeoutMs) {
+        connection.parked = true;
+        connection.pollOffset = offset;
+        connection.pollMaxLen = maxLen;
+        connection.pollDeadline = System.currentTimeMillis() + timeoutMs;
+        parkedConnections.add(connection);
+
+        updatePollOffset();
+    }
+
+    /**
+     * Answer all parked read requests that have new data or reached their timeout.
+     *
+     * @throws IOException if the selector failed.
+     */
+    private void serveParkedConnections() throws IOException {
+        if (parkedConnections.isEmpty()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        long writeOffset = messageBuffer.getWriteOffset();
+
+        for (Connection connection : new ArrayList<>(parkedConnections)) {
+            if (writeOffset > connection.pollOffset || now >= connection.pollDeadline) {
+                connection.parked = false;
+                parkedConnections.remove(connection);
+                writeChunk(connection, service.readSince(connection.pollOffset, connection.pollMaxLen));
+
+                try {
+                    processRequests(connection); // continue with the pipelined requests
+                    flush(connection);
+                } catch (IOException e) {
+                    close(connection);
+                }
+            }
+        }
+
+        updatePollOffset();
+    }
+
+    /**
+     * Publish the smallest offset of all parked read requests to the watcher thread.
+     */
+    private void updatePollOffset() {
+        long offset = Long.MAX_VALUE;
+        for (Connection connection : parkedConnections) {
+            offset = Math.min(offset, connection.pollOffset);
+        }
+
+        if (offset != pollOffset) {
+            synchronized (pollLock) {
+                pollOffset = offset;
+                pollLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * The watcher loop. Sleeps on the message buffer while read requests are parked and wakes up the selector
+     * when new data arrives. Without parked requests the watcher does not touch the message buffer.
+     */
+    private void watchBuffer() {
+        try {
+            while (running) {
+                long offset;
+                synchronized (pollLock) {
+                    while (running && pollOffset == Long.MAX_VALUE) {
+                        pollLock.wait();
+                    }
+                    offset = pollOffset;
+                }
+
+                if (messageBuffer.awaitData(offset, WATCHER_TIMEOUT_MS)) {
+                    selector.wakeup();
+
+                    // wait until the selector has served the parked requests
+                    synchronized (pollLock) {
+                        if (running && pollOffset == offset) {
+                            pollLock.wait(WATCHER_TIMEOUT_MS);
+                        }
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Write the pending output of the connection.
+     *
+     * @param connection the connection.
+     * @throws IOException if the connection failed.
+     */
+    private void flush(Connection connection) throws IOException {
+        SelectionKey key = connection.channel.keyFor(selector);
+        if (key == null || !key.isValid()) {
+            return;
+        }
+
+        connection.out.flip();
+        connection.channel.write(connection.out);
+        connection.out.compact();
+
+        // a parked connection does not handle further requests until its read request was answered, but it keeps
+        // reading to notice a closed connection as long as the input buffer has room
+        int ops = connection.parked && !connection.in.hasRemaining() ? 0 : SelectionKey.OP_READ;
+        if (connection.out.position() > 0) {
+            ops |= SelectionKey.OP_WRITE;
+        }
+        key.interestOps(ops);
+    }
+
+    /**
+     * Close the connection.
+     *
+     * @param connection the connection.
+     */
+    private void close(Connection connection) {
+        connections.remove(connection);
+        if (parkedConnections.remove(connection)) {
+            updatePollOffset();
+        }
+
+        try {
+            connection.channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -1,18 +1,31 @@
 package at.ac.uibk.chaas.minesteg.rmi;
 
+import at.ac.uibk.chaas.messageclient.rmi.IMessageBufferListener;
 import at.ac.uibk.chaas.messageclient.rmi.IMessageBufferService;
+import at.ac.uibk.chaas.messageclient.rmi.MessageChunk;
 import at.ac.uibk.chaas.minesteg.steg.MessageBuffer;
+import at.ac.uibk.chaas.minesteg.steg.MessageBufferSink;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The message buffer service implementation.
  * This methods can be called via RMI.
+ * <p>
+ * The received bytes of a decoding client are escaped in the message buffer, they are decoded by every read method.
  *
  * @author christoph.haas
  * @version 1.0.0
  * @since 1.8
  */
 public class MessageBufferService implements IMessageBufferService {
+    static final int MAX_CHUNK_SIZE = 1024 * 1024;
+    public static final long MAX_POLL_TIMEOUT_MS = 30_000;
+
     MessageBuffer messageBuffer;
+    private final Map<IMessageBufferListener, MessageBufferSubscription> subscriptions = new ConcurrentHashMap<>();
 
     /**
      * Constructor.
@@ -32,19 +45,118 @@ public class MessageBufferService implements IMessageBufferService {
     }
 
     /**
-     * @return the queued bytes in the message buffer as string.
+     * @return the queued bytes in the message buffer as string, see {@link MessageChunk#getText()}.
      */
     @Override
     public String getQueuedBytesAsString() {
-        return messageBuffer.toString();
+        return read(0, Integer.MAX_VALUE).getText();
     }
 
     /**
-     * @return the queued bytes in the message buffer as byte array.
+     * @return the queued bytes in the message buffer as byte array, lost bytes are 0xff.
      */
     @Override
     public byte[] getQueuedBytes() {
-        return messageBuffer.toBytes();
+        return read(0, Integer.MAX_VALUE).getData();
+    }
+
+    /**
+     * Read the bytes that were added to the message buffer since the given stream offset. The bytes stay queued.
+     *
+     * @param offset the stream offset, use 0 to start with the oldest queued byte.
+     * @param maxLen the maximum number of bytes to return.
+     * @return the new bytes and the offset for the next read.
+     */
+    @Override
+    public MessageChunk readSince(long offset, int maxLen) {
+        return read(offset, Math.min(maxLen, MAX_CHUNK_SIZE));
+    }
+
+    /**
+     * Read the bytes since the given stream offset without a size limit. Escaped bytes are decoded.
+     *
+     * @param offset the stream offset, use 0 to start with the oldest queued byte.
+     * @param maxLen the maximum number of bytes to return.
+     * @return the bytes and the offset for the next read.
+     */
+    public MessageChunk read(long offset, int maxLen) {
+        int len = Math.max(0, maxLen);
+        boolean escaped = messageBuffer.isEscaped();
+
+        while (true) {
+            long start = Math.max(offset, messageBuffer.getReadOffset());
+            long escapedLen = escaped ? Math.min(len + 1L, Integer.MAX_VALUE) : len; // the last byte may be escaped
+            byte[] data = new byte[(int) Math.max(0, Math.min(escapedLen, messageBuffer.getWriteOffset() - start))];
+
+            int count = messageBuffer.readFrom(start, data, 0, data.length);
+            if (count < 0) {
+                continue; // the bytes were removed in the meantime, retry from the new read offset
+            }
+            if (escaped) {
+                return MessageBufferSink.decode(start, data, count, len);
+            }
+            return new MessageChunk(start, count == data.length ? data : Arrays.copyOf(data, count));
+        }
+    }
+
+    /**
+     * Like {@link #readSince(long, int)}, but waits until new bytes are available or the timeout has elapsed.
+     *
+     * @param offset    the stream offset, use 0 to start with the oldest queued byte.
+     * @param maxLen    the maximum number of bytes to return.
+     * @param timeoutMs the maximum time to wait in milliseconds.
+     * @return the new bytes and the offset for the next read, the chunk is empty if the timeout has elapsed.
+     */
+    @Override
+    public MessageChunk awaitSince(long offset, int maxLen, long timeoutMs) {
+        try {
+            messageBuffer.awaitData(offset, Math.min(timeoutMs, MAX_POLL_TIMEOUT_MS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        return readSince(offset, maxLen);
+    }
+
+    /**
+     * Register a listener that gets notified about new bytes, starting at the given stream offset.
+     * A listener that is already registered is restarted at the new offset.
+     *
+     * @param listener the remote listener.
+     * @param offset   the stream offset, use 0 to start with the oldest queued byte.
+     */
+    @Override
+    public void subscribe(IMessageBufferListener listener, long offset) {
+        MessageBufferSubscription subscription = new MessageBufferSubscription(this, listener, offset);
+
+        MessageBufferSubscription previous = subscriptions.put(listener, subscription);
+        if (previous != null) {
+            previous.stop();
+        }
+        subscription.start();
+    }
+
+    /**
+     * Remove a registered listener.
+     *
+     * @param listener the remote listener.
+     */
+    @Override
+    public void unsubscribe(IMessageBufferListener listener) {
+        MessageBufferSubscription subscription = subscriptions.remove(listener);
+        if (subscription != null) {
+            subscription.stop();
+        }
+    }
+
+    /**
+     * Remove the given subscription of a listener, if it was not replaced in the meantime.
+     *
+     * @param listener     the remote listener.
+     * @param subscription the subscription.
+     */
+    void removeSubscription(IMessageBufferListener listener, MessageBufferSubscription subscription) {
+        subscriptions.remove(listener, subscription);
     }
 
     /**
@@ -72,8 +184,6 @@ public class MessageBufferService implements IMessageBufferService {
      */
     @Override
     public void push(byte[] data) {
-        for (byte b : data) {
-            messageBuffer.push(b);
-        }
+        messageBuffer.push(data, 0, data.length);
     }
 }
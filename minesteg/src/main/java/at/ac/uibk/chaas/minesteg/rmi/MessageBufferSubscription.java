@@ -0,0 +1,85 @@
+package at.ac.uibk.chaas.minesteg.rmi;
+
+import at.ac.uibk.chaas.messageclient.rmi.IMessageBufferListener;
+import at.ac.uibk.chaas.messageclient.rmi.MessageChunk;
+
+import java.rmi.RemoteException;
+
+/**
+ * A subscription of a remote listener to the message buffer.
+ * <p>
+ * Every subscription is served by its own daemon thread that sleeps on the message buffer until new bytes arrive.
+ * After a wake up the thread waits a short coalescing delay, so a burst of bytes is delivered in one callback.
+ * Idle subscriptions do not poll.
+ *
+ * @author christoph.haas
+ * @version 1.0.0
+ * @since 1.8
+ */
+class MessageBufferSubscription implements Runnable {
+    static final long COALESCE_DELAY_MS = 5;
+    private static final long IDLE_TIMEOUT_MS = 60_000;
+
+    private final MessageBufferService service;
+    private final IMessageBufferListener listener;
+    private final Thread thread;
+    private long offset;
+    private volatile boolean running = true;
+
+    /**
+     * Constructor.
+     *
+     * @param service  the message buffer service.
+     * @param listener the remote listener.
+     * @param offset   the stream offset of the first byte to deliver.
+     */
+    MessageBufferSubscription(MessageBufferService service, IMessageBufferListener listener, long offset) {
+        this.service = service;
+        this.listener = listener;
+        this.offset = offset;
+        this.thread = new Thread(this, "MessageBufferSubscription");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Start the delivery thread.
+     */
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Stop the delivery thread.
+     */
+    void stop() {
+        running = false;
+        thread.interrupt();
+    }
+
+    /**
+     * The delivery loop.
+     */
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                if (!service.messageBuffer.awaitData(offset, IDLE_TIMEOUT_MS)) {
+                    continue;
+                }
+                Thread.sleep(COALESCE_DELAY_MS);
+
+                MessageChunk chunk = service.readSince(offset, MessageBufferService.MAX_CHUNK_SIZE);
+                if (chunk.getData().length > 0) {
+                    listener.bytesAdded(chunk);
+                }
+                offset = chunk.getNextOffset();
+            } catch (InterruptedException e) {
+                running = false;
+            } catch (RemoteException e) {
+                System.out.println("Removing unreachable listener: " + e.getMessage());
+                running = false;
+                service.removeSubscription(listener, this);
+            }
+        }
+    }
+}
@@ -4,6 +4,8 @@ import at.ac.uibk.chaas.messageclient.rmi.IMessageBufferService;
 import at.ac.uibk.chaas.minesteg.steg.MessageBuffer;
 
 import java.rmi.AlreadyBoundException;
+import java.rmi.NoSuchObjectException;
+import java.rmi.NotBoundException;
 import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
@@ -19,7 +21,10 @@ import java.security.AccessControlException;
  */
 public class RMIServer {
     final MessageBufferService messageBufferService;
+    final MessageBufferService inboundService;
     final int port;
+    private Registry registry = null;
+    private boolean registryCreated = false;
 
     /**
      * Constructor.
@@ -28,7 +33,19 @@ public class RMIServer {
      * @param port          the port that is used for the RMI registry.
      */
     public RMIServer(MessageBuffer messageBuffer, int port) {
+        this(messageBuffer, null, port);
+    }
+
+    /**
+     * Constructor for the DUPLEX mode.
+     *
+     * @param messageBuffer the outbound message buffer instance, bound to the default name.
+     * @param inboundBuffer the inbound message buffer instance, may be null.
+     * @param port          the port that is used for the RMI registry.
+     */
+    public RMIServer(MessageBuffer messageBuffer, MessageBuffer inboundBuffer, int port) {
         this.messageBufferService = new MessageBufferService(messageBuffer);
+        this.inboundService = inboundBuffer == null ? null : new MessageBufferService(inboundBuffer);
         this.port = port;
     }
 
@@ -54,26 +71,18 @@ public class RMIServer {
             if (registry == null) {
                 try {
                     registry = LocateRegistry.createRegistry(port);
+                    registryCreated = true;
                 } catch (RemoteException e) {
                     System.out.println("Failed to create registry at port " + port + ": " + e.getMessage());
                 }
             }
 
+            this.registry = registry;
             if (registry != null) {
-                IMessageBufferService stub = (IMessageBufferService) UnicastRemoteObject.exportObject(messageBufferService, 0);
-
-                // Bind the remote object's stub in the registry
-                try {
-                    registry.bind(IMessageBufferService.class.getSimpleName(), stub);
-                    System.out.println("Bound " + IMessageBufferService.class.getSimpleName() + " to registry");
-                } catch (RemoteException e) {
-                    System.out.println("Failed to bind: " + e.getMessage());
-                } catch (AlreadyBoundException e) {
-                    System.out.println("Object is alrady bound: " + e.getMessage());
-                } catch (AccessControlException e) {
-                    System.out.println("Security exception: " + e.getMessage());
-
-                    System.out.println("Generate a file $HOME/.java.policy: grant {permission java.security.AllPermission;};");
+                bind(registry, IMessageBufferService.class.getSimpleName(), messageBufferService);
+                if (inboundService != null) {
+                    bind(registry, IMessageBufferService.class.getSimpleName() + IMessageBufferService.INBOUND_SUFFIX,
+                            inboundService);
                 }
             }
             System.out.println("RMI Server ready");
@@ -82,4 +91,72 @@ public class RMIServer {
             e.printStackTrace();
         }
     }
+
+    /**
+     * Shutdown the RMI server. The services are unbound and unexported, the registry is only shut down if it was
+     * created by this server.
+     */
+    public void stop() {
+        if (registry == null) {
+            return;
+        }
+
+        unbind(IMessageBufferService.class.getSimpleName(), messageBufferService);
+        if (inboundService != null) {
+            unbind(IMessageBufferService.class.getSimpleName() + IMessageBufferService.INBOUND_SUFFIX, inboundService);
+        }
+        if (registryCreated) {
+            try {
+                UnicastRemoteObject.unexportObject(registry, true);
+            } catch (NoSuchObjectException ignored) {
+            }
+        }
+        registry = null;
+        registryCreated = false;
+    }
+
+    /**
+     * Remove the service from the registry and unexport it.
+     *
+     * @param name    the name of the service.
+     * @param service the service.
+     */
+    private void unbind(String name, MessageBufferService service) {
+        try {
+            registry.unbind(name);
+        } catch (RemoteException | NotBoundException e) {
+            System.out.println("Failed to unbind " + name + ": " + e.getMessage());
+        }
+
+        try {
+            UnicastRemoteObject.unexportObject(service, true);
+        } catch (NoSuchObjectException ignored) {
+        }
+    }
+
+    /**
+     * Export the service and bind it in the registry.
+     *
+     * @param registry the registry.
+     * @param name     the name of the service.
+     * @param service  the service.
+     * @throws RemoteException if the service could not be exported.
+     */
+    private void bind(Registry registry, String name, MessageBufferService service) throws RemoteException {
+        IMessageBufferService stub = (IMessageBufferService) UnicastRemoteObject.exportObject(service, 0);
+
+        // Bind the remote object's stub in the registry
+        try {
+            registry.bind(name, stub);
+            System.out.println("Bound " + name + " to registry");
+        } catch (RemoteException e) {
+            System.out.println("Failed to bind: " + e.getMessage());
+        } catch (AlreadyBoundException e) {
+            System.out.println("Object is alrady bound: " + e.getMessage());
+        } catch (AccessControlException e) {
+            System.out.println("Security exception: " + e.getMessage());
+
+            System.out.println("Generate a file $HOME/.java.policy: grant {permission java.security.AllPermission;};");
+        }
+    }
 }
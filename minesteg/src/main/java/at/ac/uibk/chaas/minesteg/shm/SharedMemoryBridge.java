@@ -0,0 +1,70 @@
+package at.ac.uibk.chaas.minesteg.shm;
+
+import at.ac.uibk.chaas.messageclient.shm.SharedMemoryRing;
+import at.ac.uibk.chaas.minesteg.steg.IdleBackoffRunner;
+import at.ac.uibk.chaas.minesteg.steg.MessageBuffer;
+
+/**
+ * Moves the bytes that the message client writes into a shared memory ring to the message buffer.
+ * <p>
+ * The bridge is the single consumer of the ring. It polls the ring in bulk and backs off exponentially while the
+ * ring is empty, so an idle bridge wakes up at most every {@link #MAX_IDLE_SLEEP_MS} milliseconds, see
+ * {@link IdleBackoffRunner}.
+ *
+ * @author christoph.haas
+ * @version 1.0.0
+ * @since 1.8
+ */
+public class SharedMemoryBridge {
+    static final long MAX_IDLE_SLEEP_MS = 50;
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final SharedMemoryRing ring;
+    private final MessageBuffer messageBuffer;
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+    private final IdleBackoffRunner runner;
+
+    /**
+     * Constructor.
+     *
+     * @param ring          the shared memory ring.
+     * @param messageBuffer the message buffer instance.
+     */
+    public SharedMemoryBridge(SharedMemoryRing ring, MessageBuffer messageBuffer) {
+        this.ring = ring;
+        this.messageBuffer = messageBuffer;
+        this.runner = new IdleBackoffRunner("SharedMemoryBridge", this::transfer, MAX_IDLE_SLEEP_MS);
+    }
+
+    /**
+     * Start the bridge thread.
+     */
+    public void start() {
+        runner.start();
+    }
+
+    /**
+     * Stop the bridge thread.
+     */
+    public void stop() {
+        runner.stop();
+    }
+
+    /**
+     * Move all bytes that are currently in the ring to the message buffer.
+     *
+     * @return the number of moved bytes.
+     */
+    int transfer() {
+        int total = 0;
+
+        int count;
+        while ((count = ring.poll(chunk, 0, chunk.length)) > 0) {
+            messageBuffer.push(chunk, 0, count);
+            total += count;
+        }
+
+        return total;
+    }
+
+}
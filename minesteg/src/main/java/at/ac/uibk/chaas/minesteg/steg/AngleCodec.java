@@ -0,0 +1,211 @@
+package at.ac.uibk.chaas.minesteg.steg;
+
+/**
+ * Quantization of pitch and yaw angles to wire values and back.
+ * <p>
+ * Minecraft transmits angles as a byte: <code>floor(angle * 256 / 360)</code>. For every wire value the codec knows
+ * the exact float interval [min, max] that converts back to this wire value. The intervals for pitch and for one
+ * yaw turn in each direction are precomputed, yaw values outside of this range are resolved on the fly.
+ * <p>
+ * All methods work on primitives only and do not allocate memory. The random generator is a xorshift generator
+ * that is not thread safe, every encoder should use its own codec instance.
+ *
+ * @author christoph.haas
+ * @version 1.0.0
+ * @since 1.8
+ */
+public final class AngleCodec {
+    public static final int PITCH_MIN_WIRE = -64; // -90 degrees
+    public static final int PITCH_MAX_WIRE = 64;  // 90 degrees
+
+    private static final float PITCH_MIN = -90.0F;
+    private static final float PITCH_MAX = 90.0F;
+    private static final float DEGREES_PER_WIRE_VALUE = 360.0F / 256.0F;
+    private static final int YAW_TABLE_OFFSET = 256;
+
+    private static final float[] PITCH_LOWER = new float[PITCH_MAX_WIRE - PITCH_MIN_WIRE + 1];
+    private static final float[] PITCH_UPPER = new float[PITCH_MAX_WIRE - PITCH_MIN_WIRE + 1];
+    private static final float[] YAW_LOWER = new float[2 * YAW_TABLE_OFFSET];
+    private static final float[] YAW_UPPER = new float[2 * YAW_TABLE_OFFSET];
+
+    static {
+        for (int wire = PITCH_MIN_WIRE; wire <= PITCH_MAX_WIRE; wire++) {
+            PITCH_LOWER[wire - PITCH_MIN_WIRE] = Math.max(lowerBound(wire), PITCH_MIN);
+            PITCH_UPPER[wire - PITCH_MIN_WIRE] = Math.min(upperBound(wire), PITCH_MAX);
+        }
+
+        for (int wire = -YAW_TABLE_OFFSET; wire < YAW_TABLE_OFFSET; wire++) {
+            YAW_LOWER[wire + YAW_TABLE_OFFSET] = lowerBound(wire);
+            YAW_UPPER[wire + YAW_TABLE_OFFSET] = upperBound(wire);
+        }
+    }
+
+    private long seed;
+
+    /**
+     * Constructor. The random generator is seeded with the current time.
+     */
+    public AngleCodec() {
+        this(System.nanoTime());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param seed the seed for the random generator.
+     */
+    public AngleCodec(long seed) {
+        this.seed = seed == 0 ? 0x9E3779B97F4A7C15L : seed; // xorshift must not be seeded with 0
+    }
+
+    /**
+     * Convert the angular float value to the wire byte.
+     *
+     * @param angle the angle in degrees.
+     * @return the wire value.
+     */
+    public static byte toWire(float angle) {
+        return (byte) toWireInt(angle);
+    }
+
+    /**
+     * Convert the angular float value to the unbounded wire value (multiple turns are not folded into a byte).
+     *
+     * @param angle the angle in degrees.
+     * @return the wire value.
+     */
+    public static int toWireInt(float angle) {
+        float value = angle * 256.0F / 360.0F;
+        int floor = (int) value;
+        return value < floor ? floor - 1 : floor;
+    }
+
+    /**
+     * Convert the wire value to the lowest matching angle.
+     *
+     * @param wire the wire value.
+     * @return the angle in degrees.
+     */
+    public static float toAngle(int wire) {
+        return wire * DEGREES_PER_WIRE_VALUE;
+    }
+
+    /**
+     * Get a random pitch value that converts to the given wire value.
+     * The wire value is clamped to the valid pitch range.
+     *
+     * @param wire the wire value.
+     * @return the pitch in degrees.
+     */
+    public float randomPitch(int wire) {
+        int idx = Math.max(PITCH_MIN_WIRE, Math.min(PITCH_MAX_WIRE, wire)) - PITCH_MIN_WIRE;
+
+        return randomInRange(PITCH_LOWER[idx], PITCH_UPPER[idx]);
+    }
+
+    /**
+     * Get a random yaw value that converts to the given (unbounded) wire value.
+     *
+     * @param wire the wire value.
+     * @return the yaw in degrees.
+     */
+    public float randomYaw(int wire) {
+        int idx = wire + YAW_TABLE_OFFSET;
+        if (idx >= 0 && idx < YAW_LOWER.length) {
+            return randomInRange(YAW_LOWER[idx], YAW_UPPER[idx]);
+        }
+
+        return randomInRange(lowerBound(wire), upperBound(wire));
+    }
+
+    /**
+     * Get a random yaw value that converts to the given wire byte, in the turn that is nearest to the given angle.
+     *
+     * @param wire  the wire byte.
+     * @param angle the angle in degrees, e.g. the original yaw of the player.
+     * @return the yaw in degrees.
+     */
+    public float randomYawNear(byte wire, float angle) {
+        int wireInt = wire & 0xFF;
+        int angleWire = toWireInt(angle);
+        int sign = 1;
+        if (angle < 0) {
+            wireInt -= 256;
+            sign = -1;
+        }
+
+        int multiplier = angleWire / 256;
+
+        int wire1 = wireInt + 256 * multiplier;
+        int wire2 = wireInt + 256 * (multiplier - sign);
+        int wire3 = wireInt + 256 * (multiplier + sign);
+
+        int diff1 = Math.abs(angleWire - wire1);
+        int diff2 = Math.abs(angleWire - wire2);
+        int diff3 = Math.abs(angleWire - wire3);
+
+        int min = Math.min(diff1, Math.min(diff2, diff3));
+
+        if (min == diff1) {
+            wireInt = wire1;
+        } else if (min == diff2) {
+            wireInt = wire2;
+        } else {
+            wireInt = wire3;
+        }
+
+        return randomYaw(wireInt);
+    }
+
+    /**
+     * @return a uniformly distributed float value in [0, 1).
+     */
+    public float nextFloat() {
+        return (nextLong() >>> 40) * 0x1.0p-24F;
+    }
+
+    /**
+     * @return the next value of the xorshift64* generator.
+     */
+    private long nextLong() {
+        seed ^= seed >>> 12;
+        seed ^= seed << 25;
+        seed ^= seed >>> 27;
+        return seed * 0x2545F4914F6CDD1DL;
+    }
+
+    /**
+     * Get a random value between min and max (both inclusive).
+     *
+     * @param min the lower bound.
+     * @param max the upper bound.
+     * @return the random value.
+     */
+    private float randomInRange(float min, float max) {
+        float value = min + nextFloat() * (max - min);
+        return value > max ? max : value;
+    }
+
+    /**
+     * @param wire the wire value.
+     * @return the smallest float that converts to the given wire value.
+     */
+    private static float lowerBound(int wire) {
+        float value = toAngle(wire);
+        while (toWireInt(value) < wire) {
+            value = Math.nextUp(value);
+        }
+        while (toWireInt(Math.nextDown(value)) >= wire) {
+            value = Math.nextDown(value);
+        }
+        return value;
+    }
+
+    /**
+     * @param wire the wire value.
+     * @return the biggest float that converts to the given wire value.
+     */
+    private static float upperBound(int wire) {
+        return Math.nextDown(lowerBound(wire + 1));
+    }
+}
@@ -0,0 +1,389 @@
+package at.ac.uibk.chaas.minesteg.steg;
+
+import at.ac.uibk.chaas.minesteg.HelperUtil;
+import at.ac.uibk.chaas.minesteg.carrier.Carrier;
+import net.minecraft.network.play.client.CPlayerPacket;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Distributes the bytes of the encoder source over the carriers.
+ * <p>
+ * Every carrier sends whole bytes on its own lane, with its own bit position and repeat counter. For every outgoing
+ * packet the scheduler asks each carrier for its capacity and hands the next symbol of its lane to every carrier that
+ * can take it. An idle lane takes the next byte from the source when it sends the first symbol of it, in the order
+ * the carriers were added, so the decoder can restore the byte order from the order in which the first symbols arrive.
+ * <p>
+ * The server relays the moves of a player only every {@link SharedPreferences#SERVER_TRACKING_INTERVAL} ticks and merges
+ * the packets in between. Every symbol is therefore sent in at least that many packets, and bytes are started at least
+ * that many packets apart, independent of the repeat count of the link controller.
+ *
+ * @author christoph.haas
+ * @version 1.0.0
+ * @since 1.8
+ */
+class BitScheduler {
+    private static final int MIN_SPACING = SharedPreferences.SERVER_TRACKING_INTERVAL; // packets the server may merge
+
+    private final EncoderSource source;
+    private final List<Lane> lanes = new ArrayList<>();
+
+    private boolean printToStdout = true;
+    private int repeatCount = SharedPreferences.MIN_REPEAT_COUNT;
+    private int bytesUntilSync = 2;
+    private long startedBytes = 0;   // bytes that were taken from the source
+    private long confirmedBytes = 0; // bytes that were sent completely, in the order they were taken
+    private long packetCounter = 0;
+    private long lastStartPacket = 0; // the packet that took the last byte from the source
+    private long lastSyncPacket = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param source the source of the bytes to send.
+     */
+    BitScheduler(EncoderSource source) {
+        this.source = source;
+    }
+
+    /**
+     * Add a carrier. The decoder has to use the same carriers in the same order.
+     *
+     * @param carrier the carrier.
+     * @return the lane of the carrier.
+     */
+    Lane addCarrier(Carrier carrier) {
+        Lane lane = new Lane(carrier);
+        lanes.add(lane);
+        return lane;
+    }
+
+    /**
+     * @param printToStdout true to print every started byte.
+     */
+    void setPrintToStdout(boolean printToStdout) {
+        this.printToStdout = printToStdout;
+    }
+
+    /**
+     * @param repeatCount how often every symbol is repeated.
+     */
+    void setRepeatCount(int repeatCount) {
+        this.repeatCount = repeatCount;
+    }
+
+    /**
+     * @param bytesUntilSync the bytes to send before the next synchronization preamble.
+     */
+    void setBytesUntilSync(int bytesUntilSync) {
+        this.bytesUntilSync = bytesUntilSync;
+    }
+
+    /**
+     * Count the next outgoing packet.
+     */
+    void beginPacket() {
+        packetCounter++;
+    }
+
+    /**
+     * The current packet is a synchronization packet.
+     */
+    void markSync() {
+        lastSyncPacket = packetCounter;
+    }
+
+    /**
+     * @return true if the server cannot merge the current packet with the last synchronization packet.
+     */
+    boolean isSettled() {
+        return packetCounter - lastSyncPacket >= MIN_SPACING;
+    }
+
+    /**
+     * @return true if no lane is sending a byte.
+     */
+    boolean isIdle() {
+        for (int i = 0; i < lanes.size(); i++) {
+            if (lanes.get(i).active) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the next byte of the source needs a synchronization preamble before it.
+     */
+    boolean isSyncDue() {
+        // no preamble inside a frame, framed sources get one before every frame
+        return source.startsFrame() && (source.isFramed() || bytesUntilSync <= 0);
+    }
+
+    /**
+     * Embed the next symbols into the packet. This is the hot path of the encoder, it must not allocate memory.
+     *
+     * @param packet   the outgoing packet, the carried fields are updated in place.
+     * @param preamble true if the packet belongs to the synchronization preamble, no symbol is sent then.
+     */
+    void embed(CPlayerPacket packet, boolean preamble) {
+        boolean repeating = false;
+        boolean sending = false;
+        boolean resting = true;
+        for (int i = 0; i < lanes.size(); i++) {
+            Lane lane = lanes.get(i);
+            lane.carried = lane.carrier.carries(packet);
+            lane.symbol = Carrier.NO_SYMBOL;
+            if (!lane.carried) {
+                continue;
+            }
+
+            int capacity = lane.carrier.capacity(packet);
+            lane.moved = !preamble && !isSettling(lane) && capacity > 0;
+            repeating |= lane.sendCounter > 0;
+            sending |= lane.moved && canSendBit(lane);
+            resting &= lane.carrier.isResting();
+        }
+
+        if (!preamble && !repeating && !sending) {
+            // keep the link alive if the player does not move a carrier that can send
+            for (int i = 0; i < lanes.size(); i++) {
+                Lane lane = lanes.get(i);
+                if (canForceBit(lane, resting)) {
+                    lane.moved = true;
+                    break;
+                }
+            }
+        }
+
+        for (int i = 0; i < lanes.size(); i++) {
+            Lane lane = lanes.get(i);
+            if (lane.carried) {
+                if (prepareBit(lane)) {
+                    lane.symbol = getSymbol(lane);
+                }
+                lane.carrier.embed(packet, lane.symbol);
+            }
+        }
+    }
+
+    /**
+     * Count the sent packet for every carried lane and advance to the next symbols.
+     */
+    void finishPacket() {
+        for (int i = 0; i < lanes.size(); i++) {
+            Lane lane = lanes.get(i);
+            if (lane.carried) {
+                advance(lane);
+            }
+        }
+    }
+
+    /**
+     * The connection to the receiver was reset. The bytes in flight are sent again.
+     */
+    void reset() {
+        if (startedBytes != confirmedBytes) {
+            source.reset();
+        }
+        for (int i = 0; i < lanes.size(); i++) {
+            lanes.get(i).clear();
+            lanes.get(i).carrier.reset();
+        }
+        startedBytes = 0;
+        confirmedBytes = 0;
+    }
+
+    /**
+     * @param lane the lane.
+     * @return true if the carrier adds up merged packets and the server may merge the packet with the last
+     * synchronization packet.
+     */
+    private boolean isSettling(Lane lane) {
+        return lane.carrier.isCumulative() && packetCounter - lastSyncPacket < MIN_SPACING;
+    }
+
+    /**
+     * @param lane the lane.
+     * @return true if the lane can send a new bit in this packet.
+     */
+    private boolean canSendBit(Lane lane) {
+        return lane.sendCounter == 0 && (lane.active || canStartByte());
+    }
+
+    /**
+     * @param lane    the lane.
+     * @param resting true if the player did not move any carried field recently.
+     * @return true if the lane can send a new bit although the player did not move the carrier. A started byte is
+     * always continued, a new byte is only started on a resting carrier if the player is idle.
+     */
+    private boolean canForceBit(Lane lane, boolean resting) {
+        return lane.carried && lane.carrier.canForce() && !isSettling(lane) && canSendBit(lane) &&
+                (lane.active || resting);
+    }
+
+    /**
+     * @return true if a lane can take the next byte from the source.
+     */
+    private boolean canStartByte() {
+        // bytes that are started in different packets must not be merged into one packet by the server
+        boolean ordered = packetCounter == lastStartPacket || packetCounter - lastStartPacket >= MIN_SPACING;
+        return ordered && !isSyncDue() && startedBytes - confirmedBytes < SharedPreferences.MAX_BYTES_IN_FLIGHT &&
+                source.isReady();
+    }
+
+    /**
+     * Decide if the lane sends a new bit in this packet. An idle lane takes the next byte from the source.
+     *
+     * @param lane the lane.
+     * @return true if a new bit is sent, false if the previous value is sent again.
+     */
+    private boolean prepareBit(Lane lane) {
+        if (lane.sendCounter > 0 || !lane.moved) {
+            return false;
+        }
+
+        if (!lane.active) {
+            if (!canStartByte()) {
+                return false;
+            }
+
+            lane.value = source.peek();
+            source.commit();
+            lane.active = true;
+            lane.position = 0;
+            lane.index = startedBytes++;
+            lastStartPacket = packetCounter;
+            bytesUntilSync--;
+
+            if (printToStdout) {
+                System.out.println(">>>>>> Sending: char=" + (char) lane.value + " byte=" + lane.value +
+                        " binary=" + HelperUtil.byteToString(lane.value));
+            }
+        }
+
+        lane.bitSent = true;
+        return true;
+    }
+
+    /**
+     * Count the sent packet for the lane and advance to the next symbol once it was repeated often enough. A merged
+     * packet of the server must not skip a symbol, so it is sent at least {@link #MIN_SPACING} times.
+     *
+     * @param lane the lane.
+     */
+    private void advance(Lane lane) {
+        if (!lane.active || (lane.sendCounter == 0 && !lane.bitSent)) {
+            return;
+        }
+
+        lane.bitSent = false;
+        lane.sendCounter++;
+        if (lane.sendCounter > Math.max(repeatCount, MIN_SPACING - 1)) {
+            lane.sendCounter = 0;
+            lane.position += lane.carrier.getSymbolBits();
+            if (lane.position > 7) {
+                lane.active = false;
+                confirmSentBytes();
+            }
+        }
+    }
+
+    /**
+     * Confirm the completely sent bytes to the source, in the order they were taken.
+     */
+    private void confirmSentBytes() {
+        while (confirmedBytes < startedBytes && !isInFlight(confirmedBytes)) {
+            source.confirm();
+            confirmedBytes++;
+        }
+    }
+
+    /**
+     * @param index the index of a taken byte.
+     * @return true if one of the lanes is still sending the byte.
+     */
+    private boolean isInFlight(long index) {
+        for (int i = 0; i < lanes.size(); i++) {
+            Lane lane = lanes.get(i);
+            if (lane.active && lane.index == index) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Extract the next symbol from the byte of the lane. The last symbol of a byte may carry fewer bits.
+     *
+     * @param lane the lane.
+     * @return the symbol.
+     */
+    private int getSymbol(Lane lane) {
+        return ((lane.value & 0xff) >> lane.position) & ((1 << lane.carrier.getSymbolBits()) - 1);
+    }
+
+    /**
+     * The sending state of one carrier.
+     */
+    static final class Lane {
+        private final Carrier carrier;
+        private byte value;
+        private int position;
+        private int sendCounter;
+        private long index;      // the order in which the byte was taken from the source
+        private boolean active;  // true while a byte is sent on this lane
+        private boolean bitSent; // true if a new bit was embedded in the current packet
+        private boolean carried; // true if the carrier is part of the current packet
+        private boolean moved;   // true if the carrier can take a symbol in the current packet
+        private int symbol = Carrier.NO_SYMBOL; // the symbol of the current packet
+
+        /**
+         * Constructor.
+         *
+         * @param carrier the carrier.
+         */
+        private Lane(Carrier carrier) {
+            this.carrier = carrier;
+        }
+
+        /**
+         * @return the symbol that was embedded in the current packet, 0 if none.
+         */
+        byte getSymbol() {
+            return symbol == Carrier.NO_SYMBOL ? 0 : (byte) symbol;
+        }
+
+        /**
+         * @return the byte of the lane.
+         */
+        byte getValue() {
+            return value;
+        }
+
+        /**
+         * @return the bit position in the byte.
+         */
+        int getPosition() {
+            return position;
+        }
+
+        /**
+         * @return the repetitions of the current symbol.
+         */
+        int getSendCounter() {
+            return sendCounter;
+        }
+
+        /**
+         * Forget the current byte.
+         */
+        private void clear() {
+            position = 0;
+            sendCounter = 0;
+            active = false;
+            bitSent = false;
+        }
+    }
+}
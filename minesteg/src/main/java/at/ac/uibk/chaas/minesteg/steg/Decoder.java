@@ -1,34 +1,69 @@
 package at.ac.uibk.chaas.minesteg.steg;
 
 import at.ac.uibk.chaas.minesteg.HelperUtil;
+import at.ac.uibk.chaas.minesteg.PacketAccessor;
 import at.ac.uibk.chaas.minesteg.analyze.DecoderPacketLogger;
-import net.minecraft.client.Minecraft;
-import net.minecraft.entity.player.PlayerEntity;
+import at.ac.uibk.chaas.minesteg.carrier.AngleCarrier;
+import at.ac.uibk.chaas.minesteg.carrier.Carrier;
+import at.ac.uibk.chaas.minesteg.carrier.PitchCarrier;
+import at.ac.uibk.chaas.minesteg.carrier.PositionCarrier;
+import at.ac.uibk.chaas.minesteg.carrier.YawCarrier;
 import net.minecraft.network.IPacket;
+import net.minecraft.network.play.server.SEntityHeadLookPacket;
 import net.minecraft.network.play.server.SEntityPacket;
+import net.minecraft.network.play.server.SEntityTeleportPacket;
+
+import java.util.ArrayList;
+import java.util.List;
 
 import static at.ac.uibk.chaas.minesteg.steg.SharedPreferences.INIT_DELAY_RECEIVER_MS;
 
 /**
  * The decoder implementation for the steganographic system.
+ * <p>
+ * Every carrier receives its own bytes, see {@link Carrier}. The carriers are read in the same order as the encoder
+ * added them: the x and z moves of the optional position carrier, pitch, yaw and then any additional carriers. The
+ * bytes are delivered in the order in which their first symbols arrived, see {@link Encoder}.
+ * <p>
+ * The server relays the rotation of the sender in move, look, teleport and head look packets, depending on the
+ * movement and the timing. All of them are read, the carriers skip values they already received. The packets of the
+ * sender are recognized by the entity id, see {@link PlayerTracker}. Besides the stegokey in the angles, a relative
+ * move with the synchronization residue of the position carrier is a synchronization packet, see {@link PositionCodec}.
+ * <p>
+ * By default the packets are decoded on the network thread. With a queue the network thread only hands over the packets
+ * of the sender, the decoding, the logging and the sink run on the {@link DecoderThread}.
  *
  * @author christoph.haas
  * @version 1.0.0
  * @since 1.8
  */
 public class Decoder {
-    private static final boolean PRINT_TO_STDOUT = true;
     private static final long TIME_DIFF_BITRATE_MS = 5000;
 
     private final MessageBuffer messageBuffer;
-    private final String senderName;
-    private final int[] stegoKey;
+    private final DecoderSink sink;
+    private final PresenceListener presenceListener = player -> onSenderLeft();
+    private PlayerTracker sender;
+    private boolean trackerShared = false;
+    private PacketRing queue = null; // decode on another thread, see DecoderThread
+    private volatile boolean resetPending = false; // the reset did not fit into the full queue
+    private final StegoKey stegoKey;
     private final DecoderPacketLogger logger;
-
-    private Byte currentByte = 0;
-    private int currentBytePosition = 0;
-    private byte previousPitch = 0;
-    private byte previousYaw = 0;
+    private LinkController linkController = null;
+    private final PositionCarrier xCarrier = new PositionCarrier(PositionCarrier.Axis.X);
+    private final PositionCarrier zCarrier = new PositionCarrier(PositionCarrier.Axis.Z);
+    private final PitchCarrier pitchCarrier;
+    private final YawCarrier yawCarrier;
+
+    private final List<AxisStream> streams = new ArrayList<>();
+    private final AxisStream pitchStream;
+    private final AxisStream[] logStreams; // the built-in lanes in the order of the logger
+    private final int[] logPositions;
+    private final byte[] logValues;
+    private final byte[] reorderBuffer = new byte[SharedPreferences.MAX_BYTES_IN_FLIGHT];
+    private final boolean[] complete = new boolean[SharedPreferences.MAX_BYTES_IN_FLIGHT];
+    private long startedBytes = 0;   // bytes whose first bit was received since the last sync packet
+    private long deliveredBytes = 0; // bytes that were passed to the sink since the last sync packet
     private boolean initialized = false;
     private long firstConnMs = 0;
 
@@ -38,6 +73,8 @@ public class Decoder {
     private long prevBitTimeMs = 0;
     private float bitrate = 0;
 
+    private boolean printToStdout = true;
+
     /**
      * Constructor.
      *
@@ -45,27 +82,125 @@ public class Decoder {
      * @param senderName    the name of the embedding player.
      * @param stegoKey      the stegokey.
      */
-    public Decoder(MessageBuffer messageBuffer, String senderName, int[] stegoKey) {
+    public Decoder(MessageBuffer messageBuffer, String senderName, StegoKey stegoKey) {
+        this(messageBuffer, new MessageBufferSink(messageBuffer), senderName, stegoKey);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param messageBuffer the message buffer instance. This buffer contains the decoded secret message.
+     * @param sink          the destination of the received bytes, e.g. a forward error correction stage.
+     * @param senderName    the name of the embedding player.
+     * @param stegoKey      the stegokey.
+     */
+    public Decoder(MessageBuffer messageBuffer, DecoderSink sink, String senderName, StegoKey stegoKey) {
         this.messageBuffer = messageBuffer;
-        this.senderName = senderName;
+        this.sink = sink;
         this.stegoKey = stegoKey;
+        pitchCarrier = new PitchCarrier(stegoKey, new AngleCodec());
+        yawCarrier = new YawCarrier(stegoKey, new AngleCodec());
+
+        // the same order as in the encoder
+        AxisStream xStream = addStream(xCarrier);
+        AxisStream zStream = addStream(zCarrier);
+        pitchStream = addStream(pitchCarrier);
+        AxisStream yawStream = addStream(yawCarrier);
+        logStreams = new AxisStream[]{xStream, zStream, pitchStream, yawStream};
+        logPositions = new int[logStreams.length];
+        logValues = new byte[logStreams.length];
+
+        // without a shared presence tracker the decoder updates its own tracker
+        sender = new PlayerTracker(senderName);
+        sender.addListener(presenceListener);
+
         logger = new DecoderPacketLogger();
     }
 
     /**
+     * Use the shared presence tracker to follow the sender. The tracker has to be updated with every received packet
+     * before the decoder processes it.
+     *
+     * @param presenceTracker the presence tracker.
+     */
+    public void setPresenceTracker(PresenceTracker presenceTracker) {
+        sender.removeListener(presenceListener);
+        sender = presenceTracker.subscribe(sender.getPlayerName(), presenceListener);
+        trackerShared = true;
+    }
+
+    /**
+     * Enable or disable the debug output on stdout.
+     *
+     * @param printToStdout true to print every received byte.
+     */
+    public void setPrintToStdout(boolean printToStdout) {
+        this.printToStdout = printToStdout;
+    }
+
+    /**
+     * Set the controller that is informed about the received and lost bytes. The synchronization packets are used as
+     * pilots: a byte that is incomplete at the next synchronization packet was lost.
+     *
+     * @param linkController the link controller, may be null.
+     */
+    public void setLinkController(LinkController linkController) {
+        this.linkController = linkController;
+    }
+
+    /**
+     * Set the number of bits that are embedded in every changed angle, see {@link Encoder#setSymbolBits(int)}.
+     *
+     * @param symbolBits the bits per angle, 1 to {@link SharedPreferences#MAX_SYMBOL_BITS}.
+     */
+    public void setSymbolBits(int symbolBits) {
+        pitchCarrier.setSymbolBits(symbolBits);
+        yawCarrier.setSymbolBits(symbolBits);
+    }
+
+    /**
+     * Set the number of bits in every relative move, see {@link Encoder#setPositionBits(int)}.
+     *
+     * @param positionBits the bits per relative move, 0 to disable the position carrier.
+     */
+    public void setPositionBits(int positionBits) {
+        xCarrier.setSymbolBits(positionBits);
+        zCarrier.setSymbolBits(positionBits);
+    }
+
+    /**
+     * Add a carrier behind the built-in ones, see {@link Encoder#addCarrier(Carrier)}.
+     *
+     * @param carrier the carrier.
+     */
+    public void addCarrier(Carrier carrier) {
+        addStream(carrier);
+    }
+
+    /**
+     * @param carrier the carrier.
+     * @return the receiving state of the carrier.
+     */
+    private AxisStream addStream(Carrier carrier) {
+        AxisStream stream = new AxisStream(carrier);
+        streams.add(stream);
+        return stream;
+    }
+
+    /**
+     * @param currTimeMs the receive time of the current packet.
      * @return true if initialization of the decoder is completed.
      */
-    private boolean checkInitialized() {
+    private boolean checkInitialized(long currTimeMs) {
         if (initialized) {
             return true;
         }
 
         if (firstConnMs == 0) {
-            firstConnMs = System.currentTimeMillis();
+            firstConnMs = currTimeMs;
             return false;
         }
 
-        long currTimeMs = System.currentTimeMillis();
         if (currTimeMs > firstConnMs + INIT_DELAY_RECEIVER_MS) {
             initialized = true;
             return true;
@@ -81,32 +216,45 @@ public class Decoder {
      * @return true if packet can be processed by the decoder.
      */
     private boolean isValidPacket(IPacket<?> packet) {
-        return packet instanceof SEntityPacket.MovePacket || packet instanceof SEntityPacket.LookPacket;
+        return packet instanceof SEntityPacket.MovePacket || packet instanceof SEntityPacket.LookPacket ||
+                packet instanceof SEntityTeleportPacket || packet instanceof SEntityHeadLookPacket ||
+                (xCarrier.getSymbolBits() > 0 && packet instanceof SEntityPacket.RelativeMovePacket);
+    }
+
+    /**
+     * @param packet the incoming packet, see {@link #isValidPacket(IPacket)}.
+     * @return the entity id of the packet.
+     */
+    private static int getEntityId(IPacket<?> packet) {
+        PacketAccessor accessor = PacketAccessor.of(packet.getClass());
+        if (!accessor.hasEntityId()) {
+            throw new RuntimeException("FATAL: fields not found in class!");
+        }
+        return accessor.getEntityId(packet);
     }
 
     /**
-     * Check if the given packet was sent by the embedding player.
+     * Decode the packets on another thread. From now on {@link #processPacket(IPacket)} only adds the packets of the
+     * sender to the queue, the other thread decodes them with {@link #processQueue()}.
      *
-     * @param packet the packet object.
-     * @return true if the packet was sent by the embedding player.
+     * @param queue the queue, the network thread is the producer.
      */
-    private boolean isPacketFromSender(SEntityPacket packet) {
-        PlayerEntity sender = null;
-        Minecraft minecraft = Minecraft.getInstance();
-        if (minecraft.world != null) {
-            for (int i = 0; i < minecraft.world.getPlayers().size(); ++i) {
-                PlayerEntity playerentity = minecraft.world.getPlayers().get(i);
-                if (senderName.equals(playerentity.getName().getString())) {
-                    sender = playerentity;
-                    break;
-                }
-            }
+    public void setQueue(PacketRing queue) {
+        this.queue = queue;
+    }
 
-            // getEntity can still return null, documentation/annotation is incorrect!
-            return packet.getEntity(minecraft.world) != null && packet.getEntity(minecraft.world).equals(sender);
-        }
+    /**
+     * @return the tracker of the sender.
+     */
+    public PlayerTracker getSender() {
+        return sender;
+    }
 
-        return false;
+    /**
+     * @return the queue of the decoder thread, null if the packets are decoded on the network thread.
+     */
+    public PacketRing getQueue() {
+        return queue;
     }
 
     /**
@@ -115,145 +263,336 @@ public class Decoder {
      * @param packet the incoming packet.
      */
     public void processPacket(IPacket<?> packet) {
-        if (!HelperUtil.isPlayerVisible(senderName)) {
-            currentByte = 0;
-            currentBytePosition = 0;
-            previousPitch = 0;
-            previousYaw = 0;
-            initialized = false;
-            firstConnMs = 0;
-
+        if (!trackerShared) {
+            sender.update(packet);
+        }
+        if (!sender.isPresent()) {
             return; // cannot process packet
         }
 
-        if (!checkInitialized()) {
+        if (queue != null) {
+            if (isFromSender(packet)) {
+                queue.offer(packet, System.currentTimeMillis());
+            }
+            return;
+        }
+
+        long currTimeMs = System.currentTimeMillis();
+        if (!checkInitialized(currTimeMs)) {
             return;
         }
 
-        if (!isValidPacket(packet) || !isPacketFromSender((SEntityPacket) packet)) {
+        if (!isFromSender(packet)) {
             return; // cannot process packet
         }
 
-        if (PRINT_TO_STDOUT) {
+        decodePacket(packet, currTimeMs);
+    }
+
+    /**
+     * Decode the queued packets. This method is called by the decoder thread, see {@link #setQueue(PacketRing)}. The
+     * initialization delay starts with the first queued packet of the sender.
+     *
+     * @return the number of processed queue entries.
+     */
+    public int processQueue() {
+        int count = 0;
+        while (!queue.isEmpty()) {
+            IPacket<?> packet = queue.poll();
+            count++;
+            if (packet == null) {
+                reset();
+            } else if (checkInitialized(queue.getPolledTimeMs())) {
+                decodePacket(packet, queue.getPolledTimeMs());
+            }
+        }
+
+        // the queued packets were received before the sender left, so the reset is applied after them
+        if (resetPending) {
+            resetPending = false;
+            reset();
+        }
+        return count;
+    }
+
+    /**
+     * @param packet the incoming packet.
+     * @return true if the packet is a valid packet of the sender, checked on the thread of the presence tracker.
+     */
+    private boolean isFromSender(IPacket<?> packet) {
+        return isValidPacket(packet) && getEntityId(packet) == sender.getEntityId();
+    }
+
+    /**
+     * The sender left. The reset is passed through the queue, so it is applied after the queued packets.
+     */
+    private void onSenderLeft() {
+        if (queue == null) {
+            reset();
+        } else if (!queue.offerReset()) {
+            resetPending = true;
+        }
+    }
+
+    /**
+     * Extract the symbols of a valid packet of the sender.
+     *
+     * @param packet     the incoming packet.
+     * @param currTimeMs the receive time of the packet.
+     */
+    private void decodePacket(IPacket<?> packet, long currTimeMs) {
+        if (printToStdout) {
             System.out.println("-------------------------- Packet:");
         }
         String packetType;
 
-        byte pitch = ((SEntityPacket) packet).getPitch();
-        byte yaw = ((SEntityPacket) packet).getYaw();
+        // the symbols of a sync packet belong to the bytes before it
+        int receivedBits = 0;
+        for (int i = 0; i < streams.size(); i++) {
+            AxisStream stream = streams.get(i);
+            if (!stream.active && stream.carrier.isSeparateRelay(packet)) {
+                continue; // a byte starts in the packet with the other fields, it keeps the order of the first symbols
+            }
+            int symbol = stream.carrier.extract(packet);
+            if (symbol != Carrier.NO_SYMBOL) {
+                receivedBits += receiveSymbol(stream, (byte) symbol);
+            }
+        }
+
+        byte pitch = pitchCarrier.getPrevious();
+        byte yaw = yawCarrier.getPrevious();
+        boolean positionSync = xCarrier.isSyncPacket(packet) || zCarrier.isSyncPacket(packet);
+        if (packet instanceof SEntityPacket.RelativeMovePacket && !positionSync) {
+            updateBitrate(receivedBits, currTimeMs);
+            logPacket(pitch, yaw, receivedBits > 0 ? "valid_bit" : "valid", (byte) 0, (byte) 0);
+            return;
+        }
 
-        // synchronization package received
-        if (stegoKeyContains(pitch) || stegoKeyContains(yaw)) {
+        // synchronization package received, a walking sender marks it in the relative move
+        if (positionSync || AngleCarrier.isSyncPacket(stegoKey, packet)) {
             packetType = "sync";
             if (messageBuffer.size() == 0) {
                 packetType = "sync_initial";
             }
 
-            if (PRINT_TO_STDOUT) {
+            if (printToStdout) {
                 System.out.println("Sync Package: P = " + pitch + " Y = " + yaw);
             }
 
-            // add incomplete byte to show transmission error
-            if (currentBytePosition != 0) {
-                System.out.println("-------------------------- Failure:");
-                System.out.println(">>>>>> Failed: char=" + (char) currentByte.byteValue() + " byte=" + currentByte +
-                        " binary=" + HelperUtil.byteToString(currentByte));
-                messageBuffer.push((byte) 0xff);
-            }
+            flush(startedBytes); // add incomplete bytes to show transmission error
+            sink.sync();
 
-            currentByte = 0;
-            currentBytePosition = 0;
-            previousPitch = pitch;
-            previousYaw = yaw;
+            clearStreams();
         } else {
             packetType = "valid";
-            byte bitPitch = extractBit(pitch);
-            byte bitYaw = extractBit(yaw);
-
-            if (PRINT_TO_STDOUT) {
-                System.out.println("Valid Package: P = " + pitch + " Y = " + yaw + " (" + bitPitch + "|" + bitYaw + ") pos=" + currentBytePosition);
+            if (printToStdout) {
+                System.out.println("Valid Package: P = " + pitch + " Y = " + yaw + " (" +
+                        pitchCarrier.toSymbol(pitch) + "|" + yawCarrier.toSymbol(yaw) + ") received=" + receivedBits);
             }
-            if (previousPitch != pitch || previousYaw != yaw) {
+
+            if (receivedBits > 0) {
                 packetType = "valid_bit"; // used to calculate bitrate afterwards
-                previousPitch = pitch;
-                currentByte = setBit(currentBytePosition++, currentByte, bitPitch);
+            }
+            updateBitrate(receivedBits, currTimeMs);
+        }
 
-                previousYaw = yaw;
-                currentByte = setBit(currentBytePosition++, currentByte, bitYaw);
+        logPacket(pitch, yaw, packetType, pitchCarrier.toSymbol(pitch), yawCarrier.toSymbol(yaw));
+    }
 
-                // calculate bitrate
-                long currentTimeMs = System.currentTimeMillis();
-                if (prevBitTimeMs == 0) {
-                    prevBitTimeMs = currentTimeMs;
-                }
+    /**
+     * Log the packet together with the receiving state of every built-in lane.
+     *
+     * @param pitch    the received pitch value.
+     * @param yaw      the received yaw value.
+     * @param type     the type of the packet.
+     * @param bitPitch the symbol of the pitch value.
+     * @param bitYaw   the symbol of the yaw value.
+     */
+    private void logPacket(byte pitch, byte yaw, String type, byte bitPitch, byte bitYaw) {
+        for (int i = 0; i < logStreams.length; i++) {
+            logPositions[i] = logStreams[i].position;
+            logValues[i] = logStreams[i].value;
+        }
+        logger.logPacket(pitch, yaw, type, bitPitch, bitYaw, logPositions, logValues, bitrate);
+    }
 
-                bitCounter += 2;
-                timeCounterMs += (currentTimeMs - prevBitTimeMs);
-                prevBitTimeMs = currentTimeMs;
-
-                if (timeCounterMs >= TIME_DIFF_BITRATE_MS) {
-                    bitrate = bitCounter / (float) timeCounterMs * 1000;
-                    if (PRINT_TO_STDOUT) {
-                        System.out.println("-------------------------- Bitrate: " + bitrate + " bit/s");
-                    }
-                    bitCounter = 0;
-                    timeCounterMs = 0;
-                }
-            }
+    /**
+     * The sender left, forget all partially received bytes and wait for the initialization delay again.
+     */
+    private void reset() {
+        if (initialized || firstConnMs != 0) {
+            sink.reset();
+        }
+        clearStreams();
+        for (int i = 0; i < streams.size(); i++) {
+            streams.get(i).carrier.reset();
         }
+        initialized = false;
+        firstConnMs = 0;
+    }
 
-        logger.logPacket((SEntityPacket) packet, packetType, extractBit(pitch), extractBit(yaw), currentBytePosition, currentByte, bitrate);
+    /**
+     * Update the bitrate calculation.
+     *
+     * @param receivedBits  the bits received in the current packet.
+     * @param currentTimeMs the receive time of the current packet.
+     */
+    private void updateBitrate(int receivedBits, long currentTimeMs) {
+        if (receivedBits == 0) {
+            return;
+        }
+
+        if (prevBitTimeMs == 0) {
+            prevBitTimeMs = currentTimeMs;
+        }
 
-        if (currentBytePosition > 7) {
-            messageBuffer.push(currentByte);
-            if (PRINT_TO_STDOUT) {
-                System.out.println("-------------------------- Byte:");
-                System.out.println(">>>>>> Received: char=" + (char) currentByte.byteValue() + " byte=" + currentByte +
-                        " binary=" + HelperUtil.byteToString(currentByte));
+        bitCounter += receivedBits;
+        timeCounterMs += (currentTimeMs - prevBitTimeMs);
+        prevBitTimeMs = currentTimeMs;
+
+        if (timeCounterMs >= TIME_DIFF_BITRATE_MS) {
+            bitrate = bitCounter / (float) timeCounterMs * 1000;
+            if (printToStdout) {
+                System.out.println("-------------------------- Bitrate: " + bitrate + " bit/s");
             }
-            currentBytePosition = 0;
-            currentByte = 0;
+            bitCounter = 0;
+            timeCounterMs = 0;
         }
     }
 
     /**
-     * Extract the LSB from the byte.
+     * Add the received symbol to the byte of the axis. The first symbol of a byte reserves the next slot in the reorder
+     * buffer, completed bytes are delivered once all bytes that were started before them are complete.
      *
-     * @param pitch the byte value.
-     * @return the LSB of the byte.
+     * @param stream the axis stream.
+     * @param symbol the received symbol.
+     * @return the number of received bits.
      */
-    private byte extractBit(byte pitch) {
-        return (byte) Math.abs(pitch % 2);
+    private int receiveSymbol(AxisStream stream, byte symbol) {
+        if (!stream.active) {
+            if (startedBytes - deliveredBytes == reorderBuffer.length) {
+                // the oldest byte is still incomplete, it is passed as erasure but its stream stays aligned
+                flush(deliveredBytes + 1);
+            }
+
+            stream.active = true;
+            stream.index = startedBytes++;
+            stream.position = 0;
+            stream.value = 0;
+        }
+
+        int bits = Math.min(stream.carrier.getSymbolBits(), 8 - stream.position);
+        stream.value = (byte) (stream.value | symbol << stream.position);
+        stream.position += bits;
+        if (stream.position <= 7) {
+            return bits;
+        }
+
+        stream.active = false;
+        if (stream.index < deliveredBytes) {
+            return bits; // already passed as erasure, the slot belongs to a newer byte
+        }
+
+        int slot = (int) (stream.index % reorderBuffer.length);
+        reorderBuffer[slot] = stream.value;
+        complete[slot] = true;
+
+        while (deliveredBytes < startedBytes && complete[(int) (deliveredBytes % reorderBuffer.length)]) {
+            deliver(reorderBuffer[(int) (deliveredBytes % reorderBuffer.length)]);
+            deliveredBytes++;
+        }
+        return bits;
     }
 
     /**
-     * Set the bit in the given byte.
+     * Pass the bytes up to the given index to the sink, incomplete bytes are passed as erasures. The streams of the
+     * incomplete bytes keep receiving them, so their next symbols still belong to the same byte.
      *
-     * @param position the bit position.
-     * @param input    the input byte.
-     * @param bit      the bit.
-     * @return the modified byte.
+     * @param until the index of the first byte to keep.
      */
-    private byte setBit(int position, byte input, byte bit) {
-        if (bit == 0) {
-            return (byte) (input & ~(1 << position));
-        } else {
-            return (byte) (input | (1 << position));
+    private void flush(long until) {
+        while (deliveredBytes < until) {
+            int slot = (int) (deliveredBytes % reorderBuffer.length);
+            if (complete[slot]) {
+                deliver(reorderBuffer[slot]);
+            } else {
+                AxisStream stream = findStream(deliveredBytes);
+                System.out.println("-------------------------- Failure:");
+                System.out.println(">>>>>> Failed: char=" + (char) stream.value + " byte=" + stream.value +
+                        " binary=" + HelperUtil.byteToString(stream.value));
+                sink.pushErasure();
+                if (linkController != null) {
+                    linkController.recordLost(1);
+                }
+            }
+            deliveredBytes++;
         }
     }
 
     /**
-     * Check if the stegokey contains the given byte.
-     *
-     * @param dataByte the byte.
-     * @return true if stego contains the given byte.
+     * @param index the index of an incomplete byte.
+     * @return the axis stream that receives the byte.
      */
-    private boolean stegoKeyContains(byte dataByte) {
-        for (int i = 0; i < stegoKey.length; i++) {
-            if (stegoKey[i] == dataByte) {
-                return true;
+    private AxisStream findStream(long index) {
+        for (int i = 0; i < streams.size(); i++) {
+            AxisStream stream = streams.get(i);
+            if (stream.active && stream.index == index) {
+                return stream;
             }
         }
-        return false;
+        return pitchStream;
+    }
+
+    /**
+     * Pass a completely received byte to the sink.
+     *
+     * @param value the byte.
+     */
+    private void deliver(byte value) {
+        complete[(int) (deliveredBytes % reorderBuffer.length)] = false;
+        sink.push(value);
+        if (linkController != null) {
+            linkController.recordDelivered(1);
+        }
+        if (printToStdout) {
+            System.out.println("-------------------------- Byte:");
+            System.out.println(">>>>>> Received: char=" + (char) value + " byte=" + value +
+                    " binary=" + HelperUtil.byteToString(value));
+        }
+    }
+
+    /**
+     * Forget all partially received bytes.
+     */
+    private void clearStreams() {
+        for (int i = 0; i < streams.size(); i++) {
+            streams.get(i).active = false;
+            streams.get(i).position = 0;
+        }
+        for (int i = 0; i < complete.length; i++) {
+            complete[i] = false;
+        }
+        startedBytes = 0;
+        deliveredBytes = 0;
+    }
+
+    /**
+     * The receiving state of one carrier.
+     */
+    private static final class AxisStream {
+        private final Carrier carrier;
+        private byte value;
+        private int position;
+        private long index;     // the order in which the first bit of the byte was received
+        private boolean active; // true while a byte is received on this carrier
+
+        /**
+         * Constructor.
+         *
+         * @param carrier the carrier.
+         */
+        private AxisStream(Carrier carrier) {
+            this.carrier = carrier;
+        }
     }
 }
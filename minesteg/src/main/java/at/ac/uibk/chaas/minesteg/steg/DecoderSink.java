@@ -0,0 +1,33 @@
+package at.ac.uibk.chaas.minesteg.steg;
+
+/**
+ * The destination of the bytes that are extracted by the decoder.
+ *
+ * @author christoph.haas
+ * @version 1.0.0
+ * @since 1.8
+ */
+public interface DecoderSink {
+    /**
+     * A byte was received completely.
+     *
+     * @param b the byte.
+     */
+    void push(byte b);
+
+    /**
+     * A byte was lost, only some of its bits were received before the next synchronization.
+     */
+    void pushErasure();
+
+    /**
+     * The connection to the sender was reset.
+     */
+    void reset();
+
+    /**
+     * A synchronization packet was received, the next byte starts a new frame.
+     */
+    default void sync() {
+    }
+}
@@ -0,0 +1,42 @@
+package at.ac.uibk.chaas.minesteg.steg;
+
+/**
+ * Runs the decoder outside of the network thread.
+ * <p>
+ * The network thread only checks the sender of a packet and adds it to the {@link PacketRing} of the decoder, see
+ * {@link Decoder#setQueue(PacketRing)}. This thread is the single consumer of the ring and runs the decoding, the
+ * logging and the sink, e.g. the forward error correction. It backs off exponentially while the ring is empty, so an
+ * idle thread wakes up at most every {@link #MAX_IDLE_SLEEP_MS} milliseconds, see {@link IdleBackoffRunner}.
+ *
+ * @author christoph.haas
+ * @version 1.0.0
+ * @since 1.8
+ */
+public class DecoderThread {
+    static final long MAX_IDLE_SLEEP_MS = 10;
+
+    private final IdleBackoffRunner runner;
+
+    /**
+     * Constructor.
+     *
+     * @param decoder the decoder, a queue must be set.
+     */
+    public DecoderThread(Decoder decoder) {
+        this.runner = new IdleBackoffRunner("DecoderThread", decoder::processQueue, MAX_IDLE_SLEEP_MS);
+    }
+
+    /**
+     * Start the decoder thread.
+     */
+    public void start() {
+        runner.start();
+    }
+
+    /**
+     * Stop the decoder thread.
+     */
+    public void stop() {
+        runner.stop();
+    }
+}
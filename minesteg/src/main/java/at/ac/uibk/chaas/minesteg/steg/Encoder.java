@@ -1,51 +1,61 @@
 package at.ac.uibk.chaas.minesteg.steg;
 
-import at.ac.uibk.chaas.minesteg.HelperUtil;
 import at.ac.uibk.chaas.minesteg.analyze.EncoderPacketLogger;
+import at.ac.uibk.chaas.minesteg.analyze.PacketSnapshot;
+import at.ac.uibk.chaas.minesteg.carrier.Carrier;
+import at.ac.uibk.chaas.minesteg.carrier.PitchCarrier;
+import at.ac.uibk.chaas.minesteg.carrier.PositionCarrier;
+import at.ac.uibk.chaas.minesteg.carrier.YawCarrier;
 import net.minecraft.network.IPacket;
 import net.minecraft.network.play.client.CPlayerPacket;
-import org.apache.commons.collections4.queue.CircularFifoQueue;
-
-import java.lang.reflect.Field;
-import java.util.Date;
-import java.util.Random;
 
 import static at.ac.uibk.chaas.minesteg.steg.SharedPreferences.INIT_DELAY_SENDER_MS;
-import static at.ac.uibk.chaas.minesteg.steg.SharedPreferences.MIN_REPEAT_COUNT;
+import static at.ac.uibk.chaas.minesteg.steg.SharedPreferences.PREAMBLE_LENGTH;
 
 /**
  * The encoder implementation for the steganographic system.
+ * <p>
+ * The bits are embedded by carriers, see {@link Carrier}. Every carrier sends whole bytes with its own bit position
+ * and repeat counter, and only sends a new symbol if the player moved its field. Otherwise the field keeps its
+ * previous value. The {@link BitScheduler} hands out the bytes of the source in the order the carriers were added:
+ * the x and z coordinates of the optional position carrier (see {@link PositionCodec}), pitch, yaw and then any
+ * additional carriers. The decoder reads the carriers in the same order.
+ * <p>
+ * The synchronization preamble is sent on pitch and yaw. If the position carrier is enabled, a position packet without
+ * a rotation carries a synchronization move instead, so a player who only walks sends the preamble as well. The
+ * synchronization moves are spaced like the symbols of the position carrier, see {@link PositionCodec}.
  *
  * @author christoph.haas
  * @version 1.0.0
  * @since 1.8
  */
 public class Encoder {
-    private static final boolean PRINT_TO_STDOUT = true;
-
     private final MessageBuffer messageBuffer;
     private final String receiverName;
-    private final int[] stegoKey;
-    private final Random random = new Random(new Date().getTime());
+    private final PresenceListener presenceListener = player -> resetPending = true;
+    private PlayerTracker receiver;
+    private boolean trackerShared = false;
+    private volatile boolean resetPending = false; // the receiver left, set on the thread of the tracker
+    private final StegoKey stegoKey;
+    private final AngleCodec angleCodec = new AngleCodec();
     private final EncoderPacketLogger logger;
-
-    private int currentBytePosition = 0;
-    private int sendCounter = 0;
-    private int syncCountDown = SharedPreferences.SYNC_INTERVAL;
+    private final PacketSnapshot origPacket = new PacketSnapshot();
+    private final BitScheduler scheduler;
+    private final PositionCarrier xCarrier = new PositionCarrier(PositionCarrier.Axis.X);
+    private final PositionCarrier zCarrier = new PositionCarrier(PositionCarrier.Axis.Z);
+    private final PitchCarrier pitchCarrier;
+    private final YawCarrier yawCarrier;
+    private final BitScheduler.Lane xLane;
+    private final BitScheduler.Lane pitchLane;
+    private final BitScheduler.Lane yawLane;
+
+    private boolean printToStdout = true;
+    private int syncPacketsLeft = 0;
+    private LinkController linkController = new LinkController();
     private boolean initialized = false;
     private int initialGarbageCounter = 0;
     private boolean initialGarbageProcessed = false;
     private long firstConnMs = 0;
-    private Byte byteToSend = null;
-
-    private float pitchTrend = 0; // pos -> increasing, neg -> decreasing
-    private float yawTrend = 0;
-    CircularFifoQueue<Float> pitchHistory = new CircularFifoQueue<>(SharedPreferences.HISTORY_LENGTH);
-    CircularFifoQueue<Float> yawHistory = new CircularFifoQueue<>(SharedPreferences.HISTORY_LENGTH);
-    private float pitchOnWire = 0;
-    private float yawOnWire = 0;
-    private float validPitchOnWire = 0;
-    private float validYawOnWire = 0;
 
     /**
      * Constructor.
@@ -54,19 +64,120 @@ public class Encoder {
      * @param receiverName  the name of the decoding player.
      * @param stegoKey      the stegokey.
      */
-    public Encoder(MessageBuffer messageBuffer, String receiverName, int[] stegoKey) {
+    public Encoder(MessageBuffer messageBuffer, String receiverName, StegoKey stegoKey) {
+        this(messageBuffer, new MessageBufferSource(messageBuffer), receiverName, stegoKey);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param messageBuffer the message buffer instance. This buffer contains the secret message.
+     * @param source        the source of the bytes to send, e.g. a forward error correction stage.
+     * @param receiverName  the name of the decoding player.
+     * @param stegoKey      the stegokey.
+     */
+    public Encoder(MessageBuffer messageBuffer, EncoderSource source, String receiverName, StegoKey stegoKey) {
         this.messageBuffer = messageBuffer;
         this.receiverName = receiverName;
         this.stegoKey = stegoKey;
+        pitchCarrier = new PitchCarrier(stegoKey, angleCodec);
+        yawCarrier = new YawCarrier(stegoKey, angleCodec);
 
-        for (int i = 0; i < SharedPreferences.HISTORY_LENGTH; i++) {
-            pitchHistory.add(0.0f);
-            yawHistory.add(0.0f);
-        }
+        // the decoder reads the moves of a packet before its angles
+        scheduler = new BitScheduler(source);
+        xLane = scheduler.addCarrier(xCarrier);
+        scheduler.addCarrier(zCarrier);
+        pitchLane = scheduler.addCarrier(pitchCarrier);
+        yawLane = scheduler.addCarrier(yawCarrier);
+
+        // without a shared presence tracker the received packets are passed by receivePacket
+        receiver = new PlayerTracker(receiverName);
+        receiver.addListener(presenceListener);
 
         logger = new EncoderPacketLogger();
     }
 
+    /**
+     * Use the shared presence tracker to follow the receiver. The tracker has to be updated with the received packets.
+     *
+     * @param presenceTracker the presence tracker.
+     */
+    public void setPresenceTracker(PresenceTracker presenceTracker) {
+        receiver.removeListener(presenceListener);
+        receiver = presenceTracker.subscribe(receiverName, presenceListener);
+        trackerShared = true;
+    }
+
+    /**
+     * @return the tracker of the receiver.
+     */
+    public PlayerTracker getReceiver() {
+        return receiver;
+    }
+
+    /**
+     * Pass a received packet to the tracker of the receiver. Without a shared presence tracker the encoder does not
+     * see the lifecycle packets of the receiver otherwise, see {@link #setPresenceTracker(PresenceTracker)}.
+     *
+     * @param packet the incoming packet.
+     */
+    public void receivePacket(IPacket<?> packet) {
+        if (!trackerShared) {
+            receiver.update(packet);
+        }
+    }
+
+    /**
+     * Enable or disable the debug output on stdout.
+     *
+     * @param printToStdout true to print every processed packet.
+     */
+    public void setPrintToStdout(boolean printToStdout) {
+        this.printToStdout = printToStdout;
+        scheduler.setPrintToStdout(printToStdout);
+    }
+
+    /**
+     * Set the controller that adapts the repeat count and the synchronization interval. The new settings are applied
+     * at the next synchronization preamble.
+     *
+     * @param linkController the link controller.
+     */
+    public void setLinkController(LinkController linkController) {
+        this.linkController = linkController;
+    }
+
+    /**
+     * Set the number of bits that are embedded in every changed angle. The wire value modulo {@code 2^symbolBits}
+     * carries the bits, so more bits need larger angle adjustments. The decoder has to use the same setting.
+     *
+     * @param symbolBits the bits per angle, 1 to {@link SharedPreferences#MAX_SYMBOL_BITS}.
+     */
+    public void setSymbolBits(int symbolBits) {
+        pitchCarrier.setSymbolBits(symbolBits);
+        yawCarrier.setSymbolBits(symbolBits);
+    }
+
+    /**
+     * Enable the position carrier. The x and z coordinates of the position packets carry {@code positionBits} bits in
+     * every relative move, see {@link PositionCodec}. The decoder has to use the same setting.
+     *
+     * @param positionBits the bits per relative move, 0 to disable the carrier.
+     */
+    public void setPositionBits(int positionBits) {
+        xCarrier.setSymbolBits(positionBits);
+        zCarrier.setSymbolBits(positionBits);
+    }
+
+    /**
+     * Add a carrier behind the built-in ones. The decoder has to add the same carriers in the same order.
+     *
+     * @param carrier the carrier.
+     */
+    public void addCarrier(Carrier carrier) {
+        scheduler.addCarrier(carrier);
+    }
+
     /**
      * @return true if initialization of the encoder is completed.
      */
@@ -84,8 +195,11 @@ public class Encoder {
         if (currTimeMs > firstConnMs + INIT_DELAY_SENDER_MS) {
             initialized = true;
 
-            System.out.println("Init done! " + currTimeMs);
-            System.out.println("Sending: " + messageBuffer.toBitString());
+            if (printToStdout) {
+                // only the size, a spooled message buffer may hold more than fits into memory
+                System.out.println("Init done! " + currTimeMs);
+                System.out.println("Sending: " + messageBuffer.size() + " queued bytes");
+            }
             return true;
         }
 
@@ -98,15 +212,14 @@ public class Encoder {
      * @param packet the outgoing packet.
      */
     public void processPacket(IPacket<?> packet) {
-        if (!HelperUtil.isPlayerVisible(receiverName)) {
-            currentBytePosition = 0;
-            sendCounter = 0;
-            initialized = false;
-            initialGarbageCounter = 0;
-            initialGarbageProcessed = false;
-            firstConnMs = 0;
-            syncCountDown = SharedPreferences.SYNC_INTERVAL;
-
+        if (!trackerShared) {
+            receiver.refresh();
+        }
+        if (resetPending) {
+            resetPending = false;
+            reset();
+        }
+        if (!receiver.isPresent()) {
             return; // cannot process packet
         }
 
@@ -118,395 +231,179 @@ public class Encoder {
             return; // cannot process packet
         }
 
-        CPlayerPacket origPacket = HelperUtil.copyPacket((CPlayerPacket) packet, CPlayerPacket.class);
+        encodePacket((CPlayerPacket) packet);
+    }
+
+    /**
+     * The receiver left, the connection starts again with the initialization delay and the preamble.
+     */
+    private void reset() {
+        initialized = false;
+        initialGarbageCounter = 0;
+        initialGarbageProcessed = false;
+        firstConnMs = 0;
+        syncPacketsLeft = 0;
+        scheduler.setRepeatCount(linkController.getRepeatCount());
+        scheduler.reset(); // the bytes in flight are sent again
+    }
+
+    /**
+     * Embed the next bits into the given packet. This is the hot path of the encoder, it must not allocate memory
+     * if the debug output is disabled.
+     *
+     * @param packet the outgoing packet, the carried fields are updated in place.
+     */
+    void encodePacket(CPlayerPacket packet) {
+        if (logger.isEnabled()) {
+            origPacket.capture(packet);
+        }
         String packetType;
 
-        if (PRINT_TO_STDOUT) {
+        if (printToStdout) {
             System.out.println("-------------------------- Packet:");
         }
-        // Init byte to send
-        if (byteToSend == null) {
-            byteToSend = messageBuffer.get(); // read byte
+        scheduler.beginPacket();
+
+        boolean hasRotation = packet instanceof CPlayerPacket.RotationPacket ||
+                packet instanceof CPlayerPacket.PositionRotationPacket;
+        boolean positionSync = !hasRotation && xCarrier.getSymbolBits() > 0 && scheduler.isSettled();
+        if ((hasRotation || positionSync) && syncPacketsLeft == 0 && initialGarbageProcessed && scheduler.isIdle() &&
+                scheduler.isSyncDue()) {
+            syncPacketsLeft = PREAMBLE_LENGTH;
         }
 
-        byte bitPitch = getBit(currentBytePosition, byteToSend);
-        byte bitYaw = getBit(currentBytePosition + 1, byteToSend);
-
-
-        // Store original values
-        pitchHistory.add(((CPlayerPacket) packet).getPitch(0));
-        yawHistory.add(((CPlayerPacket) packet).getYaw(0));
-
-        assert ((CPlayerPacket) packet).getYaw(0) == getCurrentYaw();
-        assert ((CPlayerPacket) packet).getPitch(0) == getCurrentPitch();
-
-        calculateTrend();
-
-        if (PRINT_TO_STDOUT) {
-            /*System.out.println("Modifying packet: P = " + pitchHistory.get(SharedPreferences.HISTORY_LENGTH - 1) +
-                    " Y = " + yawHistory.get(SharedPreferences.HISTORY_LENGTH - 1));*/
-            System.out.println("Trend: P = " + pitchTrend + " Y = " + yawTrend);
-        }
-
-        // Calculate values to send
-        if (sendCounter == 0 && (syncCountDown == 0 || syncCountDown == 1 || syncCountDown == 2)) {
-            initialGarbageProcessed = true;
-            currentBytePosition = 0;
-            sendCounter = 0;
-            firstConnMs = 0;
-
-            if (syncCountDown == 0) {
-                syncCountDown = SharedPreferences.SYNC_INTERVAL;
-            } else {
-                syncCountDown--;
-            }
-
-            // sync packet: send either pitch or yaw from stego key
-            float pitchInStegoKey = getRandomPitchInStegoKey();
-            float yawInStegoKey = getRandomYawInStegoKey();
+        scheduler.embed(packet, syncPacketsLeft > 0 || !initialGarbageProcessed);
 
-            float pitchDiff = Math.abs(pitchInStegoKey - getCurrentPitch());
-            float yawDiff = Math.abs(yawInStegoKey - getCurrentYaw());
-            boolean randomizePitch = pitchDiff <= yawDiff;
-
-            if (randomizePitch) {
-                pitchOnWire = pitchInStegoKey;
-                if (!HelperUtil.arrayContains(stegoKey, HelperUtil.getWireValue(getCurrentYaw()))) {
-                    yawOnWire = getCurrentYaw() == null ? 0 : getCurrentYaw();
-                } else {
-                    yawOnWire = getYawNotInStegoKey();
-                }
-            } else {
-                yawOnWire = yawInStegoKey;
-                if (!HelperUtil.arrayContains(stegoKey, HelperUtil.getWireValue(getCurrentPitch()))) {
-                    pitchOnWire = getCurrentPitch() == null ? 0 : getCurrentPitch();
-                } else {
-                    pitchOnWire = getPitchNotInStegoKey();
-                }
-            }
-
-            if (PRINT_TO_STDOUT) {
-                System.out.println("Sync packet: P=" + HelperUtil.getWireValue(pitchOnWire) +
-                        " Y=" + HelperUtil.getWireValue(yawOnWire));
-            }
-            packetType = "sync" + (randomizePitch ? "_pitch" : "_yaw");
-        } else if (initialGarbageCounter <= stegoKey.length) {
-            // sync packet: send either pitch or yaw from stego key
-            float pitchInStegoKey = getRandomPitchInStegoKey();
-            float yawInStegoKey = getRandomYawInStegoKey();
-
-            float pitchDiff = Math.abs(pitchInStegoKey - getCurrentPitch());
-            float yawDiff = Math.abs(yawInStegoKey - getCurrentYaw());
-            boolean randomizePitch = pitchDiff <= yawDiff;
-
-            if (randomizePitch) {
-                pitchOnWire = pitchInStegoKey;
-                if (!HelperUtil.arrayContains(stegoKey, HelperUtil.getWireValue(getCurrentYaw()))) {
-                    yawOnWire = getCurrentYaw() == null ? 0 : getCurrentYaw();
-                } else {
-                    yawOnWire = getYawNotInStegoKey();
-                }
-            } else {
-                yawOnWire = yawInStegoKey;
-                if (!HelperUtil.arrayContains(stegoKey, HelperUtil.getWireValue(getCurrentPitch()))) {
-                    pitchOnWire = getCurrentPitch() == null ? 0 : getCurrentPitch();
-                } else {
-                    pitchOnWire = getPitchNotInStegoKey();
-                }
+        if (!hasRotation) {
+            packetType = "position";
+            if (positionSync && (syncPacketsLeft > 0 || !initialGarbageProcessed) && sendPositionSync(packet)) {
+                packetType = countSyncPacket() ? "sync_position" : "sync_initial_position";
             }
+            logger.logPacket(origPacket, packet, packetType, (byte) 0, (byte) 0, xLane.getSendCounter(),
+                    xLane.getPosition(), xLane.getValue());
+            scheduler.finishPacket();
+            return;
+        }
 
-            if (initialGarbageCounter < stegoKey.length) {
-                packetType = "sync_initial" + (randomizePitch ? "_pitch" : "_yaw");
-                initialGarbageCounter++;
-            } else if (!initialGarbageProcessed) {
-                packetType = "sync_initial" + (randomizePitch ? "_pitch" : "_yaw");
-                syncCountDown = 2; // send sync after initial garbage
-                initialGarbageCounter++;
-            } else {
-                packetType = "sync" + (randomizePitch ? "_pitch" : "_yaw");
-            }
+        if (printToStdout) {
+            System.out.println("Trend: P = " + pitchCarrier.getTrend() + " Y = " + yawCarrier.getTrend());
+        }
 
-            if (PRINT_TO_STDOUT) {
-                System.out.println("Sync packet: P=" + HelperUtil.getWireValue(pitchOnWire) +
-                        " Y=" + HelperUtil.getWireValue(yawOnWire) + " (" + (randomizePitch ? "pitch)" : "yaw)"));
-            }
-        } else {
-            if (sendCounter == 0) {
-                if (currentBytePosition == 0) {
-                    if (PRINT_TO_STDOUT) {
-                        System.out.println(">>>>>> Sending: char=" + (char) byteToSend.byteValue() + " byte=" + byteToSend +
-                                " binary=" + HelperUtil.byteToString(byteToSend));
+        if (syncPacketsLeft > 0 || !initialGarbageProcessed) {
+            boolean keyOnPitch = sendSyncPacket(packet);
+            if (countSyncPacket()) {
+                if (syncPacketsLeft == 0) {
+                    // the next valid packet moves the sync axis out of the stegokey
+                    if (keyOnPitch) {
+                        pitchCarrier.park();
+                    } else {
+                        yawCarrier.park();
                     }
                 }
-                pitchOnWire = roundToBitPitch(bitPitch);
-                yawOnWire = roundToBitYaw(bitYaw);
+                packetType = keyOnPitch ? "sync_pitch" : "sync_yaw";
             } else {
-                // re-send the previous data
-                pitchOnWire = randomizePitch(pitchOnWire);
-                yawOnWire = randomizeYaw(yawOnWire);
+                packetType = keyOnPitch ? "sync_initial_pitch" : "sync_initial_yaw";
             }
-
-            validPitchOnWire = pitchOnWire;
-            validYawOnWire = yawOnWire;
-
-            sendCounter++;
-            syncCountDown--;
-
-            if (PRINT_TO_STDOUT) {
-                System.out.println("Valid packet: P=" + HelperUtil.getWireValue(pitchOnWire) +
-                        " Y=" + HelperUtil.getWireValue(yawOnWire) + " | pos=" + currentBytePosition);
-                System.out.println("P = " + HelperUtil.getWireValue(pitchOnWire) + " | " + bitPitch + " | " + sendCounter + " | " + pitchHistory.get(SharedPreferences.HISTORY_LENGTH - 1) + " | " + pitchOnWire);
-                System.out.println("Y = " + HelperUtil.getWireValue(yawOnWire) + " | " + bitYaw + " | " + sendCounter + " | " + yawHistory.get(SharedPreferences.HISTORY_LENGTH - 1) + " | " + yawOnWire);
+        } else {
+            if (printToStdout) {
+                System.out.println("Valid packet: P=" + AngleCodec.toWire(pitchCarrier.getValidOnWire()) +
+                        " Y=" + AngleCodec.toWire(yawCarrier.getValidOnWire()) + " | pos=" + pitchLane.getPosition() +
+                        "|" + yawLane.getPosition());
+                System.out.println("P = " + pitchLane.getSymbol() + " | " + pitchLane.getSendCounter() + " | " +
+                        pitchCarrier.getCurrent() + " | " + pitchCarrier.getValidOnWire());
+                System.out.println("Y = " + yawLane.getSymbol() + " | " + yawLane.getSendCounter() + " | " +
+                        yawCarrier.getCurrent() + " | " + yawCarrier.getValidOnWire());
             }
             packetType = "valid";
         }
 
-        // Modify package
-        Field fieldPitch = HelperUtil.findUnderlyingField(packet.getClass(), "pitch");
-        Field fieldYaw = HelperUtil.findUnderlyingField(packet.getClass(), "yaw");
-
-        if (fieldPitch == null || fieldYaw == null) {
-            throw new RuntimeException("FATAL: fields not found in class!");
-        }
-
-        boolean wasAccessiblePitch = fieldPitch.isAccessible();
-        boolean wasAccessibleYaw = fieldYaw.isAccessible();
-        fieldPitch.setAccessible(true);
-        fieldYaw.setAccessible(true);
-        try {
-            fieldPitch.set(packet, pitchOnWire);
-            fieldYaw.set(packet, yawOnWire);
-        } catch (IllegalAccessException e) {
-            System.out.println("Failed to set fields: " + e.getMessage());
-        }
-
-        fieldPitch.setAccessible(wasAccessiblePitch);
-        fieldYaw.setAccessible(wasAccessibleYaw);
+        logger.logPacket(origPacket, packet, packetType, pitchLane.getSymbol(), yawLane.getSymbol(),
+                pitchLane.getSendCounter(), pitchLane.getPosition(), pitchLane.getValue());
 
-        logger.logPacket(origPacket, (CPlayerPacket) packet, packetType, bitPitch, bitYaw, sendCounter, currentBytePosition, byteToSend);
-
-        if (sendCounter > MIN_REPEAT_COUNT) {
-            sendCounter = 0;
-            currentBytePosition += 2;
-        }
-
-        if (currentBytePosition > 7) {
-            currentBytePosition = 0;
-            byteToSend = messageBuffer.get(); // remove the already sent entry
-        }
-    }
-
-    /**
-     * Extract the bit from the byte at a given position.
-     *
-     * @param position the bit position.
-     * @param b        the byte.
-     * @return the bit.
-     */
-    private byte getBit(int position, byte b) {
-        return (byte) ((b >> position) & 1);
+        scheduler.finishPacket();
     }
 
     /**
-     * Check if the packet is valid for embedding data.
+     * Count a sent synchronization packet. The initial garbage is followed by the preamble, the new settings of the
+     * link controller are applied after the preamble.
      *
-     * @param packet the outgoing packet.
-     * @return true if data can be embedded.
+     * @return true if the packet belongs to the preamble, false if it belongs to the initial garbage.
      */
-    private boolean isModifiablePacket(IPacket<?> packet) {
-        return packet instanceof CPlayerPacket.RotationPacket || packet instanceof CPlayerPacket.PositionRotationPacket;
-    }
-
-    /**
-     * @return a random yaw value that is included in the stegokey.
-     */
-    private float getRandomYawInStegoKey() {
-        // find best matching pitch in stegokey
-        byte currentYawWire = HelperUtil.getWireValue(getCurrentYaw());
-
-        int nearestStegoKeyValue = HelperUtil.findNearestNumber(stegoKey, currentYawWire, yawTrend >= 0);
-
-        return convertWireYaw((byte) nearestStegoKeyValue, getCurrentYaw());
-    }
-
-    /**
-     * @return a random pitch value that is included in the stegokey.
-     */
-    private float getRandomPitchInStegoKey() {
-        // find best matching pitch in stegokey
-        byte currentPitchWire = HelperUtil.getWireValue(getCurrentPitch());
-
-        int nearestStegoKeyValue = HelperUtil.findNearestNumber(stegoKey, currentPitchWire, pitchTrend >= 0);
-
-        return convertWirePitch((byte) nearestStegoKeyValue);
-    }
-
-    /**
-     * @return a random pitch value that is not included in the stegokey.
-     */
-    private Float getPitchNotInStegoKey() {
-        // find best matching pitch in stegokey
-        byte currentPitchWire = HelperUtil.getWireValue(getCurrentPitch());
-
-        if (!HelperUtil.arrayContains(stegoKey, currentPitchWire)) {
-            return getCurrentPitch();
-        }
-
-        if (pitchTrend >= 0) {
-            currentPitchWire += 1;
-        } else {
-            currentPitchWire -= 1;
-        }
-
-        // Pitch must be between -90 and 90 degrees!
-        if (currentPitchWire > 64) {
-            currentPitchWire = 64;
-        } else if (currentPitchWire < -64) {
-            currentPitchWire = -64;
-        }
-
-        return convertWirePitch(currentPitchWire);
-    }
-
-    /**
-     * @return a random yaw value that is not included in the stegokey.
-     */
-    private Float getYawNotInStegoKey() {
-        // find best matching pitch in stegokey
-        int currentYawWire = HelperUtil.getWireValueInt(getCurrentYaw());
-
-        if (!HelperUtil.arrayContains(stegoKey, (byte) currentYawWire)) {
-            return getCurrentYaw();
+    private boolean countSyncPacket() {
+        scheduler.markSync();
+        if (syncPacketsLeft == 0) {
+            if (initialGarbageCounter++ == stegoKey.size()) {
+                syncPacketsLeft = PREAMBLE_LENGTH; // send sync after initial garbage
+            }
+            return false;
         }
 
-        if (yawTrend >= 0) {
-            currentYawWire += 1;
-        } else {
-            currentYawWire -= 1;
+        initialGarbageProcessed = true;
+        firstConnMs = 0;
+        if (--syncPacketsLeft == 0) {
+            scheduler.setRepeatCount(linkController.getRepeatCount());
+            scheduler.setBytesUntilSync(2 * linkController.getBytesPerSync()); // two axes
         }
-
-        return convertWireYaw(currentYawWire);
+        return true;
     }
 
     /**
-     * Calculate the movement direction trend.
+     * Send a synchronization move on the moved coordinates of a position packet.
+     *
+     * @param packet the outgoing packet, the coordinates are updated in place.
+     * @return true if a coordinate carries the synchronization move, false if the player did not walk.
      */
-    private void calculateTrend() {
-        pitchTrend = 0;
-        yawTrend = 0;
-
-        for (int i = pitchHistory.maxSize() - 1; i > 0; --i) {
-            float p = pitchHistory.get(i) == null ? 0 : pitchHistory.get(i);
-            float pOld = pitchHistory.get(i - 1) == null ? 0 : pitchHistory.get(i - 1);
-            pitchTrend += (p - pOld) * 1 / i;
-        }
+    private boolean sendPositionSync(CPlayerPacket packet) {
+        boolean sent = xCarrier.sendSync(packet);
+        sent |= zCarrier.sendSync(packet);
 
-        for (int i = yawHistory.maxSize() - 1; i > 0; --i) {
-            float y = yawHistory.get(i) == null ? 0 : yawHistory.get(i);
-            float yOld = yawHistory.get(i - 1) == null ? 0 : yawHistory.get(i - 1);
-            yawTrend += (y - yOld) * 1 / i;
+        if (printToStdout && sent) {
+            System.out.println("Sync packet: X=" + packet.getX(0) + " Z=" + packet.getZ(0) + " (position)");
         }
+        return sent;
     }
 
     /**
-     * Get a float value for the given pitch byte.
-     * This is the main embedding method for pitch.
+     * Send a synchronization packet: either pitch or yaw, whichever is closer, gets a value from the stegokey. The
+     * other axis leaves the stegokey.
      *
-     * @param bit the pitch.
-     * @return a float value for pitch.
+     * @param packet the outgoing packet, the pitch and yaw values are updated in place.
+     * @return true if the pitch carries the stegokey value.
      */
-    private float roundToBitPitch(byte bit) {
-        byte pitchWire = HelperUtil.getWireValue(getCurrentPitch());
-        byte prevPitchWire = HelperUtil.getWireValue(validPitchOnWire);
-
-        boolean pitchChangeNeeded = (pitchWire % 2 == 0 && bit == 1) || (pitchWire % 2 != 0 && bit == 0);
-        if (pitchTrend >= 0) {
-            if (pitchChangeNeeded) {
-                pitchWire += 1;
-            }
+    private boolean sendSyncPacket(CPlayerPacket packet) {
+        float pitchInStegoKey = pitchCarrier.getKeyValue();
+        float yawInStegoKey = yawCarrier.getKeyValue();
 
-            // we need to have different values for every pitch we send
-            if (pitchWire == prevPitchWire) {
-                pitchWire += 2;
-            }
-            if (HelperUtil.arrayContains(stegoKey, pitchWire)) {
-                pitchWire += 2;
-            }
-        } else {
-            if (pitchChangeNeeded) {
-                pitchWire -= 1;
-            }
+        float pitchDiff = Math.abs(pitchInStegoKey - pitchCarrier.getCurrent());
+        float yawDiff = Math.abs(yawInStegoKey - yawCarrier.getCurrent());
+        boolean randomizePitch = pitchDiff <= yawDiff;
 
-            // we need to have different values for every pitch we send
-            if (pitchWire == prevPitchWire) {
-                pitchWire -= 2;
-            }
-            if (HelperUtil.arrayContains(stegoKey, pitchWire)) {
-                pitchWire -= 2;
-            }
+        if (randomizePitch) {
+            pitchCarrier.send(packet, pitchInStegoKey);
+            yawCarrier.send(packet, yawCarrier.getNonKeyValue());
+        } else {
+            yawCarrier.send(packet, yawInStegoKey);
+            pitchCarrier.send(packet, pitchCarrier.getNonKeyValue());
         }
 
-        // Pitch must be between -90 and 90 degrees!
-        if (pitchWire > 64) {
-            int diff = 2;
-            if (prevPitchWire - pitchWire == -2) {
-                diff = 4; // prev pitch has a distance of two, we need to subtract 4 in this case
-            }
-
-            pitchWire -= diff;
-        } else if (pitchWire < -64) {
-            int diff = 2;
-            if (prevPitchWire - pitchWire == 2) {
-                diff = 4; // prev pitch has a distance of two, we need to add 4 in this case
-            }
-
-            pitchWire += diff;
+        if (printToStdout) {
+            System.out.println("Sync packet: P=" + AngleCodec.toWire(pitchCarrier.getValidOnWire()) +
+                    " Y=" + AngleCodec.toWire(yawCarrier.getValidOnWire()) + " (" + (randomizePitch ? "pitch)" : "yaw)"));
         }
-
-        return convertWirePitch(pitchWire);
+        return randomizePitch;
     }
 
     /**
-     * Get a float value for the given yaw byte.
-     * This is the main embedding method for yaw.
+     * Check if the packet is valid for embedding data.
      *
-     * @param bit the yaw.
-     * @return a float value for yaw.
+     * @param packet the outgoing packet.
+     * @return true if data can be embedded.
      */
-    private float roundToBitYaw(byte bit) {
-        int yawWire = HelperUtil.getWireValueInt(getCurrentYaw());
-        int prevYawWire = HelperUtil.getWireValueInt(validYawOnWire);
-
-        boolean yawChangeNeeded = (yawWire % 2 == 0 && bit == 1) || (yawWire % 2 != 0 && bit == 0);
-        if (yawTrend >= 0) {
-            if (yawChangeNeeded) {
-                yawWire += 1;
-            }
-
-            // we need to have different values for every yaw we send
-            if (yawWire == prevYawWire) {
-                yawWire += 2;
-            }
-
-            if (HelperUtil.arrayContains(stegoKey, (byte) yawWire)) {
-                yawWire += 2;
-            }
-        } else {
-            if (yawChangeNeeded) {
-                yawWire -= 1;
-            }
-
-            // we need to have different values for every yaw we send
-            if (yawWire == prevYawWire) {
-                yawWire -= 2;
-            }
-
-            if (HelperUtil.arrayContains(stegoKey, (byte) yawWire)) {
-                yawWire -= 2;
-            }
+    private boolean isModifiablePacket(IPacket<?> packet) {
+        if (xCarrier.getSymbolBits() > 0 && packet instanceof CPlayerPacket.PositionPacket) {
+            return true;
         }
-
-        return convertWireYaw(yawWire);
+        return packet instanceof CPlayerPacket.RotationPacket || packet instanceof CPlayerPacket.PositionRotationPacket;
     }
 
     /**
@@ -516,9 +413,7 @@ public class Encoder {
      * @return the float value for pitch.
      */
     protected float convertWirePitch(byte wirePitch) {
-        float value = wirePitch * 360.0F / 256.0F;
-
-        return randomizePitch(value);
+        return angleCodec.randomPitch(wirePitch);
     }
 
     /**
@@ -528,8 +423,7 @@ public class Encoder {
      * @return the float value for yaw.
      */
     protected float convertWireYaw(int wireYaw) {
-        float value = wireYaw * 360.0F / 256.0F;
-        return randomizeYaw(value);
+        return angleCodec.randomYaw(wireYaw);
     }
 
     /**
@@ -540,51 +434,7 @@ public class Encoder {
      * @return the float value for yaw.
      */
     protected float convertWireYaw(byte wireYaw, float origYaw) {
-        int wireYawInt = HelperUtil.btoi(wireYaw);
-        int wireYawOrigInt = HelperUtil.getWireValueInt(origYaw);
-        int sign = 1;
-        if (origYaw < 0) {
-            wireYawInt -= 256;
-            sign = -1;
-        }
-
-        int multiplier = wireYawOrigInt / 256;
-
-        int wireYawInt1 = wireYawInt + 256 * multiplier;
-        int wireYawInt2 = wireYawInt + 256 * (multiplier - sign);
-        int wireYawInt3 = wireYawInt + 256 * (multiplier + sign);
-
-        int diff1 = Math.abs(wireYawOrigInt - wireYawInt1);
-        int diff2 = Math.abs(wireYawOrigInt - wireYawInt2);
-        int diff3 = Math.abs(wireYawOrigInt - wireYawInt3);
-
-        int min = Math.min(diff1, Math.min(diff2, diff3));
-
-        if (min == diff1) {
-            wireYawInt = wireYawInt1;
-        } else if (min == diff2) {
-            wireYawInt = wireYawInt2;
-        } else {
-            wireYawInt = wireYawInt3;
-        }
-
-        float value = wireYawInt * 360.0F / 256.0F;
-
-        return randomizeYaw(value);
-    }
-
-    /**
-     * @return the current yaw value.
-     */
-    private Float getCurrentYaw() {
-        return yawHistory.get(SharedPreferences.HISTORY_LENGTH - 1);
-    }
-
-    /**
-     * @return the current pitch value.
-     */
-    private Float getCurrentPitch() {
-        return pitchHistory.get(SharedPreferences.HISTORY_LENGTH - 1);
+        return angleCodec.randomYawNear(wireYaw, origYaw);
     }
 
     /**
@@ -595,19 +445,7 @@ public class Encoder {
      * @return the randomize value.
      */
     protected float randomizePitch(float value) {
-        int encodedValue = HelperUtil.getWireValueInt(value);
-
-        float min = encodedValue * 360.0F / 256.0F;
-        float max = ((encodedValue + 1) * 360.0F / 256.0F) - 0.000001F;
-
-        if (max > 90.0F) {
-            max = 90.0F;
-        }
-        if (min < -90.0F) {
-            min = -90.0F;
-        }
-
-        return min + random.nextFloat() * (max - min);
+        return angleCodec.randomPitch(AngleCodec.toWireInt(value));
     }
 
     /**
@@ -618,10 +456,6 @@ public class Encoder {
      * @return the randomize value.
      */
     protected float randomizeYaw(float value) {
-        int encodedValue = HelperUtil.getWireValueInt(value);
-
-        float min = encodedValue * 360.0F / 256.0F;
-        float max = ((encodedValue + 1) * 360.0F / 256.0F) - 0.0001F;
-        return min + random.nextFloat() * (max - min);
+        return angleCodec.randomYaw(AngleCodec.toWireInt(value));
     }
 }
@@ -0,0 +1,64 @@
+package at.ac.uibk.chaas.minesteg.steg;
+
+/**
+ * The source of the bytes that are embedded by the encoder.
+ *
+ * @author christoph.haas
+ * @version 1.0.0
+ * @since 1.8
+ */
+public interface EncoderSource {
+    /**
+     * @return the next byte to send. The byte is returned again until it is committed.
+     */
+    byte peek();
+
+    /**
+     * The byte that was returned by {@link #peek()} is being sent, the next call returns the following byte.
+     */
+    void commit();
+
+    /**
+     * The oldest committed byte was sent completely. Bytes are confirmed in the order they were committed.
+     */
+    default void confirm() {
+    }
+
+    /**
+     * The connection to the receiver was reset, bytes that depend on the receiver state have to be sent again. This
+     * includes all committed bytes that were not confirmed yet.
+     */
+    void reset();
+
+    /**
+     * @return true if the next byte starts a new frame. The encoder sends a synchronization preamble before it.
+     */
+    default boolean startsFrame() {
+        return true;
+    }
+
+    /**
+     * @return true if the next byte can be taken. A source that prepares its bytes on another thread may not have the
+     * next byte ready yet, see {@link PlannedEncoderSource}.
+     */
+    default boolean isReady() {
+        return true;
+    }
+
+    /**
+     * @return true if the byte returned by {@link #peek()} can be committed before the encoder took the previously
+     * committed bytes. A reset afterwards still has to send these bytes again, e.g. because the byte does not complete
+     * a frame. Padding is not committed ahead either.
+     */
+    default boolean canPlanAhead() {
+        return false;
+    }
+
+    /**
+     * @return true if the source needs a synchronization preamble before every frame. Otherwise the encoder may send
+     * several bytes between two preambles.
+     */
+    default boolean isFramed() {
+        return false;
+    }
+}
@@ -0,0 +1,115 @@
+package at.ac.uibk.chaas.minesteg.steg;
+
+/**
+ * A fixed size ring buffer for primitive float values with an incrementally maintained movement trend.
+ * <p>
+ * The trend is the linearly weighted average of the differences between consecutive values, the most recent
+ * difference has the highest weight. Adding a value updates the trend in O(1), independent of the history length.
+ *
+ * @author christoph.haas
+ * @version 1.0.0
+ * @since 1.8
+ */
+public class FloatHistory {
+    private final float[] values;
+    private final int diffCount;
+    private final double weightSum;
+
+    private int head = 0; // index of the oldest value
+    private int addCounter = 0;
+    private double diffSum = 0; // sum of all differences
+    private double weightedDiffSum = 0; // sum of all differences, multiplied by their weight
+
+    /**
+     * Constructor. The history is initially filled with zeros.
+     *
+     * @param capacity the number of values that are kept in the history.
+     */
+    public FloatHistory(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+
+        values = new float[capacity];
+        diffCount = capacity - 1;
+        weightSum = diffCount * (diffCount + 1) / 2.0;
+    }
+
+    /**
+     * Append a value to the history, the oldest value gets removed.
+     *
+     * @param value the new value.
+     */
+    public void add(float value) {
+        float latest = getLatest();
+        float oldest = values[head];
+        float secondOldest = get(diffCount > 0 ? 1 : 0);
+
+        values[head] = value;
+        head = (head + 1) % values.length;
+
+        if (diffCount == 0) {
+            return;
+        }
+
+        // recompute from scratch once per cycle so that rounding errors cannot accumulate
+        if (++addCounter >= values.length) {
+            addCounter = 0;
+            recalculate();
+            return;
+        }
+
+        double newDiff = value - latest;
+        weightedDiffSum += diffCount * newDiff - diffSum;
+        diffSum += newDiff - (secondOldest - oldest);
+    }
+
+    /**
+     * Get a value from the history.
+     *
+     * @param index the index, 0 is the oldest value.
+     * @return the value.
+     */
+    public float get(int index) {
+        return values[(head + index) % values.length];
+    }
+
+    /**
+     * @return the most recently added value.
+     */
+    public float getLatest() {
+        return get(values.length - 1);
+    }
+
+    /**
+     * @return the number of values in the history.
+     */
+    public int capacity() {
+        return values.length;
+    }
+
+    /**
+     * @return the movement trend. Positive values indicate increasing, negative values decreasing values.
+     */
+    public float getTrend() {
+        if (diffCount == 0) {
+            return 0;
+        }
+
+        return (float) (weightedDiffSum / weightSum);
+    }
+
+    /**
+     * Recalculate the trend sums from the stored values.
+     */
+    private void recalculate() {
+        diffSum = 0;
+        weightedDiffSum = 0;
+
+        for (int i = 1; i < values.length; i++) {
+            double diff = get(i) - get(i - 1);
+            diffSum += diff;
+            weightedDiffSum += i * diff;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package at.ac.uibk.chaas.minesteg.steg;
+
+import java.util.function.IntSupplier;
+
+/**
+ * Runs a polling step on a daemon thread, e.g. the decoder thread, the encoder planner and the shared memory bridge.
+ * <p>
+ * The step returns the amount of work it did. The runner calls it again at once while there is work and backs off
+ * exponentially while the step is idle, so an idle thread wakes up at most every maximum idle sleep milliseconds.
+ * If the step throws, the exception is printed and the thread stops.
+ *
+ * @author christoph.haas
+ * @version 1.0.0
+ * @since 1.8
+ */
+public class IdleBackoffRunner implements Runnable {
+    private final String name;
+    private final IntSupplier step;
+    private final long maxIdleSleepMs;
+    private volatile boolean running = false;
+    private volatile RuntimeException failure = null;
+    private Thread thread;
+
+    /**
+     * Constructor.
+     *
+     * @param name           the name of the thread.
+     * @param step           the polling step, returns the amount of work it did.
+     * @param maxIdleSleepMs the maximum sleep time in milliseconds while the step is idle.
+     */
+    public IdleBackoffRunner(String name, IntSupplier step, long maxIdleSleepMs) {
+        if (maxIdleSleepMs <= 0) {
+            throw new IllegalArgumentException("invalid max idle sleep: " + maxIdleSleepMs);
+        }
+
+        this.name = name;
+        this.step = step;
+        this.maxIdleSleepMs = maxIdleSleepMs;
+    }
+
+    /**
+     * Start the thread.
+     */
+    public void start() {
+        running = true;
+        thread = new Thread(this, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stop the thread.
+     */
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * @return true if the thread was started and neither stopped nor failed.
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return the exception that stopped the thread, null if the step did not fail.
+     */
+    public RuntimeException getFailure() {
+        return failure;
+    }
+
+    /**
+     * The polling loop.
+     */
+    @Override
+    public void run() {
+        long sleepMs = 1;
+
+        while (running) {
+            int work;
+            try {
+                work = step.getAsInt();
+            } catch (RuntimeException e) {
+                System.out.println(">>>>>> " + name + " STOPPED: " + e.getMessage());
+                e.printStackTrace();
+                failure = e;
+                running = false;
+                return;
+            }
+            if (work > 0) {
+                sleepMs = 1;
+                continue;
+            }
+
+            try {
+                Thread.sleep(sleepMs);
+            } catch (InterruptedException e) {
+                running = false;
+            }
+            sleepMs = Math.min(sleepMs * 2, maxIdleSleepMs);
+        }
+    }
+}
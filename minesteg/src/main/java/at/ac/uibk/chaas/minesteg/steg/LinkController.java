@@ -0,0 +1,163 @@
+package at.ac.uibk.chaas.minesteg.steg;
+
+/**
+ * Adapts the repeat count and the synchronization interval of the encoder to the observed loss.
+ * <p>
+ * Observations are collected in windows of {@link #EVALUATION_WINDOW} bytes or frames. If the loss in a window is
+ * low, the repeat count is lowered first, then the number of bytes between two synchronization preambles is doubled.
+ * If the loss is high, the controller backs off: the number of bytes per preamble is halved and the repeat count is
+ * raised. Both values stay within the configured bounds.
+ *
+ * @author christoph.haas
+ * @version 1.0.0
+ * @since 1.8
+ */
+public class LinkController {
+    public static final int EVALUATION_WINDOW = 32;
+    public static final double CLEAN_LOSS = 0.02;
+    public static final double DEGRADED_LOSS = 0.10;
+
+    private final int minRepeatCount;
+    private final int maxRepeatCount;
+    private final int maxBytesPerSync;
+
+    private volatile int repeatCount;
+    private volatile int bytesPerSync = 1;
+
+    private int windowDelivered = 0;
+    private int windowLost = 0;
+    private double lossRate = -1; // moving average over the windows, -1 until the first window is complete
+    private long delivered = 0;
+    private long lost = 0;
+    private long adjustments = 0;
+
+    /**
+     * Constructor for a controller that keeps the static settings of {@link SharedPreferences}.
+     */
+    public LinkController() {
+        this(SharedPreferences.MIN_REPEAT_COUNT, SharedPreferences.MIN_REPEAT_COUNT, 1);
+    }
+
+    /**
+     * Constructor. The controller starts with the most robust setting.
+     *
+     * @param minRepeatCount  the lowest repeat count.
+     * @param maxRepeatCount  the highest repeat count.
+     * @param maxBytesPerSync the highest number of bytes between two synchronization preambles.
+     */
+    public LinkController(int minRepeatCount, int maxRepeatCount, int maxBytesPerSync) {
+        if (minRepeatCount < 0 || maxRepeatCount < minRepeatCount || maxBytesPerSync < 1) {
+            throw new IllegalArgumentException("invalid link controller bounds: repeat=" + minRepeatCount + ".." +
+                    maxRepeatCount + ", bytes per sync=" + maxBytesPerSync);
+        }
+
+        this.minRepeatCount = minRepeatCount;
+        this.maxRepeatCount = maxRepeatCount;
+        this.maxBytesPerSync = maxBytesPerSync;
+        this.repeatCount = Math.max(minRepeatCount, Math.min(maxRepeatCount, SharedPreferences.MIN_REPEAT_COUNT));
+    }
+
+    /**
+     * @param count the number of bytes or frames that were received correctly.
+     */
+    public synchronized void recordDelivered(int count) {
+        delivered += count;
+        windowDelivered += count;
+        evaluate();
+    }
+
+    /**
+     * @param count the number of bytes or frames that were lost or corrupted.
+     */
+    public synchronized void recordLost(int count) {
+        lost += count;
+        windowLost += count;
+        evaluate();
+    }
+
+    /**
+     * @return how often every packet is sent again.
+     */
+    public int getRepeatCount() {
+        return repeatCount;
+    }
+
+    /**
+     * @return the number of bytes between two synchronization preambles.
+     */
+    public int getBytesPerSync() {
+        return bytesPerSync;
+    }
+
+    /**
+     * @return the loss rate of the recent windows.
+     */
+    public synchronized double getLossRate() {
+        return Math.max(0, lossRate);
+    }
+
+    /**
+     * @return the number of bytes or frames that were received correctly.
+     */
+    public synchronized long getDelivered() {
+        return delivered;
+    }
+
+    /**
+     * @return the number of bytes or frames that were lost.
+     */
+    public synchronized long getLost() {
+        return lost;
+    }
+
+    /**
+     * @return how often the settings were changed.
+     */
+    public synchronized long getAdjustments() {
+        return adjustments;
+    }
+
+    /**
+     * @return the current settings and measurements.
+     */
+    @Override
+    public synchronized String toString() {
+        return String.format("repeat=%d bytes/sync=%d loss=%.1f%% delivered=%d lost=%d adjustments=%d",
+                repeatCount, bytesPerSync, Math.max(0, lossRate) * 100, delivered, lost, adjustments);
+    }
+
+    /**
+     * Adapt the settings once the window is complete.
+     */
+    private void evaluate() {
+        int total = windowDelivered + windowLost;
+        if (total < EVALUATION_WINDOW) {
+            return;
+        }
+
+        double windowLoss = windowLost / (double) total;
+        lossRate = lossRate < 0 ? windowLoss : (lossRate + windowLoss) / 2;
+        windowDelivered = 0;
+        windowLost = 0;
+
+        int newRepeatCount = repeatCount;
+        int newBytesPerSync = bytesPerSync;
+        if (windowLoss <= CLEAN_LOSS) {
+            if (newRepeatCount > minRepeatCount) {
+                newRepeatCount--;
+            } else {
+                newBytesPerSync = Math.min(maxBytesPerSync, newBytesPerSync * 2);
+            }
+        } else if (windowLoss >= DEGRADED_LOSS) {
+            newBytesPerSync = Math.max(1, newBytesPerSync / 2);
+            newRepeatCount = Math.min(maxRepeatCount, newRepeatCount + 1);
+        }
+
+        if (newRepeatCount != repeatCount || newBytesPerSync != bytesPerSync) {
+            repeatCount = newRepeatCount;
+            bytesPerSync = newBytesPerSync;
+            adjustments++;
+            System.out.println("-------------------------- Link: " + this);
+        }
+    }
+}
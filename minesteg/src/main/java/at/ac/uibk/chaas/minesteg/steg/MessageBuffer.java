@@ -2,24 +2,55 @@ package at.ac.uibk.chaas.minesteg.steg;
 
 import at.ac.uibk.chaas.minesteg.HelperUtil;
 
-import java.util.LinkedList;
-
 /**
  * Thread safe FIFO Queue.
  * This queue is used to store the embedded/source secret message.
+ * <p>
+ * The bytes are stored in a linked list of fixed size primitive segments. Producers (push) and the consumer
+ * (get, read, drain) are guarded by separate locks and only share two volatile byte counters, so the RMI threads
+ * filling the buffer never block the network thread that is reading from it. Only the administrative methods that
+ * need a consistent view of the whole queue (clear, toBytes, toString) take both locks.
+ * <p>
+ * Every byte has an absolute stream offset (the number of bytes that were pushed before it). Observers like the
+ * message client can read from an offset without removing bytes and wait for new bytes to arrive.
  *
  * @author christoph.haas
  * @version 1.0.0
  * @since 1.8
  */
 public class MessageBuffer {
-    private LinkedList<Byte> byteFifoQueue = new LinkedList<>();
+    private static final int SEGMENT_SIZE = 4096;
+
+    protected final Object producerLock = new Object();
+    protected final Object consumerLock = new Object();
+    private final Object dataSignal = new Object();
+
+    // producer state, guarded by producerLock
+    private Segment tail;
+    private int tailOffset = 0;
+
+    // consumer state, guarded by consumerLock
+    private Segment head;
+    private int headOffset = 0;
+
+    private volatile long pushedCount = 0; // total number of bytes ever pushed
+    private volatile long removedCount = 0; // total number of bytes ever removed
+    private volatile int waiterCount = 0; // number of threads waiting for new data, guarded by dataSignal
+    private volatile boolean escaped = false; // true if received bytes are written escaped, see MessageBufferSink
+
+    /**
+     * A fixed size block of queued bytes.
+     */
+    private static final class Segment {
+        final byte[] data = new byte[SEGMENT_SIZE];
+        volatile Segment next;
+    }
 
     /**
      * Constructor.
      */
     public MessageBuffer() {
-
+        head = tail = new Segment();
     }
 
     /**
@@ -28,29 +59,103 @@ public class MessageBuffer {
      * @param msg initialize the queue with the given message.
      */
     public MessageBuffer(String msg) {
+        this();
         push(msg);
     }
 
     /**
      * @return the first byte in the queue and remove it.
      */
-    public synchronized byte get() {
-        if (byteFifoQueue.isEmpty()) {
-            return 0; // by default get a null byte
-        }
+    public byte get() {
+        synchronized (consumerLock) {
+            if (pushedCount == removedCount) {
+                return 0; // by default get a null byte
+            }
 
-        return byteFifoQueue.removeFirst();
+            byte b = peekFirst();
+            headOffset++;
+            removedCount++;
+
+            return b;
+        }
     }
 
     /**
      * @return the first byte in the queue but keep it queued.
      */
-    public synchronized byte read() {
-        if (byteFifoQueue.isEmpty()) {
-            return 0; // by default get a null byte
+    public byte read() {
+        synchronized (consumerLock) {
+            if (pushedCount == removedCount) {
+                return 0; // by default get a null byte
+            }
+
+            return peekFirst();
+        }
+    }
+
+    /**
+     * @return the first byte in the queue as unsigned value (0-255) but keep it queued, -1 if the queue is empty.
+     */
+    public int peek() {
+        synchronized (consumerLock) {
+            if (pushedCount == removedCount) {
+                return -1;
+            }
+
+            return peekFirst() & 0xFF;
+        }
+    }
+
+    /**
+     * Remove up to len bytes from the queue.
+     *
+     * @param dst the destination array.
+     * @param off the offset in the destination array.
+     * @param len the maximum number of bytes to remove.
+     * @return the number of bytes that were copied to the destination array.
+     */
+    public int drain(byte[] dst, int off, int len) {
+        synchronized (consumerLock) {
+            int count = (int) Math.min(len, pushedCount - removedCount);
+
+            copyFromHead(dst, off, count, true);
+            removedCount += count;
+
+            return count;
         }
+    }
+
+    /**
+     * Remove up to len bytes from the queue if the first queued byte still has the given stream offset. Bytes that
+     * were read with {@link #readFrom(long, byte[], int, int)} before the queue was cleared are not removed, so a
+     * cleared byte does not take the place of a new one.
+     *
+     * @param offset the stream offset of the first byte to remove.
+     * @param len    the maximum number of bytes to remove.
+     * @return the number of bytes that were removed, 0 if the first queued byte has another offset.
+     */
+    public int remove(long offset, int len) {
+        synchronized (consumerLock) {
+            if (offset != removedCount) {
+                return 0;
+            }
+
+            int count = (int) Math.min(len, pushedCount - removedCount);
+            int remaining = count;
+            while (remaining > 0) {
+                if (headOffset == SEGMENT_SIZE) {
+                    head = head.next;
+                    headOffset = 0;
+                }
+
+                int chunk = Math.min(remaining, SEGMENT_SIZE - headOffset);
+                headOffset += chunk;
+                remaining -= chunk;
+            }
+            removedCount += count;
 
-        return byteFifoQueue.getFirst();
+            return count;
+        }
     }
 
     /**
@@ -58,28 +163,61 @@ public class MessageBuffer {
      *
      * @param b the byte.
      */
-    public synchronized void push(byte b) {
-        byteFifoQueue.add(b);
+    public void push(byte b) {
+        synchronized (producerLock) {
+            ensureTailCapacity();
+            tail.data[tailOffset++] = b;
+            pushedCount++;
+        }
+        signalWaiters();
+    }
+
+    /**
+     * Append the given bytes to the queue.
+     *
+     * @param src the source array.
+     * @param off the offset in the source array.
+     * @param len the number of bytes to append.
+     */
+    public void push(byte[] src, int off, int len) {
+        synchronized (producerLock) {
+            int remaining = len;
+            while (remaining > 0) {
+                ensureTailCapacity();
+
+                int count = Math.min(remaining, SEGMENT_SIZE - tailOffset);
+                System.arraycopy(src, off, tail.data, tailOffset, count);
+
+                tailOffset += count;
+                off += count;
+                remaining -= count;
+            }
+            pushedCount += len;
+        }
+        signalWaiters();
     }
 
     /**
      * Add a ascii string to the queue.
      *
-     * @param str
+     * @param str the string.
      */
-    public synchronized void push(String str) {
-        for (char c : str.toCharArray()) {
-            push((byte) c);
+    public void push(String str) {
+        byte[] bytes = new byte[str.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) str.charAt(i);
         }
+
+        push(bytes, 0, bytes.length);
     }
 
     /**
      * @return the byte queue as string.
      */
-    public synchronized String toString() {
+    public String toString() {
         StringBuilder out = new StringBuilder();
 
-        for (byte b : byteFifoQueue) {
+        for (byte b : toBytes()) {
             out.append((char) b);
         }
 
@@ -89,23 +227,24 @@ public class MessageBuffer {
     /**
      * @return the byte queue as byte array.
      */
-    public synchronized byte[] toBytes() {
-        byte[] bytes = new byte[byteFifoQueue.size()];
+    public byte[] toBytes() {
+        synchronized (producerLock) {
+            synchronized (consumerLock) {
+                byte[] bytes = new byte[(int) (pushedCount - removedCount)];
+                copyFromHead(bytes, 0, bytes.length, false);
 
-        for (int i = 0; i < byteFifoQueue.size(); ++i) {
-            bytes[i] = byteFifoQueue.get(i);
+                return bytes;
+            }
         }
-
-        return bytes;
     }
 
     /**
      * @return the byte queue as string in binary representation.
      */
-    public synchronized String toBitString() {
+    public String toBitString() {
         StringBuilder out = new StringBuilder();
 
-        for (byte b : byteFifoQueue) {
+        for (byte b : toBytes()) {
             out.append(HelperUtil.byteToString(b));
         }
 
@@ -116,13 +255,195 @@ public class MessageBuffer {
      * @return the current size of the queue.
      */
     public int size() {
-        return byteFifoQueue.size();
+        long removed = removedCount; // read removed first, pushed can only be bigger afterwards
+        return (int) (pushedCount - removed);
+    }
+
+    /**
+     * Clear the queue. The stream offsets are kept, so the cleared bytes cannot be removed with
+     * {@link #remove(long, int)} any more.
+     */
+    public void clear() {
+        synchronized (producerLock) {
+            synchronized (consumerLock) {
+                head = tail = new Segment();
+                headOffset = 0;
+                tailOffset = 0;
+                removedCount = pushedCount;
+            }
+        }
+    }
+
+    /**
+     * @return the stream offset of the first queued byte.
+     */
+    public long getReadOffset() {
+        return removedCount;
     }
 
     /**
-     * Clear the queue.
+     * @return the stream offset after the last queued byte.
      */
-    public synchronized void clear() {
-        byteFifoQueue.clear();
+    public long getWriteOffset() {
+        return pushedCount;
+    }
+
+    /**
+     * @param escaped true if the buffer holds received bytes that are escaped by a {@link MessageBufferSink}.
+     */
+    public void setEscaped(boolean escaped) {
+        this.escaped = escaped;
+    }
+
+    /**
+     * @return true if the buffer holds received bytes that are escaped by a {@link MessageBufferSink}.
+     */
+    public boolean isEscaped() {
+        return escaped;
+    }
+
+    /**
+     * Copy queued bytes starting at the given stream offset without removing them.
+     *
+     * @param offset the stream offset of the first byte to copy.
+     * @param dst    the destination array.
+     * @param off    the offset in the destination array.
+     * @param len    the maximum number of bytes to copy.
+     * @return the number of bytes that were copied, -1 if the bytes at the offset were already removed.
+     */
+    public int readFrom(long offset, byte[] dst, int off, int len) {
+        Segment segment;
+        int segmentOffset;
+        int count;
+        synchronized (consumerLock) {
+            if (offset < removedCount) {
+                return -1;
+            }
+
+            count = (int) Math.max(0, Math.min(len, pushedCount - offset));
+            if (count == 0) {
+                return 0;
+            }
+
+            segment = head;
+            long position = headOffset + (offset - removedCount);
+            while (position >= SEGMENT_SIZE) {
+                segment = segment.next;
+                position -= SEGMENT_SIZE;
+            }
+            segmentOffset = (int) position;
+        }
+
+        // pushed bytes are never overwritten, so the consumer is not blocked while the bytes are copied
+        int remaining = count;
+        while (remaining > 0) {
+            if (segmentOffset == SEGMENT_SIZE) {
+                segment = segment.next;
+                segmentOffset = 0;
+            }
+
+            int chunk = Math.min(remaining, SEGMENT_SIZE - segmentOffset);
+            System.arraycopy(segment.data, segmentOffset, dst, off, chunk);
+
+            segmentOffset += chunk;
+            off += chunk;
+            remaining -= chunk;
+        }
+
+        return count;
+    }
+
+    /**
+     * Wait until bytes beyond the given stream offset are available.
+     *
+     * @param offset    the stream offset.
+     * @param timeoutMs the maximum time to wait in milliseconds.
+     * @return true if new bytes are available.
+     * @throws InterruptedException if the thread was interrupted while waiting.
+     */
+    public boolean awaitData(long offset, long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+
+        synchronized (dataSignal) {
+            waiterCount++;
+            try {
+                long remaining = timeoutMs;
+                while (getWriteOffset() <= offset && remaining > 0) {
+                    dataSignal.wait(remaining);
+                    remaining = deadline - System.currentTimeMillis();
+                }
+            } finally {
+                waiterCount--;
+            }
+        }
+
+        return getWriteOffset() > offset;
+    }
+
+    /**
+     * Wake up all threads that are waiting for new data. Must be called after the write offset was advanced.
+     */
+    protected final void signalWaiters() {
+        if (waiterCount > 0) { // cheap check, the producers do not touch the monitor if nobody is waiting
+            synchronized (dataSignal) {
+                dataSignal.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Append a new segment if the current tail segment is full. Must be called with the producer lock.
+     */
+    private void ensureTailCapacity() {
+        if (tailOffset == SEGMENT_SIZE) {
+            Segment segment = new Segment();
+            tail.next = segment;
+            tail = segment;
+            tailOffset = 0;
+        }
+    }
+
+    /**
+     * @return the first queued byte. Must be called with the consumer lock on a non empty queue.
+     */
+    private byte peekFirst() {
+        if (headOffset == SEGMENT_SIZE) {
+            head = head.next;
+            headOffset = 0;
+        }
+
+        return head.data[headOffset];
+    }
+
+    /**
+     * Copy bytes from the head of the queue. Must be called with the consumer lock.
+     *
+     * @param dst    the destination array.
+     * @param off    the offset in the destination array.
+     * @param len    the number of bytes to copy, at most the current queue size.
+     * @param remove true if the head position should be advanced.
+     */
+    private void copyFromHead(byte[] dst, int off, int len, boolean remove) {
+        Segment segment = head;
+        int offset = headOffset;
+
+        while (len > 0) {
+            if (offset == SEGMENT_SIZE) {
+                segment = segment.next;
+                offset = 0;
+            }
+
+            int count = Math.min(len, SEGMENT_SIZE - offset);
+            System.arraycopy(segment.data, offset, dst, off, count);
+
+            offset += count;
+            off += count;
+            len -= count;
+        }
+
+        if (remove) {
+            head = segment;
+            headOffset = offset;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,123 @@
+package at.ac.uibk.chaas.minesteg.steg;
+
+import at.ac.uibk.chaas.messageclient.rmi.MessageChunk;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Appends the received bytes to the message buffer without any decoding. Lost bytes are marked with 0xff.
+ * <p>
+ * A received 0xff is escaped, so it can be told apart from the marker: it is appended as 0xff 0xff and a lost byte
+ * as 0xff 0x00. The bytes are decoded when they leave the message buffer, see {@link #decode(long, byte[], int, int)}.
+ * The number of lost bytes is counted as well, see {@link #getErasures()}.
+ *
+ * @author christoph.haas
+ * @version 1.0.0
+ * @since 1.8
+ */
+public class MessageBufferSink implements DecoderSink {
+    public static final byte MARKER = (byte) 0xff;
+    private static final byte LOST = 0x00;
+
+    private final MessageBuffer messageBuffer;
+    private final byte[] pair = new byte[2]; // an escaped byte is appended at once, so readers never see half of it
+    private volatile long erasures = 0; // only written by the decoder
+
+    /**
+     * Constructor.
+     *
+     * @param messageBuffer the message buffer instance, its bytes are escaped from now on.
+     */
+    public MessageBufferSink(MessageBuffer messageBuffer) {
+        this.messageBuffer = messageBuffer;
+        messageBuffer.setEscaped(true);
+    }
+
+    /**
+     * @param b the byte.
+     */
+    @Override
+    public void push(byte b) {
+        if (b == MARKER) {
+            pushEscaped(MARKER);
+        } else {
+            messageBuffer.push(b);
+        }
+    }
+
+    /**
+     * Add a marker byte to show the transmission error.
+     */
+    @Override
+    @SuppressWarnings("NonAtomicOperationOnVolatileField") // only the decoder counts the erasures
+    public void pushErasure() {
+        pushEscaped(LOST);
+        erasures++;
+    }
+
+    /**
+     * Nothing to do.
+     */
+    @Override
+    public void reset() {
+    }
+
+    /**
+     * @return the number of marker bytes that stand for lost bytes.
+     */
+    public long getErasures() {
+        return erasures;
+    }
+
+    /**
+     * Decode the escaped bytes of the message buffer.
+     *
+     * @param offset  the stream offset of the first escaped byte, it has to start a byte.
+     * @param escaped the escaped bytes.
+     * @param len     the number of escaped bytes.
+     * @param maxLen  the maximum number of decoded bytes.
+     * @return the decoded bytes, lost bytes are 0xff and marked as lost. An escaped byte that is cut off at the end is
+     * left for the next read.
+     */
+    public static MessageChunk decode(long offset, byte[] escaped, int len, int maxLen) {
+        byte[] data = new byte[Math.min(len, maxLen)];
+        BitSet lost = null;
+        int count = 0;
+        int position = 0;
+
+        while (position < len && count < data.length) {
+            byte b = escaped[position];
+            if (b != MARKER) {
+                data[count++] = b;
+                position++;
+                continue;
+            }
+            if (position + 1 == len) {
+                break;
+            }
+
+            if (escaped[position + 1] == LOST) {
+                if (lost == null) {
+                    lost = new BitSet();
+                }
+                lost.set(count);
+            }
+            data[count++] = MARKER;
+            position += 2;
+        }
+
+        return new MessageChunk(offset, offset + position, count == data.length ? data : Arrays.copyOf(data, count), lost);
+    }
+
+    /**
+     * Append the marker and the given byte.
+     *
+     * @param b the byte after the marker.
+     */
+    private void pushEscaped(byte b) {
+        pair[0] = MARKER;
+        pair[1] = b;
+        messageBuffer.push(pair, 0, 2);
+    }
+}
@@ -0,0 +1,102 @@
+package at.ac.uibk.chaas.minesteg.steg;
+
+/**
+ * Sends the bytes of the message buffer without any coding. Null bytes are sent if the buffer is empty.
+ * <p>
+ * Committed bytes stay queued in the message buffer until they are confirmed, so they can be sent again after a
+ * reset. A confirmed byte is removed by its stream offset, a byte that was cleared in the meantime is not removed
+ * again and the next queued byte stays unsent.
+ *
+ * @author christoph.haas
+ * @version 1.0.0
+ * @since 1.8
+ */
+public class MessageBufferSource implements EncoderSource {
+    private static final long NOT_QUEUED = -1;
+    // a framing source confirms its payload once the frame was sent or acknowledged, e.g. a full ARQ window
+    private static final int MAX_UNCONFIRMED = 4096;
+
+    private final MessageBuffer messageBuffer;
+    private final byte[] scratch = new byte[1];
+    private final long[] committedOffsets = new long[MAX_UNCONFIRMED]; // buffer offsets of the committed bytes, a ring
+    private long takenOffset;  // buffer offset of the next byte to take
+    private int firstCommitted = 0; // ring index of the oldest committed byte
+    private int committed = 0; // committed but not confirmed bytes
+    private boolean byteQueued = false; // true if the peeked byte is queued in the message buffer
+
+    /**
+     * Constructor.
+     *
+     * @param messageBuffer the message buffer instance.
+     */
+    public MessageBufferSource(MessageBuffer messageBuffer) {
+        this.messageBuffer = messageBuffer;
+    }
+
+    /**
+     * @return the first byte of the message buffer that was not committed yet.
+     */
+    @Override
+    public byte peek() {
+        takenOffset = Math.max(takenOffset, messageBuffer.getReadOffset()); // the buffer might have been cleared
+        byteQueued = messageBuffer.readFrom(takenOffset, scratch, 0, 1) == 1;
+
+        return byteQueued ? scratch[0] : 0;
+    }
+
+    /**
+     * Take the peeked byte, it stays in the message buffer until it is confirmed.
+     */
+    @Override
+    public void commit() {
+        if (committed == committedOffsets.length) {
+            throw new RuntimeException("FATAL: too many unconfirmed bytes!");
+        }
+
+        int index = (firstCommitted + committed) % committedOffsets.length;
+        if (byteQueued) {
+            committedOffsets[index] = takenOffset;
+            takenOffset++;
+            byteQueued = false;
+        } else {
+            committedOffsets[index] = NOT_QUEUED;
+        }
+        committed++;
+    }
+
+    /**
+     * @return true if the peeked byte is queued in the message buffer, a reset sends it again.
+     */
+    @Override
+    public boolean canPlanAhead() {
+        return byteQueued;
+    }
+
+    /**
+     * Remove the oldest sent byte from the message buffer.
+     */
+    @Override
+    public void confirm() {
+        if (committed == 0) {
+            return;
+        }
+
+        long offset = committedOffsets[firstCommitted];
+        firstCommitted = (firstCommitted + 1) % committedOffsets.length;
+        committed--;
+
+        if (offset != NOT_QUEUED) {
+            messageBuffer.remove(offset, 1); // remove the already sent entry, unless the buffer was cleared
+        }
+    }
+
+    /**
+     * Send all unconfirmed bytes again.
+     */
+    @Override
+    public void reset() {
+        takenOffset = messageBuffer.getReadOffset();
+        committed = 0;
+        byteQueued = false;
+    }
+}
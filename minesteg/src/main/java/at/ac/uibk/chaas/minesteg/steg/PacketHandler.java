@@ -23,8 +23,10 @@ public class PacketHandler {
      */
     // update packet in place!
     public static void send(IPacket<?> packetIn) {
-        if (StegoSystem.getInstance().isSender() && "true".equalsIgnoreCase(StegoSystem.getInstance().getConfigVar("minesteg.enabled"))) {
-            StegoSystem.getInstance().getEncoder().processPacket(packetIn);
+        // in ARQ mode both sides run an encoder and a decoder
+        Encoder encoder = StegoSystem.getInstance().getEncoder();
+        if (encoder != null && "true".equalsIgnoreCase(StegoSystem.getInstance().getConfigVar("minesteg.enabled"))) {
+            encoder.processPacket(packetIn);
         }
 
         if ("true".equalsIgnoreCase(StegoSystem.getInstance().getConfigVar("minesteg.analyze.logsteg.send"))) {
@@ -42,8 +44,16 @@ public class PacketHandler {
      * @param packetIn the received packet.
      */
     public static void receive(IPacket<?> packetIn) {
-        if (!StegoSystem.getInstance().isSender() && "true".equalsIgnoreCase(StegoSystem.getInstance().getConfigVar("minesteg.enabled"))) {
-            StegoSystem.getInstance().getDecoder().processPacket(packetIn);
+        // the presence of the peers is needed by the encoder, the decoder and the dumper
+        StegoSystem.getInstance().getPresenceTracker().update(packetIn);
+        Encoder encoder = StegoSystem.getInstance().getEncoder();
+        if (encoder != null) {
+            encoder.receivePacket(packetIn);
+        }
+
+        Decoder decoder = StegoSystem.getInstance().getDecoder();
+        if (decoder != null && "true".equalsIgnoreCase(StegoSystem.getInstance().getConfigVar("minesteg.enabled"))) {
+            decoder.processPacket(packetIn);
         }
 
         if ("true".equalsIgnoreCase(StegoSystem.getInstance().getConfigVar("minesteg.analyze.logsteg.receive"))) {
@@ -0,0 +1,122 @@
+package at.ac.uibk.chaas.minesteg.steg;
+
+import net.minecraft.network.IPacket;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A preallocated ring that hands over the received packets of the sender from the network thread to the decoder
+ * thread, see {@link DecoderThread}.
+ * <p>
+ * The ring has a single producer and a single consumer. The handoff is lock-free: each side only writes its own
+ * position and publishes it after the slot was written or cleared. The relayed packets are not modified after they
+ * were read from the network, so the slot holds the packet itself together with its receive time. A slot without a
+ * packet marks a reset of the connection, it keeps the order of the resets and the packets.
+ *
+ * @author christoph.haas
+ * @version 1.0.0
+ * @since 1.8
+ */
+public class PacketRing {
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private final IPacket<?>[] packets;
+    private final long[] timesMs;
+    private final int mask;
+    private final AtomicLong writePosition = new AtomicLong();
+    private final AtomicLong readPosition = new AtomicLong();
+    private long cachedReadPosition = 0;      // producer only
+    private volatile long droppedPackets = 0; // producer only, read by the debug screen
+    private long polledTimeMs = 0;            // consumer only
+
+    /**
+     * Constructor.
+     *
+     * @param capacity the number of slots, a power of two.
+     */
+    public PacketRing(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("invalid capacity: " + capacity);
+        }
+        packets = new IPacket<?>[capacity];
+        timesMs = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Add a packet. Called by the producer only.
+     *
+     * @param packet the packet, null to mark a reset.
+     * @param timeMs the receive time of the packet.
+     * @return true if the packet was added, false if the ring is full and the packet was dropped.
+     */
+    @SuppressWarnings("NonAtomicOperationOnVolatileField") // only the producer counts the dropped packets
+    public boolean offer(IPacket<?> packet, long timeMs) {
+        long position = writePosition.get();
+        if (position - cachedReadPosition > mask) {
+            cachedReadPosition = readPosition.get();
+            if (position - cachedReadPosition > mask) {
+                droppedPackets++;
+                return false;
+            }
+        }
+
+        int slot = (int) position & mask;
+        packets[slot] = packet;
+        timesMs[slot] = timeMs;
+        writePosition.lazySet(position + 1);
+        return true;
+    }
+
+    /**
+     * Mark a reset of the connection. Called by the producer only.
+     *
+     * @return true if the mark was added, false if the ring is full.
+     */
+    public boolean offerReset() {
+        return offer(null, System.currentTimeMillis());
+    }
+
+    /**
+     * @return true if the ring has no entry for the consumer.
+     */
+    public boolean isEmpty() {
+        return readPosition.get() == writePosition.get();
+    }
+
+    /**
+     * Remove the oldest entry. Called by the consumer only, the ring must not be empty.
+     *
+     * @return the packet, or null if the entry marks a reset.
+     */
+    public IPacket<?> poll() {
+        long position = readPosition.get();
+        int slot = (int) position & mask;
+        IPacket<?> packet = packets[slot];
+        polledTimeMs = timesMs[slot];
+        packets[slot] = null; // do not keep the packet alive
+        readPosition.lazySet(position + 1);
+        return packet;
+    }
+
+    /**
+     * @return the receive time of the entry that was polled last.
+     */
+    public long getPolledTimeMs() {
+        return polledTimeMs;
+    }
+
+    /**
+     * @return the number of packets that were dropped because the consumer fell behind.
+     */
+    public long getDroppedPackets() {
+        return droppedPackets;
+    }
+
+    /**
+     * @return the number of slots.
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+}
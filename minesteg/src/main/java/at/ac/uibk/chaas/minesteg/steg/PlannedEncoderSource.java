@@ -0,0 +1,203 @@
+package at.ac.uibk.chaas.minesteg.steg;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prepares the bytes of an upstream source on a planner thread, e.g. the framing and the forward error correction.
+ * <p>
+ * The planner takes the bytes of the upstream source ahead of the encoder and stores them in a bounded lookahead
+ * ring, together with the frame starts. The send path only takes the prepared bytes, if no byte is ready the encoder
+ * keeps its carriers idle for this packet. The ring has a single producer and a single consumer, each side only writes
+ * its own position.
+ * <p>
+ * The upstream source is only used by the planner thread. The confirmations and the resets of the encoder are counted
+ * and applied by the planner before it prepares the next byte. A byte is only taken ahead if the upstream source
+ * allows it, see {@link EncoderSource#canPlanAhead()}, so a reset sends the same bytes again as without the planner.
+ * The bytes that were prepared before a reset are skipped. If the upstream source fails, the planner thread stops
+ * and the encoder keeps its carriers idle, see {@link IdleBackoffRunner}.
+ *
+ * @author christoph.haas
+ * @version 1.0.0
+ * @since 1.8
+ */
+public class PlannedEncoderSource implements EncoderSource {
+    public static final int DEFAULT_LOOKAHEAD = 8;
+    static final long MAX_IDLE_SLEEP_MS = 10;
+
+    private final EncoderSource upstream;
+    private final byte[] values;
+    private final boolean[] frameStarts;
+    private final int[] generations;
+    private final int mask;
+    private final AtomicLong writePosition = new AtomicLong();
+    private final AtomicLong readPosition = new AtomicLong();
+    private final AtomicLong requestedConfirms = new AtomicLong();
+    private volatile int generation = 0; // incremented by the resets of the encoder
+
+    // planner only
+    private long appliedConfirms = 0;
+    private int plannedGeneration = 0;
+    private int unconfirmed = 0; // bytes committed to the upstream source and not confirmed yet
+
+    private final IdleBackoffRunner runner = new IdleBackoffRunner("EncoderPlanner", this::plan, MAX_IDLE_SLEEP_MS);
+
+    /**
+     * Constructor.
+     *
+     * @param upstream  the source of the bytes.
+     * @param lookahead the number of bytes that are prepared ahead, a power of two.
+     */
+    public PlannedEncoderSource(EncoderSource upstream, int lookahead) {
+        if (lookahead <= 0 || Integer.bitCount(lookahead) != 1) {
+            throw new IllegalArgumentException("invalid lookahead: " + lookahead);
+        }
+
+        this.upstream = upstream;
+        this.values = new byte[lookahead];
+        this.frameStarts = new boolean[lookahead];
+        this.generations = new int[lookahead];
+        this.mask = lookahead - 1;
+    }
+
+    /**
+     * Start the planner thread.
+     */
+    public void start() {
+        runner.start();
+    }
+
+    /**
+     * Stop the planner thread.
+     */
+    public void stop() {
+        runner.stop();
+    }
+
+    /**
+     * @return true if the planner thread runs, false if it was stopped or the upstream source failed.
+     */
+    public boolean isRunning() {
+        return runner.isRunning();
+    }
+
+    /**
+     * Apply the confirmations and the resets of the encoder and fill the lookahead ring. Called by the planner only.
+     *
+     * @return the number of prepared bytes.
+     */
+    int plan() {
+        int currentGeneration = generation; // read first, the confirmations before the reset are visible then
+        long confirms = requestedConfirms.get();
+        while (appliedConfirms < confirms) {
+            upstream.confirm();
+            appliedConfirms++;
+            unconfirmed = Math.max(unconfirmed - 1, 0);
+        }
+        if (currentGeneration != plannedGeneration) {
+            upstream.reset();
+            plannedGeneration = currentGeneration;
+            unconfirmed = 0;
+        }
+
+        int planned = 0;
+        long position = writePosition.get();
+        // the sources keep at most the bytes in flight of the encoder for a reset
+        while (position - readPosition.get() <= mask && unconfirmed < SharedPreferences.MAX_BYTES_IN_FLIGHT) {
+            boolean taken = position == readPosition.get(); // the encoder took all prepared bytes
+            boolean frameStart = upstream.startsFrame();
+            byte value = upstream.peek();
+            if (!taken && !upstream.canPlanAhead()) {
+                break; // wait for the encoder
+            }
+            upstream.commit();
+            unconfirmed++;
+
+            int slot = (int) position & mask;
+            values[slot] = value;
+            frameStarts[slot] = frameStart;
+            generations[slot] = currentGeneration;
+            writePosition.lazySet(++position);
+            planned++;
+        }
+
+        return planned;
+    }
+
+    /**
+     * Skip the bytes that were prepared before the last reset.
+     *
+     * @return the read position of the next prepared byte, or -1 if no byte is ready.
+     */
+    private long nextPosition() {
+        long position = readPosition.get();
+        while (position != writePosition.get()) {
+            if (generations[(int) position & mask] == generation) {
+                return position;
+            }
+            readPosition.lazySet(++position);
+        }
+        return -1;
+    }
+
+    /**
+     * @return true if the planner prepared the next byte.
+     */
+    @Override
+    public boolean isReady() {
+        return nextPosition() >= 0;
+    }
+
+    /**
+     * @return the next prepared byte, must only be called if {@link #isReady()}.
+     */
+    @Override
+    public byte peek() {
+        long position = nextPosition();
+        if (position < 0) {
+            throw new RuntimeException("FATAL: no byte prepared!");
+        }
+        return values[(int) position & mask];
+    }
+
+    /**
+     * Take the prepared byte.
+     */
+    @Override
+    public void commit() {
+        long position = nextPosition();
+        if (position >= 0) {
+            readPosition.lazySet(position + 1);
+        }
+    }
+
+    /**
+     * The confirmation is passed to the upstream source by the planner.
+     */
+    @Override
+    public void confirm() {
+        requestedConfirms.incrementAndGet();
+    }
+
+    /**
+     * The prepared bytes are skipped, the planner resets the upstream source and prepares the bytes again.
+     */
+    @Override
+    @SuppressWarnings("NonAtomicOperationOnVolatileField") // only the encoder writes the generation
+    public void reset() {
+        generation++;
+    }
+
+    /**
+     * @return true if the next prepared byte starts a new frame, false if no byte is ready.
+     */
+    @Override
+    public boolean startsFrame() {
+        long position = nextPosition();
+        return position >= 0 && frameStarts[(int) position & mask];
+    }
+
+    @Override
+    public boolean isFramed() {
+        return upstream.isFramed();
+    }
+}
@@ -0,0 +1,230 @@
+package at.ac.uibk.chaas.minesteg.steg;
+
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.network.IPacket;
+import net.minecraft.network.play.server.SDestroyEntitiesPacket;
+import net.minecraft.network.play.server.SJoinGamePacket;
+import net.minecraft.network.play.server.SPlayerListItemPacket;
+import net.minecraft.network.play.server.SRespawnPacket;
+import net.minecraft.network.play.server.SSpawnPlayerPacket;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Tracks the entity id of a player by the lifecycle packets of the server.
+ * <p>
+ * The player list packet maps the name of the player to its profile id, the spawn packet maps the profile id to the
+ * entity id. Destroy, join and respawn packets invalidate the entity id, the player is spawned again afterwards. The
+ * client world is only scanned while the entity id is unknown, at most once per second, in case the tracker missed the
+ * lifecycle packets, e.g. if it was created after the player had joined.
+ * <p>
+ * The player is present while its entity id is known. The presence changes are passed to the {@link PresenceListener}s
+ * and can be read from any thread.
+ *
+ * @author christoph.haas
+ * @version 1.0.0
+ * @since 1.8
+ */
+public class PlayerTracker {
+    public static final int NO_ENTITY = -1;
+    private static final long RESOLVE_INTERVAL_MS = 1000;
+
+    private final String playerName;
+    private UUID profileId = null;
+    private int entityId = NO_ENTITY;
+    private long lastResolveMs = 0;
+    private final List<PresenceListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile boolean present = false;
+    private volatile long joinedMs = 0; // the start of the current or the previous presence
+    private volatile long leftMs = 0;   // the end of the previous presence
+
+    /**
+     * Constructor.
+     *
+     * @param playerName the name of the tracked player.
+     */
+    public PlayerTracker(String playerName) {
+        this.playerName = playerName;
+    }
+
+    /**
+     * @return the name of the tracked player.
+     */
+    public String getPlayerName() {
+        return playerName;
+    }
+
+    /**
+     * @param listener the listener that is informed about the presence changes of the player.
+     */
+    public void addListener(PresenceListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @param listener the listener to remove.
+     */
+    public void removeListener(PresenceListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Update the tracker with an incoming packet and refresh the presence. This method is called for every received
+     * packet.
+     *
+     * @param packet the incoming packet.
+     */
+    public void update(IPacket<?> packet) {
+        updateEntityId(packet);
+        refresh();
+    }
+
+    /**
+     * Refresh the presence of the player and inform the listeners about a change.
+     */
+    public void refresh() {
+        boolean spawned = getEntityId() != NO_ENTITY;
+        if (spawned == present) {
+            return;
+        }
+
+        present = spawned;
+        if (spawned) {
+            joinedMs = System.currentTimeMillis();
+            for (int i = 0; i < listeners.size(); i++) {
+                listeners.get(i).onResume(this);
+            }
+        } else {
+            leftMs = System.currentTimeMillis();
+            for (int i = 0; i < listeners.size(); i++) {
+                listeners.get(i).onReset(this);
+            }
+        }
+    }
+
+    /**
+     * @param packet the incoming packet.
+     */
+    private void updateEntityId(IPacket<?> packet) {
+        if (packet instanceof SPlayerListItemPacket) {
+            updatePlayerList((SPlayerListItemPacket) packet);
+        } else if (packet instanceof SSpawnPlayerPacket) {
+            SSpawnPlayerPacket spawnPacket = (SSpawnPlayerPacket) packet;
+            if (profileId != null && profileId.equals(spawnPacket.getUniqueId())) {
+                entityId = spawnPacket.getEntityID();
+            }
+        } else if (packet instanceof SDestroyEntitiesPacket) {
+            int[] entityIds = ((SDestroyEntitiesPacket) packet).getEntityIDs();
+            for (int i = 0; i < entityIds.length; i++) {
+                if (entityIds[i] == entityId) {
+                    invalidate();
+                    break;
+                }
+            }
+        } else if (packet instanceof SJoinGamePacket || packet instanceof SRespawnPacket) {
+            invalidate(); // the client world is replaced
+        }
+    }
+
+    /**
+     * @param packet the player list packet.
+     */
+    private void updatePlayerList(SPlayerListItemPacket packet) {
+        SPlayerListItemPacket.Action action = packet.getAction();
+        if (action != SPlayerListItemPacket.Action.ADD_PLAYER && action != SPlayerListItemPacket.Action.REMOVE_PLAYER) {
+            return;
+        }
+
+        List<SPlayerListItemPacket.AddPlayerData> entries = packet.getEntries();
+        for (int i = 0; i < entries.size(); i++) {
+            UUID id = entries.get(i).getProfile().getId();
+            if (action == SPlayerListItemPacket.Action.ADD_PLAYER) {
+                if (playerName.equals(entries.get(i).getProfile().getName())) {
+                    profileId = id;
+                }
+            } else if (id != null && id.equals(profileId)) {
+                profileId = null;
+                invalidate();
+            }
+        }
+    }
+
+    /**
+     * @return the entity id of the player, or {@link #NO_ENTITY} if the player is not spawned.
+     */
+    public int getEntityId() {
+        if (entityId == NO_ENTITY) {
+            resolve();
+        }
+        return entityId;
+    }
+
+    /**
+     * @return true if the player is spawned in the client world.
+     */
+    public boolean isSpawned() {
+        return getEntityId() != NO_ENTITY;
+    }
+
+    /**
+     * @return true if the player was present at the last refresh, see {@link #refresh()}.
+     */
+    public boolean isPresent() {
+        return present;
+    }
+
+    /**
+     * @return the time in milliseconds when the player became present the last time, 0 if it was never present.
+     */
+    public long getJoinedMs() {
+        return joinedMs;
+    }
+
+    /**
+     * @return the time in milliseconds when the player left the last time, 0 if it never left.
+     */
+    public long getLeftMs() {
+        return leftMs;
+    }
+
+    /**
+     * The entity of the player was removed. The client world still contains it until the main thread processed the
+     * packet, so the next scan of the world is delayed.
+     */
+    private void invalidate() {
+        entityId = NO_ENTITY;
+        lastResolveMs = System.currentTimeMillis();
+    }
+
+    /**
+     * Search the player in the client world, at most once per {@link #RESOLVE_INTERVAL_MS}.
+     */
+    private void resolve() {
+        long currTimeMs = System.currentTimeMillis();
+        if (currTimeMs - lastResolveMs < RESOLVE_INTERVAL_MS) {
+            return;
+        }
+        lastResolveMs = currTimeMs;
+
+        // there is no game instance outside of the client, e.g. in the tests
+        Minecraft minecraft = Minecraft.getInstance();
+        ClientWorld world = minecraft != null ? minecraft.world : null;
+        if (world == null) {
+            return;
+        }
+
+        List<? extends PlayerEntity> players = world.getPlayers();
+        for (int i = 0; i < players.size(); ++i) {
+            PlayerEntity player = players.get(i);
+            if (playerName.equals(player.getName().getString())) {
+                profileId = player.getUniqueID();
+                entityId = player.getEntityId();
+                return;
+            }
+        }
+    }
+}
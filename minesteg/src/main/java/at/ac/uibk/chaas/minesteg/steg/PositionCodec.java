@@ -0,0 +1,92 @@
+package at.ac.uibk.chaas.minesteg.steg;
+
+/**
+ * Fixed-point coding of the x and z coordinates for the position carrier.
+ * <p>
+ * The server relays the movement of a player as relative moves: the difference of <code>floor(coordinate * 4096)</code>
+ * since the last relayed position. The position carrier embeds a symbol in the residue of this difference modulo
+ * <code>2^bits + 2</code>. The residue 0 carries no symbol, the residue s + 1 carries the symbol s and the residue
+ * <code>2^bits + 1</code> marks a synchronization move, so a player who only walks can send the preamble as well.
+ * If the server merges several client packets into one relative move, the residues add up, so a packet with a symbol
+ * or a synchronization mark is always followed by packets with the residue 0.
+ *
+ * @author christoph.haas
+ * @version 1.0.0
+ * @since 1.8
+ */
+public final class PositionCodec {
+    public static final int MAX_SYMBOL_BITS = 4; // the largest adjustment is 9 / 4096 blocks
+
+    private static final double SCALE = 4096.0;
+
+    /**
+     * Private constructor, only static methods.
+     */
+    private PositionCodec() {
+    }
+
+    /**
+     * Convert the coordinate to the fixed-point wire value.
+     *
+     * @param coordinate the coordinate in blocks.
+     * @return the wire value.
+     */
+    public static long toWire(double coordinate) {
+        return (long) Math.floor(coordinate * SCALE);
+    }
+
+    /**
+     * Convert the wire value to a coordinate in the middle of the wire interval.
+     *
+     * @param wire the wire value.
+     * @return the coordinate in blocks.
+     */
+    public static double toCoordinate(long wire) {
+        return (wire + 0.5) / SCALE;
+    }
+
+    /**
+     * @param symbolBits the bits per relative move.
+     * @return the modulus of the residues.
+     */
+    public static int modulus(int symbolBits) {
+        return (1 << symbolBits) + 2;
+    }
+
+    /**
+     * @param symbolBits the bits per relative move.
+     * @return the residue of a synchronization move.
+     */
+    public static int syncResidue(int symbolBits) {
+        return (1 << symbolBits) + 1;
+    }
+
+    /**
+     * Get the residue of a relative move.
+     *
+     * @param delta      the relative move in wire values.
+     * @param symbolBits the bits per relative move.
+     * @return 0 if the move carries no symbol, {@link #syncResidue(int)} for a synchronization move, otherwise the
+     * symbol + 1.
+     */
+    public static int toResidue(long delta, int symbolBits) {
+        return (int) Math.floorMod(delta, (long) modulus(symbolBits));
+    }
+
+    /**
+     * Find the wire value next to the target whose move from the previous wire value has the given residue.
+     *
+     * @param target     the wire value of the player.
+     * @param previous   the previously sent wire value.
+     * @param residue    the required residue.
+     * @param symbolBits the bits per relative move.
+     * @return the wire value to send.
+     */
+    public static long nearestWire(long target, long previous, int residue, int symbolBits) {
+        int modulus = modulus(symbolBits);
+        long above = target + Math.floorMod(residue - toResidue(target - previous, symbolBits), modulus);
+        long below = above - modulus;
+
+        return above - target <= target - below ? above : below;
+    }
+}
@@ -0,0 +1,26 @@
+package at.ac.uibk.chaas.minesteg.steg;
+
+/**
+ * Receives the presence changes of a tracked player, see {@link PlayerTracker}. The callbacks are invoked on the thread
+ * that updates the tracker, usually the network thread.
+ *
+ * @author christoph.haas
+ * @version 1.0.0
+ * @since 1.8
+ */
+public interface PresenceListener {
+    /**
+     * The player is no longer present, the state of the connection to the player must be reset.
+     *
+     * @param player the tracked player.
+     */
+    void onReset(PlayerTracker player);
+
+    /**
+     * The player is present again, the connection to the player can be resumed.
+     *
+     * @param player the tracked player.
+     */
+    default void onResume(PlayerTracker player) {
+    }
+}
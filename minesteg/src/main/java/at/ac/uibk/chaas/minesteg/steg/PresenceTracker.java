@@ -0,0 +1,73 @@
+package at.ac.uibk.chaas.minesteg.steg;
+
+import net.minecraft.network.IPacket;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Tracks the presence of the peers of the stegosystem, e.g. the receiver of the encoder and the sender of the decoder.
+ * <p>
+ * The tracker is updated with every received packet, see {@link PlayerTracker}. The encoder, the decoder and the
+ * packet dumpers share one instance and subscribe to the presence changes of their peer instead of scanning the
+ * players of the client world for every packet.
+ *
+ * @author christoph.haas
+ * @version 1.0.0
+ * @since 1.8
+ */
+public class PresenceTracker {
+    private final Map<String, PlayerTracker> playersByName = new ConcurrentHashMap<>();
+    private final List<PlayerTracker> players = new CopyOnWriteArrayList<>();
+
+    /**
+     * Get the tracker of the given player, the player is tracked from now on.
+     *
+     * @param playerName the name of the player.
+     * @return the tracker of the player.
+     */
+    public synchronized PlayerTracker track(String playerName) {
+        PlayerTracker player = playersByName.get(playerName);
+        if (player == null) {
+            player = new PlayerTracker(playerName);
+            playersByName.put(playerName, player);
+            players.add(player);
+        }
+        return player;
+    }
+
+    /**
+     * Subscribe to the presence changes of the given player.
+     *
+     * @param playerName the name of the player.
+     * @param listener   the listener.
+     * @return the tracker of the player.
+     */
+    public PlayerTracker subscribe(String playerName, PresenceListener listener) {
+        PlayerTracker player = track(playerName);
+        player.addListener(listener);
+        return player;
+    }
+
+    /**
+     * @param playerName the name of the player.
+     * @return true if the player is tracked and present.
+     */
+    public boolean isPresent(String playerName) {
+        PlayerTracker player = playersByName.get(playerName);
+        return player != null && player.isPresent();
+    }
+
+    /**
+     * Update all tracked players with an incoming packet. This method is called for every received packet.
+     *
+     * @param packet the incoming packet.
+     */
+    public void update(IPacket<?> packet) {
+        for (int i = 0; i < players.size(); i++) {
+            players.get(i).update(packet);
+        }
+    }
+}
@@ -8,8 +8,11 @@ package at.ac.uibk.chaas.minesteg.steg;
  * @since 1.8
  */
 public class SharedPreferences {
-    public static final int MIN_REPEAT_COUNT = 1; // how often to resend the packet to the server
-    public static final int SYNC_INTERVAL = (MIN_REPEAT_COUNT + 1) * 4 + 2; // after 1 byte send a sync packet
+    public static final int MIN_REPEAT_COUNT = 1; // how often to resend the packet to the server, see LinkController
+    public static final int SERVER_TRACKING_INTERVAL = 2; // ticks between two relayed moves of a player
+    public static final int PREAMBLE_LENGTH = 3; // sync packets before the first byte and between bytes
+    public static final int MAX_BYTES_IN_FLIGHT = 64; // bytes started by pitch and yaw before the oldest one is done
+    public static final int MAX_SYMBOL_BITS = 3; // bits per angle in the mod-k embedding, see Encoder
     public static final int HISTORY_LENGTH = 5; // used for trend calculation
     public static final long INIT_DELAY_SENDER_MS = 2000;   // initial delay before processing starts
     public static final long INIT_DELAY_RECEIVER_MS = 3000; // initial delay before processing starts
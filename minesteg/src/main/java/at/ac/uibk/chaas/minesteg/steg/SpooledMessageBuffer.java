@@ -0,0 +1,576 @@
+package at.ac.uibk.chaas.minesteg.steg;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A persistent FIFO Queue that is backed by memory mapped segment files on disk.
+ * <p>
+ * The queue is an append-only log that is split into segment files of a fixed size. The write position and the read
+ * cursor are stored in a small memory mapped metadata file, so the queue content survives a restart of the client.
+ * Segments that were consumed completely are deleted. Only the currently used segments are mapped, the heap usage
+ * does not depend on the amount of queued data. A segment is unmapped before its file is deleted, an open mapping
+ * would keep the file locked on Windows.
+ * <p>
+ * The locks of {@link MessageBuffer} are used: producers and the consumer use separate locks, each side only unmaps
+ * its own segments. Observers map their own segment and copy with a separate lock, so they do not block the consumer.
+ * The segment an observer copies from is kept until the copy is done.
+ *
+ * @author christoph.haas
+ * @version 1.0.0
+ * @since 1.8
+ */
+public class SpooledMessageBuffer extends MessageBuffer {
+    public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    private static final String META_FILE = "spool.meta";
+    private static final String SEGMENT_FILE_PREFIX = "segment-";
+    private static final String SEGMENT_FILE_SUFFIX = ".dat";
+    private static final int META_WRITE_POSITION = 0;
+    private static final int META_READ_POSITION = 8;
+    private static final int META_SIZE = 16;
+
+    private final File directory;
+    private final int segmentSize;
+    private final MappedByteBuffer meta;
+
+    private volatile long writePosition;
+    private volatile long readPosition;
+
+    // producer state, guarded by producerLock
+    private volatile long writeSegmentIndex = -1; // read by the consumer before segments are deleted
+    private MappedByteBuffer writeSegment = null;
+
+    // consumer state, guarded by consumerLock
+    private long readSegmentIndex = -1;
+    private MappedByteBuffer readSegment = null;
+
+    // observer state, guarded by observerLock, which is taken before the consumer lock
+    private final Object observerLock = new Object();
+    private long observerSegmentIndex = -1;
+    private MappedByteBuffer observerSegment = null;
+    private volatile long pinnedSegmentIndex = Long.MAX_VALUE; // first segment of the running observer copy
+
+    /**
+     * Constructor. Opens an existing spool or creates a new one.
+     *
+     * @param directory   the spool directory.
+     * @param segmentSize the size of a single segment file in bytes.
+     * @throws IOException if the spool files cannot be created or mapped.
+     */
+    public SpooledMessageBuffer(File directory, int segmentSize) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Failed to create spool directory " + directory.getAbsolutePath());
+        }
+
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+
+        try (RandomAccessFile metaFile = new RandomAccessFile(new File(directory, META_FILE), "rw")) {
+            meta = metaFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, META_SIZE);
+        }
+
+        writePosition = meta.getLong(META_WRITE_POSITION);
+        readPosition = meta.getLong(META_READ_POSITION);
+        if (readPosition < 0 || readPosition > writePosition) {
+            throw new IOException("Corrupt spool metadata in " + directory.getAbsolutePath());
+        }
+
+        deleteSegmentsBefore(readPosition / segmentSize);
+    }
+
+    /**
+     * Constructor. Opens an existing spool or creates a new one with the default segment size.
+     *
+     * @param directory the spool directory.
+     * @throws IOException if the spool files cannot be created or mapped.
+     */
+    public SpooledMessageBuffer(File directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * @return the first byte in the queue and remove it.
+     */
+    @Override
+    public byte get() {
+        synchronized (consumerLock) {
+            if (writePosition == readPosition) {
+                return 0; // by default get a null byte
+            }
+
+            byte b = readAt(readPosition);
+            setReadPosition(readPosition + 1);
+
+            return b;
+        }
+    }
+
+    /**
+     * @return the first byte in the queue but keep it queued.
+     */
+    @Override
+    public byte read() {
+        synchronized (consumerLock) {
+            if (writePosition == readPosition) {
+                return 0; // by default get a null byte
+            }
+
+            return readAt(readPosition);
+        }
+    }
+
+    /**
+     * @return the first byte in the queue as unsigned value (0-255) but keep it queued, -1 if the queue is empty.
+     */
+    @Override
+    public int peek() {
+        synchronized (consumerLock) {
+            if (writePosition == readPosition) {
+                return -1;
+            }
+
+            return readAt(readPosition) & 0xFF;
+        }
+    }
+
+    /**
+     * Remove up to len bytes from the queue.
+     *
+     * @param dst the destination array.
+     * @param off the offset in the destination array.
+     * @param len the maximum number of bytes to remove.
+     * @return the number of bytes that were copied to the destination array.
+     */
+    @Override
+    public int drain(byte[] dst, int off, int len) {
+        synchronized (consumerLock) {
+            int count = (int) Math.min(len, writePosition - readPosition);
+
+            long position = readPosition;
+            int remaining = count;
+            while (remaining > 0) {
+                MappedByteBuffer segment = readSegment(position / segmentSize);
+                int offset = (int) (position % segmentSize);
+                int chunk = Math.min(remaining, segmentSize - offset);
+
+                copy(segment, offset, dst, off, chunk);
+
+                position += chunk;
+                off += chunk;
+                remaining -= chunk;
+            }
+            setReadPosition(position);
+
+            return count;
+        }
+    }
+
+    /**
+     * Remove up to len bytes from the queue if the first queued byte still has the given stream offset.
+     *
+     * @param offset the stream offset of the first byte to remove.
+     * @param len    the maximum number of bytes to remove.
+     * @return the number of bytes that were removed, 0 if the first queued byte has another offset.
+     */
+    @Override
+    public int remove(long offset, int len) {
+        synchronized (consumerLock) {
+            if (offset != readPosition) {
+                return 0;
+            }
+
+            int count = (int) Math.min(len, writePosition - readPosition);
+            setReadPosition(readPosition + count);
+
+            return count;
+        }
+    }
+
+    /**
+     * Append the given byte to the queue.
+     *
+     * @param b the byte.
+     */
+    @Override
+    public void push(byte b) {
+        synchronized (producerLock) {
+            long position = writePosition;
+            writeSegment(position / segmentSize).put((int) (position % segmentSize), b);
+            setWritePosition(position + 1);
+        }
+        signalWaiters();
+    }
+
+    /**
+     * Append the given bytes to the queue.
+     *
+     * @param src the source array.
+     * @param off the offset in the source array.
+     * @param len the number of bytes to append.
+     */
+    @Override
+    public void push(byte[] src, int off, int len) {
+        synchronized (producerLock) {
+            long position = writePosition;
+            int remaining = len;
+            while (remaining > 0) {
+                MappedByteBuffer segment = writeSegment(position / segmentSize);
+                int offset = (int) (position % segmentSize);
+                int chunk = Math.min(remaining, segmentSize - offset);
+
+                for (int i = 0; i < chunk; i++) {
+                    segment.put(offset + i, src[off + i]);
+                }
+
+                position += chunk;
+                off += chunk;
+                remaining -= chunk;
+            }
+            setWritePosition(position);
+        }
+        signalWaiters();
+    }
+
+    /**
+     * @return the byte queue as byte array.
+     */
+    @Override
+    public byte[] toBytes() {
+        synchronized (producerLock) {
+            synchronized (consumerLock) {
+                byte[] bytes = new byte[size()];
+
+                long position = readPosition;
+                int off = 0;
+                while (off < bytes.length) {
+                    long index = position / segmentSize;
+                    MappedByteBuffer segment = index == writeSegmentIndex ? writeSegment : mapSegment(index);
+                    int offset = (int) (position % segmentSize);
+                    int chunk = Math.min(bytes.length - off, segmentSize - offset);
+
+                    copy(segment, offset, bytes, off, chunk);
+                    if (segment != writeSegment) {
+                        unmap(segment);
+                    }
+
+                    position += chunk;
+                    off += chunk;
+                }
+
+                return bytes;
+            }
+        }
+    }
+
+    /**
+     * @return the current size of the queue.
+     */
+    @Override
+    public int size() {
+        long read = readPosition; // read the cursor first, the write position can only be bigger afterwards
+        return (int) Math.min(Integer.MAX_VALUE, writePosition - read);
+    }
+
+    /**
+     * Clear the queue. All segment files are deleted, except the ones an observer is copying from.
+     */
+    @Override
+    public void clear() {
+        synchronized (producerLock) {
+            synchronized (consumerLock) {
+                unmap(readSegment);
+                readSegment = null;
+                readSegmentIndex = -1;
+                if (writeSegmentIndex < writePosition / segmentSize) {
+                    unmap(writeSegment); // the last push filled the segment
+                    writeSegment = null;
+                    writeSegmentIndex = -1;
+                }
+                setReadPosition(writePosition);
+                deleteSegmentsBefore(getKeptSegmentIndex(writePosition / segmentSize));
+            }
+        }
+    }
+
+    /**
+     * @return the stream offset of the first queued byte.
+     */
+    @Override
+    public long getReadOffset() {
+        return readPosition;
+    }
+
+    /**
+     * @return the stream offset after the last queued byte.
+     */
+    @Override
+    public long getWriteOffset() {
+        return writePosition;
+    }
+
+    /**
+     * Copy queued bytes starting at the given stream offset without removing them.
+     *
+     * @param offset the stream offset of the first byte to copy.
+     * @param dst    the destination array.
+     * @param off    the offset in the destination array.
+     * @param len    the maximum number of bytes to copy.
+     * @return the number of bytes that were copied, -1 if the bytes at the offset were already removed.
+     */
+    @Override
+    public int readFrom(long offset, byte[] dst, int off, int len) {
+        synchronized (observerLock) {
+            int count;
+            synchronized (consumerLock) {
+                if (offset < readPosition) {
+                    return -1;
+                }
+
+                count = (int) Math.max(0, Math.min(len, writePosition - offset));
+                pinnedSegmentIndex = offset / segmentSize; // the consumer keeps the segments from here on
+            }
+
+            try {
+                long position = offset;
+                int remaining = count;
+                while (remaining > 0) {
+                    MappedByteBuffer segment = observerSegment(position / segmentSize);
+                    int segmentOffset = (int) (position % segmentSize);
+                    int chunk = Math.min(remaining, segmentSize - segmentOffset);
+
+                    copy(segment, segmentOffset, dst, off, chunk);
+
+                    position += chunk;
+                    off += chunk;
+                    remaining -= chunk;
+                }
+            } finally {
+                pinnedSegmentIndex = Long.MAX_VALUE;
+                if (observerSegmentIndex < readPosition / segmentSize) {
+                    releaseObserverSegment(); // the consumer can delete the segment now
+                }
+            }
+
+            return count;
+        }
+    }
+
+    /**
+     * Force all changes of the metadata and the current write segment to the storage device.
+     */
+    public void flush() {
+        synchronized (producerLock) {
+            if (writeSegment != null) {
+                writeSegment.force();
+            }
+            meta.force();
+        }
+    }
+
+    /**
+     * Read a single byte. Must be called with the consumer lock.
+     *
+     * @param position the absolute position in the spool.
+     * @return the byte.
+     */
+    private byte readAt(long position) {
+        return readSegment(position / segmentSize).get((int) (position % segmentSize));
+    }
+
+    /**
+     * Get the mapped segment for reading. Must be called with the consumer lock.
+     *
+     * @param index the segment index.
+     * @return the mapped segment.
+     */
+    private MappedByteBuffer readSegment(long index) {
+        if (index != readSegmentIndex) {
+            unmap(readSegment);
+            readSegment = null;
+            readSegmentIndex = -1;
+            readSegment = mapSegment(index);
+            readSegmentIndex = index;
+            deleteSegmentsBefore(getKeptSegmentIndex(index));
+        }
+
+        return readSegment;
+    }
+
+    /**
+     * The producer unmaps its segment before it moves on, an observer releases its segment after the copy.
+     *
+     * @param index the first segment index that is needed by the consumer.
+     * @return the first segment index that must be kept.
+     */
+    private long getKeptSegmentIndex(long index) {
+        long producerIndex = writeSegmentIndex;
+        if (producerIndex >= 0) {
+            index = Math.min(index, producerIndex);
+        }
+
+        return Math.min(index, pinnedSegmentIndex);
+    }
+
+    /**
+     * Get the mapped segment for observers that read without removing. Must be called with the observer lock.
+     *
+     * @param index the segment index.
+     * @return the mapped segment.
+     */
+    private MappedByteBuffer observerSegment(long index) {
+        if (index != observerSegmentIndex) {
+            releaseObserverSegment();
+            observerSegment = mapSegment(index);
+            observerSegmentIndex = index;
+        }
+
+        return observerSegment;
+    }
+
+    /**
+     * Unmap the segment of the observers. Must be called with the observer lock.
+     */
+    private void releaseObserverSegment() {
+        unmap(observerSegment);
+        observerSegment = null;
+        observerSegmentIndex = -1;
+    }
+
+    /**
+     * Get the mapped segment for writing. Must be called with the producer lock.
+     *
+     * @param index the segment index.
+     * @return the mapped segment.
+     */
+    private MappedByteBuffer writeSegment(long index) {
+        if (index != writeSegmentIndex) {
+            unmap(writeSegment);
+            writeSegment = null;
+            writeSegmentIndex = -1;
+            writeSegment = mapSegment(index);
+            writeSegmentIndex = index;
+        }
+
+        return writeSegment;
+    }
+
+    /**
+     * Map the segment file with the given index, the file is created if it does not exist.
+     *
+     * @param index the segment index.
+     * @return the mapped segment.
+     */
+    private MappedByteBuffer mapSegment(long index) {
+        try (RandomAccessFile file = new RandomAccessFile(getSegmentFile(index), "rw")) {
+            return file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException("FATAL: failed to map spool segment " + index, e);
+        }
+    }
+
+    /**
+     * Delete all segment files with a smaller index than the given one. The segments must be unmapped.
+     *
+     * @param index the first segment index that should be kept.
+     */
+    private void deleteSegmentsBefore(long index) {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(SEGMENT_FILE_PREFIX) && name.endsWith(SEGMENT_FILE_SUFFIX));
+        if (files == null) {
+            return;
+        }
+
+        for (File file : files) {
+            String name = file.getName();
+            try {
+                long fileIndex = Long.parseLong(name.substring(SEGMENT_FILE_PREFIX.length(), name.length() - SEGMENT_FILE_SUFFIX.length()));
+                if (fileIndex < index && !file.delete()) {
+                    System.out.println("Failed to delete spool segment " + name);
+                }
+            } catch (NumberFormatException ignored) {
+            }
+        }
+    }
+
+    /**
+     * @param index the segment index.
+     * @return the file of the segment.
+     */
+    private File getSegmentFile(long index) {
+        return new File(directory, SEGMENT_FILE_PREFIX + index + SEGMENT_FILE_SUFFIX);
+    }
+
+    /**
+     * Update and persist the write position. Must be called with the producer lock.
+     *
+     * @param position the new write position.
+     */
+    private void setWritePosition(long position) {
+        meta.putLong(META_WRITE_POSITION, position);
+        writePosition = position;
+    }
+
+    /**
+     * Update and persist the read cursor. Must be called with the consumer lock.
+     *
+     * @param position the new read position.
+     */
+    private void setReadPosition(long position) {
+        meta.putLong(META_READ_POSITION, position);
+        readPosition = position;
+    }
+
+    /**
+     * Release the mapping of a segment immediately instead of when the buffer is garbage collected. The buffer must
+     * not be used afterwards.
+     *
+     * @param segment the segment, may be null.
+     */
+    private static void unmap(MappedByteBuffer segment) {
+        if (segment == null) {
+            return;
+        }
+
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner;
+            try {
+                invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class); // Java 9+
+            } catch (NoSuchMethodException e) {
+                Method cleanerMethod = segment.getClass().getMethod("cleaner"); // Java 8
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(segment);
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+                return;
+            }
+
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), segment);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            System.out.println("Failed to unmap spool segment: " + e);
+        }
+    }
+
+    /**
+     * Copy bytes from a mapped segment without changing the buffer position.
+     *
+     * @param segment the segment.
+     * @param offset  the offset in the segment.
+     * @param dst     the destination array.
+     * @param off     the offset in the destination array.
+     * @param len     the number of bytes to copy.
+     */
+    private static void copy(MappedByteBuffer segment, int offset, byte[] dst, int off, int len) {
+        for (int i = 0; i < len; i++) {
+            dst[off + i] = segment.get(offset + i);
+        }
+    }
+}
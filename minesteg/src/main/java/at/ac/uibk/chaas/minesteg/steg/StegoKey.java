@@ -0,0 +1,147 @@
+package at.ac.uibk.chaas.minesteg.steg;
+
+import at.ac.uibk.chaas.minesteg.HelperUtil;
+
+import java.util.Arrays;
+
+/**
+ * The immutable stegokey. The stegokey is a set of wire values that is used for synchronization packets.
+ * <p>
+ * All lookups are precomputed for the 256 possible wire values, so every key decision is a single table lookup
+ * and does not depend on the length of the key.
+ *
+ * @author christoph.haas
+ * @version 1.0.0
+ * @since 1.8
+ */
+public final class StegoKey {
+    private static final int WIRE_VALUES = 256;
+
+    private final int[] values;
+    private final boolean[] members = new boolean[WIRE_VALUES];
+    private final byte[] nearestKeyAbove = new byte[WIRE_VALUES];
+    private final byte[] nearestKeyBelow = new byte[WIRE_VALUES];
+    private final int[] nonKeyOffsetAbove = new int[WIRE_VALUES];
+    private final int[] nonKeyOffsetBelow = new int[WIRE_VALUES];
+
+    /**
+     * Constructor.
+     *
+     * @param values the key values, every value must be a valid signed wire byte.
+     */
+    public StegoKey(int[] values) {
+        if (values == null || values.length == 0) {
+            throw new IllegalArgumentException("stegokey must not be empty");
+        }
+        if (values.length >= WIRE_VALUES) {
+            throw new IllegalArgumentException("stegokey must not contain all wire values");
+        }
+
+        this.values = values.clone();
+
+        for (int value : values) {
+            if (value < Byte.MIN_VALUE || value > Byte.MAX_VALUE) {
+                throw new IllegalArgumentException("stegokey value out of range: " + value);
+            }
+            members[index(value)] = true;
+        }
+
+        for (int wire = Byte.MIN_VALUE; wire <= Byte.MAX_VALUE; wire++) {
+            int idx = index(wire);
+            nearestKeyAbove[idx] = (byte) HelperUtil.findNearestNumber(this.values, wire, true);
+            nearestKeyBelow[idx] = (byte) HelperUtil.findNearestNumber(this.values, wire, false);
+
+            int offset = 0;
+            while (members[index(wire + offset)]) {
+                offset++;
+            }
+            nonKeyOffsetAbove[idx] = offset;
+
+            offset = 0;
+            while (members[index(wire - offset)]) {
+                offset++;
+            }
+            nonKeyOffsetBelow[idx] = offset;
+        }
+    }
+
+    /**
+     * Parse a comma separated stegokey, e.g. "-126,-100,5,16".
+     *
+     * @param stegoKeyStr the stegokey string.
+     * @return the stegokey.
+     */
+    public static StegoKey parse(String stegoKeyStr) {
+        String[] stegoKeyParts = stegoKeyStr.split(",");
+        int[] stegoKey = new int[stegoKeyParts.length];
+
+        for (int i = 0; i < stegoKeyParts.length; i++) {
+            stegoKey[i] = Integer.parseInt(stegoKeyParts[i].trim());
+        }
+
+        return new StegoKey(stegoKey);
+    }
+
+    /**
+     * @return the number of values in the stegokey.
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * Check if the stegokey contains the given wire value.
+     *
+     * @param wire the wire value, only the lower 8 bits are used.
+     * @return true if the value is part of the stegokey.
+     */
+    public boolean contains(int wire) {
+        return members[index(wire)];
+    }
+
+    /**
+     * Get the stegokey value with the smallest distance to the given wire value.
+     *
+     * @param wire  the wire value.
+     * @param above if set to true, the nearest higher value will be returned.
+     * @return the nearest stegokey value.
+     */
+    public byte nearestKeyValue(byte wire, boolean above) {
+        return above ? nearestKeyAbove[index(wire)] : nearestKeyBelow[index(wire)];
+    }
+
+    /**
+     * Get the nearest value that is not part of the stegokey. If the given value itself is not part of the
+     * stegokey, it is returned unchanged. Wire values wrap around at the byte boundaries, the returned value keeps
+     * the range of the input value (so it can also be used for unbounded yaw values).
+     *
+     * @param wire  the wire value.
+     * @param above if set to true, the search is done in positive direction.
+     * @return the nearest value that is not part of the stegokey.
+     */
+    public int nearestNonKeyValue(int wire, boolean above) {
+        return above ? wire + nonKeyOffsetAbove[index(wire)] : wire - nonKeyOffsetBelow[index(wire)];
+    }
+
+    /**
+     * @return a copy of the stegokey values.
+     */
+    public int[] toArray() {
+        return values.clone();
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(values);
+    }
+
+    /**
+     * Convert a wire value to a table index.
+     *
+     * @param wire the wire value.
+     * @return the table index.
+     */
+    private static int index(int wire) {
+        return wire & 0xFF;
+    }
+}
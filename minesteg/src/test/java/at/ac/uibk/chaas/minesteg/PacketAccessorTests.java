@@ -0,0 +1,111 @@
+package at.ac.uibk.chaas.minesteg;
+
+import net.minecraft.network.play.client.CPlayerPacket;
+import net.minecraft.network.play.server.SEntityPacket;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PacketAccessorTests {
+    private static final int BENCHMARK_WARMUP = 200_000;
+    private static final int BENCHMARK_ITERATIONS = 2_000_000;
+
+    @Test
+    void testAccessorIsCached() {
+        PacketAccessor accessor1 = PacketAccessor.of(CPlayerPacket.RotationPacket.class);
+        PacketAccessor accessor2 = PacketAccessor.of(CPlayerPacket.RotationPacket.class);
+
+        assertSame(accessor1, accessor2);
+        assertEquals(CPlayerPacket.RotationPacket.class, accessor1.getPacketClass());
+    }
+
+    @Test
+    void testSetRotation() {
+        CPlayerPacket packet = new CPlayerPacket.PositionRotationPacket(1.0, 2.0, 3.0, 10.0f, 20.0f, true);
+        PacketAccessor accessor = PacketAccessor.of(packet.getClass());
+
+        assertTrue(accessor.hasRotation());
+
+        accessor.setPitch(packet, -45.5f);
+        accessor.setYaw(packet, 123.25f);
+
+        assertEquals(-45.5f, packet.getPitch(0));
+        assertEquals(123.25f, packet.getYaw(0));
+    }
+
+    @Test
+    void testGetEntityId() {
+        SEntityPacket packet = new SEntityPacket.LookPacket(4711, (byte) 10, (byte) 20, true);
+        PacketAccessor accessor = PacketAccessor.of(packet.getClass());
+
+        assertTrue(accessor.hasEntityId());
+        assertFalse(accessor.hasRotation()); // pitch and yaw are bytes
+
+        assertEquals(4711, accessor.getEntityId(packet));
+    }
+
+    @Test
+    void testMissingFields() {
+        PacketAccessor accessor = PacketAccessor.of(String.class);
+
+        assertFalse(accessor.hasRotation());
+        assertFalse(accessor.hasEntityId());
+    }
+
+    @Test
+    @Tag("benchmark")
+    void benchmarkSetRotation() throws IllegalAccessException {
+        CPlayerPacket packet = new CPlayerPacket.RotationPacket(10.0f, 20.0f, true);
+
+        for (int i = 0; i < BENCHMARK_WARMUP; i++) {
+            setRotationReflective(packet, i, i);
+            setRotationAccessor(packet, i, i);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+            setRotationReflective(packet, i, i);
+        }
+        long reflectiveNs = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+            setRotationAccessor(packet, i, i);
+        }
+        long accessorNs = System.nanoTime() - start;
+
+        System.out.println("Reflective lookup: " + (reflectiveNs / (double) BENCHMARK_ITERATIONS) + " ns/packet");
+        System.out.println("Cached accessor:   " + (accessorNs / (double) BENCHMARK_ITERATIONS) + " ns/packet");
+
+        assertEquals((float) (BENCHMARK_ITERATIONS - 1), packet.getPitch(0));
+        assertTrue(accessorNs < reflectiveNs, accessorNs + " ns with the accessor, " + reflectiveNs + " ns reflective");
+    }
+
+    /**
+     * The per packet code path that was used by the encoder before the accessor registry existed.
+     */
+    private static void setRotationReflective(CPlayerPacket packet, float pitch, float yaw) throws IllegalAccessException {
+        Field fieldPitch = HelperUtil.findUnderlyingField(packet.getClass(), "pitch");
+        Field fieldYaw = HelperUtil.findUnderlyingField(packet.getClass(), "yaw");
+
+        boolean wasAccessiblePitch = fieldPitch.isAccessible();
+        boolean wasAccessibleYaw = fieldYaw.isAccessible();
+        fieldPitch.setAccessible(true);
+        fieldYaw.setAccessible(true);
+
+        fieldPitch.set(packet, pitch);
+        fieldYaw.set(packet, yaw);
+
+        fieldPitch.setAccessible(wasAccessiblePitch);
+        fieldYaw.setAccessible(wasAccessibleYaw);
+    }
+
+    private static void setRotationAccessor(CPlayerPacket packet, float pitch, float yaw) {
+        PacketAccessor accessor = PacketAccessor.of(packet.getClass());
+        accessor.setPitch(packet, pitch);
+        accessor.setYaw(packet, yaw);
+    }
+}
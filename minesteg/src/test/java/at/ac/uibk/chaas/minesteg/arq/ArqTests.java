@@ -0,0 +1,154 @@
+package at.ac.uibk.chaas.minesteg.arq;
+
+import at.ac.uibk.chaas.minesteg.frame.FrameDecoderSink;
+import at.ac.uibk.chaas.minesteg.frame.FrameEncoderSource;
+import at.ac.uibk.chaas.minesteg.frame.FrameFormat;
+import at.ac.uibk.chaas.minesteg.rmi.MessageBufferService;
+import at.ac.uibk.chaas.minesteg.steg.DecoderSink;
+import at.ac.uibk.chaas.minesteg.steg.EncoderSource;
+import at.ac.uibk.chaas.minesteg.steg.MessageBuffer;
+import at.ac.uibk.chaas.minesteg.steg.MessageBufferSink;
+import at.ac.uibk.chaas.minesteg.steg.MessageBufferSource;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ArqTests {
+    @Test
+    void testSelectiveRepeat() {
+        MessageBuffer sendBuffer = new MessageBuffer("0000111122223333");
+        MessageBuffer receiveBuffer = new MessageBuffer();
+
+        ArqEncoderSource source = new ArqEncoderSource(new MessageBufferSource(sendBuffer), 4, 4);
+        ArqDecoderSink sink = new ArqDecoderSink(new MessageBufferSink(receiveBuffer), 4, 4);
+        int frameSize = FrameFormat.frameSize(4);
+
+        transmit(source, sink, frameSize, false); // 0
+        transmit(source, sink, frameSize, true);  // 1 lost
+        transmit(source, sink, frameSize, false); // 2
+        transmit(source, sink, frameSize, false); // 3
+        assertEquals("0000", receiveBuffer.toString());
+
+        int feedback = sink.getFeedback();
+        assertEquals(1, feedback >> 8);
+        assertEquals(0b011, feedback & 0xff);
+        source.acknowledge(feedback >> 8, feedback & 0xff);
+        assertEquals(3, source.getUnacknowledgedFrames());
+
+        transmit(source, sink, frameSize, false); // 1 again
+        assertEquals("0000111122223333", receiveBuffer.toString());
+        assertEquals(1, source.getRetransmittedFrames());
+
+        feedback = sink.getFeedback();
+        source.acknowledge(feedback >> 8, feedback & 0xff);
+        assertEquals(0, source.getUnacknowledgedFrames());
+    }
+
+    @Test
+    void testReliableOverLossyLink() {
+        byte[] message = new byte[2000];
+        new Random(5).nextBytes(message);
+        MessageBuffer sendBuffer = new MessageBuffer();
+        sendBuffer.push(message, 0, message.length);
+        MessageBuffer receiveBuffer = new MessageBuffer();
+
+        ArqEncoderSource source = new ArqEncoderSource(new MessageBufferSource(sendBuffer), 16, 8);
+        ArqDecoderSink sink = new ArqDecoderSink(new MessageBufferSink(receiveBuffer), 16, 8);
+
+        // the feedback is framed like on the real reverse channel
+        FrameEncoderSource feedbackSource = new FrameEncoderSource(sink.feedbackSource(), ArqDecoderSink.FEEDBACK_SIZE);
+        FrameDecoderSink feedbackSink = new FrameDecoderSink(source.feedbackSink(), ArqDecoderSink.FEEDBACK_SIZE);
+
+        Random random = new Random(6);
+        int frameSize = FrameFormat.frameSize(16);
+        int frames = 0;
+        while (receiveBuffer.size() < message.length && frames < 1000) {
+            transmit(source, sink, frameSize, random.nextInt(100) < 20);
+            transmit(feedbackSource, feedbackSink, FrameFormat.frameSize(ArqDecoderSink.FEEDBACK_SIZE),
+                    random.nextInt(100) < 20);
+            frames++;
+        }
+
+        assertArrayEquals(message, new MessageBufferService(receiveBuffer).getQueuedBytes());
+        assertTrue(source.getRetransmittedFrames() > 0);
+        // blind repetition would need at least two copies of every frame
+        assertTrue(frames < 2 * message.length / 16, "needed " + frames + " frames");
+    }
+
+    @Test
+    void testUnacknowledgedFramesStayQueued() {
+        MessageBuffer sendBuffer = new MessageBuffer("aaaabbbb");
+        MessageBuffer receiveBuffer = new MessageBuffer();
+
+        ArqEncoderSource source = new ArqEncoderSource(new MessageBufferSource(sendBuffer), 4, 4);
+        ArqDecoderSink sink = new ArqDecoderSink(new MessageBufferSink(receiveBuffer), 4, 4);
+        int frameSize = FrameFormat.frameSize(4);
+
+        transmit(source, sink, frameSize, false);
+        transmit(source, sink, frameSize, false);
+        assertEquals("aaaabbbb", receiveBuffer.toString());
+        assertEquals("aaaabbbb", sendBuffer.toString()); // a restarted sender would send both frames again
+
+        int feedback = sink.getFeedback();
+        source.acknowledge(feedback >> 8, feedback & 0xff);
+        source.peek(); // the acknowledged payload is confirmed when the next frame is selected
+
+        assertEquals(0, sendBuffer.size());
+    }
+
+    @Test
+    void testRestartedSenderStartsNewSession() {
+        MessageBuffer receiveBuffer = new MessageBuffer();
+        ArqDecoderSink sink = new ArqDecoderSink(new MessageBufferSink(receiveBuffer), 4, 4);
+        int frameSize = FrameFormat.frameSize(4);
+
+        ArqEncoderSource source = new ArqEncoderSource(new MessageBufferSource(new MessageBuffer("aaaabbbb")), 4, 4, 2);
+        transmit(source, sink, frameSize, false);
+        transmit(source, sink, frameSize, false);
+        sink.reset(); // the sender left
+
+        // the restarted sender starts again with sequence number 0
+        source = new ArqEncoderSource(new MessageBufferSource(new MessageBuffer("cccc")), 4, 4, 4);
+        transmit(source, sink, frameSize, false);
+
+        assertEquals("aaaabbbbcccc", receiveBuffer.toString());
+        assertEquals(1, sink.getRestartedSessions());
+        assertEquals(0, sink.getDuplicateFrames());
+        assertEquals(1, sink.getFeedback() >> 8);
+    }
+
+    @Test
+    void testOversizedFrameIsMalformed() {
+        MessageBuffer receiveBuffer = new MessageBuffer();
+        ArqDecoderSink sink = new ArqDecoderSink(new MessageBufferSink(receiveBuffer), 4, 4);
+
+        FrameEncoderSource source = new FrameEncoderSource(new MessageBufferSource(new MessageBuffer("abcdefgh")), 8);
+        transmit(source, sink, FrameFormat.frameSize(8), false);
+
+        assertEquals(0, receiveBuffer.size());
+        assertEquals(1, sink.getMalformedFrames());
+        assertEquals(0, sink.getDuplicateFrames());
+    }
+
+    /**
+     * Send the given number of bytes, a lost frame is corrupted by an erasure.
+     */
+    private static void transmit(EncoderSource source, DecoderSink sink, int count, boolean lost) {
+        for (int i = 0; i < count; i++) {
+            if (source.startsFrame()) {
+                sink.sync();
+            }
+
+            byte b = source.peek();
+            source.commit();
+            source.confirm();
+            if (lost && i == count / 2) {
+                sink.pushErasure();
+            } else {
+                sink.push(b);
+            }
+        }
+    }
+}
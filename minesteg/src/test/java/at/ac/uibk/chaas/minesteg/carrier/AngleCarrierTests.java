@@ -0,0 +1,81 @@
+package at.ac.uibk.chaas.minesteg.carrier;
+
+import at.ac.uibk.chaas.minesteg.HelperUtil;
+import at.ac.uibk.chaas.minesteg.steg.AngleCodec;
+import at.ac.uibk.chaas.minesteg.steg.StegoKey;
+import net.minecraft.network.play.server.SEntityHeadLookPacket;
+import net.minecraft.network.play.server.SEntityPacket;
+import net.minecraft.network.play.server.SEntityTeleportPacket;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+
+import static at.ac.uibk.chaas.minesteg.carrier.Carrier.NO_SYMBOL;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AngleCarrierTests {
+    private static final StegoKey STEGO_KEY = new StegoKey(new int[]{-126, -100, 5, 16});
+
+    @Test
+    void testHeadLookIsOnlyCountedOnce() throws Exception {
+        YawCarrier carrier = new YawCarrier(STEGO_KEY, new AngleCodec(0));
+
+        assertEquals(0, carrier.extract(look((byte) 10, (byte) 0)));
+        assertEquals(NO_SYMBOL, carrier.extract(headLook((byte) 10)));
+        assertEquals(1, carrier.extract(look((byte) 11, (byte) 0)));
+
+        // lagging head look of the previous tick
+        assertEquals(NO_SYMBOL, carrier.extract(headLook((byte) 10)));
+
+        // head look ahead of the look packet
+        assertEquals(0, carrier.extract(headLook((byte) 12)));
+        assertEquals(NO_SYMBOL, carrier.extract(look((byte) 12, (byte) 0)));
+    }
+
+    @Test
+    void testTeleportCarriesRotation() throws Exception {
+        PitchCarrier carrier = new PitchCarrier(STEGO_KEY, new AngleCodec(0));
+
+        assertEquals(1, carrier.extract(look((byte) 0, (byte) 3)));
+        assertEquals(0, carrier.extract(teleport((byte) 0, (byte) 8)));
+        assertEquals(NO_SYMBOL, carrier.extract(look((byte) 0, (byte) 8)));
+    }
+
+    @Test
+    void testSyncInTeleport() throws Exception {
+        PitchCarrier carrier = new PitchCarrier(STEGO_KEY, new AngleCodec(0));
+        SEntityTeleportPacket packet = teleport((byte) 0, (byte) 5);
+
+        assertTrue(AngleCarrier.isSyncPacket(STEGO_KEY, packet));
+        assertFalse(AngleCarrier.isSyncPacket(STEGO_KEY, headLook((byte) 5)));
+        assertEquals(NO_SYMBOL, carrier.extract(packet));
+
+        // the parked axis leaves the stegokey without a symbol
+        assertEquals(NO_SYMBOL, carrier.extract(look((byte) 0, (byte) 7)));
+        assertEquals(1, carrier.extract(look((byte) 0, (byte) 9)));
+    }
+
+    private static SEntityPacket look(byte yaw, byte pitch) {
+        return new SEntityPacket.LookPacket(1, yaw, pitch, true);
+    }
+
+    private static SEntityHeadLookPacket headLook(byte yaw) throws Exception {
+        SEntityHeadLookPacket packet = new SEntityHeadLookPacket();
+        setField(packet, "yaw", yaw);
+        return packet;
+    }
+
+    private static SEntityTeleportPacket teleport(byte yaw, byte pitch) throws Exception {
+        SEntityTeleportPacket packet = new SEntityTeleportPacket();
+        setField(packet, "yaw", yaw);
+        setField(packet, "pitch", pitch);
+        return packet;
+    }
+
+    private static void setField(Object packet, String fieldName, Object value) throws Exception {
+        Field field = HelperUtil.findUnderlyingField(packet.getClass(), fieldName);
+        assertNotNull(field);
+        field.setAccessible(true);
+        field.set(packet, value);
+    }
+}
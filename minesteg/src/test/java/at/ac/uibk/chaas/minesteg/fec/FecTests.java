@@ -0,0 +1,154 @@
+package at.ac.uibk.chaas.minesteg.fec;
+
+import at.ac.uibk.chaas.minesteg.rmi.MessageBufferService;
+import at.ac.uibk.chaas.minesteg.steg.MessageBuffer;
+import at.ac.uibk.chaas.minesteg.steg.MessageBufferSink;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FecTests {
+    @Test
+    void testRoundTripWithBurstLoss() {
+        byte[] message = new byte[3 * 4 * 16];
+        new Random(4).nextBytes(message);
+
+        MessageBuffer sendBuffer = new MessageBuffer();
+        sendBuffer.push(message, 0, message.length);
+        MessageBuffer receiveBuffer = new MessageBuffer();
+
+        FecEncoderSource source = new FecEncoderSource(sendBuffer, new ReedSolomon(24, 16), 4);
+        FecDecoderSink sink = new FecDecoderSink(new MessageBufferSink(receiveBuffer), new ReedSolomon(24, 16), 4);
+
+        int symbols = 3 * 4 * 24;
+        for (int i = 0; i < symbols; i++) {
+            byte b = source.peek();
+            assertEquals(b, source.peek()); // peek is stable until commit
+            source.commit();
+            source.confirm();
+
+            // a burst of 32 lost bytes in every superblock, spread over 4 codewords by the interleaver
+            if (i % 96 >= 10 && i % 96 < 42) {
+                sink.pushErasure();
+            } else {
+                sink.push(b);
+            }
+        }
+
+        assertEquals(0, sendBuffer.size());
+        assertArrayEquals(message, new MessageBufferService(receiveBuffer).getQueuedBytes());
+        assertEquals(12, sink.getCorrectedBlocks());
+        assertEquals(0, sink.getUncorrectableBlocks());
+        assertEquals(3 * 32, sink.getCorrectedSymbols());
+    }
+
+    @Test
+    void testUncorrectableBlockIsMarked() {
+        MessageBuffer sendBuffer = new MessageBuffer("0123456789abcdef");
+        MessageBuffer receiveBuffer = new MessageBuffer();
+
+        FecEncoderSource source = new FecEncoderSource(sendBuffer, new ReedSolomon(20, 16), 1);
+        FecDecoderSink sink = new FecDecoderSink(new MessageBufferSink(receiveBuffer), new ReedSolomon(20, 16), 1);
+
+        for (int i = 0; i < 20; i++) {
+            byte b = source.peek();
+            source.commit();
+            source.confirm();
+            if (i < 5) {
+                sink.pushErasure();
+            } else {
+                sink.push(b);
+            }
+        }
+
+        assertEquals(1, sink.getUncorrectableBlocks());
+        assertEquals("\uffff\uffff\uffff\uffff\uffff56789abcdef", new MessageBufferService(receiveBuffer).getQueuedBytesAsString());
+    }
+
+    @Test
+    void testResetRestartsSuperblock() {
+        MessageBuffer sendBuffer = new MessageBuffer("abc");
+        MessageBuffer receiveBuffer = new MessageBuffer();
+
+        FecEncoderSource source = new FecEncoderSource(sendBuffer, new ReedSolomon(8, 4), 2);
+        FecDecoderSink sink = new FecDecoderSink(new MessageBufferSink(receiveBuffer), new ReedSolomon(8, 4), 2);
+
+        for (int i = 0; i < 5; i++) {
+            sink.push(source.peek());
+            source.commit();
+            source.confirm();
+        }
+        source.reset();
+        sink.reset();
+        sendBuffer.push("d");
+
+        for (int i = 0; i < 16; i++) {
+            sink.push(source.peek());
+            source.commit();
+            source.confirm();
+        }
+
+        assertEquals(0, sendBuffer.size());
+        assertEquals("abcd\0\0\0\0", receiveBuffer.toString());
+        assertEquals(0, sink.getCorrectedBlocks());
+    }
+
+    @Test
+    void testRestartResendsUnconfirmedSuperblock() {
+        // the message buffer outlives the sender like a spooled message buffer
+        MessageBuffer sendBuffer = new MessageBuffer("abcdefgh");
+        FecEncoderSource source = new FecEncoderSource(sendBuffer, new ReedSolomon(8, 4), 1);
+
+        // the second superblock is taken, but not sent completely
+        for (int i = 0; i < 16; i++) {
+            source.peek();
+            source.commit();
+            if (i < 8 + 5) {
+                source.confirm();
+            }
+        }
+        assertEquals("efgh", sendBuffer.toString());
+
+        MessageBuffer receiveBuffer = new MessageBuffer();
+        FecDecoderSink sink = new FecDecoderSink(new MessageBufferSink(receiveBuffer), new ReedSolomon(8, 4), 1);
+        source = new FecEncoderSource(sendBuffer, new ReedSolomon(8, 4), 1);
+        for (int i = 0; i < 8; i++) {
+            sink.push(source.peek());
+            source.commit();
+            source.confirm();
+        }
+
+        assertEquals("efgh", receiveBuffer.toString());
+        assertEquals(0, sendBuffer.size());
+    }
+
+    @Test
+    void testSyncRealignsAfterLostByte() {
+        MessageBuffer sendBuffer = new MessageBuffer("abcdefghijklmnop");
+        MessageBuffer receiveBuffer = new MessageBuffer();
+
+        FecEncoderSource source = new FecEncoderSource(sendBuffer, new ReedSolomon(8, 4), 2);
+        FecDecoderSink sink = new FecDecoderSink(new MessageBufferSink(receiveBuffer), new ReedSolomon(8, 4), 2);
+        assertTrue(source.isFramed());
+
+        for (int i = 0; i < 2 * 16; i++) {
+            if (source.startsFrame()) {
+                sink.sync();
+            }
+            byte b = source.peek();
+            source.commit();
+            source.confirm();
+            if (i != 14) { // lost without a trace, the decoder never started the byte
+                sink.push(b);
+            }
+        }
+
+        // the short superblock is completed with an erasure, the shifted symbol is corrected as an error
+        assertEquals(1, sink.getShortSuperblocks());
+        assertEquals(0, sink.getUncorrectableBlocks());
+        assertEquals("abcdefghijklmnop", receiveBuffer.toString());
+        assertEquals(0, sendBuffer.size());
+    }
+}
@@ -0,0 +1,115 @@
+package at.ac.uibk.chaas.minesteg.fec;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReedSolomonTests {
+    @Test
+    void testEncodeIsSystematic() {
+        ReedSolomon rs = new ReedSolomon(12, 8);
+        byte[] data = "abcdefgh".getBytes();
+        byte[] codeword = new byte[12];
+        rs.encode(data, 0, codeword);
+
+        for (int i = 0; i < 8; i++) {
+            assertEquals(data[i], codeword[i]);
+        }
+        assertEquals(0, rs.decode(codeword.clone(), null));
+    }
+
+    @Test
+    void testCorrectErasures() {
+        ReedSolomon rs = new ReedSolomon(24, 16);
+        Random random = new Random(1);
+
+        for (int run = 0; run < 200; run++) {
+            byte[] codeword = randomCodeword(rs, random);
+            byte[] received = codeword.clone();
+            boolean[] erasures = new boolean[24];
+
+            for (int e = 0; e < 8; e++) {
+                int pos = random.nextInt(24);
+                erasures[pos] = true;
+                received[pos] = (byte) 0xff;
+            }
+
+            assertTrue(rs.decode(received, erasures) >= 0);
+            assertArrayEquals(codeword, received);
+        }
+    }
+
+    @Test
+    void testCorrectErrorsAndErasures() {
+        ReedSolomon rs = new ReedSolomon(24, 16);
+        Random random = new Random(2);
+
+        for (int run = 0; run < 200; run++) {
+            byte[] codeword = randomCodeword(rs, random);
+            byte[] received = codeword.clone();
+            boolean[] erasures = new boolean[24];
+
+            // 2 errors + 4 erasures = 2 * 2 + 4 = 8 parity symbols
+            int[] positions = distinctPositions(random, 24, 6);
+            for (int i = 0; i < 6; i++) {
+                if (i < 2) {
+                    received[positions[i]] ^= (byte) (1 + random.nextInt(255));
+                } else {
+                    erasures[positions[i]] = true;
+                    received[positions[i]] = 0;
+                }
+            }
+
+            assertTrue(rs.decode(received, erasures) >= 0);
+            assertArrayEquals(codeword, received);
+        }
+    }
+
+    @Test
+    void testDetectUncorrectable() {
+        ReedSolomon rs = new ReedSolomon(24, 16);
+        Random random = new Random(3);
+        int detected = 0;
+
+        for (int run = 0; run < 200; run++) {
+            byte[] codeword = randomCodeword(rs, random);
+            byte[] received = codeword.clone();
+
+            for (int pos : distinctPositions(random, 24, 6)) {
+                received[pos] ^= (byte) (1 + random.nextInt(255));
+            }
+
+            if (rs.decode(received, null) < 0) {
+                detected++;
+            } else {
+                assertFalse(java.util.Arrays.equals(codeword, received)); // a miscorrection is never the original
+            }
+        }
+
+        assertTrue(detected > 190, "only " + detected + " uncorrectable codewords detected");
+    }
+
+    private static byte[] randomCodeword(ReedSolomon rs, Random random) {
+        byte[] data = new byte[rs.getK()];
+        random.nextBytes(data);
+        byte[] codeword = new byte[rs.getN()];
+        rs.encode(data, 0, codeword);
+        return codeword;
+    }
+
+    private static int[] distinctPositions(Random random, int n, int count) {
+        int[] positions = new int[count];
+        boolean[] used = new boolean[n];
+        for (int i = 0; i < count; i++) {
+            int pos;
+            do {
+                pos = random.nextInt(n);
+            } while (used[pos]);
+            used[pos] = true;
+            positions[i] = pos;
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,195 @@
+package at.ac.uibk.chaas.minesteg.frame;
+
+import at.ac.uibk.chaas.messageclient.rmi.MessageChunk;
+import at.ac.uibk.chaas.minesteg.fec.FecDecoderSink;
+import at.ac.uibk.chaas.minesteg.fec.FecEncoderSource;
+import at.ac.uibk.chaas.minesteg.fec.ReedSolomon;
+import at.ac.uibk.chaas.minesteg.rmi.MessageBufferService;
+import at.ac.uibk.chaas.minesteg.steg.MessageBuffer;
+import at.ac.uibk.chaas.minesteg.steg.MessageBufferSink;
+import at.ac.uibk.chaas.minesteg.steg.MessageBufferSource;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FrameTests {
+    @Test
+    void testRoundTripWithMarkerBytes() {
+        MessageBuffer sendBuffer = new MessageBuffer();
+        sendBuffer.push(new byte[]{'a', (byte) 0xff, 'b', 'c'}, 0, 4);
+        MessageBuffer receiveBuffer = new MessageBuffer();
+
+        FrameEncoderSource source = new FrameEncoderSource(new MessageBufferSource(sendBuffer), 4);
+        MessageBufferSink messageBufferSink = new MessageBufferSink(receiveBuffer);
+        FrameDecoderSink sink = new FrameDecoderSink(messageBufferSink, 4);
+
+        // the received 0xff is escaped in the message buffer and decoded again by the service
+        assertEquals(1, transmit(source, sink, FrameFormat.frameSize(4), -1));
+        assertArrayEquals(new byte[]{'a', (byte) 0xff, 'b', 'c'}, new MessageBufferService(receiveBuffer).getQueuedBytes());
+        assertEquals(0, messageBufferSink.getErasures());
+        assertEquals(1, sink.getReceivedFrames());
+        assertEquals(0, sink.getCorruptedFrames());
+    }
+
+    @Test
+    void testReceivedMarkerByteIsNotLost() {
+        MessageBuffer sendBuffer = new MessageBuffer();
+        sendBuffer.push(new byte[]{(byte) 0xff, 'a', 'b', (byte) 0xff, 'c', 'd', 'e', 'f'}, 0, 8);
+        MessageBuffer receiveBuffer = new MessageBuffer();
+
+        FrameEncoderSource source = new FrameEncoderSource(new MessageBufferSource(sendBuffer), 4);
+        FrameDecoderSink sink = new FrameDecoderSink(new MessageBufferSink(receiveBuffer), 4);
+        int frameSize = FrameFormat.frameSize(4);
+
+        transmit(source, sink, frameSize, -1);
+        transmit(source, sink, frameSize, 5); // payload byte lost
+
+        MessageChunk chunk = new MessageBufferService(receiveBuffer).readSince(0, 100);
+        assertArrayEquals(new byte[]{(byte) 0xff, 'a', 'b', (byte) 0xff, -1, -1, -1, -1}, chunk.getData());
+        assertEquals(receiveBuffer.getWriteOffset(), chunk.getNextOffset());
+        for (int i = 0; i < 4; i++) {
+            assertFalse(chunk.isLost(i));
+            assertTrue(chunk.isLost(4 + i));
+        }
+        assertEquals("\u00ffab\u00ff" + repeat("\uffff", 4), chunk.getText());
+
+        // an escaped byte is not split between two reads
+        chunk = new MessageBufferService(receiveBuffer).readSince(0, 1);
+        assertArrayEquals(new byte[]{(byte) 0xff}, chunk.getData());
+        assertFalse(chunk.isLost(0));
+        assertEquals(2, chunk.getNextOffset());
+    }
+
+    @Test
+    void testCorruptedAndLostFrames() {
+        MessageBuffer sendBuffer = new MessageBuffer("aaaabbbbccccdddd");
+        MessageBuffer receiveBuffer = new MessageBuffer();
+
+        FrameEncoderSource source = new FrameEncoderSource(new MessageBufferSource(sendBuffer), 4);
+        MessageBufferSink messageBufferSink = new MessageBufferSink(receiveBuffer);
+        FrameDecoderSink sink = new FrameDecoderSink(messageBufferSink, 4);
+        int frameSize = FrameFormat.frameSize(4);
+
+        transmit(source, sink, frameSize, -1);
+        transmit(source, sink, frameSize, 5); // payload byte lost
+        skip(source, frameSize);                    // whole frame lost
+        transmit(source, sink, frameSize, -1);
+
+        assertEquals("aaaa" + repeat("\uffff", 8) + "dddd", new MessageBufferService(receiveBuffer).getQueuedBytesAsString());
+        assertEquals(8, messageBufferSink.getErasures());
+        assertEquals(2, sink.getReceivedFrames());
+        assertEquals(1, sink.getCorruptedFrames());
+        assertEquals(1, sink.getLostFrames());
+    }
+
+    @Test
+    void testResetResendsFrame() {
+        MessageBuffer sendBuffer = new MessageBuffer("abcdefgh");
+        MessageBuffer receiveBuffer = new MessageBuffer();
+
+        FrameEncoderSource source = new FrameEncoderSource(new MessageBufferSource(sendBuffer), 4);
+        FrameDecoderSink sink = new FrameDecoderSink(new MessageBufferSink(receiveBuffer), 4);
+        int frameSize = FrameFormat.frameSize(4);
+
+        transmit(source, sink, frameSize, -1);
+        transmit(source, sink, 3, -1);
+        source.reset();
+        sink.reset();
+        transmit(source, sink, frameSize, -1);
+
+        assertEquals("abcdefgh", receiveBuffer.toString());
+        assertEquals(2, sink.getReceivedFrames());
+        assertEquals(0, sink.getCorruptedFrames());
+    }
+
+    @Test
+    void testRestartResendsUnsentFrame() {
+        // the message buffer outlives the sender like a spooled message buffer
+        MessageBuffer sendBuffer = new MessageBuffer("abcdefgh");
+        MessageBuffer receiveBuffer = new MessageBuffer();
+
+        FrameEncoderSource source = new FrameEncoderSource(new MessageBufferSource(sendBuffer), 4);
+        FrameDecoderSink sink = new FrameDecoderSink(new MessageBufferSink(receiveBuffer), 4);
+        int frameSize = FrameFormat.frameSize(4);
+
+        transmit(source, sink, frameSize, -1);
+        transmit(source, sink, 3, -1); // the second frame is built, but not sent completely
+        assertEquals("efgh", sendBuffer.toString());
+
+        // both players start again, a restarted sender starts again with sequence number 0
+        source = new FrameEncoderSource(new MessageBufferSource(sendBuffer), 4);
+        sink = new FrameDecoderSink(new MessageBufferSink(receiveBuffer), 4);
+        transmit(source, sink, frameSize, -1);
+
+        assertEquals("abcdefgh", receiveBuffer.toString());
+        assertEquals(0, sendBuffer.size());
+    }
+
+    @Test
+    void testLostFramesAreCorrectedByFec() {
+        byte[] message = "forward error correction below the link frames fill a superblock".getBytes();
+        MessageBuffer sendBuffer = new MessageBuffer();
+        sendBuffer.push(message, 0, message.length);
+        MessageBuffer receiveBuffer = new MessageBuffer();
+
+        // one superblock of 4 * 24 symbols in 12 frames, each frame hits every codeword twice
+        FrameEncoderSource source = new FrameEncoderSource(new FecEncoderSource(sendBuffer, new ReedSolomon(24, 16), 4), 8);
+        FecDecoderSink fec = new FecDecoderSink(new MessageBufferSink(receiveBuffer), new ReedSolomon(24, 16), 4);
+        FrameDecoderSink sink = new FrameDecoderSink(fec, 8);
+        int frameSize = FrameFormat.frameSize(8);
+
+        for (int frame = 0; frame < 12; frame++) {
+            if (frame % 3 == 1) {
+                skip(source, frameSize);
+            } else {
+                transmit(source, sink, frameSize, -1);
+            }
+        }
+
+        assertEquals(4, sink.getLostFrames());
+        assertEquals(4, fec.getCorrectedBlocks());
+        assertEquals(0, fec.getUncorrectableBlocks());
+        assertEquals(new String(message), receiveBuffer.toString());
+    }
+
+    /**
+     * Simulate the encoder and decoder: a preamble is sent before every frame.
+     *
+     * @return the number of preambles.
+     */
+    private static int transmit(FrameEncoderSource source, FrameDecoderSink sink, int count, int lostIndex) {
+        int preambles = 0;
+        for (int i = 0; i < count; i++) {
+            if (source.startsFrame()) {
+                sink.sync();
+                preambles++;
+            }
+
+            byte b = source.peek();
+            source.commit();
+            source.confirm();
+            if (i == lostIndex) {
+                sink.pushErasure();
+            } else {
+                sink.push(b);
+            }
+        }
+        return preambles;
+    }
+
+    private static String repeat(String s, int count) {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            out.append(s);
+        }
+        return out.toString();
+    }
+
+    private static void skip(FrameEncoderSource source, int count) {
+        for (int i = 0; i < count; i++) {
+            source.peek();
+            source.commit();
+            source.confirm();
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package at.ac.uibk.chaas.minesteg.nio;
+
+import at.ac.uibk.chaas.messageclient.nio.MessageBufferStats;
+import at.ac.uibk.chaas.messageclient.nio.MessageProtocol;
+import at.ac.uibk.chaas.messageclient.nio.NioMessageBufferClient;
+import at.ac.uibk.chaas.messageclient.rmi.IMessageBufferService;
+import at.ac.uibk.chaas.messageclient.rmi.MessageChunk;
+import at.ac.uibk.chaas.minesteg.rmi.RMIServer;
+import at.ac.uibk.chaas.minesteg.steg.MessageBuffer;
+import at.ac.uibk.chaas.minesteg.steg.MessageBufferSink;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.rmi.registry.LocateRegistry;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NioServerTests {
+    @Test
+    void testRequests() throws IOException {
+        MessageBuffer buffer = new MessageBuffer();
+        NioServer server = startServer(buffer);
+
+        try (NioMessageBufferClient client = new NioMessageBufferClient("127.0.0.1", server.getPort())) {
+            client.push("hello");
+            assertEquals(5, client.getQueuedByteCount());
+            assertEquals("hello", client.getQueuedBytesAsString());
+
+            MessageChunk chunk = client.readSince(2, 2);
+            assertEquals(2, chunk.getOffset());
+            assertArrayEquals("ll".getBytes(), chunk.getData());
+
+            client.clearQueue();
+            assertEquals(0, client.getQueuedByteCount());
+
+            MessageBufferStats stats = client.getStats();
+            assertEquals(5, stats.getReadOffset());
+            assertEquals(5, stats.getWriteOffset());
+            assertEquals(1, stats.getConnections());
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    void testLostBytesAreMarked() throws IOException {
+        MessageBuffer buffer = new MessageBuffer();
+        MessageBufferSink sink = new MessageBufferSink(buffer);
+        sink.push((byte) 'a');
+        sink.push((byte) 0xff);
+        sink.pushErasure();
+        NioServer server = startServer(buffer);
+
+        try (NioMessageBufferClient client = new NioMessageBufferClient("127.0.0.1", server.getPort())) {
+            MessageChunk chunk = client.readSince(0, 100);
+            assertArrayEquals(new byte[]{'a', (byte) 0xff, (byte) 0xff}, chunk.getData());
+            assertFalse(chunk.isLost(1));
+            assertTrue(chunk.isLost(2));
+            assertEquals(5, chunk.getNextOffset());
+
+            assertEquals("a\u00ff\uffff", client.getQueuedBytesAsString());
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    void testPipelinedPush() throws IOException {
+        MessageBuffer buffer = new MessageBuffer();
+        NioServer server = startServer(buffer);
+
+        byte[][] chunks = new byte[100][];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = new byte[]{(byte) i, (byte) (i + 1)};
+        }
+
+        try (NioMessageBufferClient client = new NioMessageBufferClient("127.0.0.1", server.getPort())) {
+            client.pushAll(chunks);
+            assertEquals(200, client.getQueuedByteCount());
+        } finally {
+            server.stop();
+        }
+
+        for (int i = 0; i < chunks.length; i++) {
+            assertEquals((byte) i, buffer.get());
+            assertEquals((byte) (i + 1), buffer.get());
+        }
+    }
+
+    @Test
+    void testLongPoll() throws IOException, InterruptedException {
+        MessageBuffer buffer = new MessageBuffer();
+        NioServer server = startServer(buffer);
+
+        try (NioMessageBufferClient client = new NioMessageBufferClient("127.0.0.1", server.getPort())) {
+            MessageChunk chunk = client.awaitSince(0, 100, 20);
+            assertEquals(0, chunk.getData().length);
+
+            Thread producer = new Thread(() -> {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException ignored) {
+                }
+                buffer.push("x");
+            });
+            producer.start();
+
+            long start = System.currentTimeMillis();
+            chunk = client.awaitSince(0, 100, 10_000);
+            producer.join();
+
+            assertArrayEquals("x".getBytes(), chunk.getData());
+            assertTrue(System.currentTimeMillis() - start < 5000);
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    void testGetAllFitsIntoOneFrame() throws IOException {
+        MessageBuffer buffer = new MessageBuffer();
+        byte[] data = new byte[MessageProtocol.MAX_FRAME_SIZE + 10];
+        buffer.push(data, 0, data.length);
+        NioServer server = startServer(buffer);
+
+        try (NioMessageBufferClient client = new NioMessageBufferClient("127.0.0.1", server.getPort())) {
+            assertEquals(MessageProtocol.MAX_GET_ALL_SIZE, client.getQueuedBytes().length);
+            assertEquals(data.length, client.getQueuedByteCount());
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    void testMalformedFrameClosesOnlyThatConnection() throws IOException {
+        MessageBuffer buffer = new MessageBuffer("abc");
+        NioServer server = startServer(buffer);
+
+        try (Socket socket = new Socket("127.0.0.1", server.getPort());
+             NioMessageBufferClient client = new NioMessageBufferClient("127.0.0.1", server.getPort())) {
+            OutputStream out = socket.getOutputStream();
+            out.write(new byte[]{0, 0, 0, 2, 2, 0}); // read request without parameters
+            out.flush();
+            assertEquals(-1, socket.getInputStream().read());
+
+            assertEquals(3, client.getQueuedByteCount());
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    void testClosedParkedConnectionIsDropped() throws IOException, InterruptedException {
+        MessageBuffer buffer = new MessageBuffer();
+        NioServer server = startServer(buffer);
+
+        try (Socket socket = new Socket("127.0.0.1", server.getPort());
+             NioMessageBufferClient client = new NioMessageBufferClient("127.0.0.1", server.getPort())) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            out.writeInt(21);
+            out.writeByte(MessageProtocol.OP_READ_SINCE);
+            out.writeLong(0);
+            out.writeInt(100);
+            out.writeLong(Long.MAX_VALUE); // the timeout is capped, so the request is parked
+            out.flush();
+
+            Thread.sleep(200);
+            assertEquals(0, socket.getInputStream().available());
+            assertEquals(2, client.getStats().getConnections());
+
+            socket.close();
+            long deadline = System.currentTimeMillis() + 5000;
+            while (client.getStats().getConnections() > 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, client.getStats().getConnections());
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    void benchmarkRmiVsNio() throws Exception {
+        final int roundTrips = 2000;
+        final int chunkSize = 16 * 1024;
+        final int chunkCount = 512;
+
+        byte[][] chunks = new byte[chunkCount][];
+        for (int i = 0; i < chunkCount; i++) {
+            chunks[i] = new byte[chunkSize];
+        }
+
+        MessageBuffer nioBuffer = new MessageBuffer();
+        NioServer server = startServer(nioBuffer);
+        try (NioMessageBufferClient client = new NioMessageBufferClient("127.0.0.1", server.getPort())) {
+            System.out.println("NIO round trip: " + measureRoundTrip(client, roundTrips) + " us");
+            System.out.println("NIO push: " + measurePush(client, chunks) + " MB/s");
+
+            long start = System.nanoTime();
+            client.pushAll(chunks);
+            System.out.println("NIO pipelined push: " + throughput(chunks, System.nanoTime() - start) + " MB/s");
+        } finally {
+            server.stop();
+        }
+
+        int rmiPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            rmiPort = socket.getLocalPort();
+        }
+        RMIServer rmiServer = new RMIServer(new MessageBuffer(), rmiPort);
+        rmiServer.run();
+        try {
+            IMessageBufferService rmiService = (IMessageBufferService) LocateRegistry.getRegistry(rmiPort)
+                    .lookup(IMessageBufferService.class.getSimpleName());
+
+            System.out.println("RMI round trip: " + measureRoundTrip(rmiService, roundTrips) + " us");
+            System.out.println("RMI push: " + measurePush(rmiService, chunks) + " MB/s");
+        } finally {
+            rmiServer.stop();
+        }
+    }
+
+    private static NioServer startServer(MessageBuffer buffer) {
+        NioServer server = new NioServer(buffer, 0);
+        server.run();
+        return server;
+    }
+
+    private static long measureRoundTrip(IMessageBufferService service, int count) throws IOException {
+        for (int i = 0; i < count / 10; i++) {
+            service.getQueuedByteCount(); // warm up
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            service.getQueuedByteCount();
+        }
+        return (System.nanoTime() - start) / count / 1000;
+    }
+
+    private static long measurePush(IMessageBufferService service, byte[][] chunks) throws IOException {
+        long start = System.nanoTime();
+        for (byte[] chunk : chunks) {
+            service.push(chunk);
+        }
+        return throughput(chunks, System.nanoTime() - start);
+    }
+
+    private static long throughput(byte[][] chunks, long nanos) {
+        long bytes = (long) chunks.length * chunks[0].length;
+        return bytes * 1000 / Math.max(1, nanos);
+    }
+}
@@ -0,0 +1,57 @@
+package at.ac.uibk.chaas.minesteg.rmi;
+
+import at.ac.uibk.chaas.messageclient.rmi.MessageChunk;
+import at.ac.uibk.chaas.minesteg.steg.MessageBuffer;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MessageBufferServiceTests {
+    @Test
+    void testReadSince() {
+        MessageBuffer buffer = new MessageBuffer("hello");
+        MessageBufferService service = new MessageBufferService(buffer);
+
+        MessageChunk chunk = service.readSince(0, 3);
+        assertEquals(0, chunk.getOffset());
+        assertArrayEquals("hel".getBytes(), chunk.getData());
+
+        chunk = service.readSince(chunk.getNextOffset(), 100);
+        assertArrayEquals("lo".getBytes(), chunk.getData());
+        assertEquals(5, chunk.getNextOffset());
+
+        chunk = service.readSince(chunk.getNextOffset(), 100);
+        assertEquals(0, chunk.getData().length);
+        assertEquals(5, chunk.getNextOffset());
+
+        buffer.push(" world");
+        assertArrayEquals(" world".getBytes(), service.readSince(5, 100).getData());
+    }
+
+    @Test
+    void testReadSinceSkipsRemovedBytes() {
+        MessageBuffer buffer = new MessageBuffer("hello");
+        MessageBufferService service = new MessageBufferService(buffer);
+        buffer.get();
+        buffer.get();
+
+        MessageChunk chunk = service.readSince(0, 100);
+        assertEquals(2, chunk.getOffset());
+        assertArrayEquals("llo".getBytes(), chunk.getData());
+
+        service.clearQueue();
+        buffer.push("x");
+        chunk = service.readSince(chunk.getNextOffset(), 100);
+        assertEquals(5, chunk.getOffset());
+        assertArrayEquals("x".getBytes(), chunk.getData());
+    }
+
+    @Test
+    void testAwaitSinceTimeout() {
+        MessageBufferService service = new MessageBufferService(new MessageBuffer("a"));
+
+        MessageChunk chunk = service.awaitSince(1, 100, 20);
+        assertEquals(0, chunk.getData().length);
+        assertEquals(1, chunk.getNextOffset());
+    }
+}
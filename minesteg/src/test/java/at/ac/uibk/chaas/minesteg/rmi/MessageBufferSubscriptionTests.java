@@ -0,0 +1,92 @@
+package at.ac.uibk.chaas.minesteg.rmi;
+
+import at.ac.uibk.chaas.messageclient.rmi.IMessageBufferListener;
+import at.ac.uibk.chaas.messageclient.rmi.MessageChunk;
+import at.ac.uibk.chaas.minesteg.steg.MessageBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.rmi.RemoteException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MessageBufferSubscriptionTests {
+    @Test
+    void testBurstIsCoalesced() throws InterruptedException {
+        MessageBuffer buffer = new MessageBuffer("ab");
+        MessageBufferService service = new MessageBufferService(buffer);
+
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        AtomicInteger calls = new AtomicInteger();
+        IMessageBufferListener listener = chunk -> {
+            synchronized (received) {
+                received.write(chunk.getData(), 0, chunk.getData().length);
+                calls.incrementAndGet();
+                received.notifyAll();
+            }
+        };
+        service.subscribe(listener, 0);
+
+        for (int i = 0; i < 100; i++) {
+            buffer.push((byte) 'x');
+        }
+
+        synchronized (received) {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (received.size() < 102 && System.currentTimeMillis() < deadline) {
+                received.wait(100);
+            }
+        }
+        service.unsubscribe(listener);
+
+        assertEquals(102, received.size());
+        assertTrue(calls.get() < 100, "burst was not coalesced: " + calls.get() + " callbacks");
+    }
+
+    @Test
+    void testUnreachableListenerIsRemoved() throws InterruptedException {
+        MessageBufferService service = new MessageBufferService(new MessageBuffer());
+
+        AtomicInteger calls = new AtomicInteger();
+        IMessageBufferListener listener = chunk -> {
+            calls.incrementAndGet();
+            throw new RemoteException("client gone");
+        };
+        service.subscribe(listener, 0);
+
+        service.messageBuffer.push((byte) 1);
+        Thread.sleep(200);
+        service.messageBuffer.push((byte) 2);
+        Thread.sleep(200);
+
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void testChunkOffsets() throws InterruptedException {
+        MessageBuffer buffer = new MessageBuffer("abc");
+        MessageBufferService service = new MessageBufferService(buffer);
+
+        MessageChunk[] last = new MessageChunk[1];
+        IMessageBufferListener listener = chunk -> {
+            synchronized (last) {
+                last[0] = chunk;
+                last.notifyAll();
+            }
+        };
+        service.subscribe(listener, 1);
+
+        synchronized (last) {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (last[0] == null && System.currentTimeMillis() < deadline) {
+                last.wait(100);
+            }
+        }
+        service.unsubscribe(listener);
+
+        assertEquals(1, last[0].getOffset());
+        assertEquals(3, last[0].getNextOffset());
+        assertArrayEquals("bc".getBytes(), last[0].getData());
+    }
+}
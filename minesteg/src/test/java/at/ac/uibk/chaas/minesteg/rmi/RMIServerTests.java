@@ -0,0 +1,40 @@
+package at.ac.uibk.chaas.minesteg.rmi;
+
+import at.ac.uibk.chaas.messageclient.rmi.IMessageBufferService;
+import at.ac.uibk.chaas.minesteg.steg.MessageBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.net.ServerSocket;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RMIServerTests {
+    @Test
+    void testDuplexBindsBothBuffers() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+
+        MessageBuffer outbound = new MessageBuffer();
+        MessageBuffer inbound = new MessageBuffer("received");
+        RMIServer server = new RMIServer(outbound, inbound, port);
+        server.run();
+        try {
+            Registry registry = LocateRegistry.getRegistry(port);
+            IMessageBufferService outboundService = (IMessageBufferService) registry
+                    .lookup(IMessageBufferService.class.getSimpleName());
+            IMessageBufferService inboundService = (IMessageBufferService) registry
+                    .lookup(IMessageBufferService.class.getSimpleName() + IMessageBufferService.INBOUND_SUFFIX);
+
+            outboundService.push("to send");
+            assertEquals("to send", outbound.toString());
+            assertEquals("received", inboundService.getQueuedBytesAsString());
+            assertEquals("received", inbound.toString());
+        } finally {
+            server.stop();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package at.ac.uibk.chaas.minesteg.shm;
+
+import at.ac.uibk.chaas.messageclient.shm.SharedMemoryRing;
+import at.ac.uibk.chaas.minesteg.steg.MessageBuffer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SharedMemoryBridgeTests {
+    private File ringFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        ringFile = File.createTempFile("minesteg-ring", ".shm");
+        ringFile.delete();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ringFile.delete();
+    }
+
+    @Test
+    void testRingWrapAround() throws IOException {
+        try (SharedMemoryRing ring = SharedMemoryRing.open(ringFile, 10)) {
+            byte[] out = new byte[10];
+
+            assertEquals(7, ring.offer(new byte[]{1, 2, 3, 4, 5, 6, 7}, 0, 7));
+            assertEquals(5, ring.poll(out, 0, 5));
+            assertEquals(8, ring.offer(new byte[]{8, 9, 10, 11, 12, 13, 14, 15, 16}, 0, 9)); // only 8 bytes fit
+            assertEquals(10, ring.size());
+            assertEquals(0, ring.offer(new byte[]{1}, 0, 1));
+
+            assertEquals(10, ring.poll(out, 0, out.length));
+            assertArrayEquals(new byte[]{6, 7, 8, 9, 10, 11, 12, 13, 14, 15}, out);
+            assertEquals(0, ring.size());
+        }
+    }
+
+    @Test
+    void testReopenKeepsContent() throws IOException {
+        try (SharedMemoryRing ring = SharedMemoryRing.open(ringFile, 64)) {
+            ring.push("hello".getBytes(), 0, 5, 0);
+        }
+
+        try (SharedMemoryRing ring = SharedMemoryRing.open(ringFile, 1024)) {
+            assertEquals(64, ring.capacity()); // the capacity of the existing ring is used
+            byte[] out = new byte[5];
+            assertEquals(5, ring.poll(out, 0, out.length));
+            assertArrayEquals("hello".getBytes(), out);
+        }
+    }
+
+    @Test
+    void testBridgeTransfersToMessageBuffer() throws IOException, InterruptedException {
+        final int total = 1_000_000;
+        MessageBuffer buffer = new MessageBuffer();
+
+        try (SharedMemoryRing consumerRing = SharedMemoryRing.open(ringFile, 4096);
+             SharedMemoryRing producerRing = SharedMemoryRing.open(ringFile, 4096)) {
+            SharedMemoryBridge bridge = new SharedMemoryBridge(consumerRing, buffer);
+            bridge.start();
+
+            byte[] chunk = new byte[1000];
+            for (int sent = 0; sent < total; sent += chunk.length) {
+                for (int i = 0; i < chunk.length; i++) {
+                    chunk[i] = (byte) (sent + i);
+                }
+                producerRing.push(chunk, 0, chunk.length, 5000);
+            }
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (buffer.size() < total && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            bridge.stop();
+        }
+
+        assertEquals(total, buffer.size());
+        byte[] out = new byte[total];
+        buffer.drain(out, 0, total);
+        for (int i = 0; i < total; i++) {
+            assertEquals((byte) i, out[i]);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package at.ac.uibk.chaas.minesteg.steg;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AngleCodecTests {
+    @Test
+    void testWireConversionMatchesFloor() {
+        float[] angles = new float[]{0.0f, 90.0f, 180.0f, 270.0f, 360.0f, -0.4553f, -89.5553f, 4123.4553f, -1123.4553f};
+
+        for (float angle : angles) {
+            assertEquals((int) Math.floor(angle * 256.0F / 360.0F), AngleCodec.toWireInt(angle));
+            assertEquals((byte) Math.floor(angle * 256.0F / 360.0F), AngleCodec.toWire(angle));
+        }
+    }
+
+    @Test
+    void testRandomPitchKeepsWireValue() {
+        AngleCodec codec = new AngleCodec(1);
+
+        for (int wire = AngleCodec.PITCH_MIN_WIRE; wire <= AngleCodec.PITCH_MAX_WIRE; wire++) {
+            for (int i = 0; i < 1000; i++) {
+                float pitch = codec.randomPitch(wire);
+
+                assertEquals(wire, AngleCodec.toWireInt(pitch));
+                assertTrue(pitch >= -90.0f && pitch <= 90.0f);
+            }
+        }
+
+        // out of range wire values are clamped
+        assertEquals(AngleCodec.PITCH_MAX_WIRE, AngleCodec.toWireInt(codec.randomPitch(100)));
+        assertEquals(AngleCodec.PITCH_MIN_WIRE, AngleCodec.toWireInt(codec.randomPitch(-100)));
+    }
+
+    @Test
+    void testRandomYawKeepsWireValue() {
+        AngleCodec codec = new AngleCodec(2);
+
+        for (int wire = -3000; wire <= 3000; wire++) {
+            for (int i = 0; i < 50; i++) {
+                assertEquals(wire, AngleCodec.toWireInt(codec.randomYaw(wire)));
+            }
+        }
+    }
+
+    @Test
+    void testNextFloatRange() {
+        AngleCodec codec = new AngleCodec(0);
+
+        for (int i = 0; i < 100000; i++) {
+            float value = codec.nextFloat();
+            assertTrue(value >= 0.0f && value < 1.0f);
+        }
+    }
+}
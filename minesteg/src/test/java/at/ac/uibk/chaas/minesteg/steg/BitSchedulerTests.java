@@ -0,0 +1,157 @@
+package at.ac.uibk.chaas.minesteg.steg;
+
+import at.ac.uibk.chaas.minesteg.carrier.Carrier;
+import net.minecraft.network.IPacket;
+import net.minecraft.network.play.client.CPlayerPacket;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BitSchedulerTests {
+    @Test
+    void testBytesAreSpreadOverCarriers() {
+        String message = "The quick brown fox jumps over the lazy dog";
+        BitScheduler scheduler = new BitScheduler(new MessageBufferSource(new MessageBuffer(message)));
+        scheduler.setPrintToStdout(false);
+        scheduler.setBytesUntilSync(Integer.MAX_VALUE);
+        List<TestCarrier> carriers = new ArrayList<>();
+        for (int bits = 1; bits <= 3; bits++) {
+            carriers.add(new TestCarrier(bits, 5 - bits));
+            scheduler.addCarrier(carriers.get(carriers.size() - 1));
+        }
+
+        // receive the symbols like the decoder: a byte belongs to the carrier that sent its first symbol
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        List<int[]> started = new ArrayList<>(); // index in message, value, position per carrier
+        int[][] current = new int[carriers.size()][];
+        CPlayerPacket packet = new CPlayerPacket.RotationPacket(0.0f, 0.0f, true);
+        for (int i = 0; i < 2000; i++) {
+            scheduler.beginPacket();
+            scheduler.embed(packet, false);
+            for (int c = 0; c < carriers.size(); c++) {
+                int symbol = carriers.get(c).symbol;
+                if (symbol == Carrier.NO_SYMBOL) {
+                    continue;
+                }
+                if (current[c] == null) {
+                    current[c] = new int[]{started.size(), 0, 0};
+                    started.add(current[c]);
+                }
+                current[c][1] |= symbol << current[c][2];
+                current[c][2] += carriers.get(c).getSymbolBits();
+                if (current[c][2] > 7) {
+                    current[c] = null;
+                }
+            }
+            scheduler.finishPacket();
+        }
+        for (int[] value : started) {
+            received.write(value[1]);
+        }
+
+        assertEquals(message, new String(received.toByteArray()).substring(0, message.length()));
+        for (TestCarrier carrier : carriers) {
+            assertTrue(carrier.symbols > 0, "every carrier takes bytes");
+        }
+    }
+
+    @Test
+    void testCarrierWithoutCapacityKeepsValue() {
+        MessageBuffer messageBuffer = new MessageBuffer("Hello");
+        BitScheduler scheduler = new BitScheduler(new MessageBufferSource(messageBuffer));
+        scheduler.setPrintToStdout(false);
+        scheduler.setBytesUntilSync(Integer.MAX_VALUE);
+        TestCarrier resting = new TestCarrier(1, Integer.MAX_VALUE);
+        TestCarrier moving = new TestCarrier(1, 1);
+        scheduler.addCarrier(resting);
+        scheduler.addCarrier(moving);
+
+        CPlayerPacket packet = new CPlayerPacket.RotationPacket(0.0f, 0.0f, true);
+        for (int i = 0; i < 200; i++) {
+            scheduler.beginPacket();
+            scheduler.embed(packet, i < 10); // no symbols in the preamble
+            scheduler.finishPacket();
+            if (i < 10) {
+                assertEquals(0, moving.symbols);
+            }
+        }
+
+        assertEquals(0, resting.symbols);
+        assertEquals(0, messageBuffer.size());
+        assertTrue(moving.symbols >= 5 * 8);
+    }
+
+    @Test
+    void testSpacingDoesNotDependOnRepeatCount() {
+        BitScheduler scheduler = new BitScheduler(new MessageBufferSource(new MessageBuffer("Hello")));
+        scheduler.setPrintToStdout(false);
+        scheduler.setBytesUntilSync(Integer.MAX_VALUE);
+        scheduler.setRepeatCount(0);
+        TestCarrier first = new TestCarrier(2, 1);
+        TestCarrier second = new TestCarrier(2, 1);
+        scheduler.addCarrier(first);
+        scheduler.addCarrier(second);
+
+        // the server merges the packets of one tracking interval, so every symbol needs packets of its own
+        CPlayerPacket packet = new CPlayerPacket.RotationPacket(0.0f, 0.0f, true);
+        TestCarrier[] carriers = {first, second};
+        int[] lastSymbol = {-10, -10};
+        for (int i = 0; i < 100; i++) {
+            scheduler.beginPacket();
+            scheduler.embed(packet, false);
+            for (int c = 0; c < carriers.length; c++) {
+                if (carriers[c].symbol != Carrier.NO_SYMBOL) {
+                    assertTrue(i - lastSymbol[c] >= SharedPreferences.SERVER_TRACKING_INTERVAL, "packet " + i);
+                    lastSymbol[c] = i;
+                }
+            }
+            scheduler.finishPacket();
+        }
+
+        // both carriers still send a new symbol in every tracking interval
+        assertEquals(2 * 100 / SharedPreferences.SERVER_TRACKING_INTERVAL, first.symbols + second.symbols);
+    }
+
+    /**
+     * A carrier that can take a symbol in every n-th packet.
+     */
+    private static final class TestCarrier implements Carrier {
+        private final int bits;
+        private final int interval;
+        private int packets = 0;
+        private int symbol = NO_SYMBOL;
+        private int symbols = 0;
+
+        private TestCarrier(int bits, int interval) {
+            this.bits = bits;
+            this.interval = interval;
+        }
+
+        @Override
+        public int getSymbolBits() {
+            return bits;
+        }
+
+        @Override
+        public int capacity(CPlayerPacket packet) {
+            return ++packets % interval == 0 ? bits : 0;
+        }
+
+        @Override
+        public void embed(CPlayerPacket packet, int symbol) {
+            this.symbol = symbol;
+            if (symbol != NO_SYMBOL) {
+                symbols++;
+            }
+        }
+
+        @Override
+        public int extract(IPacket<?> packet) {
+            return NO_SYMBOL;
+        }
+    }
+}
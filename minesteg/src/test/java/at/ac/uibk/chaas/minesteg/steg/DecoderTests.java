@@ -0,0 +1,129 @@
+package at.ac.uibk.chaas.minesteg.steg;
+
+import at.ac.uibk.chaas.messageclient.rmi.MessageChunk;
+import at.ac.uibk.chaas.minesteg.HelperUtil;
+import at.ac.uibk.chaas.minesteg.PacketAccessor;
+import at.ac.uibk.chaas.minesteg.rmi.MessageBufferService;
+import net.minecraft.network.play.client.CPlayerPacket;
+import net.minecraft.network.play.server.SEntityHeadLookPacket;
+import net.minecraft.network.play.server.SEntityPacket;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DecoderTests {
+    private static final String STEGO_KEY = "-126,-100,-85,-72,-63,-51,-44,-30,-22,-11,-6,5,16,26,32,48,55,62,87,99,112,126";
+    private static final int SENDER_ID = 42;
+    private static final long TICK_MS = 50;
+
+    @Test
+    void testHeadLookBeforeLookKeepsByteOrder() throws Exception {
+        String message = "The quick brown fox jumps over the lazy dog";
+        Encoder encoder = new Encoder(new MessageBuffer(message), "receiver", StegoKey.parse(STEGO_KEY));
+        encoder.setPrintToStdout(false);
+
+        MessageBuffer received = new MessageBuffer();
+        Decoder decoder = new Decoder(received, "sender", StegoKey.parse(STEGO_KEY));
+        decoder.setPrintToStdout(false);
+        PacketRing queue = new PacketRing(PacketRing.DEFAULT_CAPACITY);
+        decoder.setQueue(queue);
+
+        // the first packet of the sender starts the initialization delay of the decoder
+        long timeMs = TICK_MS;
+        queue.offer(new SEntityPacket.LookPacket(SENDER_ID, (byte) 0, (byte) 0, true), timeMs);
+        timeMs += SharedPreferences.INIT_DELAY_RECEIVER_MS + TICK_MS;
+
+        CPlayerPacket packet = new CPlayerPacket.RotationPacket(0.0f, 0.0f, true);
+        Random random = new Random(3);
+        float yaw = 0;
+        float pitch = 0;
+        for (int i = 0; i < 3000; i++) {
+            yaw += random.nextFloat() * 4;
+            pitch = Math.max(-80, Math.min(80, pitch + random.nextFloat() * 6 - 3));
+            moveTo(packet, yaw, pitch);
+            encoder.encodePacket(packet);
+
+            // the head look with the new yaw arrives before the look packet of the same tick
+            byte yawWire = AngleCodec.toWire(packet.getYaw(0));
+            byte pitchWire = AngleCodec.toWire(packet.getPitch(0));
+            queue.offer(headLook(yawWire), timeMs);
+            queue.offer(new SEntityPacket.LookPacket(SENDER_ID, yawWire, pitchWire, true), timeMs);
+            decoder.processQueue();
+            timeMs += TICK_MS;
+        }
+
+        assertTrue(received.size() >= message.length(), received.size() + " bytes received");
+        assertEquals(message, received.toString().substring(0, message.length()));
+    }
+
+    @Test
+    void testWalkingSenderIsDecoded() {
+        String message = "The quick brown fox jumps over the lazy dog";
+        Encoder encoder = new Encoder(new MessageBuffer(message), "receiver", StegoKey.parse(STEGO_KEY));
+        encoder.setPrintToStdout(false);
+        encoder.setPositionBits(2);
+
+        MessageBuffer received = new MessageBuffer();
+        Decoder decoder = new Decoder(received, "sender", StegoKey.parse(STEGO_KEY));
+        decoder.setPrintToStdout(false);
+        decoder.setPositionBits(2);
+        PacketRing queue = new PacketRing(PacketRing.DEFAULT_CAPACITY);
+        decoder.setQueue(queue);
+
+        long timeMs = TICK_MS;
+        queue.offer(new SEntityPacket.RelativeMovePacket(SENDER_ID, (short) 0, (short) 0, (short) 0, true), timeMs);
+        timeMs += SharedPreferences.INIT_DELAY_RECEIVER_MS + TICK_MS;
+
+        // the player only walks, the server relays the relative moves without a rotation
+        CPlayerPacket packet = new CPlayerPacket.PositionPacket(100.3, 64.0, -50.7, true);
+        PacketAccessor accessor = PacketAccessor.of(packet.getClass());
+        Random random = new Random(5);
+        double x = 100.3;
+        double z = -50.7;
+        long previousX = PositionCodec.toWire(x);
+        long previousZ = PositionCodec.toWire(z);
+        for (int i = 0; i < 6000; i++) {
+            x += random.nextDouble() * 0.2;
+            z += random.nextDouble() * 0.1 - 0.05;
+            accessor.setX(packet, x);
+            accessor.setZ(packet, z);
+            encoder.encodePacket(packet);
+
+            long wireX = PositionCodec.toWire(packet.getX(0));
+            long wireZ = PositionCodec.toWire(packet.getZ(0));
+            queue.offer(new SEntityPacket.RelativeMovePacket(SENDER_ID, (short) (wireX - previousX), (short) 0,
+                    (short) (wireZ - previousZ), true), timeMs);
+            decoder.processQueue();
+            previousX = wireX;
+            previousZ = wireZ;
+            timeMs += TICK_MS;
+        }
+
+        MessageChunk chunk = new MessageBufferService(received).read(0, Integer.MAX_VALUE);
+        assertTrue(chunk.getData().length >= message.length(), chunk.getData().length + " bytes received");
+        assertEquals(message, chunk.getText().substring(0, message.length()));
+    }
+
+    private static SEntityHeadLookPacket headLook(byte yaw) throws Exception {
+        SEntityHeadLookPacket packet = new SEntityHeadLookPacket();
+        setField(packet, "entityId", SENDER_ID);
+        setField(packet, "yaw", yaw);
+        return packet;
+    }
+
+    private static void setField(Object packet, String fieldName, Object value) throws Exception {
+        Field field = HelperUtil.findUnderlyingField(packet.getClass(), fieldName);
+        assertNotNull(field);
+        field.setAccessible(true);
+        field.set(packet, value);
+    }
+
+    private static void moveTo(CPlayerPacket packet, float yaw, float pitch) {
+        PacketAccessor accessor = PacketAccessor.of(packet.getClass());
+        accessor.setYaw(packet, yaw);
+        accessor.setPitch(packet, pitch);
+    }
+}
@@ -0,0 +1,275 @@
+package at.ac.uibk.chaas.minesteg.steg;
+
+import at.ac.uibk.chaas.minesteg.PacketAccessor;
+import net.minecraft.network.play.client.CPlayerPacket;
+import net.minecraft.network.play.server.SPlayerListItemPacket;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EncoderTests {
+    private static final String STEGO_KEY = "-126,-100,-85,-72,-63,-51,-44,-30,-22,-11,-6,5,16,26,32,48,55,62,87,99,112,126";
+    private static final int WARMUP_PACKETS = 50_000;
+    private static final int MEASURED_PACKETS = 10_000;
+    private static final int BENCHMARK_PACKETS = 20_000;
+
+    @Test
+    void testEncodedValuesAreValidAngles() {
+        Encoder encoder = createEncoder();
+        CPlayerPacket packet = new CPlayerPacket.RotationPacket(0.0f, 0.0f, true);
+
+        for (int i = 0; i < 1000; i++) {
+            float yaw = i * 0.7f;
+            float pitch = (i % 100) - 50.0f;
+            moveTo(packet, yaw, pitch);
+
+            encoder.encodePacket(packet);
+
+            assertTrue(packet.getPitch(0) >= -90.0f && packet.getPitch(0) <= 90.0f);
+            assertTrue(Math.abs(packet.getYaw(0) - yaw) < 180);
+        }
+    }
+
+    @Test
+    void testProcessPacketDoesNotAllocate() throws Exception {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        Encoder encoder = createEncoder();
+        UUID receiverId = new UUID(1, 1);
+        encoder.receivePacket(PlayerTrackerTests.playerList(SPlayerListItemPacket.Action.ADD_PLAYER, receiverId, "receiver"));
+        encoder.receivePacket(PlayerTrackerTests.spawn(receiverId, 42));
+        assertTrue(encoder.getReceiver().isPresent());
+
+        // the first packet starts the initialization delay
+        CPlayerPacket packet = new CPlayerPacket.PositionRotationPacket(0.0, 64.0, 0.0, 0.0f, 0.0f, true);
+        encoder.processPacket(packet);
+        Thread.sleep(SharedPreferences.INIT_DELAY_SENDER_MS + 100);
+
+        for (int i = 0; i < WARMUP_PACKETS; i++) {
+            moveTo(packet, i * 0.3f, (i % 120) - 60.0f);
+            encoder.processPacket(packet);
+        }
+
+        long allocatedBefore = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_PACKETS; i++) {
+            moveTo(packet, i * 0.3f, (i % 120) - 60.0f);
+            encoder.processPacket(packet);
+        }
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        System.out.println("Allocated " + allocated + " bytes for " + MEASURED_PACKETS + " packets");
+
+        assertEquals(0, allocated);
+    }
+
+    @Test
+    void testLinkControllerStretchesSyncInterval() {
+        LinkController linkController = new LinkController(1, 1, 4);
+        for (int i = 0; i < 2; i++) {
+            linkController.recordDelivered(LinkController.EVALUATION_WINDOW); // clean windows
+        }
+        assertEquals(4, linkController.getBytesPerSync());
+
+        Encoder adaptive = createEncoder();
+        adaptive.setLinkController(linkController);
+
+        int staticSyncs = countSyncPackets(createEncoder(), 2000);
+        int adaptiveSyncs = countSyncPackets(adaptive, 2000);
+
+        // one preamble per 4 bytes instead of one per byte
+        assertTrue(adaptiveSyncs * 2 < staticSyncs, adaptiveSyncs + " vs " + staticSyncs + " sync packets");
+    }
+
+    @Test
+    void testOnlyMovingAxisCarriesBits() {
+        StegoKey stegoKey = StegoKey.parse(STEGO_KEY);
+        Encoder encoder = createEncoder();
+        CPlayerPacket packet = new CPlayerPacket.RotationPacket(0.0f, 0.0f, true);
+        int pitchChanges = 0;
+        int yawChanges = 0;
+        byte previousPitch = 0;
+        byte previousYaw = 0;
+
+        for (int i = 0; i < 2000; i++) {
+            moveTo(packet, i * 0.7f, 10.0f); // the player only turns around
+            encoder.encodePacket(packet);
+
+            byte pitch = AngleCodec.toWire(packet.getPitch(0));
+            byte yaw = AngleCodec.toWire(packet.getYaw(0));
+            boolean sync = stegoKey.contains(pitch) || stegoKey.contains(yaw);
+            if (!sync && pitch != previousPitch) {
+                pitchChanges++;
+            }
+            if (!sync && yaw != previousYaw) {
+                yawChanges++;
+            }
+            previousPitch = pitch;
+            previousYaw = yaw;
+        }
+
+        assertTrue(pitchChanges * 4 < yawChanges, pitchChanges + " pitch vs " + yawChanges + " yaw changes");
+    }
+
+    @Test
+    void testIdlePlayerStillSendsMessage() {
+        MessageBuffer messageBuffer = new MessageBuffer("The quick brown fox");
+        Encoder encoder = new Encoder(messageBuffer, "receiver", StegoKey.parse(STEGO_KEY));
+        encoder.setPrintToStdout(false);
+        CPlayerPacket packet = new CPlayerPacket.RotationPacket(0.0f, 0.0f, true);
+
+        for (int i = 0; i < 2000; i++) {
+            moveTo(packet, 45.0f, 10.0f); // the player does not move at all
+            encoder.encodePacket(packet);
+        }
+
+        assertEquals(0, messageBuffer.size());
+    }
+
+    @Test
+    void benchmarkSymbolBits() {
+        StegoKey stegoKey = StegoKey.parse(STEGO_KEY);
+        double[] bitsPerPacket = new double[SharedPreferences.MAX_SYMBOL_BITS + 1];
+        double[] adjustment = new double[SharedPreferences.MAX_SYMBOL_BITS + 1];
+
+        for (int symbolBits = 1; symbolBits <= SharedPreferences.MAX_SYMBOL_BITS; symbolBits++) {
+            MessageBuffer messageBuffer = new MessageBuffer(new String(new char[4096]).replace('\0', 'x'));
+            Encoder encoder = new Encoder(messageBuffer, "receiver", stegoKey);
+            encoder.setPrintToStdout(false);
+            encoder.setSymbolBits(symbolBits);
+
+            CPlayerPacket packet = new CPlayerPacket.RotationPacket(0.0f, 0.0f, true);
+            Random random = new Random(1);
+            float yaw = 0;
+            float pitch = 0;
+            long distortion = 0;
+            int validPackets = 0;
+
+            for (int i = 0; i < BENCHMARK_PACKETS; i++) {
+                yaw += random.nextFloat() * 3;
+                pitch = Math.max(-80, Math.min(80, pitch + random.nextFloat() * 2 - 1));
+                moveTo(packet, yaw, pitch);
+                encoder.encodePacket(packet);
+
+                byte pitchWire = AngleCodec.toWire(packet.getPitch(0));
+                byte yawWire = AngleCodec.toWire(packet.getYaw(0));
+                if (!stegoKey.contains(pitchWire) && !stegoKey.contains(yawWire)) {
+                    distortion += Math.abs(pitchWire - AngleCodec.toWire(pitch));
+                    distortion += Math.abs(AngleCodec.toWireInt(packet.getYaw(0)) - AngleCodec.toWireInt(yaw));
+                    validPackets++;
+                }
+            }
+
+            bitsPerPacket[symbolBits] = (4096 - messageBuffer.size()) * 8.0 / BENCHMARK_PACKETS;
+            adjustment[symbolBits] = distortion * 360.0 / 256 / (2 * validPackets);
+            System.out.println("Symbol bits " + symbolBits + ": " + bitsPerPacket[symbolBits] + " bit/packet, " +
+                    adjustment[symbolBits] + " degrees adjustment per angle");
+        }
+
+        // more bits per angle raise the bitrate at least twofold and cost a larger adjustment of the angles
+        assertTrue(bitsPerPacket[2] > 1.5 * bitsPerPacket[1]);
+        assertTrue(bitsPerPacket[3] > bitsPerPacket[2]);
+        assertTrue(bitsPerPacket[3] >= 2 * bitsPerPacket[1]);
+        assertTrue(adjustment[2] >= adjustment[1]);
+        assertTrue(adjustment[3] > adjustment[2]);
+    }
+
+    @Test
+    void testPositionCarrierSpacesSymbols() {
+        MessageBuffer messageBuffer = new MessageBuffer(new String(new char[1024]).replace('\0', 'x'));
+        Encoder encoder = new Encoder(messageBuffer, "receiver", StegoKey.parse(STEGO_KEY));
+        encoder.setPrintToStdout(false);
+        encoder.setPositionBits(2);
+        CPlayerPacket packet = new CPlayerPacket.PositionRotationPacket(100.3, 64.0, -50.7, 0.0f, 10.0f, true);
+        PacketAccessor accessor = PacketAccessor.of(packet.getClass());
+
+        long previous = 0;
+        int lastSymbol = -10;
+        int symbols = 0;
+        for (int i = 0; i < 1000; i++) {
+            double x = 100.3 + i * 0.2;
+            accessor.setX(packet, x); // the player walks while turning around
+            moveTo(packet, i * 0.7f, 10.0f);
+            encoder.encodePacket(packet);
+
+            long wire = PositionCodec.toWire(packet.getX(0));
+            assertTrue(Math.abs(packet.getX(0) - x) < (PositionCodec.modulus(2) / 2 + 1.0) / 4096);
+            if (i > 0 && PositionCodec.toResidue(wire - previous, 2) != 0) {
+                assertTrue(i - lastSymbol >= SharedPreferences.SERVER_TRACKING_INTERVAL, "symbols in packet " + lastSymbol + " and " + i);
+                lastSymbol = i;
+                symbols++;
+            }
+            previous = wire;
+        }
+
+        assertTrue(symbols > 100, symbols + " symbols");
+    }
+
+    @Test
+    void testWalkingPlayerSendsPreamble() {
+        MessageBuffer messageBuffer = new MessageBuffer(new String(new char[1024]).replace('\0', 'x'));
+        Encoder encoder = new Encoder(messageBuffer, "receiver", StegoKey.parse(STEGO_KEY));
+        encoder.setPrintToStdout(false);
+        encoder.setPositionBits(2);
+        CPlayerPacket packet = new CPlayerPacket.PositionPacket(100.3, 64.0, -50.7, true);
+        PacketAccessor accessor = PacketAccessor.of(packet.getClass());
+
+        long previous = 0;
+        int lastMark = -10;
+        int syncs = 0;
+        int symbols = 0;
+        for (int i = 0; i < 2000; i++) {
+            accessor.setX(packet, 100.3 + i * 0.2); // the player only walks, the client sends no rotation
+            encoder.encodePacket(packet);
+
+            long wire = PositionCodec.toWire(packet.getX(0));
+            int residue = PositionCodec.toResidue(wire - previous, 2);
+            if (i > 0 && residue != 0) {
+                assertTrue(i - lastMark >= SharedPreferences.SERVER_TRACKING_INTERVAL, "moves " + lastMark + " and " + i);
+                lastMark = i;
+                if (residue == PositionCodec.syncResidue(2)) {
+                    syncs++;
+                } else {
+                    symbols++;
+                }
+            }
+            previous = wire;
+        }
+
+        assertTrue(syncs > StegoKey.parse(STEGO_KEY).size() + SharedPreferences.PREAMBLE_LENGTH, syncs + " syncs");
+        assertTrue(symbols > 100, symbols + " symbols");
+        assertTrue(messageBuffer.size() < 1024);
+    }
+
+    private static int countSyncPackets(Encoder encoder, int packets) {
+        StegoKey stegoKey = StegoKey.parse(STEGO_KEY);
+        CPlayerPacket packet = new CPlayerPacket.RotationPacket(0.0f, 0.0f, true);
+        int syncs = 0;
+
+        for (int i = 0; i < packets; i++) {
+            moveTo(packet, i * 0.7f, (i % 100) - 50.0f);
+            encoder.encodePacket(packet);
+            if (stegoKey.contains(AngleCodec.toWire(packet.getPitch(0))) || stegoKey.contains(AngleCodec.toWire(packet.getYaw(0)))) {
+                syncs++;
+            }
+        }
+        return syncs;
+    }
+
+    private static Encoder createEncoder() {
+        MessageBuffer messageBuffer = new MessageBuffer("The quick brown fox jumps over the lazy dog");
+        Encoder encoder = new Encoder(messageBuffer, "receiver", StegoKey.parse(STEGO_KEY));
+        encoder.setPrintToStdout(false);
+
+        return encoder;
+    }
+
+    private static void moveTo(CPlayerPacket packet, float yaw, float pitch) {
+        PacketAccessor accessor = PacketAccessor.of(packet.getClass());
+        accessor.setYaw(packet, yaw);
+        accessor.setPitch(packet, pitch);
+    }
+}
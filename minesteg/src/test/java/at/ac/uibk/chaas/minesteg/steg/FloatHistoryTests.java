@@ -0,0 +1,91 @@
+package at.ac.uibk.chaas.minesteg.steg;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FloatHistoryTests {
+    @Test
+    void testInitialState() {
+        FloatHistory history = new FloatHistory(5);
+
+        assertEquals(5, history.capacity());
+        assertEquals(0.0f, history.getLatest());
+        assertEquals(0.0f, history.getTrend());
+    }
+
+    @Test
+    void testOrder() {
+        FloatHistory history = new FloatHistory(3);
+        history.add(1.0f);
+        history.add(2.0f);
+        history.add(3.0f);
+        history.add(4.0f);
+
+        assertEquals(2.0f, history.get(0));
+        assertEquals(3.0f, history.get(1));
+        assertEquals(4.0f, history.get(2));
+        assertEquals(4.0f, history.getLatest());
+    }
+
+    @Test
+    void testTrendDirection() {
+        FloatHistory history = new FloatHistory(5);
+        for (int i = 0; i < 10; i++) {
+            history.add(i * 2.0f);
+        }
+        assertEquals(2.0f, history.getTrend(), 0.0001f);
+
+        for (int i = 10; i > 0; i--) {
+            history.add(i * 2.0f);
+        }
+        assertTrue(history.getTrend() < 0);
+    }
+
+    @Test
+    void testNewestDifferenceWeighsMost() {
+        FloatHistory history = new FloatHistory(5);
+        for (float value : new float[]{0.0f, 1.0f, 1.0f, 1.0f, 0.0f}) {
+            history.add(value);
+        }
+
+        // differences 1, 0, 0, -1 weighted 1..4: the latest turn decides the direction
+        assertEquals(-0.3f, history.getTrend(), 0.0001f);
+
+        // the former weighting by 1/i followed the oldest difference
+        float formerTrend = 0;
+        for (int i = history.capacity() - 1; i > 0; --i) {
+            formerTrend += (history.get(i) - history.get(i - 1)) / i;
+        }
+        assertTrue(formerTrend > 0);
+    }
+
+    @Test
+    void testIncrementalTrendMatchesFullCalculation() {
+        Random random = new Random(42);
+        FloatHistory history = new FloatHistory(300);
+
+        for (int i = 0; i < 5000; i++) {
+            history.add(random.nextFloat() * 360.0f - 180.0f);
+
+            double weighted = 0;
+            for (int j = 1; j < history.capacity(); j++) {
+                weighted += j * (double) (history.get(j) - history.get(j - 1));
+            }
+            double expected = weighted / (299 * 300 / 2.0);
+
+            assertEquals(expected, history.getTrend(), 0.001);
+        }
+    }
+
+    @Test
+    void testSingleValueHistory() {
+        FloatHistory history = new FloatHistory(1);
+        history.add(12.0f);
+
+        assertEquals(12.0f, history.getLatest());
+        assertEquals(0.0f, history.getTrend());
+    }
+}
@@ -0,0 +1,48 @@
+package at.ac.uibk.chaas.minesteg.steg;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IdleBackoffRunnerTests {
+
+    @Test
+    void testInvalidMaxIdleSleep() {
+        assertThrows(IllegalArgumentException.class, () -> new IdleBackoffRunner("test", () -> 0, 0));
+    }
+
+    @Test
+    void testStepRunsUntilStopped() throws InterruptedException {
+        AtomicInteger work = new AtomicInteger(100);
+        IdleBackoffRunner runner = new IdleBackoffRunner("test", () -> work.get() > 0 ? work.getAndDecrement() : 0, 10);
+        runner.start();
+        assertTrue(runner.isRunning());
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (work.get() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(0, work.get());
+
+        runner.stop();
+        assertFalse(runner.isRunning());
+        assertNull(runner.getFailure());
+    }
+
+    @Test
+    void testFailingStepStopsRunner() throws InterruptedException {
+        IdleBackoffRunner runner = new IdleBackoffRunner("test", () -> {
+            throw new RuntimeException("FATAL: step failed!");
+        }, 10);
+        runner.start();
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (runner.isRunning() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertFalse(runner.isRunning());
+        assertEquals("FATAL: step failed!", runner.getFailure().getMessage());
+    }
+}
@@ -0,0 +1,71 @@
+package at.ac.uibk.chaas.minesteg.steg;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LinkControllerTests {
+    @Test
+    void testCleanChannel() {
+        LinkController controller = new LinkController(0, 3, 8);
+        assertEquals(SharedPreferences.MIN_REPEAT_COUNT, controller.getRepeatCount());
+        assertEquals(1, controller.getBytesPerSync());
+
+        controller.recordDelivered(LinkController.EVALUATION_WINDOW);
+        assertEquals(0, controller.getRepeatCount());
+        assertEquals(1, controller.getBytesPerSync());
+
+        for (int i = 0; i < 10; i++) {
+            controller.recordDelivered(LinkController.EVALUATION_WINDOW);
+        }
+        assertEquals(0, controller.getRepeatCount());
+        assertEquals(8, controller.getBytesPerSync());
+        assertEquals(0.0, controller.getLossRate());
+        assertEquals(4, controller.getAdjustments());
+    }
+
+    @Test
+    void testBackOffOnLoss() {
+        LinkController controller = new LinkController(0, 3, 8);
+        for (int i = 0; i < 3; i++) {
+            controller.recordDelivered(LinkController.EVALUATION_WINDOW);
+        }
+        assertEquals(4, controller.getBytesPerSync());
+
+        controller.recordDelivered(24);
+        controller.recordLost(8);
+        assertEquals(2, controller.getBytesPerSync());
+        assertEquals(1, controller.getRepeatCount());
+        assertEquals(0.125, controller.getLossRate(), 0.001);
+
+        for (int i = 0; i < 5; i++) {
+            controller.recordLost(LinkController.EVALUATION_WINDOW);
+        }
+        assertEquals(1, controller.getBytesPerSync());
+        assertEquals(3, controller.getRepeatCount());
+        assertTrue(controller.getLossRate() > 0.9);
+    }
+
+    @Test
+    void testModerateLossKeepsSettings() {
+        LinkController controller = new LinkController(0, 3, 8);
+        controller.recordDelivered(30);
+        controller.recordLost(2);
+
+        assertEquals(1, controller.getRepeatCount());
+        assertEquals(1, controller.getBytesPerSync());
+        assertEquals(0, controller.getAdjustments());
+    }
+
+    @Test
+    void testStaticSettings() {
+        LinkController controller = new LinkController();
+        for (int i = 0; i < 10; i++) {
+            controller.recordDelivered(LinkController.EVALUATION_WINDOW);
+            controller.recordLost(LinkController.EVALUATION_WINDOW);
+        }
+
+        assertEquals(SharedPreferences.MIN_REPEAT_COUNT, controller.getRepeatCount());
+        assertEquals(1, controller.getBytesPerSync());
+    }
+}
@@ -0,0 +1,198 @@
+package at.ac.uibk.chaas.minesteg.steg;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MessageBufferTests {
+    @Test
+    void testFifoOrder() {
+        MessageBuffer buffer = new MessageBuffer("abc");
+
+        assertEquals(3, buffer.size());
+        assertEquals('a', buffer.read());
+        assertEquals('a', buffer.get());
+        assertEquals('b', buffer.get());
+        assertEquals('c', buffer.get());
+        assertEquals(0, buffer.size());
+        assertEquals(0, buffer.get()); // empty buffer returns null bytes
+    }
+
+    @Test
+    void testBulkOperationsAcrossSegments() {
+        byte[] data = new byte[100_000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+
+        MessageBuffer buffer = new MessageBuffer();
+        buffer.push(data, 0, 30_000);
+        buffer.push(data, 30_000, data.length - 30_000);
+
+        assertEquals(data.length, buffer.size());
+        assertArrayEquals(data, buffer.toBytes());
+
+        byte[] drained = new byte[data.length + 10];
+        assertEquals(7, buffer.drain(drained, 0, 7));
+        assertEquals(data.length - 7, buffer.drain(drained, 7, drained.length - 7));
+        assertEquals(0, buffer.size());
+
+        for (int i = 0; i < data.length; i++) {
+            assertEquals(data[i], drained[i]);
+        }
+    }
+
+    @Test
+    void testClear() {
+        MessageBuffer buffer = new MessageBuffer("hello world");
+        buffer.get();
+        buffer.clear();
+
+        assertEquals(0, buffer.size());
+        assertEquals("", buffer.toString());
+
+        buffer.push("x");
+        assertEquals("x", buffer.toString());
+        assertEquals('x', buffer.get());
+    }
+
+    @Test
+    void testRemoveByOffset() {
+        MessageBuffer buffer = new MessageBuffer("abc");
+        long offset = buffer.getReadOffset();
+
+        assertEquals(0, buffer.remove(offset + 1, 1));
+        assertEquals(2, buffer.remove(offset, 2));
+        assertEquals("c", buffer.toString());
+
+        // bytes that were read before a clear are not removed any more
+        long cleared = buffer.getReadOffset();
+        buffer.clear();
+        buffer.push("d");
+        assertEquals(0, buffer.remove(cleared, 1));
+        assertEquals("d", buffer.toString());
+    }
+
+    @Test
+    void testClearBetweenCommitAndConfirm() {
+        MessageBuffer buffer = new MessageBuffer("a");
+        MessageBufferSource source = new MessageBufferSource(buffer);
+        assertEquals('a', source.peek());
+        source.commit();
+
+        buffer.clear();
+        buffer.push("b");
+        assertEquals('b', source.peek());
+        source.commit();
+
+        // the confirmation of the cleared byte must not remove the new one
+        source.confirm();
+        assertEquals("b", buffer.toString());
+        source.reset();
+        assertEquals('b', source.peek());
+    }
+
+    @Test
+    void testConcurrentProducerAndConsumer() throws InterruptedException {
+        final int total = 1_000_000;
+        MessageBuffer buffer = new MessageBuffer();
+
+        Thread producer = new Thread(() -> {
+            byte[] chunk = new byte[1000];
+            for (int sent = 0; sent < total; sent += chunk.length) {
+                for (int i = 0; i < chunk.length; i++) {
+                    chunk[i] = (byte) (sent + i);
+                }
+                buffer.push(chunk, 0, chunk.length);
+            }
+        });
+        producer.start();
+
+        int received = 0;
+        while (received < total) {
+            if (buffer.size() > 0) {
+                assertEquals((byte) received, buffer.get());
+                received++;
+            }
+        }
+        producer.join();
+
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    void testObserverReadsWhileConsumerDrains() throws InterruptedException {
+        final int total = 200_000;
+        MessageBuffer buffer = new MessageBuffer();
+        byte[] chunk = new byte[1000];
+        for (int sent = 0; sent < total; sent += chunk.length) {
+            for (int i = 0; i < chunk.length; i++) {
+                chunk[i] = (byte) (sent + i);
+            }
+            buffer.push(chunk, 0, chunk.length);
+        }
+
+        Thread consumer = new Thread(() -> {
+            while (buffer.size() > 0) {
+                buffer.get();
+            }
+        });
+        consumer.start();
+
+        // the copied bytes belong to their offset even if the consumer removes them in the meantime
+        byte[] copied = new byte[5000];
+        while (consumer.isAlive()) {
+            long offset = buffer.getReadOffset();
+            int count = buffer.readFrom(offset, copied, 0, copied.length);
+            for (int i = 0; i < count; i++) {
+                assertEquals((byte) (offset + i), copied[i]);
+            }
+        }
+        consumer.join();
+    }
+
+    @Test
+    void testReadFromOffset() {
+        byte[] data = new byte[10_000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+
+        MessageBuffer buffer = new MessageBuffer();
+        buffer.push(data, 0, data.length);
+        byte[] removed = new byte[5000];
+        buffer.drain(removed, 0, removed.length);
+
+        assertEquals(5000, buffer.getReadOffset());
+        assertEquals(10_000, buffer.getWriteOffset());
+        assertEquals(-1, buffer.readFrom(4999, new byte[1], 0, 1));
+
+        byte[] out = new byte[5000];
+        assertEquals(3000, buffer.readFrom(7000, out, 0, out.length));
+        for (int i = 0; i < 3000; i++) {
+            assertEquals(data[7000 + i], out[i]);
+        }
+        assertEquals(0, buffer.readFrom(10_000, out, 0, out.length));
+        assertEquals(5000, buffer.size()); // reading from an offset does not remove bytes
+    }
+
+    @Test
+    void testAwaitData() throws InterruptedException {
+        MessageBuffer buffer = new MessageBuffer("a");
+
+        assertTrue(buffer.awaitData(0, 0));
+        assertFalse(buffer.awaitData(1, 10));
+
+        Thread producer = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ignored) {
+            }
+            buffer.push((byte) 'b');
+        });
+        producer.start();
+
+        assertTrue(buffer.awaitData(1, 10_000));
+        producer.join();
+    }
+}
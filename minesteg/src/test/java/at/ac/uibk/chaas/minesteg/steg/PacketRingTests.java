@@ -0,0 +1,105 @@
+package at.ac.uibk.chaas.minesteg.steg;
+
+import net.minecraft.network.IPacket;
+import net.minecraft.network.play.server.SEntityPacket;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PacketRingTests {
+    private static final int BENCHMARK_ITERATIONS = 2_000_000;
+    private static final double MAX_OFFER_NS = 500; // about 10 ns on a desktop, the bound leaves room for slow runners
+
+    @Test
+    void testInvalidCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new PacketRing(0));
+        assertThrows(IllegalArgumentException.class, () -> new PacketRing(100));
+        assertEquals(128, new PacketRing(128).capacity());
+    }
+
+    @Test
+    void testOrderAndResetMark() {
+        PacketRing ring = new PacketRing(4);
+        SEntityPacket first = new SEntityPacket.LookPacket(1, (byte) 1, (byte) 2, true);
+        SEntityPacket second = new SEntityPacket.LookPacket(1, (byte) 3, (byte) 4, true);
+        assertTrue(ring.isEmpty());
+
+        assertTrue(ring.offer(first, 100));
+        assertTrue(ring.offerReset());
+        assertTrue(ring.offer(second, 300));
+
+        assertSame(first, ring.poll());
+        assertEquals(100, ring.getPolledTimeMs());
+        assertNull(ring.poll());
+        assertSame(second, ring.poll());
+        assertEquals(300, ring.getPolledTimeMs());
+        assertTrue(ring.isEmpty());
+    }
+
+    @Test
+    void testFullRingDropsPackets() {
+        PacketRing ring = new PacketRing(2);
+        SEntityPacket packet = new SEntityPacket.LookPacket(1, (byte) 1, (byte) 2, true);
+
+        assertTrue(ring.offer(packet, 1));
+        assertTrue(ring.offer(packet, 2));
+        assertFalse(ring.offer(packet, 3));
+        assertEquals(1, ring.getDroppedPackets());
+
+        ring.poll();
+        assertEquals(1, ring.getPolledTimeMs());
+        assertTrue(ring.offer(packet, 4));
+    }
+
+    @Test
+    void testConcurrentHandoff() throws InterruptedException {
+        PacketRing ring = new PacketRing(64);
+        SEntityPacket packet = new SEntityPacket.LookPacket(1, (byte) 1, (byte) 2, true);
+        int count = 200_000;
+
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < count; i++) {
+                while (!ring.offer(packet, i)) {
+                    Thread.yield();
+                }
+            }
+        });
+        producer.start();
+
+        for (int i = 0; i < count; i++) {
+            while (ring.isEmpty()) {
+                Thread.yield();
+            }
+            IPacket<?> polled = ring.poll();
+            assertSame(packet, polled);
+            assertEquals(i, ring.getPolledTimeMs());
+        }
+        producer.join();
+        assertTrue(ring.isEmpty());
+    }
+
+    @Test
+    void benchmarkOffer() {
+        PacketRing ring = new PacketRing(1024);
+        SEntityPacket packet = new SEntityPacket.LookPacket(1, (byte) 1, (byte) 2, true);
+
+        long offerNs = 0;
+        int offers = 0;
+        for (; offers < BENCHMARK_ITERATIONS; offers += ring.capacity()) {
+            long start = System.nanoTime();
+            for (int j = 0; j < ring.capacity(); j++) {
+                ring.offer(packet, j);
+            }
+            offerNs += System.nanoTime() - start;
+
+            while (!ring.isEmpty()) {
+                ring.poll();
+            }
+        }
+
+        double nsPerOffer = offerNs / (double) offers;
+        System.out.println("Ring offer: " + nsPerOffer + " ns/packet");
+        assertEquals(0, ring.getDroppedPackets());
+        assertTrue(nsPerOffer < MAX_OFFER_NS, nsPerOffer + " ns/packet");
+    }
+}
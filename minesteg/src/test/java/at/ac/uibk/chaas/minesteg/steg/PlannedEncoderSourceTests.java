@@ -0,0 +1,102 @@
+package at.ac.uibk.chaas.minesteg.steg;
+
+import at.ac.uibk.chaas.minesteg.frame.FrameEncoderSource;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PlannedEncoderSourceTests {
+
+    @Test
+    void testInvalidLookahead() {
+        MessageBufferSource upstream = new MessageBufferSource(new MessageBuffer());
+        assertThrows(IllegalArgumentException.class, () -> new PlannedEncoderSource(upstream, 0));
+        assertThrows(IllegalArgumentException.class, () -> new PlannedEncoderSource(upstream, 6));
+    }
+
+    @Test
+    void testMessagePlannedAhead() {
+        PlannedEncoderSource source = new PlannedEncoderSource(new MessageBufferSource(new MessageBuffer("abc")), 8);
+        assertFalse(source.isReady());
+
+        // the padding after the message is only planned once the encoder took the message
+        assertEquals(3, source.plan());
+        assertEquals(0, source.plan());
+        assertEquals("abc", take(source, 3));
+        assertFalse(source.isReady());
+
+        assertEquals(1, source.plan());
+        assertEquals(0, source.peek());
+    }
+
+    @Test
+    void testResetSendsUnconfirmedBytes() {
+        MessageBuffer messageBuffer = new MessageBuffer("abcd");
+        PlannedEncoderSource source = new PlannedEncoderSource(new MessageBufferSource(messageBuffer), 8);
+        source.plan();
+        assertEquals("ab", take(source, 2));
+        source.confirm();
+        source.reset();
+
+        // the prepared bytes are skipped until the planner catches up
+        assertFalse(source.isReady());
+        source.plan();
+        assertEquals("bcd", take(source, 3));
+        assertEquals(3, messageBuffer.size());
+    }
+
+    @Test
+    void testFrameEndWaitsForEncoder() {
+        FrameEncoderSource upstream = new FrameEncoderSource(new MessageBufferSource(new MessageBuffer("abcdef")), 2);
+        PlannedEncoderSource source = new PlannedEncoderSource(upstream, 16);
+        assertTrue(source.isFramed());
+
+        int planned = source.plan();
+        assertTrue(planned > 1 && planned < 16);
+        assertTrue(source.startsFrame());
+        take(source, planned);
+        assertFalse(source.startsFrame());
+
+        // the last byte of the frame and the next frame are planned after the encoder took the frame
+        assertEquals(planned + 1, source.plan());
+        take(source, 1);
+        assertTrue(source.startsFrame());
+    }
+
+    @Test
+    void testFailingUpstreamStopsPlanner() throws InterruptedException {
+        MessageBufferSource upstream = new MessageBufferSource(new MessageBuffer("abc")) {
+            private int commits = 0;
+
+            @Override
+            public void commit() {
+                if (++commits > 2) {
+                    throw new RuntimeException("FATAL: too many unconfirmed bytes!");
+                }
+                super.commit();
+            }
+        };
+        PlannedEncoderSource source = new PlannedEncoderSource(upstream, 8);
+        source.start();
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (source.isRunning() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+
+        // the bytes prepared before the failure are still sent
+        assertFalse(source.isRunning());
+        assertEquals("ab", take(source, 2));
+        assertFalse(source.isReady());
+    }
+
+    private static String take(PlannedEncoderSource source, int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            assertTrue(source.isReady());
+            sb.append((char) source.peek());
+            source.commit();
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,142 @@
+package at.ac.uibk.chaas.minesteg.steg;
+
+import at.ac.uibk.chaas.minesteg.HelperUtil;
+import com.mojang.authlib.GameProfile;
+import net.minecraft.network.play.server.SDestroyEntitiesPacket;
+import net.minecraft.network.play.server.SPlayerListItemPacket;
+import net.minecraft.network.play.server.SRespawnPacket;
+import net.minecraft.network.play.server.SSpawnPlayerPacket;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PlayerTrackerTests {
+    private static final UUID SENDER_ID = new UUID(1, 1);
+    private static final UUID OTHER_ID = new UUID(2, 2);
+
+    @Test
+    void testSpawnAndDestroy() throws Exception {
+        PlayerTracker tracker = new PlayerTracker("sender");
+        assertFalse(tracker.isSpawned());
+
+        tracker.update(playerList(SPlayerListItemPacket.Action.ADD_PLAYER, OTHER_ID, "other", SENDER_ID, "sender"));
+        tracker.update(spawn(OTHER_ID, 7));
+        assertEquals(PlayerTracker.NO_ENTITY, tracker.getEntityId());
+
+        tracker.update(spawn(SENDER_ID, 42));
+        assertTrue(tracker.isSpawned());
+        assertEquals(42, tracker.getEntityId());
+
+        tracker.update(new SDestroyEntitiesPacket(7));
+        assertEquals(42, tracker.getEntityId());
+
+        tracker.update(new SDestroyEntitiesPacket(5, 42));
+        assertEquals(PlayerTracker.NO_ENTITY, tracker.getEntityId());
+    }
+
+    @Test
+    void testRespawnAndLeave() throws Exception {
+        PlayerTracker tracker = new PlayerTracker("sender");
+        tracker.update(playerList(SPlayerListItemPacket.Action.ADD_PLAYER, SENDER_ID, "sender"));
+        tracker.update(spawn(SENDER_ID, 42));
+        assertEquals(42, tracker.getEntityId());
+
+        tracker.update(new SRespawnPacket());
+        assertFalse(tracker.isSpawned());
+
+        tracker.update(spawn(SENDER_ID, 43));
+        assertEquals(43, tracker.getEntityId());
+
+        // the player left, a later spawn with the same profile id needs a new player list entry
+        tracker.update(playerList(SPlayerListItemPacket.Action.REMOVE_PLAYER, SENDER_ID, null));
+        assertFalse(tracker.isSpawned());
+
+        tracker.update(spawn(SENDER_ID, 44));
+        assertFalse(tracker.isSpawned());
+    }
+
+    @Test
+    void testPresenceChanges() throws Exception {
+        PresenceTracker presenceTracker = new PresenceTracker();
+        int[] resets = new int[1];
+        int[] resumes = new int[1];
+        PlayerTracker sender = presenceTracker.subscribe("sender", new PresenceListener() {
+            @Override
+            public void onReset(PlayerTracker player) {
+                resets[0]++;
+            }
+
+            @Override
+            public void onResume(PlayerTracker player) {
+                resumes[0]++;
+            }
+        });
+        assertSame(sender, presenceTracker.track("sender"));
+        assertFalse(presenceTracker.isPresent("sender"));
+        assertFalse(presenceTracker.isPresent("other"));
+
+        presenceTracker.update(playerList(SPlayerListItemPacket.Action.ADD_PLAYER, SENDER_ID, "sender"));
+        assertFalse(presenceTracker.isPresent("sender"));
+
+        presenceTracker.update(spawn(SENDER_ID, 42));
+        assertTrue(presenceTracker.isPresent("sender"));
+        assertEquals(1, resumes[0]);
+        assertEquals(0, resets[0]);
+        assertTrue(sender.getJoinedMs() > 0);
+        assertEquals(0, sender.getLeftMs());
+
+        // unrelated packets do not change the presence
+        presenceTracker.update(new SDestroyEntitiesPacket(7));
+        assertTrue(presenceTracker.isPresent("sender"));
+        assertEquals(1, resumes[0]);
+
+        presenceTracker.update(new SDestroyEntitiesPacket(42));
+        assertFalse(presenceTracker.isPresent("sender"));
+        assertEquals(1, resets[0]);
+        assertTrue(sender.getLeftMs() >= sender.getJoinedMs());
+    }
+
+    @Test
+    void testEncoderWithoutSharedTrackerSeesReceivedPackets() throws Exception {
+        Encoder encoder = new Encoder(new MessageBuffer("abc"), "receiver",
+                StegoKey.parse("-126,-100,-85,-72,-63,-51,-44,-30,-22,-11,-6,5,16,26,32,48,55,62,87,99,112,126"));
+        encoder.setPrintToStdout(false);
+        PlayerTracker receiver = encoder.getReceiver();
+
+        encoder.receivePacket(playerList(SPlayerListItemPacket.Action.ADD_PLAYER, SENDER_ID, "receiver"));
+        encoder.receivePacket(spawn(SENDER_ID, 42));
+        assertTrue(receiver.isPresent());
+
+        encoder.receivePacket(new SDestroyEntitiesPacket(42));
+        assertFalse(receiver.isPresent());
+        assertTrue(receiver.getLeftMs() >= receiver.getJoinedMs());
+    }
+
+    static SPlayerListItemPacket playerList(SPlayerListItemPacket.Action action, Object... idsAndNames)
+            throws Exception {
+        SPlayerListItemPacket packet = new SPlayerListItemPacket();
+        setField(packet, "action", action);
+        for (int i = 0; i < idsAndNames.length; i += 2) {
+            GameProfile profile = new GameProfile((UUID) idsAndNames[i], (String) idsAndNames[i + 1]);
+            packet.getEntries().add(packet.new AddPlayerData(profile, 0, null, null));
+        }
+        return packet;
+    }
+
+    static SSpawnPlayerPacket spawn(UUID profileId, int entityId) throws Exception {
+        SSpawnPlayerPacket packet = new SSpawnPlayerPacket();
+        setField(packet, "uniqueId", profileId);
+        setField(packet, "entityId", entityId);
+        return packet;
+    }
+
+    private static void setField(Object packet, String fieldName, Object value) throws Exception {
+        Field field = HelperUtil.findUnderlyingField(packet.getClass(), fieldName);
+        assertNotNull(field);
+        field.setAccessible(true);
+        field.set(packet, value);
+    }
+}
@@ -0,0 +1,47 @@
+package at.ac.uibk.chaas.minesteg.steg;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PositionCodecTests {
+    @Test
+    void testWireConversionRoundTrip() {
+        double[] coordinates = new double[]{0.0, 0.5, -0.5, 100.3, -50.7, 29999984.0, -29999984.0};
+
+        for (double coordinate : coordinates) {
+            long wire = PositionCodec.toWire(coordinate);
+
+            assertEquals((long) Math.floor(coordinate * 4096.0), wire);
+            assertEquals(wire, PositionCodec.toWire(PositionCodec.toCoordinate(wire)));
+        }
+    }
+
+    @Test
+    void testNearestWireCarriesResidue() {
+        for (int bits = 1; bits <= PositionCodec.MAX_SYMBOL_BITS; bits++) {
+            int modulus = PositionCodec.modulus(bits);
+
+            for (long target = -40; target <= 40; target++) {
+                for (int residue = 0; residue < modulus; residue++) {
+                    long wire = PositionCodec.nearestWire(target, 7, residue, bits);
+
+                    assertEquals(residue, PositionCodec.toResidue(wire - 7, bits));
+                    assertTrue(Math.abs(wire - target) <= modulus / 2);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testMergedMovesKeepSymbol() {
+        int bits = 2;
+        long start = PositionCodec.toWire(12.3);
+
+        // a symbol followed by a move with the residue 0, the server relays both as one relative move
+        long withSymbol = PositionCodec.nearestWire(start + 800, start, 3 + 1, bits);
+        long filler = PositionCodec.nearestWire(withSymbol + 800, withSymbol, 0, bits);
+
+        assertEquals(3 + 1, PositionCodec.toResidue(filler - start, bits));
+    }
+}
@@ -0,0 +1,147 @@
+package at.ac.uibk.chaas.minesteg.steg;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SpooledMessageBufferTests {
+    private static final int SEGMENT_SIZE = 64;
+
+    private File spoolDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        spoolDir = Files.createTempDirectory("minesteg-spool").toFile();
+    }
+
+    @AfterEach
+    void tearDown() {
+        File[] files = spoolDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        spoolDir.delete();
+    }
+
+    @Test
+    void testFifo() throws IOException {
+        SpooledMessageBuffer buffer = new SpooledMessageBuffer(spoolDir, SEGMENT_SIZE);
+        buffer.push("hello");
+
+        assertEquals(5, buffer.size());
+        assertEquals('h', buffer.peek());
+        assertEquals('h', buffer.read());
+        assertEquals('h', buffer.get());
+        assertEquals("ello", buffer.toString());
+
+        byte[] out = new byte[10];
+        assertEquals(4, buffer.drain(out, 0, out.length));
+        assertEquals(0, buffer.size());
+        assertEquals(-1, buffer.peek());
+        assertEquals(0, buffer.get());
+    }
+
+    @Test
+    void testResumeAfterReopen() throws IOException {
+        SpooledMessageBuffer buffer = new SpooledMessageBuffer(spoolDir, SEGMENT_SIZE);
+        buffer.push("persistent message");
+        buffer.get();
+        buffer.get();
+        buffer.flush();
+
+        SpooledMessageBuffer reopened = new SpooledMessageBuffer(spoolDir, SEGMENT_SIZE);
+        assertEquals("rsistent message", reopened.toString());
+
+        reopened.push("!");
+        assertEquals("rsistent message!", reopened.toString());
+    }
+
+    @Test
+    void testSegmentRollover() throws IOException {
+        SpooledMessageBuffer buffer = new SpooledMessageBuffer(spoolDir, SEGMENT_SIZE);
+
+        byte[] data = new byte[SEGMENT_SIZE * 3 + 10];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        buffer.push(data, 0, data.length);
+
+        assertEquals(data.length, buffer.size());
+        assertArrayEquals(data, buffer.toBytes());
+        assertEquals(4, countSegments());
+
+        byte[] out = new byte[data.length];
+        int off = buffer.drain(out, 0, SEGMENT_SIZE * 2 + 5);
+        for (int i = off; i < out.length; i++) {
+            out[i] = buffer.get();
+        }
+        assertArrayEquals(data, out);
+
+        // consumed segments are deleted
+        assertEquals(1, countSegments());
+    }
+
+    @Test
+    void testClear() throws IOException {
+        SpooledMessageBuffer buffer = new SpooledMessageBuffer(spoolDir, SEGMENT_SIZE);
+        buffer.push(new byte[SEGMENT_SIZE * 2], 0, SEGMENT_SIZE * 2);
+        buffer.clear();
+
+        assertEquals(0, buffer.size());
+        assertEquals(0, countSegments());
+
+        buffer.push("abc");
+        assertEquals("abc", new SpooledMessageBuffer(spoolDir, SEGMENT_SIZE).toString());
+    }
+
+    @Test
+    void testRemoveAfterClear() throws IOException {
+        SpooledMessageBuffer buffer = new SpooledMessageBuffer(spoolDir, SEGMENT_SIZE);
+        buffer.push(new byte[SEGMENT_SIZE + 1], 0, SEGMENT_SIZE + 1);
+        long offset = buffer.getReadOffset();
+
+        assertEquals(SEGMENT_SIZE, buffer.remove(offset, SEGMENT_SIZE));
+        assertEquals(1, buffer.size());
+
+        long cleared = buffer.getReadOffset();
+        buffer.clear();
+        buffer.push("x");
+        assertEquals(0, buffer.remove(cleared, 1));
+        assertEquals('x', buffer.get());
+        assertEquals(1, countSegments());
+    }
+
+    @Test
+    void testReadFromOffset() throws IOException {
+        SpooledMessageBuffer buffer = new SpooledMessageBuffer(spoolDir, SEGMENT_SIZE);
+
+        byte[] data = new byte[SEGMENT_SIZE * 3];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        buffer.push(data, 0, data.length);
+        buffer.drain(new byte[SEGMENT_SIZE + 1], 0, SEGMENT_SIZE + 1);
+
+        assertEquals(-1, buffer.readFrom(SEGMENT_SIZE, new byte[1], 0, 1));
+
+        byte[] out = new byte[SEGMENT_SIZE * 2];
+        assertEquals(SEGMENT_SIZE + 10, buffer.readFrom(SEGMENT_SIZE * 2 - 10, out, 0, out.length));
+        for (int i = 0; i < SEGMENT_SIZE + 10; i++) {
+            assertEquals(data[SEGMENT_SIZE * 2 - 10 + i], out[i]);
+        }
+        assertEquals(SEGMENT_SIZE * 2 - 1, buffer.size());
+    }
+
+    private int countSegments() {
+        File[] files = spoolDir.listFiles((dir, name) -> name.startsWith("segment-"));
+        return files == null ? 0 : files.length;
+    }
+}
@@ -0,0 +1,61 @@
+package at.ac.uibk.chaas.minesteg.steg;
+
+import at.ac.uibk.chaas.minesteg.HelperUtil;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StegoKeyTests {
+    private static final int[] KEY = new int[]{-126, -100, -85, -72, -63, -51, -44, -30, -22, -11, -6, 5, 16, 26, 32, 48, 55, 62, 87, 99, 112, 126};
+
+    @Test
+    void testParse() {
+        StegoKey stegoKey = StegoKey.parse("-126,-100, 5,16");
+
+        assertEquals(4, stegoKey.size());
+        assertArrayEquals(new int[]{-126, -100, 5, 16}, stegoKey.toArray());
+    }
+
+    @Test
+    void testInvalidKeys() {
+        assertThrows(IllegalArgumentException.class, () -> new StegoKey(new int[0]));
+        assertThrows(IllegalArgumentException.class, () -> new StegoKey(new int[]{1, 200}));
+    }
+
+    @Test
+    void testContainsMatchesArrayScan() {
+        StegoKey stegoKey = new StegoKey(KEY);
+
+        for (int wire = Byte.MIN_VALUE; wire <= Byte.MAX_VALUE; wire++) {
+            assertEquals(HelperUtil.arrayContains(KEY, (byte) wire), stegoKey.contains((byte) wire));
+        }
+
+        // int values are interpreted as wire bytes, like unbounded yaw values
+        assertTrue(stegoKey.contains(-11 + 256));
+        assertTrue(stegoKey.contains(5 - 512));
+    }
+
+    @Test
+    void testNearestKeyValueMatchesArrayScan() {
+        StegoKey stegoKey = new StegoKey(KEY);
+
+        for (int wire = Byte.MIN_VALUE; wire <= Byte.MAX_VALUE; wire++) {
+            assertEquals(HelperUtil.findNearestNumber(KEY, wire, true), stegoKey.nearestKeyValue((byte) wire, true));
+            assertEquals(HelperUtil.findNearestNumber(KEY, wire, false), stegoKey.nearestKeyValue((byte) wire, false));
+        }
+    }
+
+    @Test
+    void testNearestNonKeyValue() {
+        StegoKey stegoKey = new StegoKey(new int[]{4, 5, 6, 127, -128});
+
+        assertEquals(3, stegoKey.nearestNonKeyValue(3, true));
+        assertEquals(7, stegoKey.nearestNonKeyValue(4, true));
+        assertEquals(3, stegoKey.nearestNonKeyValue(6, false));
+
+        // wrap around the byte boundaries, unbounded values keep their range
+        assertEquals(129, stegoKey.nearestNonKeyValue(127, true));
+        assertEquals(126, stegoKey.nearestNonKeyValue(-128 + 256, false));
+        assertEquals(263, stegoKey.nearestNonKeyValue(260, true));
+    }
+}